@@ -1,14 +1,20 @@
 package gov.changsha.finance.config;
 
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import gov.changsha.finance.config.redis.CompactCacheSerializer;
+import gov.changsha.finance.config.redis.LongCodec;
+import gov.changsha.finance.config.redis.UserPrincipalCodec;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.List;
 import java.util.concurrent.Executor;
 
 /**
@@ -24,10 +30,22 @@ import java.util.concurrent.Executor;
 public class RedisAsyncConfig {
     
     /**
-     * 配置RedisTemplate
+     * 配置RedisTemplate（写入JSON，可读取JSON和紧凑二进制两种格式）
      */
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+        return createTemplate(connectionFactory, false);
+    }
+    
+    /**
+     * 配置紧凑二进制RedisTemplate（热点缓存类型写入二进制，可读取两种格式）
+     */
+    @Bean
+    public RedisTemplate<String, Object> compactRedisTemplate(RedisConnectionFactory connectionFactory) {
+        return createTemplate(connectionFactory, true);
+    }
+    
+    private RedisTemplate<String, Object> createTemplate(RedisConnectionFactory connectionFactory, boolean binaryWrites) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
@@ -35,18 +53,30 @@ public class RedisAsyncConfig {
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
         
-        // 设置value序列化方式
+        // 设置value序列化方式：已注册编解码器的类型按需写为二进制，其余类型及调试模式使用JSON
         GenericJackson2JsonRedisSerializer jackson2JsonRedisSerializer = new GenericJackson2JsonRedisSerializer();
-        template.setValueSerializer(jackson2JsonRedisSerializer);
-        template.setHashValueSerializer(jackson2JsonRedisSerializer);
+        jackson2JsonRedisSerializer.configure(objectMapper -> objectMapper.registerModule(new JavaTimeModule()));
+        CompactCacheSerializer valueSerializer = new CompactCacheSerializer(
+                List.of(new UserPrincipalCodec(), new LongCodec()), jackson2JsonRedisSerializer, binaryWrites);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
         
-        // 启用事务支持
-        template.setEnableTransactionSupport(true);
+        // 不启用事务支持：事务绑定连接会使管道失效，缓存操作均为幂等写入
         
         template.afterPropertiesSet();
         return template;
     }
     
+    /**
+     * 配置Redis消息监听容器（用于多实例间的缓存变更广播）
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+    
     /**
      * 配置异步执行器（用于异步审计日志等）
      */
@@ -1,5 +1,6 @@
 package gov.changsha.finance.config;
 
+import gov.changsha.finance.security.BitsetAuthorizer;
 import gov.changsha.finance.security.CustomUserDetailsService;
 import gov.changsha.finance.security.jwt.JwtAuthenticationFilter;
 import gov.changsha.finance.security.jwt.JwtTokenProvider;
@@ -47,6 +48,9 @@ public class SecurityConfig {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private BitsetAuthorizer bitsetAuthorizer;
+
     /**
      * 密码编码器 - 使用BCrypt强加密
      */
@@ -125,13 +129,13 @@ public class SecurityConfig {
                 .requestMatchers("/favicon.ico", "/error").permitAll()
                 
                 // 开发环境下API允许访问（但仍需要有效JWT）
-                .requestMatchers("/api/admin/**").hasRole("ADMIN")
-                .requestMatchers("/api/management/**").hasAnyRole("ADMIN", "PROJECT_MANAGER")
-                .requestMatchers("/api/projects/**").hasAnyRole("PROJECT_MANAGER", "ADMIN", "ASSESSOR")
+                .requestMatchers("/api/admin/**").access(bitsetAuthorizer.anyRole("ADMIN"))
+                .requestMatchers("/api/management/**").access(bitsetAuthorizer.anyRole("ADMIN", "PROJECT_MANAGER"))
+                .requestMatchers("/api/projects/**").access(bitsetAuthorizer.anyRole("PROJECT_MANAGER", "ADMIN", "ASSESSOR"))
                 
                 // NESMA计算相关 - 需要评审员权限
-                .requestMatchers("/api/nesma/**").hasAnyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN")
-                .requestMatchers("/api/simple-nesma/**").hasAnyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN")
+                .requestMatchers("/api/nesma/**").access(bitsetAuthorizer.anyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN"))
+                .requestMatchers("/api/simple-nesma/**").access(bitsetAuthorizer.anyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN"))
                 
                 .requestMatchers("/api/**").authenticated()
                 
@@ -169,20 +173,20 @@ public class SecurityConfig {
                 .requestMatchers("/actuator/health").permitAll()
                 
                 // 管理端点 - 需要管理员权限
-                .requestMatchers("/api/admin/**").hasRole("ADMIN")
-                .requestMatchers("/api/management/**").hasAnyRole("ADMIN", "PROJECT_MANAGER")
-                .requestMatchers("/api/audit/**").hasRole("AUDITOR")
+                .requestMatchers("/api/admin/**").access(bitsetAuthorizer.anyRole("ADMIN"))
+                .requestMatchers("/api/management/**").access(bitsetAuthorizer.anyRole("ADMIN", "PROJECT_MANAGER"))
+                .requestMatchers("/api/audit/**").access(bitsetAuthorizer.anyRole("AUDITOR"))
                 
                 // NESMA计算相关 - 需要评审员权限
-                .requestMatchers("/api/nesma/**").hasAnyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN")
-                .requestMatchers("/api/simple-nesma/**").hasAnyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN")
-                .requestMatchers("/api/projects/**").hasAnyRole("PROJECT_MANAGER", "ADMIN")
+                .requestMatchers("/api/nesma/**").access(bitsetAuthorizer.anyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN"))
+                .requestMatchers("/api/simple-nesma/**").access(bitsetAuthorizer.anyRole("ASSESSOR", "PROJECT_MANAGER", "ADMIN"))
+                .requestMatchers("/api/projects/**").access(bitsetAuthorizer.anyRole("PROJECT_MANAGER", "ADMIN"))
                 
                 // 用户相关 - 认证用户可访问
                 .requestMatchers("/api/user/**").authenticated()
                 
                 // API文档需要认证（生产环境）
-                .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").hasRole("ADMIN")
+                .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").access(bitsetAuthorizer.anyRole("ADMIN"))
                 
                 // 其他API需要认证
                 .requestMatchers("/api/**").authenticated()
@@ -0,0 +1,45 @@
+package gov.changsha.finance.config.redis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 缓存值紧凑二进制编解码器
+ * 每个编解码器负责一种热点缓存类型，通过类型ID和模式版本号标识，
+ * 新版本必须能够读取旧版本写入的数据
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public interface BinaryCacheCodec<T> {
+
+    /**
+     * 类型ID（写入值头部，注册后不可更改）
+     */
+    byte typeId();
+
+    /**
+     * 当前写入使用的模式版本号
+     */
+    byte schemaVersion();
+
+    /**
+     * 支持的值类型
+     */
+    Class<T> type();
+
+    void write(T value, DataOutputStream out) throws IOException;
+
+    T read(DataInputStream in, byte schemaVersion) throws IOException;
+
+    /**
+     * 从旧版JSON缓存条目读取（迁移路径），无法识别时返回null
+     */
+    default T readLegacyJson(JsonNode node) {
+        return null;
+    }
+}
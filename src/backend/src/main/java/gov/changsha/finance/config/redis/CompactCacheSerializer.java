@@ -0,0 +1,145 @@
+package gov.changsha.finance.config.redis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑缓存值序列化器
+ * 已注册编解码器的类型写为：魔数(1) + 类型ID(1) + 模式版本(1) + 负载，其余类型交给JSON序列化器；
+ * 读取时按魔数识别格式，两种格式均可读取，因此写入格式可以按键前缀切换而无需清空缓存
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class CompactCacheSerializer implements RedisSerializer<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactCacheSerializer.class);
+
+    /**
+     * 二进制格式魔数（JSON文本不会以该字节开头）
+     */
+    public static final byte MAGIC = (byte) 0xC5;
+
+    private static final String CLASS_PROPERTY = "@class";
+
+    private final Map<Class<?>, BinaryCacheCodec<?>> codecsByType = new HashMap<>();
+    private final Map<String, BinaryCacheCodec<?>> codecsByClassName = new HashMap<>();
+    private final BinaryCacheCodec<?>[] codecsById = new BinaryCacheCodec<?>[256];
+    private final RedisSerializer<Object> jsonSerializer;
+    private final ObjectMapper legacyReader = new ObjectMapper();
+    private final boolean binaryWrites;
+
+    /**
+     * @param codecs 热点类型的二进制编解码器
+     * @param jsonSerializer JSON序列化器（未注册类型及调试模式使用）
+     * @param binaryWrites true-已注册类型写为二进制；false-全部写为JSON（仍可读取二进制）
+     */
+    public CompactCacheSerializer(List<BinaryCacheCodec<?>> codecs, RedisSerializer<Object> jsonSerializer,
+                                  boolean binaryWrites) {
+        for (BinaryCacheCodec<?> codec : codecs) {
+            int id = codec.typeId() & 0xFF;
+            if (codecsById[id] != null) {
+                throw new IllegalArgumentException("缓存编解码器类型ID重复: " + id);
+            }
+            codecsById[id] = codec;
+            codecsByType.put(codec.type(), codec);
+            codecsByClassName.put(codec.type().getName(), codec);
+        }
+        this.jsonSerializer = jsonSerializer;
+        this.binaryWrites = binaryWrites;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        BinaryCacheCodec<Object> codec = binaryWrites ? (BinaryCacheCodec<Object>) codecsByType.get(value.getClass()) : null;
+        if (codec == null) {
+            return jsonSerializer.serialize(value);
+        }
+
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(MAGIC);
+            out.writeByte(codec.typeId());
+            out.writeByte(codec.schemaVersion());
+            codec.write(value, out);
+            out.flush();
+            return buffer.toByteArray();
+        } catch (IOException ex) {
+            throw new SerializationException("缓存值二进制编码失败: " + value.getClass().getName(), ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == MAGIC) {
+            return readBinary(bytes);
+        }
+        return readJson(bytes);
+    }
+
+    private Object readBinary(byte[] bytes) {
+        if (bytes.length < 3) {
+            throw new SerializationException("缓存值二进制头部不完整");
+        }
+        BinaryCacheCodec<?> codec = codecsById[bytes[1] & 0xFF];
+        if (codec == null) {
+            throw new SerializationException("未知的缓存编解码器类型ID: " + (bytes[1] & 0xFF));
+        }
+        byte version = bytes[2];
+        if (version > codec.schemaVersion()) {
+            // 新版本实例写入的数据，当前实例无法理解，按未命中处理
+            logger.debug("缓存值模式版本高于当前实例 - 类型: {}, 版本: {}", codec.type().getSimpleName(), version);
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 3, bytes.length - 3));
+            return codec.read(in, version);
+        } catch (IOException ex) {
+            throw new SerializationException("缓存值二进制解码失败: " + codec.type().getName(), ex);
+        }
+    }
+
+    /**
+     * 读取JSON条目；JSON序列化器无法还原的已注册类型（旧版缓存）交给编解码器的迁移读取
+     */
+    private Object readJson(byte[] bytes) {
+        try {
+            return jsonSerializer.deserialize(bytes);
+        } catch (SerializationException ex) {
+            try {
+                JsonNode node = legacyReader.readTree(bytes);
+                JsonNode className = node != null ? node.get(CLASS_PROPERTY) : null;
+                BinaryCacheCodec<?> codec = className != null ? codecsByClassName.get(className.asText()) : null;
+                Object value = codec != null ? codec.readLegacyJson(node) : null;
+                if (value != null) {
+                    return value;
+                }
+            } catch (IOException | RuntimeException legacyEx) {
+                logger.debug("旧版JSON缓存条目迁移读取失败: {}", legacyEx.getMessage());
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package gov.changsha.finance.config.redis;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Long值编解码器（用户名索引、会话映射中的用户ID）
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class LongCodec implements BinaryCacheCodec<Long> {
+
+    public static final byte TYPE_ID = 2;
+
+    @Override
+    public byte typeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public byte schemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public Class<Long> type() {
+        return Long.class;
+    }
+
+    @Override
+    public void write(Long value, DataOutputStream out) throws IOException {
+        CodecIO.writeVarLong(out, value);
+    }
+
+    @Override
+    public Long read(DataInputStream in, byte schemaVersion) throws IOException {
+        return CodecIO.readVarLong(in);
+    }
+}
@@ -0,0 +1,192 @@
+package gov.changsha.finance.config.redis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * UserPrincipal编解码器
+ * 模式版本1：标志位(1) + 用户ID + 6个可空字符串 + 权限代码列表 + 最后登录时间；
+ * 与JSON缓存一致，不写入密码哈希
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class UserPrincipalCodec implements BinaryCacheCodec<UserPrincipal> {
+
+    public static final byte TYPE_ID = 1;
+
+    private static final int FLAG_HAS_ID = 1;
+    private static final int FLAG_ENABLED = 1 << 1;
+    private static final int FLAG_ACCOUNT_NON_LOCKED = 1 << 2;
+    private static final int FLAG_ACCOUNT_NON_EXPIRED = 1 << 3;
+    private static final int FLAG_CREDENTIALS_NON_EXPIRED = 1 << 4;
+    private static final int FLAG_HAS_LAST_LOGIN = 1 << 5;
+
+    @Override
+    public byte typeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public byte schemaVersion() {
+        return 1;
+    }
+
+    @Override
+    public Class<UserPrincipal> type() {
+        return UserPrincipal.class;
+    }
+
+    @Override
+    public void write(UserPrincipal principal, DataOutputStream out) throws IOException {
+        int flags = 0;
+        if (principal.getId() != null) flags |= FLAG_HAS_ID;
+        if (principal.isEnabled()) flags |= FLAG_ENABLED;
+        if (principal.isAccountNonLocked()) flags |= FLAG_ACCOUNT_NON_LOCKED;
+        if (principal.isAccountNonExpired()) flags |= FLAG_ACCOUNT_NON_EXPIRED;
+        if (principal.isCredentialsNonExpired()) flags |= FLAG_CREDENTIALS_NON_EXPIRED;
+        if (principal.getLastLoginAt() != null) flags |= FLAG_HAS_LAST_LOGIN;
+        out.writeByte(flags);
+
+        if (principal.getId() != null) {
+            CodecIO.writeVarLong(out, principal.getId());
+        }
+        CodecIO.writeString(out, principal.getUsername());
+        CodecIO.writeString(out, principal.getRealName());
+        CodecIO.writeString(out, principal.getEmail());
+        CodecIO.writeString(out, principal.getEmployeeId());
+        CodecIO.writeString(out, principal.getDepartment());
+        CodecIO.writeString(out, principal.getPosition());
+
+        Collection<? extends GrantedAuthority> authorities = principal.getAuthorities();
+        CodecIO.writeVarInt(out, authorities.size());
+        for (GrantedAuthority authority : authorities) {
+            CodecIO.writeString(out, authority.getAuthority());
+        }
+
+        LocalDateTime lastLoginAt = principal.getLastLoginAt();
+        if (lastLoginAt != null) {
+            CodecIO.writeVarLong(out, lastLoginAt.toEpochSecond(ZoneOffset.UTC));
+            CodecIO.writeVarInt(out, lastLoginAt.getNano());
+        }
+    }
+
+    @Override
+    public UserPrincipal read(DataInputStream in, byte schemaVersion) throws IOException {
+        int flags = in.readUnsignedByte();
+        Long id = (flags & FLAG_HAS_ID) != 0 ? CodecIO.readVarLong(in) : null;
+        String username = CodecIO.readString(in);
+        String realName = CodecIO.readString(in);
+        String email = CodecIO.readString(in);
+        String employeeId = CodecIO.readString(in);
+        String department = CodecIO.readString(in);
+        String position = CodecIO.readString(in);
+
+        int authorityCount = CodecIO.readVarInt(in);
+        Set<GrantedAuthority> authorities = new HashSet<>(authorityCount * 2);
+        for (int i = 0; i < authorityCount; i++) {
+            authorities.add(new SimpleGrantedAuthority(CodecIO.readString(in)));
+        }
+
+        LocalDateTime lastLoginAt = null;
+        if ((flags & FLAG_HAS_LAST_LOGIN) != 0) {
+            long epochSecond = CodecIO.readVarLong(in);
+            int nano = CodecIO.readVarInt(in);
+            lastLoginAt = LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+        }
+
+        return new UserPrincipal(id, username, realName, email, employeeId, department, position,
+                null, authorities,
+                (flags & FLAG_ENABLED) != 0,
+                (flags & FLAG_ACCOUNT_NON_LOCKED) != 0,
+                (flags & FLAG_ACCOUNT_NON_EXPIRED) != 0,
+                (flags & FLAG_CREDENTIALS_NON_EXPIRED) != 0,
+                lastLoginAt);
+    }
+
+    /**
+     * 读取GenericJackson2JsonRedisSerializer写入的旧版条目
+     * （UserPrincipal没有JSON构造器，旧条目无法由JSON序列化器直接还原）
+     */
+    @Override
+    public UserPrincipal readLegacyJson(JsonNode node) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        JsonNode authorityNodes = unwrap(node.get("authorities"));
+        if (authorityNodes != null && authorityNodes.isArray()) {
+            for (JsonNode authorityNode : authorityNodes) {
+                JsonNode authority = authorityNode.get("authority");
+                if (authority != null) {
+                    authorities.add(new SimpleGrantedAuthority(authority.asText()));
+                }
+            }
+        }
+
+        JsonNode idNode = unwrap(node.get("id"));
+        return new UserPrincipal(
+                idNode != null && idNode.isNumber() ? idNode.asLong() : null,
+                text(node, "username"),
+                text(node, "realName"),
+                text(node, "email"),
+                text(node, "employeeId"),
+                text(node, "department"),
+                text(node, "position"),
+                null,
+                new HashSet<>(authorities),
+                bool(node, "enabled"),
+                bool(node, "accountNonLocked"),
+                bool(node, "accountNonExpired"),
+                bool(node, "credentialsNonExpired"),
+                dateTime(unwrap(node.get("lastLoginAt"))));
+    }
+
+    /**
+     * 去除默认类型信息包装：["java.util.HashSet", [...]]
+     */
+    private static JsonNode unwrap(JsonNode node) {
+        if (node != null && node.isArray() && node.size() == 2 && node.get(0).isTextual()
+                && (node.get(1).isArray() || node.get(1).isValueNode())) {
+            return node.get(1);
+        }
+        return node;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static boolean bool(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.asBoolean();
+    }
+
+    private static LocalDateTime dateTime(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (node.isTextual()) {
+            return LocalDateTime.parse(node.asText());
+        }
+        if (node.isArray() && node.size() >= 5) {
+            return LocalDateTime.of(node.get(0).asInt(), node.get(1).asInt(), node.get(2).asInt(),
+                    node.get(3).asInt(), node.get(4).asInt(),
+                    node.size() > 5 ? node.get(5).asInt() : 0,
+                    node.size() > 6 ? node.get(6).asInt() : 0);
+        }
+        return null;
+    }
+}
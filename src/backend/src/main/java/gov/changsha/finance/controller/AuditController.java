@@ -0,0 +1,245 @@
+package gov.changsha.finance.controller;
+
+import gov.changsha.finance.dto.ApiResponse;
+import gov.changsha.finance.dto.request.AuditLogQuery;
+import gov.changsha.finance.dto.response.AuditChainVerificationReport;
+import gov.changsha.finance.dto.response.AuditLogPage;
+import gov.changsha.finance.dto.response.AuditStatistics;
+import gov.changsha.finance.dto.response.AuditVerificationReport;
+import gov.changsha.finance.dto.response.SuspiciousSource;
+import gov.changsha.finance.service.AuditLogService;
+import gov.changsha.finance.service.audit.AuditExportService;
+import gov.changsha.finance.service.audit.AuditQueryService;
+import gov.changsha.finance.service.audit.AuditStatisticsService;
+import gov.changsha.finance.service.audit.SuspiciousActivityDetector;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 审计日志控制器
+ * 提供审计日志查询、导出及完整性校验等合规检查接口
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@RestController
+@RequestMapping("/api/audit")
+public class AuditController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditController.class);
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private AuditQueryService auditQueryService;
+
+    @Autowired
+    private AuditStatisticsService auditStatisticsService;
+
+    @Autowired
+    private SuspiciousActivityDetector suspiciousActivityDetector;
+
+    @Autowired
+    private AuditExportService auditExportService;
+
+    /**
+     * 当前滑动窗口内失败次数达到阈值的IP和用户名
+     */
+    @GetMapping("/suspicious")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ApiResponse<List<SuspiciousSource>> getSuspiciousSources() {
+        return ApiResponse.success(suspiciousActivityDetector.getSuspiciousSources());
+    }
+
+    /**
+     * 查询指定IP和/或用户名当前是否可疑
+     */
+    @GetMapping("/suspicious/check")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ApiResponse<Map<String, Object>> checkSuspicious(@RequestParam(required = false) String ip,
+                                                            @RequestParam(required = false) String username) {
+        if ((ip == null || ip.isBlank()) && (username == null || username.isBlank())) {
+            return ApiResponse.error(400, "IP和用户名至少提供一个");
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (ip != null && !ip.isBlank()) {
+            result.put("ip", ip);
+            result.put("ipFailureCount", suspiciousActivityDetector.getFailureCount(SuspiciousSource.SourceType.IP, ip));
+            result.put("ipSuspicious", suspiciousActivityDetector.isSuspiciousIp(ip));
+        }
+        if (username != null && !username.isBlank()) {
+            result.put("username", username);
+            result.put("usernameFailureCount",
+                       suspiciousActivityDetector.getFailureCount(SuspiciousSource.SourceType.USERNAME, username));
+            result.put("usernameSuspicious", suspiciousActivityDetector.isSuspiciousUsername(username));
+        }
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 安全仪表盘统计（读取小时汇总表，区间按整点对齐）
+     */
+    @GetMapping("/statistics")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ApiResponse<AuditStatistics> getStatistics(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(defaultValue = "10") int top) {
+
+        if (!startTime.isBefore(endTime)) {
+            return ApiResponse.error(400, "开始时间必须早于结束时间");
+        }
+        if (top < 1 || top > 100) {
+            return ApiResponse.error(400, "排行条数必须在1到100之间");
+        }
+        try {
+            return ApiResponse.success(auditStatisticsService.getDashboard(startTime, endTime, top));
+        } catch (Exception e) {
+            logger.error("查询审计统计失败 - 范围: {} ~ {}", startTime, endTime, e);
+            return ApiResponse.error(500, "查询审计统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按条件键集分页查询审计日志，翻页时传入上一页返回的nextCursor
+     */
+    @GetMapping("/logs")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ApiResponse<AuditLogPage> queryLogs(@Valid AuditLogQuery query) {
+        if (query.getStartTime() != null && query.getEndTime() != null
+                && !query.getStartTime().isBefore(query.getEndTime())) {
+            return ApiResponse.error(400, "开始时间必须早于结束时间");
+        }
+        try {
+            return ApiResponse.success(auditQueryService.query(query));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        } catch (Exception e) {
+            logger.error("查询审计日志失败", e);
+            return ApiResponse.error(500, "查询审计日志失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 以NDJSON流式输出满足条件的全部审计日志（忽略size），适用于大范围查询
+     */
+    @GetMapping(value = "/logs/stream", produces = "application/x-ndjson")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ResponseEntity<StreamingResponseBody> streamLogs(@Valid AuditLogQuery query) {
+        if (query.getCursor() != null && !query.getCursor().isBlank()) {
+            // 提前校验游标，避免响应已开始后才失败
+            try {
+                AuditQueryService.decodeCursor(query.getCursor());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        StreamingResponseBody body = out -> auditQueryService.streamNdjson(query, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+
+    /**
+     * 导出时间范围 [startTime, endTime) 内满足条件的审计日志，gzip压缩的CSV或NDJSON，末行为带签名校验结果的清单
+     */
+    @GetMapping("/logs/export")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ResponseEntity<StreamingResponseBody> exportLogs(
+            @Valid AuditLogQuery query,
+            @RequestParam(defaultValue = "CSV") AuditExportService.ExportFormat format) {
+
+        if (query.getStartTime() == null || query.getEndTime() == null
+                || !query.getStartTime().isBefore(query.getEndTime())) {
+            return ResponseEntity.badRequest().build();
+        }
+        String exportedBy = currentUsername();
+        String filename = String.format("audit-logs-%s-%s.%s.gz",
+            query.getStartTime().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")),
+            query.getEndTime().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")),
+            format.getExtension());
+
+        StreamingResponseBody body = out -> {
+            long rows = -1;
+            try {
+                Map<String, Object> manifest = auditExportService.export(query, format, out, exportedBy);
+                rows = ((Number) manifest.get("rowCount")).longValue();
+            } catch (Exception e) {
+                logger.error("审计日志导出中断 - 用户: {}, 范围: {} ~ {}", exportedBy, query.getStartTime(), query.getEndTime(), e);
+                throw e;
+            } finally {
+                // 中断的导出同样记录（行数为-1）
+                auditLogService.recordDataExport("AUDIT_LOG", format.name(), (int) Math.min(rows, Integer.MAX_VALUE));
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/gzip"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(body);
+    }
+
+    /**
+     * 批量校验时间范围 [startTime, endTime) 内审计日志的签名，返回被篡改的日志ID
+     */
+    @PostMapping("/signatures/verify")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ApiResponse<AuditVerificationReport> verifySignatures(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+
+        if (!startTime.isBefore(endTime)) {
+            return ApiResponse.error(400, "开始时间必须早于结束时间");
+        }
+        try {
+            AuditVerificationReport report = auditLogService.verifySignatures(startTime, endTime);
+            return ApiResponse.success(report);
+        } catch (Exception e) {
+            logger.error("批量校验审计日志签名失败 - 范围: {} ~ {}", startTime, endTime, e);
+            return ApiResponse.error(500, "审计日志签名校验失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按哈希链封段校验时间范围内的审计日志：检测行被修改、删除以及封段被替换
+     */
+    @PostMapping("/chain/verify")
+    @PreAuthorize("@authz.hasAnyRole('AUDITOR')")
+    public ApiResponse<AuditChainVerificationReport> verifyChain(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+
+        if (!startTime.isBefore(endTime)) {
+            return ApiResponse.error(400, "开始时间必须早于结束时间");
+        }
+        try {
+            return ApiResponse.success(auditLogService.verifyChain(startTime, endTime));
+        } catch (Exception e) {
+            logger.error("审计哈希链校验失败 - 范围: {} ~ {}", startTime, endTime, e);
+            return ApiResponse.error(500, "审计哈希链校验失败: " + e.getMessage());
+        }
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+}
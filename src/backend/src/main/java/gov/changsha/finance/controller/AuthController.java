@@ -5,9 +5,12 @@ import gov.changsha.finance.dto.request.LoginRequest;
 import gov.changsha.finance.dto.request.RegisterRequest;
 import gov.changsha.finance.dto.response.JwtAuthenticationResponse;
 import gov.changsha.finance.dto.response.RegisterResponse;
+import gov.changsha.finance.security.jwt.JwtAuthenticationToken;
 import gov.changsha.finance.security.jwt.JwtTokenProvider;
+import gov.changsha.finance.security.jwt.RefreshTokenStore;
 import gov.changsha.finance.security.jwt.UserPrincipal;
 import gov.changsha.finance.service.AuthService;
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
@@ -49,6 +52,9 @@ public class AuthController {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
     
+    @Autowired
+    private RefreshTokenStore refreshTokenStore;
+    
     @Autowired
     private AuthService authService;
     
@@ -176,13 +182,14 @@ public class AuthController {
             SecurityContextHolder.getContext().setAuthentication(authentication);
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
             
-            // 并行生成JWT令牌（优化JWT生成性能）
             long jwtStartTime = System.currentTimeMillis();
-            String accessToken = jwtTokenProvider.generateAccessToken(authentication);
-            String refreshToken = jwtTokenProvider.generateRefreshToken(authentication);
+            // 创建新的刷新令牌族并签发令牌对
+            RefreshTokenStore.TokenPair tokens = refreshTokenStore.issue(authentication);
+            String accessToken = tokens.getAccessToken();
+            String refreshToken = tokens.getRefreshToken();
             long jwtDuration = System.currentTimeMillis() - jwtStartTime;
             
-            // 异步更新用户登录信息（不阻塞响应）
+            // 登记到写后队列，最后登录时间和登录审计由后台批量写入（不阻塞响应）
             authService.updateUserLoginInfo(userPrincipal.getId(), clientIp, userAgent);
             
             // 构建响应对象
@@ -260,12 +267,13 @@ public class AuthController {
         try {
             String clientIp = getClientIpAddress(request);
             
-            if (!jwtTokenProvider.validateToken(refreshToken)) {
+            Claims refreshClaims = jwtTokenProvider.parseValidClaims(refreshToken);
+            if (refreshClaims == null || !jwtTokenProvider.isRefreshToken(refreshClaims)) {
                 return ResponseEntity.badRequest()
                     .body(ApiResponse.error("刷新令牌无效或已过期"));
             }
             
-            String username = jwtTokenProvider.getUsernameFromToken(refreshToken);
+            String username = refreshClaims.getSubject();
             Authentication authentication = authService.getAuthenticationByUsername(username);
             
             if (authentication == null) {
@@ -273,13 +281,20 @@ public class AuthController {
                     .body(ApiResponse.error("用户信息不存在"));
             }
             
-            // 生成新的访问令牌
-            String newAccessToken = jwtTokenProvider.generateAccessToken(authentication);
+            // 轮换刷新令牌：旧令牌立即失效，重用已轮换的令牌将撤销整个令牌族
+            RefreshTokenStore.TokenPair tokens = refreshTokenStore.rotate(refreshClaims, authentication);
+            if (tokens == null) {
+                return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("刷新令牌无效或已被撤销"));
+            }
+            
+            String newAccessToken = tokens.getAccessToken();
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
             
             JwtAuthenticationResponse response = new JwtAuthenticationResponse();
             response.setAccessToken(newAccessToken);
-            response.setRefreshToken(refreshToken); // 保持原有刷新令牌
+            response.setRefreshToken(tokens.getRefreshToken());
+            response.setRefreshExpiresIn((long) jwtTokenProvider.getRefreshExpirationInSeconds());
             response.setExpiresIn(86400L);
             response.setUserId(userPrincipal.getId());
             response.setUsername(userPrincipal.getUsername());
@@ -308,6 +323,13 @@ public class AuthController {
                 UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
                 String clientIp = getClientIpAddress(request);
                 
+                // 撤销当前访问令牌及其令牌族（对应的刷新令牌随之失效）
+                Claims claims = currentTokenClaims(authentication);
+                if (claims != null) {
+                    refreshTokenStore.revokeAccessToken(claims);
+                    refreshTokenStore.revokeFamily(jwtTokenProvider.getFamilyId(claims), userPrincipal.getId());
+                }
+                
                 // 记录登出日志
                 authService.recordLogout(userPrincipal.getId(), clientIp);
                 
@@ -326,6 +348,43 @@ public class AuthController {
         }
     }
     
+    /**
+     * 登出全部会话
+     */
+    @Operation(summary = "登出全部会话", description = "撤销当前用户在所有设备上的令牌")
+    @PostMapping("/logout-all")
+    public ResponseEntity<ApiResponse<Integer>> logoutAll(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal)) {
+            return ResponseEntity.status(401).body(ApiResponse.error(401, "用户未认证"));
+        }
+        
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        String clientIp = getClientIpAddress(request);
+        
+        Claims claims = currentTokenClaims(authentication);
+        if (claims != null) {
+            refreshTokenStore.revokeAccessToken(claims);
+        }
+        int revoked = refreshTokenStore.revokeAllForUser(userPrincipal.getId());
+        authService.recordLogout(userPrincipal.getId(), clientIp);
+        SecurityContextHolder.clearContext();
+        
+        logger.info("用户登出全部会话 - 用户: {}, IP: {}, 会话数: {}", userPrincipal.getUsername(), clientIp, revoked);
+        return ResponseEntity.ok(ApiResponse.success("已登出全部会话", revoked));
+    }
+    
+    /**
+     * 获取当前请求令牌的声明
+     */
+    private Claims currentTokenClaims(Authentication authentication) {
+        if (authentication instanceof JwtAuthenticationToken
+                && authentication.getCredentials() instanceof String) {
+            return jwtTokenProvider.parseValidClaims((String) authentication.getCredentials());
+        }
+        return null;
+    }
+    
     /**
      * 获取当前用户信息
      */
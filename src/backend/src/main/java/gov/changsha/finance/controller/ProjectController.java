@@ -45,7 +45,7 @@ public class ProjectController {
      * 需要项目查看权限
      */
     @GetMapping("")
-    @PreAuthorize("hasAnyRole('ADMIN', 'PROJECT_MANAGER', 'ASSESSOR')")
+    @PreAuthorize("@authz.hasAnyRole('ADMIN', 'PROJECT_MANAGER', 'ASSESSOR')")
     public ApiResponse<Map<String, Object>> getProjectList(
             @RequestParam(defaultValue = "1") Integer current,
             @RequestParam(defaultValue = "20") Integer size,
@@ -102,7 +102,7 @@ public class ProjectController {
      * 需要项目查看权限
      */
     @GetMapping("/{id}")
-    @PreAuthorize("hasAnyRole('ADMIN', 'PROJECT_MANAGER', 'ASSESSOR')")
+    @PreAuthorize("@authz.hasAnyRole('ADMIN', 'PROJECT_MANAGER', 'ASSESSOR')")
     public ApiResponse<ProjectResponse> getProject(@PathVariable Long id) {
         try {
             String currentUser = getCurrentUsername();
@@ -130,7 +130,7 @@ public class ProjectController {
      * 需要项目创建权限（仅管理员和项目经理）
      */
     @PostMapping("")
-    @PreAuthorize("hasAnyRole('ADMIN', 'PROJECT_MANAGER')")
+    @PreAuthorize("@authz.hasAnyRole('ADMIN', 'PROJECT_MANAGER')")
     public ApiResponse<ProjectResponse> createProject(@RequestBody Map<String, Object> request) {
         try {
             String currentUser = getCurrentUsername();
@@ -0,0 +1,148 @@
+package gov.changsha.finance.dto.request;
+
+import gov.changsha.finance.entity.AuditLog;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 审计日志查询条件DTO
+ * 各条件均可选、按AND组合；结果按(timestamp, id)倒序，翻页使用上一页返回的游标
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class AuditLogQuery implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long userId;
+
+    private String username;
+
+    private Set<AuditLog.OperationType> operations;
+
+    private String module;
+
+    private AuditLog.OperationStatus status;
+
+    private Set<AuditLog.RiskLevel> riskLevels;
+
+    private String ipAddress;
+
+    private String businessType;
+
+    private String businessId;
+
+    /**
+     * 业务数据字段路径（点分隔，如 targetUser.id），与payloadValue同时提供时生效
+     */
+    @Pattern(regexp = "[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*){0,7}", message = "载荷字段路径格式不正确")
+    private String payloadField;
+
+    /**
+     * 业务数据字段取值（整数、true/false按JSON类型匹配，其余按字符串匹配）
+     */
+    @Size(max = 200, message = "载荷字段取值长度不能超过200")
+    private String payloadValue;
+
+    /**
+     * 开始时间（含）
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间（不含）
+     */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime endTime;
+
+    /**
+     * 翻页游标（上一页返回的nextCursor），为空表示第一页
+     */
+    private String cursor;
+
+    /**
+     * 每页条数
+     */
+    @Min(value = 1, message = "每页条数不能小于1")
+    @Max(value = 500, message = "每页条数不能超过500")
+    private Integer size = 50;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public Set<AuditLog.OperationType> getOperations() { return operations; }
+    public void setOperations(Set<AuditLog.OperationType> operations) { this.operations = operations; }
+
+    public String getModule() { return module; }
+    public void setModule(String module) { this.module = module; }
+
+    public AuditLog.OperationStatus getStatus() { return status; }
+    public void setStatus(AuditLog.OperationStatus status) { this.status = status; }
+
+    public Set<AuditLog.RiskLevel> getRiskLevels() { return riskLevels; }
+    public void setRiskLevels(Set<AuditLog.RiskLevel> riskLevels) { this.riskLevels = riskLevels; }
+
+    public String getIpAddress() { return ipAddress; }
+    public void setIpAddress(String ipAddress) { this.ipAddress = ipAddress; }
+
+    public String getBusinessType() { return businessType; }
+    public void setBusinessType(String businessType) { this.businessType = businessType; }
+
+    public String getBusinessId() { return businessId; }
+    public void setBusinessId(String businessId) { this.businessId = businessId; }
+
+    public String getPayloadField() { return payloadField; }
+    public void setPayloadField(String payloadField) { this.payloadField = payloadField; }
+
+    public String getPayloadValue() { return payloadValue; }
+    public void setPayloadValue(String payloadValue) { this.payloadValue = payloadValue; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+
+    public Integer getSize() { return size; }
+    public void setSize(Integer size) { this.size = size; }
+
+    /**
+     * 复制查询条件（集合条件浅拷贝为新集合）
+     */
+    public AuditLogQuery copy() {
+        AuditLogQuery copy = new AuditLogQuery();
+        copy.userId = userId;
+        copy.username = username;
+        copy.operations = operations != null ? new HashSet<>(operations) : null;
+        copy.module = module;
+        copy.status = status;
+        copy.riskLevels = riskLevels != null ? new HashSet<>(riskLevels) : null;
+        copy.ipAddress = ipAddress;
+        copy.businessType = businessType;
+        copy.businessId = businessId;
+        copy.payloadField = payloadField;
+        copy.payloadValue = payloadValue;
+        copy.startTime = startTime;
+        copy.endTime = endTime;
+        copy.cursor = cursor;
+        copy.size = size;
+        return copy;
+    }
+}
@@ -0,0 +1,78 @@
+package gov.changsha.finance.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 审计日志哈希链校验报告
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class AuditChainVerificationReport {
+
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private int segmentCount;
+    private long rowCount;
+    private long elapsedMs;
+    private final List<SegmentIssue> issues = new ArrayList<>();
+
+    public AuditChainVerificationReport(LocalDateTime startTime, LocalDateTime endTime) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public LocalDateTime getEndTime() { return endTime; }
+
+    public int getSegmentCount() { return segmentCount; }
+    public void setSegmentCount(int segmentCount) { this.segmentCount = segmentCount; }
+
+    public long getRowCount() { return rowCount; }
+    public void setRowCount(long rowCount) { this.rowCount = rowCount; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+
+    public List<SegmentIssue> getIssues() { return issues; }
+
+    public boolean isIntact() {
+        return issues.isEmpty();
+    }
+
+    /**
+     * 单个封段的问题
+     */
+    public static class SegmentIssue {
+
+        private final String chainId;
+        private final Long segmentNo;
+        private final String type;
+        private final String message;
+        private final List<Long> modifiedRowIds = new ArrayList<>();
+        private final List<Long> brokenLinkRowIds = new ArrayList<>();
+        private final List<String> missingSeqRanges = new ArrayList<>();
+
+        public SegmentIssue(String chainId, Long segmentNo, String type, String message) {
+            this.chainId = chainId;
+            this.segmentNo = segmentNo;
+            this.type = type;
+            this.message = message;
+        }
+
+        public String getChainId() { return chainId; }
+        public Long getSegmentNo() { return segmentNo; }
+        /** SEAL_INVALID / SEGMENT_GAP / ROOT_MISMATCH */
+        public String getType() { return type; }
+        public String getMessage() { return message; }
+        /** 内容被修改（重算行哈希与存储不一致）的行ID */
+        public List<Long> getModifiedRowIds() { return modifiedRowIds; }
+        /** 前驱哈希与上一行不衔接的行ID（其前方有行被删除或插入） */
+        public List<Long> getBrokenLinkRowIds() { return brokenLinkRowIds; }
+        /** 缺失的链内序号区间（被删除的行） */
+        public List<String> getMissingSeqRanges() { return missingSeqRanges; }
+    }
+}
@@ -0,0 +1,34 @@
+package gov.changsha.finance.dto.response;
+
+import gov.changsha.finance.entity.AuditLog;
+
+import java.util.List;
+
+/**
+ * 审计日志键集分页结果
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class AuditLogPage {
+
+    private final List<AuditLog> records;
+    private final String nextCursor;
+    private final boolean hasMore;
+
+    public AuditLogPage(List<AuditLog> records, String nextCursor, boolean hasMore) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<AuditLog> getRecords() { return records; }
+
+    /**
+     * 下一页游标；没有更多数据时为null
+     */
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+}
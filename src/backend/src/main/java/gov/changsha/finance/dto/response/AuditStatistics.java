@@ -0,0 +1,83 @@
+package gov.changsha.finance.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 安全仪表盘审计统计
+ * 由小时汇总表计算，统计区间按整点对齐
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class AuditStatistics {
+
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final long totalCount;
+    private final long failedCount;
+    private final long highRiskCount;
+    private final List<Entry> topUsers;
+    private final List<Entry> operations;
+    private final List<Entry> topIps;
+    private final List<Entry> statuses;
+    private final List<Entry> riskLevels;
+
+    public AuditStatistics(LocalDateTime startTime, LocalDateTime endTime, long totalCount, long failedCount,
+                           long highRiskCount, List<Entry> topUsers, List<Entry> operations, List<Entry> topIps,
+                           List<Entry> statuses, List<Entry> riskLevels) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.totalCount = totalCount;
+        this.failedCount = failedCount;
+        this.highRiskCount = highRiskCount;
+        this.topUsers = topUsers;
+        this.operations = operations;
+        this.topIps = topIps;
+        this.statuses = statuses;
+        this.riskLevels = riskLevels;
+    }
+
+    /**
+     * 对齐后的统计区间起点（含）
+     */
+    public LocalDateTime getStartTime() { return startTime; }
+
+    /**
+     * 对齐后的统计区间终点（不含）
+     */
+    public LocalDateTime getEndTime() { return endTime; }
+
+    public long getTotalCount() { return totalCount; }
+    public long getFailedCount() { return failedCount; }
+    public long getHighRiskCount() { return highRiskCount; }
+    public List<Entry> getTopUsers() { return topUsers; }
+    public List<Entry> getOperations() { return operations; }
+    public List<Entry> getTopIps() { return topIps; }
+    public List<Entry> getStatuses() { return statuses; }
+    public List<Entry> getRiskLevels() { return riskLevels; }
+
+    /**
+     * 维度取值及条数；userId仅用户维度返回
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+
+        private final String key;
+        private final Long userId;
+        private final long count;
+
+        public Entry(String key, Long userId, long count) {
+            this.key = key;
+            this.userId = userId;
+            this.count = count;
+        }
+
+        public String getKey() { return key; }
+        public Long getUserId() { return userId; }
+        public long getCount() { return count; }
+    }
+}
@@ -0,0 +1,49 @@
+package gov.changsha.finance.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 审计日志签名批量校验报告
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class AuditVerificationReport {
+
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final long verifiedCount;
+    private final long tamperedCount;
+    private final List<Long> tamperedIds;
+    private final boolean tamperedIdsTruncated;
+    private final long elapsedMs;
+
+    public AuditVerificationReport(LocalDateTime startTime, LocalDateTime endTime, long verifiedCount,
+                                   long tamperedCount, List<Long> tamperedIds, boolean tamperedIdsTruncated,
+                                   long elapsedMs) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.verifiedCount = verifiedCount;
+        this.tamperedCount = tamperedCount;
+        this.tamperedIds = tamperedIds;
+        this.tamperedIdsTruncated = tamperedIdsTruncated;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public LocalDateTime getEndTime() { return endTime; }
+    public long getVerifiedCount() { return verifiedCount; }
+    public long getTamperedCount() { return tamperedCount; }
+    public List<Long> getTamperedIds() { return tamperedIds; }
+    public boolean isTamperedIdsTruncated() { return tamperedIdsTruncated; }
+    public long getElapsedMs() { return elapsedMs; }
+
+    /**
+     * 范围内签名是否全部有效
+     */
+    public boolean isIntact() {
+        return tamperedCount == 0;
+    }
+}
@@ -0,0 +1,137 @@
+package gov.changsha.finance.dto.response;
+
+import gov.changsha.finance.entity.Permission;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 权限树节点DTO（不可变）
+ * 由权限树快照一次性构建，可在多个请求和线程之间安全共享
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public final class PermissionTreeNode {
+
+    private final Long id;
+    private final String code;
+    private final String name;
+    private final String description;
+    private final Permission.PermissionType permissionType;
+    private final String module;
+    private final String resourcePath;
+    private final String httpMethod;
+    private final Long parentId;
+    private final Integer level;
+    private final Integer sortOrder;
+    private final String icon;
+    private final List<PermissionTreeNode> children;
+
+    public PermissionTreeNode(Permission permission, List<PermissionTreeNode> children) {
+        this.id = permission.getId();
+        this.code = permission.getCode();
+        this.name = permission.getName();
+        this.description = permission.getDescription();
+        this.permissionType = permission.getPermissionType();
+        this.module = permission.getModule();
+        this.resourcePath = permission.getResourcePath();
+        this.httpMethod = permission.getHttpMethod();
+        this.parentId = permission.getParentId();
+        this.level = permission.getLevel();
+        this.sortOrder = permission.getSortOrder();
+        this.icon = permission.getIcon();
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    private PermissionTreeNode(PermissionTreeNode source, List<PermissionTreeNode> children) {
+        this.id = source.id;
+        this.code = source.code;
+        this.name = source.name;
+        this.description = source.description;
+        this.permissionType = source.permissionType;
+        this.module = source.module;
+        this.resourcePath = source.resourcePath;
+        this.httpMethod = source.httpMethod;
+        this.parentId = source.parentId;
+        this.level = source.level;
+        this.sortOrder = source.sortOrder;
+        this.icon = source.icon;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    /**
+     * 复制当前节点并替换子节点（用于生成过滤视图，原节点不变）
+     */
+    public PermissionTreeNode withChildren(List<PermissionTreeNode> children) {
+        return new PermissionTreeNode(this, children);
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Permission.PermissionType getPermissionType() {
+        return permissionType;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public Integer getLevel() {
+        return level;
+    }
+
+    public Integer getSortOrder() {
+        return sortOrder;
+    }
+
+    public String getIcon() {
+        return icon;
+    }
+
+    public List<PermissionTreeNode> getChildren() {
+        return children;
+    }
+
+    public boolean isLeaf() {
+        return children.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "PermissionTreeNode{" +
+                "id=" + id +
+                ", code='" + code + '\'' +
+                ", name='" + name + '\'' +
+                ", children=" + children.size() +
+                '}';
+    }
+}
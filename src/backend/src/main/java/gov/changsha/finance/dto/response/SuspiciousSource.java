@@ -0,0 +1,42 @@
+package gov.changsha.finance.dto.response;
+
+/**
+ * 当前可疑来源（滑动窗口内失败次数达到阈值的IP或用户名）
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class SuspiciousSource {
+
+    /**
+     * 来源类型
+     */
+    public enum SourceType {
+        IP, USERNAME
+    }
+
+    private final SourceType type;
+    private final String key;
+    private final long failureCount;
+    private final long threshold;
+    private final boolean approximate;
+
+    public SuspiciousSource(SourceType type, String key, long failureCount, long threshold, boolean approximate) {
+        this.type = type;
+        this.key = key;
+        this.failureCount = failureCount;
+        this.threshold = threshold;
+        this.approximate = approximate;
+    }
+
+    public SourceType getType() { return type; }
+    public String getKey() { return key; }
+    public long getFailureCount() { return failureCount; }
+    public long getThreshold() { return threshold; }
+
+    /**
+     * 计数是否来自高频近似统计（精确计数器容量已满时）
+     */
+    public boolean isApproximate() { return approximate; }
+}
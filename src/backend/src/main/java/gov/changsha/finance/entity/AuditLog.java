@@ -1,7 +1,11 @@
 package gov.changsha.finance.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 /**
@@ -15,12 +19,16 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "audit_logs", indexes = {
-    @Index(name = "idx_audit_user_id", columnList = "user_id"),
-    @Index(name = "idx_audit_operation", columnList = "operation"),
-    @Index(name = "idx_audit_timestamp", columnList = "timestamp"),
-    @Index(name = "idx_audit_ip", columnList = "ip_address"),
+    @Index(name = "idx_audit_ts_id", columnList = "timestamp DESC, id DESC"),
+    @Index(name = "idx_audit_user_ts_id", columnList = "user_id, timestamp DESC, id DESC"),
+    @Index(name = "idx_audit_username_ts_id", columnList = "username, timestamp DESC, id DESC"),
+    @Index(name = "idx_audit_operation_ts_id", columnList = "operation, timestamp DESC, id DESC"),
+    @Index(name = "idx_audit_status_ts_id", columnList = "operation_status, timestamp DESC, id DESC"),
+    @Index(name = "idx_audit_risk_ts_id", columnList = "risk_level, timestamp DESC, id DESC"),
+    @Index(name = "idx_audit_ip_ts_id", columnList = "ip_address, timestamp DESC, id DESC"),
+    @Index(name = "idx_audit_business_ts_id", columnList = "business_type, business_id, timestamp DESC, id DESC"),
     @Index(name = "idx_audit_module", columnList = "module"),
-    @Index(name = "idx_audit_status", columnList = "operation_status")
+    @Index(name = "idx_audit_chain_seq", columnList = "chain_id, chain_seq")
 })
 public class AuditLog {
     
@@ -78,9 +86,9 @@ public class AuditLog {
     private String businessId;
     
     /**
-     * 业务数据（JSON格式，存储操作前后的数据变化）
+     * 业务数据（JSON格式，存储操作前后的数据变化；PostgreSQL为jsonb列，GIN索引支持按载荷字段检索）
      */
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "business_data")
     private String businessData;
     
@@ -166,6 +174,30 @@ public class AuditLog {
     @Column(name = "signature", length = 500)
     private String signature;
     
+    /**
+     * 哈希链ID（每个写入实例一条链）
+     */
+    @Column(name = "chain_id", length = 64)
+    private String chainId;
+    
+    /**
+     * 链内序号
+     */
+    @Column(name = "chain_seq")
+    private Long chainSeq;
+    
+    /**
+     * 链上前一行的行哈希
+     */
+    @Column(name = "prev_hash", length = 64)
+    private String prevHash;
+    
+    /**
+     * 本行哈希（覆盖前一行哈希和本行内容）
+     */
+    @Column(name = "row_hash", length = 64)
+    private String rowHash;
+    
     /**
      * 操作类型枚举
      */
@@ -272,7 +304,8 @@ public class AuditLog {
     
     // 构造函数
     public AuditLog() {
-        this.timestamp = LocalDateTime.now();
+        // 截断到微秒，与数据库TIMESTAMP精度一致，保证签名和行哈希在入库前后可重算
+        this.timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
     
     public AuditLog(OperationType operation, String module, String operationDesc) {
@@ -386,7 +419,7 @@ public class AuditLog {
     }
     
     public void setTimestamp(LocalDateTime timestamp) {
-        this.timestamp = timestamp;
+        this.timestamp = timestamp != null ? timestamp.truncatedTo(ChronoUnit.MICROS) : null;
     }
     
     public String getIpAddress() {
@@ -469,6 +502,38 @@ public class AuditLog {
         this.signature = signature;
     }
     
+    public String getChainId() {
+        return chainId;
+    }
+    
+    public void setChainId(String chainId) {
+        this.chainId = chainId;
+    }
+    
+    public Long getChainSeq() {
+        return chainSeq;
+    }
+    
+    public void setChainSeq(Long chainSeq) {
+        this.chainSeq = chainSeq;
+    }
+    
+    public String getPrevHash() {
+        return prevHash;
+    }
+    
+    public void setPrevHash(String prevHash) {
+        this.prevHash = prevHash;
+    }
+    
+    public String getRowHash() {
+        return rowHash;
+    }
+    
+    public void setRowHash(String rowHash) {
+        this.rowHash = rowHash;
+    }
+    
     // equals, hashCode, toString
     @Override
     public boolean equals(Object o) {
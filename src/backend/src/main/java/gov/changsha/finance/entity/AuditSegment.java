@@ -0,0 +1,162 @@
+package gov.changsha.finance.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 审计日志封段实体类
+ * 一条哈希链在一个时间段内写入的连续行范围及其Merkle根，
+ * 封段签名覆盖上一段的封段签名，形成段级链
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Entity
+@Table(name = "audit_segments",
+    uniqueConstraints = @UniqueConstraint(name = "uk_audit_segments_chain_no", columnNames = {"chain_id", "segment_no"}),
+    indexes = @Index(name = "idx_audit_segments_period", columnList = "period_start"))
+public class AuditSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "chain_id", nullable = false, length = 64)
+    private String chainId;
+
+    @Column(name = "segment_no", nullable = false)
+    private Long segmentNo;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDateTime periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDateTime periodEnd;
+
+    @Column(name = "first_seq", nullable = false)
+    private Long firstSeq;
+
+    @Column(name = "last_seq", nullable = false)
+    private Long lastSeq;
+
+    @Column(name = "row_count", nullable = false)
+    private Long rowCount;
+
+    @Column(name = "first_prev_hash", nullable = false, length = 64)
+    private String firstPrevHash;
+
+    @Column(name = "last_row_hash", nullable = false, length = 64)
+    private String lastRowHash;
+
+    @Column(name = "merkle_root", nullable = false, length = 64)
+    private String merkleRoot;
+
+    @Column(name = "prev_seal", length = 64)
+    private String prevSeal;
+
+    @Column(name = "seal", nullable = false, length = 64)
+    private String seal;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "sealed_by", nullable = false, length = 20)
+    private SealedBy sealedBy = SealedBy.WRITER;
+
+    @Column(name = "sealed_at", nullable = false)
+    private LocalDateTime sealedAt;
+
+    /**
+     * 封段来源
+     */
+    public enum SealedBy {
+        WRITER("写入实例在线封段"),
+        RECOVERY("宕机后补封");
+
+        private final String description;
+
+        SealedBy(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    public AuditSegment() {
+        this.sealedAt = LocalDateTime.now();
+    }
+
+    /**
+     * 封段签名覆盖的内容
+     */
+    public String sealPayload() {
+        return chainId + ":" + segmentNo + ":" + periodStart + ":" + periodEnd + ":" + firstSeq + ":" + lastSeq + ":"
+            + rowCount + ":" + firstPrevHash + ":" + lastRowHash + ":" + merkleRoot + ":" + prevSeal;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getChainId() { return chainId; }
+    public void setChainId(String chainId) { this.chainId = chainId; }
+
+    public Long getSegmentNo() { return segmentNo; }
+    public void setSegmentNo(Long segmentNo) { this.segmentNo = segmentNo; }
+
+    public LocalDateTime getPeriodStart() { return periodStart; }
+    public void setPeriodStart(LocalDateTime periodStart) { this.periodStart = periodStart; }
+
+    public LocalDateTime getPeriodEnd() { return periodEnd; }
+    public void setPeriodEnd(LocalDateTime periodEnd) { this.periodEnd = periodEnd; }
+
+    public Long getFirstSeq() { return firstSeq; }
+    public void setFirstSeq(Long firstSeq) { this.firstSeq = firstSeq; }
+
+    public Long getLastSeq() { return lastSeq; }
+    public void setLastSeq(Long lastSeq) { this.lastSeq = lastSeq; }
+
+    public Long getRowCount() { return rowCount; }
+    public void setRowCount(Long rowCount) { this.rowCount = rowCount; }
+
+    public String getFirstPrevHash() { return firstPrevHash; }
+    public void setFirstPrevHash(String firstPrevHash) { this.firstPrevHash = firstPrevHash; }
+
+    public String getLastRowHash() { return lastRowHash; }
+    public void setLastRowHash(String lastRowHash) { this.lastRowHash = lastRowHash; }
+
+    public String getMerkleRoot() { return merkleRoot; }
+    public void setMerkleRoot(String merkleRoot) { this.merkleRoot = merkleRoot; }
+
+    public String getPrevSeal() { return prevSeal; }
+    public void setPrevSeal(String prevSeal) { this.prevSeal = prevSeal; }
+
+    public String getSeal() { return seal; }
+    public void setSeal(String seal) { this.seal = seal; }
+
+    public SealedBy getSealedBy() { return sealedBy; }
+    public void setSealedBy(SealedBy sealedBy) { this.sealedBy = sealedBy; }
+
+    public LocalDateTime getSealedAt() { return sealedAt; }
+    public void setSealedAt(LocalDateTime sealedAt) { this.sealedAt = sealedAt; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AuditSegment that = (AuditSegment) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "AuditSegment{chainId='" + chainId + "', segmentNo=" + segmentNo + ", firstSeq=" + firstSeq
+            + ", lastSeq=" + lastSeq + ", rowCount=" + rowCount + ", sealedBy=" + sealedBy + "}";
+    }
+}
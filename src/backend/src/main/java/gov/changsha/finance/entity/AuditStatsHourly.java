@@ -0,0 +1,89 @@
+package gov.changsha.finance.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 审计统计小时汇总实体类
+ * 一行为某小时内某统计维度的一个取值对应的审计日志条数，
+ * 由 {@link gov.changsha.finance.service.audit.AuditStatisticsRollup} 通过JDBC维护
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Entity
+@Table(name = "audit_stats_hourly",
+    uniqueConstraints = @UniqueConstraint(name = "uk_audit_stats_hourly", columnNames = {"dimension", "bucket_hour", "dim_key"}),
+    indexes = {
+        @Index(name = "idx_audit_stats_key", columnList = "dimension, dim_key, bucket_hour"),
+        @Index(name = "idx_audit_stats_user", columnList = "user_id")
+    })
+public class AuditStatsHourly {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bucket_hour", nullable = false)
+    private LocalDateTime bucketHour;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", nullable = false, length = 20)
+    private Dimension dimension;
+
+    @Column(name = "dim_key", nullable = false, length = 100)
+    private String dimKey;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * 统计维度
+     */
+    public enum Dimension {
+        TOTAL("总量"),
+        USER("用户"),
+        OPERATION("操作类型"),
+        IP("IP地址"),
+        STATUS("操作状态"),
+        RISK("风险等级");
+
+        private final String description;
+
+        Dimension(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDateTime getBucketHour() { return bucketHour; }
+    public void setBucketHour(LocalDateTime bucketHour) { this.bucketHour = bucketHour; }
+
+    public Dimension getDimension() { return dimension; }
+    public void setDimension(Dimension dimension) { this.dimension = dimension; }
+
+    public String getDimKey() { return dimKey; }
+    public void setDimKey(String dimKey) { this.dimKey = dimKey; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getEventCount() { return eventCount; }
+    public void setEventCount(Long eventCount) { this.eventCount = eventCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
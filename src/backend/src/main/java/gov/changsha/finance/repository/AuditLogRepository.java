@@ -2,6 +2,7 @@ package gov.changsha.finance.repository;
 
 import gov.changsha.finance.entity.AuditLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,6 +13,11 @@ import java.util.List;
 /**
  * 审计日志数据访问层
  * 提供审计日志的查询和统计功能
+ * 返回List的派生查询会一次性加载全部结果，仅适用于小范围；
+ * 条件组合、分页和大范围查询使用 {@link gov.changsha.finance.service.audit.AuditQueryService}；
+ * 下方count和统计方法逐次扫描原始表，仅用于需要精确到秒的场景，仪表盘统计使用
+ * {@link gov.changsha.finance.service.audit.AuditStatisticsService}（小时汇总表），
+ * 可疑活动检测使用 {@link gov.changsha.finance.service.audit.SuspiciousActivityDetector}（内存滑动窗口）
  * 
  * @author 开发团队
  * @version 1.0.0
@@ -160,19 +166,10 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     List<Object[]> findIpAccessStatistics(@Param("startTime") LocalDateTime startTime, 
                                          @Param("endTime") LocalDateTime endTime);
     
-    /**
-     * 查找可疑活动（短时间内大量失败操作）
-     */
-    @Query("SELECT a.ipAddress, a.username, COUNT(a) as failureCount FROM AuditLog a " +
-           "WHERE a.timestamp >= :since AND a.operationStatus = 'FAILED' " +
-           "GROUP BY a.ipAddress, a.username " +
-           "HAVING COUNT(a) >= :threshold ORDER BY failureCount DESC")
-    List<Object[]> findSuspiciousActivity(@Param("since") LocalDateTime since, 
-                                         @Param("threshold") Long threshold);
-    
     /**
      * 删除指定时间之前的审计日志（用于日志轮转）
      */
+    @Modifying
     @Query("DELETE FROM AuditLog a WHERE a.timestamp < :beforeTime")
     void deleteLogsBefore(@Param("beforeTime") LocalDateTime beforeTime);
 }
\ No newline at end of file
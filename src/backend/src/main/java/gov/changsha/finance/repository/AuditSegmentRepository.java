@@ -0,0 +1,40 @@
+package gov.changsha.finance.repository;
+
+import gov.changsha.finance.entity.AuditSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 审计日志封段数据访问层
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Repository
+public interface AuditSegmentRepository extends JpaRepository<AuditSegment, Long> {
+
+    /**
+     * 查找时间段与 [startTime, endTime) 相交的封段，按链和段号排序
+     */
+    @Query("SELECT s FROM AuditSegment s WHERE s.periodEnd > :startTime AND s.periodStart < :endTime " +
+           "ORDER BY s.chainId, s.segmentNo")
+    List<AuditSegment> findOverlapping(@Param("startTime") LocalDateTime startTime,
+                                       @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 查找链上的最后一个封段
+     */
+    Optional<AuditSegment> findTopByChainIdOrderBySegmentNoDesc(String chainId);
+
+    /**
+     * 查找链上指定段号的封段
+     */
+    Optional<AuditSegment> findByChainIdAndSegmentNo(String chainId, Long segmentNo);
+}
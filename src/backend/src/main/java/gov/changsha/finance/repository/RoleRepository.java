@@ -80,6 +80,18 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
     @Query("SELECT r FROM Role r JOIN r.users u WHERE u.id = :userId")
     List<Role> findByUserId(@Param("userId") Long userId);
     
+    /**
+     * 查找全部角色并预加载权限（用于编译角色权限位图）
+     */
+    @Query("SELECT DISTINCT r FROM Role r LEFT JOIN FETCH r.permissions")
+    List<Role> findAllWithPermissions();
+    
+    /**
+     * 根据角色代码查找角色并预加载权限
+     */
+    @Query("SELECT r FROM Role r LEFT JOIN FETCH r.permissions WHERE r.code = :code")
+    Optional<Role> findByCodeWithPermissions(@Param("code") String code);
+    
     /**
      * 根据权限代码查找拥有该权限的角色
      */
@@ -0,0 +1,309 @@
+package gov.changsha.finance.security;
+
+import gov.changsha.finance.entity.Permission;
+import gov.changsha.finance.entity.Role;
+import gov.changsha.finance.repository.PermissionRepository;
+import gov.changsha.finance.repository.RoleRepository;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 权限位图注册表
+ * 为每个权限代码和角色（ROLE_前缀）分配稠密整数ID，
+ * 预编译每个角色的权限位图，使授权判断退化为少量long按位与运算。
+ * ID按首次使用的顺序分配（安全配置构造授权掩码时即开始分配），只在本进程内有效，不得持久化或随令牌传递
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class AuthorityBitsetRegistry implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthorityBitsetRegistry.class);
+
+    /**
+     * 角色权限变更广播频道（多实例之间同步角色位图）
+     */
+    public static final String ROLE_CHANGED_CHANNEL = "authz:role-changed";
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private PermissionRepository permissionRepository;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 权限代码 -> 稠密ID（只增不减）
+     */
+    private final ConcurrentHashMap<String, Integer> authorityIds = new ConcurrentHashMap<>();
+
+    /**
+     * 角色代码 -> 角色位图（含角色自身的ROLE_位和全部权限位）
+     */
+    private final ConcurrentHashMap<String, long[]> roleBits = new ConcurrentHashMap<>();
+
+    /**
+     * 角色位图版本号，任一角色变更后递增，主体上缓存的位图随之失效
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * 应用启动完成后为全部角色和权限分配ID，并预编译全部角色位图
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        long startTime = System.currentTimeMillis();
+        try {
+            List<Role> roles = new ArrayList<>(roleRepository.findAllWithPermissions());
+            roles.sort(Comparator.comparing(Role::getId));
+            for (Role role : roles) {
+                idOf(ROLE_PREFIX + role.getCode());
+            }
+
+            List<Permission> permissions = new ArrayList<>(permissionRepository.findAll());
+            permissions.sort(Comparator.comparing(Permission::getId));
+            for (Permission permission : permissions) {
+                idOf(permission.getCode());
+            }
+
+            for (Role role : roles) {
+                roleBits.put(role.getCode(), compileRole(role.getCode(), role.getPermissionCodes()));
+            }
+            version.incrementAndGet();
+
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(ROLE_CHANGED_CHANNEL));
+
+            logger.info("权限位图注册表初始化完成 - 角色: {}, 权限码: {}, 耗时: {}ms",
+                       roles.size(), authorityIds.size(), System.currentTimeMillis() - startTime);
+        } catch (Exception ex) {
+            logger.error("权限位图注册表初始化失败，授权判断将按需编码", ex);
+        }
+    }
+
+    /**
+     * 获取（必要时分配）权限代码的稠密ID
+     */
+    public int idOf(String authority) {
+        Integer id = authorityIds.get(authority);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = authorityIds.get(authority);
+            if (id != null) {
+                return id;
+            }
+            int newId = authorityIds.size();
+            authorityIds.put(authority, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * 将权限代码集合编码为位图
+     */
+    public long[] encode(Collection<String> authorities) {
+        int[] ids = new int[authorities.size()];
+        int max = -1;
+        int i = 0;
+        for (String authority : authorities) {
+            ids[i] = idOf(authority);
+            max = Math.max(max, ids[i]);
+            i++;
+        }
+        long[] bits = new long[(max >> 6) + 1];
+        for (int id : ids) {
+            bits[id >> 6] |= 1L << id;
+        }
+        return bits;
+    }
+
+    /**
+     * 将角色代码（不含ROLE_前缀）编码为授权掩码
+     */
+    public long[] roleMask(String... roles) {
+        List<String> authorities = new ArrayList<>(roles.length);
+        for (String role : roles) {
+            authorities.add(role.startsWith(ROLE_PREFIX) ? role : ROLE_PREFIX + role);
+        }
+        return encode(authorities);
+    }
+
+    /**
+     * 获取用户主体的权限位图
+     * 主体的角色均已在注册表中时，按当前角色位图计算（角色权限变更立即生效）；
+     * 否则按主体自身携带的权限字符串编码
+     */
+    public long[] bitsFor(UserPrincipal principal) {
+        long currentVersion = version.get();
+        long[] bits = principal.getAuthorityBits();
+        if (bits != null && principal.getAuthorityBitsVersion() == currentVersion) {
+            return bits;
+        }
+
+        bits = null;
+        for (String role : principal.getRoles()) {
+            long[] compiled = roleBits.get(role);
+            if (compiled == null) {
+                bits = null;
+                break;
+            }
+            bits = or(bits, compiled);
+        }
+        if (bits == null) {
+            List<String> authorities = new ArrayList<>();
+            for (GrantedAuthority authority : principal.getAuthorities()) {
+                authorities.add(authority.getAuthority());
+            }
+            bits = encode(authorities);
+        }
+
+        principal.setAuthorityBits(bits, currentVersion);
+        return bits;
+    }
+
+    /**
+     * 角色权限变更后增量重建该角色的位图（事务提交后生效并广播到其他实例）
+     */
+    public void updateRole(Role role) {
+        String roleCode = role.getCode();
+        Set<String> permissionCodes = new HashSet<>(role.getPermissionCodes());
+        runAfterCommit(() -> {
+            applyRole(roleCode, permissionCodes);
+            publishRoleChanged(roleCode);
+        });
+    }
+
+    /**
+     * 角色删除后移除其位图
+     */
+    public void removeRole(String roleCode) {
+        runAfterCommit(() -> {
+            roleBits.remove(roleCode);
+            version.incrementAndGet();
+            publishRoleChanged(roleCode);
+        });
+    }
+
+    /**
+     * 接收其他实例的角色变更广播，从数据库重新加载该角色
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String roleCode = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            Optional<Role> roleOpt = roleRepository.findByCodeWithPermissions(roleCode);
+            if (roleOpt.isPresent()) {
+                applyRole(roleCode, roleOpt.get().getPermissionCodes());
+            } else if (roleBits.remove(roleCode) != null) {
+                version.incrementAndGet();
+            }
+            logger.debug("同步角色位图 - 角色: {}", roleCode);
+        } catch (Exception ex) {
+            logger.warn("同步角色位图失败 - 角色: {}, 错误: {}", roleCode, ex.getMessage());
+        }
+    }
+
+    private void applyRole(String roleCode, Set<String> permissionCodes) {
+        roleBits.put(roleCode, compileRole(roleCode, permissionCodes));
+        version.incrementAndGet();
+        logger.debug("重建角色位图 - 角色: {}, 权限数量: {}", roleCode, permissionCodes.size());
+    }
+
+    private long[] compileRole(String roleCode, Set<String> permissionCodes) {
+        List<String> authorities = new ArrayList<>(permissionCodes.size() + 1);
+        authorities.add(ROLE_PREFIX + roleCode);
+        authorities.addAll(permissionCodes);
+        return encode(authorities);
+    }
+
+    private void publishRoleChanged(String roleCode) {
+        try {
+            stringRedisTemplate.convertAndSend(ROLE_CHANGED_CHANNEL, roleCode);
+        } catch (Exception ex) {
+            logger.warn("广播角色变更失败 - 角色: {}, 错误: {}", roleCode, ex.getMessage());
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 位图编码为紧凑字符串（Base64URL，去除末尾全零字），作为本进程内按权限集合划分的缓存键
+     */
+    public String toKey(long[] bits) {
+        int words = bits.length;
+        while (words > 0 && bits[words - 1] == 0L) {
+            words--;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(words * Long.BYTES);
+        for (int i = 0; i < words; i++) {
+            buffer.putLong(bits[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    // 位运算工具
+
+    /**
+     * 两个位图是否有交集（任一授权满足）
+     */
+    public static boolean intersects(long[] bits, long[] mask) {
+        int n = Math.min(bits.length, mask.length);
+        for (int i = 0; i < n; i++) {
+            if ((bits[i] & mask[i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long[] or(long[] a, long[] b) {
+        if (a == null) {
+            return b.clone();
+        }
+        long[] result = a.length >= b.length ? a : Arrays.copyOf(a, b.length);
+        for (int i = 0; i < b.length; i++) {
+            result[i] |= b[i];
+        }
+        return result;
+    }
+}
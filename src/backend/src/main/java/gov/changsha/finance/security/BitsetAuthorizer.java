@@ -0,0 +1,77 @@
+package gov.changsha.finance.security;
+
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 基于权限位图的授权判断
+ * 供SecurityConfig请求匹配规则（anyRole）和方法注解（@authz.hasAnyRole）使用，
+ * 授权掩码按参数预编译并缓存，每次判断只做位图按位与
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component("authz")
+public class BitsetAuthorizer {
+
+    @Autowired
+    private AuthorityBitsetRegistry registry;
+
+    /**
+     * 方法注解参数 -> 预编译掩码
+     */
+    private final ConcurrentHashMap<String, long[]> roleMasks = new ConcurrentHashMap<>();
+
+    /**
+     * 请求匹配规则：拥有任一角色即可访问
+     */
+    public AuthorizationManager<RequestAuthorizationContext> anyRole(String... roles) {
+        long[] mask = registry.roleMask(roles);
+        return (authentication, context) -> new AuthorizationDecision(matches(authentication.get(), mask));
+    }
+
+    /**
+     * 方法注解：@PreAuthorize("@authz.hasAnyRole('ADMIN', 'PROJECT_MANAGER')")
+     */
+    public boolean hasAnyRole(String... roles) {
+        long[] mask = roleMasks.computeIfAbsent(String.join(",", roles), key -> registry.roleMask(roles));
+        return matches(SecurityContextHolder.getContext().getAuthentication(), mask);
+    }
+
+    /**
+     * 判断认证主体的位图与掩码是否有交集
+     */
+    private boolean matches(Authentication authentication, long[] mask) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        return AuthorityBitsetRegistry.intersects(bitsOf(authentication), mask);
+    }
+
+    private long[] bitsOf(Authentication authentication) {
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof UserPrincipal) {
+            return registry.bitsFor((UserPrincipal) principal);
+        }
+
+        // 非UserPrincipal主体（如测试中的模拟用户）按权限字符串即时编码
+        List<String> authorities = new ArrayList<>();
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            authorities.add(authority.getAuthority());
+        }
+        return registry.encode(authorities);
+    }
+}
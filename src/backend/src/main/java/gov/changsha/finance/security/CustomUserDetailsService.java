@@ -56,14 +56,8 @@ public class CustomUserDetailsService implements UserDetailsService {
             // 创建UserPrincipal并缓存
             UserPrincipal userPrincipal = UserPrincipal.create(user);
             
-            // 缓存用户信息和用户名映射
-            loginCacheService.cacheUserInfo(user.getId(), userPrincipal);
-            loginCacheService.cacheUsernameMapping(user.getUsername(), user.getId());
-            
-            // 如果用户通过邮箱或工号登录，也要缓存这些映射
-            if (!username.equals(user.getUsername())) {
-                loginCacheService.cacheUsernameMapping(username, user.getId());
-            }
+            // 缓存用户信息和用户名映射（如果用户通过邮箱或工号登录，也缓存该登录名的映射）
+            loginCacheService.cacheUser(userPrincipal, username);
             
             long duration = System.currentTimeMillis() - startTime;
             logger.debug("从数据库加载用户成功: {} (耗时: {}ms)", user.getUsername(), duration);
@@ -105,8 +99,7 @@ public class CustomUserDetailsService implements UserDetailsService {
             UserPrincipal userPrincipal = UserPrincipal.create(user);
             
             // 缓存用户信息和用户名映射
-            loginCacheService.cacheUserInfo(user.getId(), userPrincipal);
-            loginCacheService.cacheUsernameMapping(user.getUsername(), user.getId());
+            loginCacheService.cacheUser(userPrincipal);
             
             long duration = System.currentTimeMillis() - startTime;
             logger.debug("从数据库加载用户成功(ID: {}): {} (耗时: {}ms)", id, user.getUsername(), duration);
@@ -1,12 +1,13 @@
 package gov.changsha.finance.security.jwt;
 
+import gov.changsha.finance.security.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -34,7 +35,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenProvider tokenProvider;
     
     @Autowired
-    private UserDetailsService userDetailsService;
+    private CustomUserDetailsService userDetailsService;
+    
+    @Autowired
+    private RefreshTokenStore refreshTokenStore;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -43,11 +47,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         try {
             String jwt = getJwtFromRequest(request);
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseValidClaims(jwt) : null;
+            
+            // 刷新令牌只能用于/api/auth/refresh，不能作为访问令牌
+            if (claims != null && tokenProvider.isRefreshToken(claims)) {
+                claims = null;
+            }
+            
+            // 撤销检查：本地布隆过滤器未命中即放行，命中时才访问Redis确认
+            if (claims != null && refreshTokenStore.isRevoked(claims)) {
+                logger.warn("拒绝已撤销的令牌 - 用户: {}, URI: {}", claims.getSubject(), request.getRequestURI());
+                claims = null;
+            }
             
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
+            if (claims != null) {
+                String username = claims.getSubject();
+                Long userId = tokenProvider.getUserId(claims);
                 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // 按用户ID加载：缓存命中时只需一次Redis往返（无需经过用户名索引）
+                UserDetails userDetails = userId != null
+                        ? userDetailsService.loadUserById(userId)
+                        : userDetailsService.loadUserByUsername(username);
                 
                 if (userDetails != null) {
                     JwtAuthenticationToken authentication = new JwtAuthenticationToken(
@@ -8,15 +8,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
 /**
  * JWT令牌提供者
@@ -32,12 +30,15 @@ public class JwtTokenProvider {
     
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
     
-    private static final String AUTHORITIES_KEY = "authorities";
     private static final String USER_ID_KEY = "userId";
     private static final String USERNAME_KEY = "username";
     private static final String REAL_NAME_KEY = "realName";
     private static final String EMPLOYEE_ID_KEY = "employeeId";
     private static final String DEPARTMENT_KEY = "department";
+    private static final String FAMILY_ID_KEY = "fid";
+    private static final String TOKEN_TYPE_KEY = "typ";
+    private static final String TOKEN_TYPE_ACCESS = "access";
+    private static final String TOKEN_TYPE_REFRESH = "refresh";
     
     @Value("${app.jwt.secret:}")
     private String jwtSecret;
@@ -72,16 +73,12 @@ public class JwtTokenProvider {
     }
     
     /**
-     * 生成访问令牌
+     * 生成访问令牌（familyId为所属刷新令牌族，用于整族撤销）
      */
-    public String generateAccessToken(Authentication authentication) {
+    public String generateAccessToken(Authentication authentication, String familyId) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationInSeconds * 1000L);
         
-        List<String> authorities = authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toList());
-        
         return Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
                 .claim(USER_ID_KEY, userPrincipal.getId())
@@ -89,7 +86,9 @@ public class JwtTokenProvider {
                 .claim(REAL_NAME_KEY, userPrincipal.getRealName())
                 .claim(EMPLOYEE_ID_KEY, userPrincipal.getEmployeeId())
                 .claim(DEPARTMENT_KEY, userPrincipal.getDepartment())
-                .claim(AUTHORITIES_KEY, authorities)
+                .claim(FAMILY_ID_KEY, familyId)
+                .claim(TOKEN_TYPE_KEY, TOKEN_TYPE_ACCESS)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
                 .setIssuer("manday-assess-system")
@@ -99,9 +98,9 @@ public class JwtTokenProvider {
     }
     
     /**
-     * 生成刷新令牌
+     * 生成刷新令牌（tokenId由刷新令牌存储分配，用于轮换和重用检测）
      */
-    public String generateRefreshToken(Authentication authentication) {
+    public String generateRefreshToken(Authentication authentication, String familyId, String tokenId) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
         Date expiryDate = new Date(System.currentTimeMillis() + jwtRefreshExpirationInSeconds * 1000L);
         
@@ -109,6 +108,9 @@ public class JwtTokenProvider {
                 .setSubject(userPrincipal.getUsername())
                 .claim(USER_ID_KEY, userPrincipal.getId())
                 .claim(USERNAME_KEY, userPrincipal.getUsername())
+                .claim(FAMILY_ID_KEY, familyId)
+                .claim(TOKEN_TYPE_KEY, TOKEN_TYPE_REFRESH)
+                .setId(tokenId)
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
                 .setIssuer("manday-assess-system")
@@ -141,19 +143,6 @@ public class JwtTokenProvider {
         return claims.get(USER_ID_KEY, Long.class);
     }
     
-    /**
-     * 从令牌中获取权限列表
-     */
-    @SuppressWarnings("unchecked")
-    public List<String> getAuthoritiesFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(getKey())
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return (List<String>) claims.get(AUTHORITIES_KEY);
-    }
-    
     /**
      * 获取令牌过期时间
      */
@@ -170,25 +159,7 @@ public class JwtTokenProvider {
      * 验证令牌是否有效
      */
     public boolean validateToken(String authToken) {
-        try {
-            Jwts.parser()
-                    .setSigningKey(getKey())
-                    .parseClaimsJws(authToken);
-            
-            return true;
-        } catch (SecurityException ex) {
-            logger.error("Invalid JWT signature: {}", ex.getMessage());
-        } catch (MalformedJwtException ex) {
-            logger.error("Invalid JWT token: {}", ex.getMessage());
-        } catch (ExpiredJwtException ex) {
-            logger.error("Expired JWT token: {}", ex.getMessage());
-        } catch (UnsupportedJwtException ex) {
-            logger.error("Unsupported JWT token: {}", ex.getMessage());
-        } catch (IllegalArgumentException ex) {
-            logger.error("JWT claims string is empty: {}", ex.getMessage());
-        }
-        
-        return false;
+        return parseValidClaims(authToken) != null;
     }
     
     /**
@@ -228,6 +199,58 @@ public class JwtTokenProvider {
                 .getBody();
     }
     
+    /**
+     * 校验令牌并返回声明（一次解析），无效时返回null
+     */
+    public Claims parseValidClaims(String token) {
+        try {
+            return Jwts.parser()
+                    .setSigningKey(getKey())
+                    .parseClaimsJws(token)
+                    .getBody();
+        } catch (SecurityException ex) {
+            logger.error("Invalid JWT signature: {}", ex.getMessage());
+        } catch (MalformedJwtException ex) {
+            logger.error("Invalid JWT token: {}", ex.getMessage());
+        } catch (ExpiredJwtException ex) {
+            logger.error("Expired JWT token: {}", ex.getMessage());
+        } catch (UnsupportedJwtException ex) {
+            logger.error("Unsupported JWT token: {}", ex.getMessage());
+        } catch (IllegalArgumentException ex) {
+            logger.error("JWT claims string is empty: {}", ex.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * 从声明中获取用户ID
+     */
+    public Long getUserId(Claims claims) {
+        return claims.get(USER_ID_KEY, Long.class);
+    }
+    
+    /**
+     * 从声明中获取令牌族ID
+     */
+    public String getFamilyId(Claims claims) {
+        return claims.get(FAMILY_ID_KEY, String.class);
+    }
+    
+    /**
+     * 是否为刷新令牌
+     */
+    public boolean isRefreshToken(Claims claims) {
+        return TOKEN_TYPE_REFRESH.equals(claims.get(TOKEN_TYPE_KEY, String.class));
+    }
+    
+    /**
+     * 刷新令牌有效期（秒）
+     */
+    public int getRefreshExpirationInSeconds() {
+        return jwtRefreshExpirationInSeconds;
+    }
+    
     /**
      * 获取令牌剩余有效时间（秒）
      */
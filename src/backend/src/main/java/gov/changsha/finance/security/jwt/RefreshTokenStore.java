@@ -0,0 +1,361 @@
+package gov.changsha.finance.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 刷新令牌族存储
+ * 每次登录创建一个令牌族，族内只有当前刷新令牌有效，刷新时原子轮换；
+ * 已轮换的旧令牌再次出现视为重用（令牌泄露），整族撤销。
+ * 撤销的令牌ID和令牌族ID同时写入Redis（权威记录）和进程内布隆过滤器（通过发布订阅同步），
+ * 每次请求的撤销检查只做本地位测试，仅布隆过滤器命中时才访问Redis
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class RefreshTokenStore implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenStore.class);
+
+    /**
+     * 令牌撤销广播频道（消息内容为令牌ID或令牌族ID）
+     */
+    public static final String TOKEN_REVOKED_CHANNEL = "auth:token-revoked";
+
+    private static final String FAMILY_PREFIX = "auth:rt:family:";
+    private static final String USER_FAMILIES_PREFIX = "auth:rt:user:";
+    private static final String REVOKED_PREFIX = "auth:revoked:";
+
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_CURRENT = "current";
+
+    /**
+     * 轮换脚本：当前令牌匹配则替换为新令牌并续期(1)；族存在但令牌不匹配为重用(-1)；族不存在(0)
+     */
+    private static final DefaultRedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 'current') " +
+            "if not current then return 0 end " +
+            "if current == ARGV[1] then " +
+            "  redis.call('HSET', KEYS[1], 'current', ARGV[2]) " +
+            "  redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "  return 1 " +
+            "end " +
+            "return -1", Long.class);
+
+    @Value("${system.auth.revocation.bloom.expected-insertions:100000}")
+    private int expectedInsertions;
+
+    @Value("${system.auth.revocation.bloom.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${system.auth.revocation.bloom.rebuild-interval-minutes:60}")
+    private long rebuildIntervalMinutes;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile RevokedTokenBloomFilter bloomFilter;
+
+    /**
+     * 重建过程中的新过滤器（重建期间收到的撤销同时写入新旧两个过滤器）
+     */
+    private volatile RevokedTokenBloomFilter rebuildingFilter;
+
+    private ScheduledExecutorService rebuildTicker;
+
+    @PostConstruct
+    public void init() {
+        bloomFilter = new RevokedTokenBloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * 应用启动完成后先订阅撤销广播，再从Redis加载已撤销ID，并定期重建以清除过期条目
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(TOKEN_REVOKED_CHANNEL));
+            rebuildBloomFilter();
+        } catch (Exception ex) {
+            logger.error("撤销令牌布隆过滤器初始化失败", ex);
+        }
+
+        rebuildTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "RevokedToken-Rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuildTicker.scheduleWithFixedDelay(() -> {
+            try {
+                rebuildBloomFilter();
+            } catch (Exception ex) {
+                logger.warn("重建撤销令牌布隆过滤器失败: {}", ex.getMessage());
+            }
+        }, rebuildIntervalMinutes, rebuildIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebuildTicker != null) {
+            rebuildTicker.shutdownNow();
+        }
+    }
+
+    /**
+     * 登录时创建新的令牌族并签发访问令牌和刷新令牌
+     */
+    public TokenPair issue(Authentication authentication) {
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        String familyId = UUID.randomUUID().toString();
+        String refreshTokenId = UUID.randomUUID().toString();
+        Long userId = userPrincipal.getId();
+
+        Duration familyTtl = Duration.ofSeconds(jwtTokenProvider.getRefreshExpirationInSeconds());
+        String familyKey = FAMILY_PREFIX + familyId;
+        String userKey = USER_FAMILIES_PREFIX + userId;
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, String.valueOf(userId));
+        fields.put(FIELD_CURRENT, refreshTokenId);
+
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.opsForHash().putAll(familyKey, fields);
+                ops.expire(familyKey, familyTtl);
+                ops.opsForSet().add(userKey, familyId);
+                ops.expire(userKey, familyTtl);
+                return null;
+            }
+        });
+
+        return new TokenPair(
+                jwtTokenProvider.generateAccessToken(authentication, familyId),
+                jwtTokenProvider.generateRefreshToken(authentication, familyId, refreshTokenId),
+                familyId);
+    }
+
+    /**
+     * 轮换刷新令牌：成功返回新令牌对；令牌已被轮换过（重用）时撤销整个令牌族并返回null
+     */
+    public TokenPair rotate(Claims refreshClaims, Authentication authentication) {
+        String familyId = jwtTokenProvider.getFamilyId(refreshClaims);
+        String presentedId = refreshClaims.getId();
+        if (familyId == null || presentedId == null || !jwtTokenProvider.isRefreshToken(refreshClaims)) {
+            return null;
+        }
+
+        String newTokenId = UUID.randomUUID().toString();
+        long ttlMillis = jwtTokenProvider.getRefreshExpirationInSeconds() * 1000L;
+        Long result = stringRedisTemplate.execute(ROTATE_SCRIPT, Collections.singletonList(FAMILY_PREFIX + familyId),
+                presentedId, newTokenId, String.valueOf(ttlMillis));
+
+        if (result == null || result == 0L) {
+            logger.warn("刷新令牌所属令牌族不存在或已撤销 - 令牌族: {}", familyId);
+            return null;
+        }
+        if (result < 0L) {
+            logger.warn("检测到刷新令牌重用，撤销整个令牌族 - 用户ID: {}, 令牌族: {}",
+                       jwtTokenProvider.getUserId(refreshClaims), familyId);
+            revokeFamily(familyId, jwtTokenProvider.getUserId(refreshClaims));
+            return null;
+        }
+
+        return new TokenPair(
+                jwtTokenProvider.generateAccessToken(authentication, familyId),
+                jwtTokenProvider.generateRefreshToken(authentication, familyId, newTokenId),
+                familyId);
+    }
+
+    /**
+     * 撤销单个访问令牌（保留至令牌自然过期）
+     */
+    public void revokeAccessToken(Claims claims) {
+        String tokenId = claims.getId();
+        if (tokenId == null || claims.getExpiration() == null) {
+            return;
+        }
+        long ttlMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+        if (ttlMillis > 0) {
+            markRevoked(tokenId, Duration.ofMillis(ttlMillis));
+        }
+    }
+
+    /**
+     * 撤销令牌族：族内刷新令牌不可再轮换，族内签发的访问令牌全部失效
+     */
+    public void revokeFamily(String familyId, Long userId) {
+        if (familyId == null) {
+            return;
+        }
+        stringRedisTemplate.unlink(FAMILY_PREFIX + familyId);
+        if (userId != null) {
+            stringRedisTemplate.opsForSet().remove(USER_FAMILIES_PREFIX + userId, familyId);
+        }
+        markRevoked(familyId, Duration.ofSeconds(jwtTokenProvider.getRefreshExpirationInSeconds()));
+    }
+
+    /**
+     * 撤销用户的全部会话（所有令牌族），返回撤销数量
+     */
+    public int revokeAllForUser(Long userId) {
+        Set<String> familyIds = stringRedisTemplate.opsForSet().members(USER_FAMILIES_PREFIX + userId);
+        if (familyIds == null || familyIds.isEmpty()) {
+            return 0;
+        }
+
+        List<String> keys = new ArrayList<>(familyIds.size() + 1);
+        for (String familyId : familyIds) {
+            keys.add(FAMILY_PREFIX + familyId);
+        }
+        keys.add(USER_FAMILIES_PREFIX + userId);
+        stringRedisTemplate.unlink(keys);
+
+        Duration ttl = Duration.ofSeconds(jwtTokenProvider.getRefreshExpirationInSeconds());
+        for (String familyId : familyIds) {
+            markRevoked(familyId, ttl);
+        }
+        logger.info("撤销用户全部会话 - 用户ID: {}, 令牌族数量: {}", userId, familyIds.size());
+        return familyIds.size();
+    }
+
+    /**
+     * 令牌是否已撤销（令牌ID或其所属令牌族被撤销）
+     * 布隆过滤器未命中时直接返回false；命中时由Redis确认，Redis不可用时按已撤销处理
+     */
+    public boolean isRevoked(Claims claims) {
+        String tokenId = claims.getId();
+        String familyId = jwtTokenProvider.getFamilyId(claims);
+        RevokedTokenBloomFilter filter = bloomFilter;
+        boolean tokenHit = tokenId != null && filter.mightContain(tokenId);
+        boolean familyHit = familyId != null && filter.mightContain(familyId);
+        if (!tokenHit && !familyHit) {
+            return false;
+        }
+
+        List<String> keys = new ArrayList<>(2);
+        if (tokenHit) {
+            keys.add(REVOKED_PREFIX + tokenId);
+        }
+        if (familyHit) {
+            keys.add(REVOKED_PREFIX + familyId);
+        }
+        try {
+            Long count = stringRedisTemplate.countExistingKeys(keys);
+            return count != null && count > 0;
+        } catch (Exception ex) {
+            logger.warn("确认令牌撤销状态失败，按已撤销处理 - 令牌ID: {}, 错误: {}", tokenId, ex.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 接收其他实例的撤销广播，写入本地布隆过滤器
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        addToFilters(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void markRevoked(String id, Duration ttl) {
+        addToFilters(id);
+        try {
+            stringRedisTemplate.opsForValue().set(REVOKED_PREFIX + id, "1", ttl);
+            stringRedisTemplate.convertAndSend(TOKEN_REVOKED_CHANNEL, id);
+        } catch (Exception ex) {
+            logger.error("记录令牌撤销失败 - ID: {}", id, ex);
+            throw ex;
+        }
+    }
+
+    private void addToFilters(String id) {
+        bloomFilter.put(id);
+        RevokedTokenBloomFilter rebuilding = rebuildingFilter;
+        if (rebuilding != null) {
+            rebuilding.put(id);
+        }
+    }
+
+    /**
+     * 从Redis中仍然有效的撤销记录重建布隆过滤器（过期记录随之清除）
+     */
+    private synchronized void rebuildBloomFilter() {
+        long startTime = System.currentTimeMillis();
+        RevokedTokenBloomFilter filter = new RevokedTokenBloomFilter(expectedInsertions, falsePositiveRate);
+        rebuildingFilter = filter;
+        try {
+            ScanOptions options = ScanOptions.scanOptions().match(REVOKED_PREFIX + "*").count(1000).build();
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                while (cursor.hasNext()) {
+                    filter.put(cursor.next().substring(REVOKED_PREFIX.length()));
+                }
+            }
+            bloomFilter = filter;
+        } finally {
+            rebuildingFilter = null;
+        }
+
+        if (filter.getInsertions() > expectedInsertions) {
+            logger.warn("撤销令牌数量超过布隆过滤器容量，误判率将升高 - 数量: {}, 容量: {}",
+                       filter.getInsertions(), expectedInsertions);
+        }
+        logger.info("撤销令牌布隆过滤器已重建 - 条目: {}, 位数: {}, 哈希函数: {}, 耗时: {}ms",
+                   filter.getInsertions(), filter.getBitCount(), filter.getHashCount(),
+                   System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 签发的令牌对
+     */
+    public static class TokenPair {
+        private final String accessToken;
+        private final String refreshToken;
+        private final String familyId;
+
+        public TokenPair(String accessToken, String refreshToken, String familyId) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.familyId = familyId;
+        }
+
+        public String getAccessToken() { return accessToken; }
+        public String getRefreshToken() { return refreshToken; }
+        public String getFamilyId() { return familyId; }
+    }
+}
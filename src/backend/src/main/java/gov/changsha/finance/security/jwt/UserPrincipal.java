@@ -44,6 +44,15 @@ public class UserPrincipal implements UserDetails {
     
     private LocalDateTime lastLoginAt;
     
+    /**
+     * 权限位图（进程内码表编码，不写入缓存）及其对应的注册表版本
+     */
+    @JsonIgnore
+    private transient long[] authorityBits;
+    
+    @JsonIgnore
+    private transient long authorityBitsVersion = -1L;
+    
     public UserPrincipal(Long id, String username, String realName, String email, 
                         String employeeId, String department, String position,
                         String password, Collection<? extends GrantedAuthority> authorities,
@@ -195,6 +204,21 @@ public class UserPrincipal implements UserDetails {
         return lastLoginAt;
     }
     
+    @JsonIgnore
+    public long[] getAuthorityBits() {
+        return authorityBits;
+    }
+    
+    @JsonIgnore
+    public long getAuthorityBitsVersion() {
+        return authorityBitsVersion;
+    }
+    
+    public void setAuthorityBits(long[] authorityBits, long version) {
+        this.authorityBits = authorityBits;
+        this.authorityBitsVersion = version;
+    }
+    
     /**
      * 检查是否有指定权限
      */
@@ -1,11 +1,20 @@
 package gov.changsha.finance.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.changsha.finance.dto.response.AuditChainVerificationReport;
+import gov.changsha.finance.dto.response.AuditVerificationReport;
 import gov.changsha.finance.entity.AuditLog;
 import gov.changsha.finance.entity.Permission;
 import gov.changsha.finance.entity.Role;
 import gov.changsha.finance.entity.User;
 import gov.changsha.finance.repository.AuditLogRepository;
+import gov.changsha.finance.service.audit.AuditChainVerifier;
+import gov.changsha.finance.service.audit.AuditLogSigner;
+import gov.changsha.finance.service.audit.AuditLogWriter;
+import gov.changsha.finance.service.audit.AuditPartitionManager;
+import gov.changsha.finance.service.audit.AuditPayloadWriter;
+import gov.changsha.finance.service.audit.AuditPayloads;
+import gov.changsha.finance.service.audit.AuditSignatureVerifier;
+import gov.changsha.finance.service.audit.SuspiciousActivityDetector;
 import gov.changsha.finance.security.jwt.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,13 +22,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -27,35 +33,62 @@ import java.util.*;
  * 审计日志服务
  * 提供完整的审计日志记录和查询功能
  * 符合政府级安全审计要求
+ * 记录方法只在调用线程完成签名，写库由{@link AuditLogWriter}异步批量完成，不参与调用方事务
  * 
  * @author 开发团队
  * @version 1.0.0
  * @since 2025-09-09
  */
 @Service
-@Transactional
+@Transactional(propagation = Propagation.SUPPORTS)
 public class AuditLogService {
     
     private static final Logger logger = LoggerFactory.getLogger(AuditLogService.class);
     
-    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
-    private static final String SIGNATURE_KEY = "manday-assess-audit-signature-key-2025"; // 生产环境应从配置文件读取
-    
     @Autowired
     private AuditLogRepository auditLogRepository;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private AuditLogWriter auditLogWriter;
+    
+    @Autowired
+    private AuditPayloadWriter payloadWriter;
+    
+    @Autowired
+    private AuditLogSigner auditLogSigner;
+    
+    @Autowired
+    private AuditSignatureVerifier auditSignatureVerifier;
+    
+    @Autowired
+    private AuditChainVerifier auditChainVerifier;
+    
+    @Autowired
+    private AuditPartitionManager auditPartitionManager;
+    
+    @Autowired
+    private SuspiciousActivityDetector suspiciousActivityDetector;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
     
     /**
      * 记录用户登录
      */
     public void recordLogin(User user, String ipAddress, String userAgent) {
+        recordLogin(user, ipAddress, userAgent, LocalDateTime.now());
+    }
+    
+    /**
+     * 记录用户登录（指定登录时间，供写后队列批量补记使用）
+     */
+    public void recordLogin(User user, String ipAddress, String userAgent, LocalDateTime loginTime) {
         AuditLog auditLog = new AuditLog(
             AuditLog.OperationType.LOGIN,
             "AUTH",
             "用户登录系统"
         );
+        auditLog.setTimestamp(loginTime);
         
         setUserInfo(auditLog, user);
         auditLog.setIpAddress(ipAddress);
@@ -65,10 +98,8 @@ public class AuditLogService {
         auditLog.setBusinessId(user.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("loginTime", LocalDateTime.now());
-            data.put("userInfo", createSafeUserInfo(user));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.Login(loginTime, AuditPayloads.UserInfo.of(user))));
         } catch (Exception e) {
             logger.warn("记录登录审计日志数据时出错", e);
         }
@@ -157,10 +188,8 @@ public class AuditLogService {
         auditLog.setBusinessId(user.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("registrationTime", LocalDateTime.now());
-            data.put("userInfo", createSafeUserInfo(user));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.Registration(LocalDateTime.now(), AuditPayloads.UserInfo.of(user))));
         } catch (Exception e) {
             logger.warn("记录用户注册审计日志数据时出错", e);
         }
@@ -185,10 +214,8 @@ public class AuditLogService {
         auditLog.setBusinessId(user.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("targetUser", createSafeUserInfo(user));
-            data.put("action", "unlock");
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.AccountAction(AuditPayloads.UserInfo.of(user), "unlock", null)));
         } catch (Exception e) {
             logger.warn("记录账户解锁审计日志数据时出错", e);
         }
@@ -214,11 +241,8 @@ public class AuditLogService {
         auditLog.setBusinessId(user.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("targetUser", createSafeUserInfo(user));
-            data.put("action", "lock");
-            data.put("reason", reason);
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.AccountAction(AuditPayloads.UserInfo.of(user), "lock", reason)));
         } catch (Exception e) {
             logger.warn("记录账户锁定审计日志数据时出错", e);
         }
@@ -243,9 +267,8 @@ public class AuditLogService {
         auditLog.setBusinessId(role.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("roleInfo", createSafeRoleInfo(role));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.RoleCreated(AuditPayloads.RoleInfo.of(role))));
         } catch (Exception e) {
             logger.warn("记录角色创建审计日志数据时出错", e);
         }
@@ -270,10 +293,8 @@ public class AuditLogService {
         auditLog.setBusinessId(updatedRole.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("originalRole", createSafeRoleInfo(originalRole));
-            data.put("updatedRole", createSafeRoleInfo(updatedRole));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(new AuditPayloads.RoleUpdated(
+                AuditPayloads.RoleInfo.of(originalRole), AuditPayloads.RoleInfo.of(updatedRole))));
         } catch (Exception e) {
             logger.warn("记录角色更新审计日志数据时出错", e);
         }
@@ -298,9 +319,8 @@ public class AuditLogService {
         auditLog.setBusinessId(role.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("deletedRole", createSafeRoleInfo(role));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.RoleDeleted(AuditPayloads.RoleInfo.of(role))));
         } catch (Exception e) {
             logger.warn("记录角色删除审计日志数据时出错", e);
         }
@@ -325,20 +345,14 @@ public class AuditLogService {
         auditLog.setBusinessId(role.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("roleInfo", createSafeRoleInfo(role));
-            data.put("originalPermissions", originalPermissions);
-            data.put("newPermissions", newPermissions);
-            
             Set<String> added = new HashSet<>(newPermissions);
             added.removeAll(originalPermissions);
-            data.put("addedPermissions", added);
             
             Set<String> removed = new HashSet<>(originalPermissions);
             removed.removeAll(newPermissions);
-            data.put("removedPermissions", removed);
             
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(new AuditPayloads.RolePermissionsChanged(
+                AuditPayloads.RoleInfo.of(role), originalPermissions, newPermissions, added, removed)));
         } catch (Exception e) {
             logger.warn("记录权限分配审计日志数据时出错", e);
         }
@@ -363,9 +377,8 @@ public class AuditLogService {
         auditLog.setBusinessId(permission.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("permissionInfo", createSafePermissionInfo(permission));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.PermissionCreated(AuditPayloads.PermissionInfo.of(permission))));
         } catch (Exception e) {
             logger.warn("记录权限创建审计日志数据时出错", e);
         }
@@ -390,10 +403,8 @@ public class AuditLogService {
         auditLog.setBusinessId(updatedPermission.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("originalPermission", createSafePermissionInfo(originalPermission));
-            data.put("updatedPermission", createSafePermissionInfo(updatedPermission));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(new AuditPayloads.PermissionUpdated(
+                AuditPayloads.PermissionInfo.of(originalPermission), AuditPayloads.PermissionInfo.of(updatedPermission))));
         } catch (Exception e) {
             logger.warn("记录权限更新审计日志数据时出错", e);
         }
@@ -418,9 +429,8 @@ public class AuditLogService {
         auditLog.setBusinessId(permission.getId().toString());
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("deletedPermission", createSafePermissionInfo(permission));
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.PermissionDeleted(AuditPayloads.PermissionInfo.of(permission))));
         } catch (Exception e) {
             logger.warn("记录权限删除审计日志数据时出错", e);
         }
@@ -445,7 +455,7 @@ public class AuditLogService {
         auditLog.setBusinessId(projectId);
         
         try {
-            auditLog.setBusinessData(objectMapper.writeValueAsString(calculationData));
+            auditLog.setBusinessData(payloadWriter.write(calculationData));
         } catch (Exception e) {
             logger.warn("记录NESMA计算审计日志数据时出错", e);
         }
@@ -468,12 +478,8 @@ public class AuditLogService {
         auditLog.setRiskLevel(AuditLog.RiskLevel.HIGH); // 数据导出为高风险操作
         
         try {
-            Map<String, Object> data = new HashMap<>();
-            data.put("dataType", dataType);
-            data.put("exportFormat", exportFormat);
-            data.put("recordCount", recordCount);
-            data.put("exportTime", LocalDateTime.now());
-            auditLog.setBusinessData(objectMapper.writeValueAsString(data));
+            auditLog.setBusinessData(payloadWriter.write(
+                new AuditPayloads.DataExport(dataType, exportFormat, recordCount, LocalDateTime.now())));
         } catch (Exception e) {
             logger.warn("记录数据导出审计日志数据时出错", e);
         }
@@ -531,68 +537,6 @@ public class AuditLogService {
         }
     }
     
-    /**
-     * 创建安全的用户信息（脱敏）
-     */
-    private Map<String, Object> createSafeUserInfo(User user) {
-        Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("id", user.getId());
-        userInfo.put("username", user.getUsername());
-        userInfo.put("realName", user.getRealName());
-        userInfo.put("email", maskEmail(user.getEmail()));
-        userInfo.put("employeeId", user.getEmployeeId());
-        userInfo.put("department", user.getDepartment());
-        userInfo.put("position", user.getPosition());
-        userInfo.put("accountStatus", user.getAccountStatus());
-        // 密码等敏感信息不记录
-        return userInfo;
-    }
-    
-    /**
-     * 创建安全的角色信息
-     */
-    private Map<String, Object> createSafeRoleInfo(Role role) {
-        Map<String, Object> roleInfo = new HashMap<>();
-        roleInfo.put("id", role.getId());
-        roleInfo.put("name", role.getName());
-        roleInfo.put("code", role.getCode());
-        roleInfo.put("description", role.getDescription());
-        roleInfo.put("roleType", role.getRoleType());
-        roleInfo.put("status", role.getStatus());
-        return roleInfo;
-    }
-    
-    /**
-     * 创建安全的权限信息
-     */
-    private Map<String, Object> createSafePermissionInfo(Permission permission) {
-        Map<String, Object> permissionInfo = new HashMap<>();
-        permissionInfo.put("id", permission.getId());
-        permissionInfo.put("code", permission.getCode());
-        permissionInfo.put("name", permission.getName());
-        permissionInfo.put("description", permission.getDescription());
-        permissionInfo.put("permissionType", permission.getPermissionType());
-        permissionInfo.put("module", permission.getModule());
-        permissionInfo.put("resourcePath", permission.getResourcePath());
-        permissionInfo.put("httpMethod", permission.getHttpMethod());
-        permissionInfo.put("status", permission.getStatus());
-        return permissionInfo;
-    }
-    
-    /**
-     * 邮箱脱敏
-     */
-    private String maskEmail(String email) {
-        if (email == null || email.length() <= 3) {
-            return "***";
-        }
-        int atIndex = email.indexOf("@");
-        if (atIndex <= 0) {
-            return "***";
-        }
-        return email.charAt(0) + "***" + email.substring(atIndex);
-    }
-    
     /**
      * 获取异常堆栈信息
      */
@@ -610,22 +554,8 @@ public class AuditLogService {
      */
     private void generateSignature(AuditLog auditLog) {
         try {
-            String data = String.format("%s:%s:%s:%s:%s:%s",
-                auditLog.getUsername(),
-                auditLog.getOperation(),
-                auditLog.getModule(),
-                auditLog.getOperationDesc(),
-                auditLog.getTimestamp(),
-                auditLog.getIpAddress()
-            );
-            
-            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
-            SecretKeySpec secretKey = new SecretKeySpec(SIGNATURE_KEY.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM);
-            mac.init(secretKey);
-            byte[] signature = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            
-            auditLog.setSignature(Base64.getEncoder().encodeToString(signature));
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            auditLog.setSignature(auditLogSigner.sign(auditLog));
+        } catch (Exception e) {
             logger.error("生成审计日志签名失败", e);
         }
     }
@@ -635,22 +565,7 @@ public class AuditLogService {
      */
     public boolean verifySignature(AuditLog auditLog) {
         try {
-            String data = String.format("%s:%s:%s:%s:%s:%s",
-                auditLog.getUsername(),
-                auditLog.getOperation(),
-                auditLog.getModule(),
-                auditLog.getOperationDesc(),
-                auditLog.getTimestamp(),
-                auditLog.getIpAddress()
-            );
-            
-            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
-            SecretKeySpec secretKey = new SecretKeySpec(SIGNATURE_KEY.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM);
-            mac.init(secretKey);
-            byte[] expectedSignature = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            
-            String expectedSignatureStr = Base64.getEncoder().encodeToString(expectedSignature);
-            return expectedSignatureStr.equals(auditLog.getSignature());
+            return auditLogSigner.verify(auditLog);
         } catch (Exception e) {
             logger.error("验证审计日志签名失败", e);
             return false;
@@ -658,11 +573,33 @@ public class AuditLogService {
     }
     
     /**
-     * 保存审计日志
+     * 批量验证时间范围内的审计日志签名（流式读取、并行校验）
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuditVerificationReport verifySignatures(LocalDateTime startTime, LocalDateTime endTime) {
+        return auditSignatureVerifier.verifyRange(startTime, endTime);
+    }
+    
+    /**
+     * 按哈希链封段校验时间范围内的审计日志（检测修改和删除）
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuditChainVerificationReport verifyChain(LocalDateTime startTime, LocalDateTime endTime) {
+        return auditChainVerifier.verifyRange(startTime, endTime);
+    }
+    
+    /**
+     * 保存审计日志（提交到异步批量写入器）
      */
     private void saveAuditLog(AuditLog auditLog) {
         try {
-            auditLogRepository.save(auditLog);
+            // 实时检测在提交时完成，不等待异步写库
+            suspiciousActivityDetector.record(auditLog);
+        } catch (Exception e) {
+            logger.warn("可疑活动检测失败: {}", e.getMessage());
+        }
+        try {
+            auditLogWriter.submit(auditLog);
         } catch (Exception e) {
             // 审计日志保存失败不应影响业务操作，只记录错误
             logger.error("保存审计日志失败", e);
@@ -695,11 +632,16 @@ public class AuditLogService {
     
     /**
      * 清理过期审计日志
+     * 分区表整块分离并删除过期月份分区，未分区时按行删除
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void cleanupOldLogs(LocalDateTime beforeTime) {
         try {
-            auditLogRepository.deleteLogsBefore(beforeTime);
+            if (auditPartitionManager.isPartitioned()) {
+                auditPartitionManager.dropPartitionsBefore(beforeTime);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> auditLogRepository.deleteLogsBefore(beforeTime));
+            }
             logger.info("清理{}之前的审计日志完成", beforeTime);
         } catch (Exception e) {
             logger.error("清理过期审计日志失败", e);
@@ -15,7 +15,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
-import org.springframework.scheduling.annotation.Async;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -49,46 +48,20 @@ public class AuthService {
     @Autowired
     private LoginCacheService loginCacheService;
     
+    @Autowired
+    private LoginWriteBehindService loginWriteBehindService;
+    
     /**
-     * 更新用户登录信息（性能优化版本）
+     * 更新用户登录信息（写后队列版本）
+     * 仅登记到写后队列，最后登录时间和登录审计由后台批量写入，不占用请求线程的数据库连接
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void updateUserLoginInfo(Long userId, String loginIp, String userAgent) {
-        long startTime = System.currentTimeMillis();
         try {
-            Optional<User> userOpt = userRepository.findById(userId);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                user.setLastLoginAt(LocalDateTime.now());
-                user.resetFailedLoginAttempts(); // 登录成功后重置失败次数
-                userRepository.save(user);
-                
-                // 清除用户缓存，确保下次获取最新信息
-                userDetailsService.clearUserCache(user.getId(), user.getUsername());
-                
-                // 清除登录失败计数缓存
-                loginCacheService.clearLoginFailureCount(user.getUsername(), loginIp);
-                
-                // 异步记录登录审计日志（不影响登录响应时间）
-                recordLoginAuditAsync(user, loginIp, userAgent);
-                
-                long duration = System.currentTimeMillis() - startTime;
-                logger.debug("更新用户登录信息成功 - 用户ID: {}, IP: {}, 耗时: {}ms", userId, loginIp, duration);
-            }
+            loginWriteBehindService.enqueueLogin(userId, loginIp, userAgent);
+            logger.debug("登记用户登录信息 - 用户ID: {}, IP: {}", userId, loginIp);
         } catch (Exception ex) {
-            logger.error("更新用户登录信息失败 - 用户ID: {}, 耗时: {}ms", userId, System.currentTimeMillis() - startTime, ex);
-        }
-    }
-    
-    /**
-     * 异步记录登录审计日志
-     */
-    @Async
-    void recordLoginAuditAsync(User user, String loginIp, String userAgent) {
-        try {
-            auditLogService.recordLogin(user, loginIp, userAgent);
-            logger.debug("异步记录登录审计日志成功 - 用户: {}", user.getUsername());
-        } catch (Exception auditEx) {
-            logger.warn("异步记录登录审计日志失败 - 用户: {}, 错误: {}", user.getUsername(), auditEx.getMessage());
+            logger.error("登记用户登录信息失败 - 用户ID: {}", userId, ex);
         }
     }
     
@@ -100,8 +73,7 @@ public class AuthService {
         long startTime = System.currentTimeMillis();
         try {
             // 先更新缓存中的失败计数
-            loginCacheService.cacheLoginFailureCount(username, loginIp);
-            int failureCount = loginCacheService.getLoginFailureCount(username, loginIp);
+            int failureCount = loginCacheService.incrementLoginFailureCount(username, loginIp);
             
             // 如果失败次数超过阈值，记录警告但继续处理数据库更新
             if (failureCount >= 5) {
@@ -112,17 +84,18 @@ public class AuthService {
             Optional<User> userOpt = userRepository.findByUsernameOrEmailOrEmployeeId(username, username, username);
             if (userOpt.isPresent()) {
                 User user = userOpt.get();
-                user.incrementFailedLoginAttempts();
-                userRepository.save(user);
+                
+                // 在库内累加失败次数，与写后队列的最后登录批量更新互斥，不整行保存
+                Integer failedAttempts = loginWriteBehindService.recordFailedLogin(user.getId());
                 
                 // 清除用户缓存，确保下次获取最新状态
                 userDetailsService.clearUserCache(user.getId(), user.getUsername());
                 
                 logger.warn("用户登录失败 - 用户: {}, 数据库失败次数: {}, 缓存失败次数: {}, IP: {}", 
-                          username, user.getFailedLoginAttempts(), failureCount, loginIp);
+                          username, failedAttempts, failureCount, loginIp);
                 
                 // 如果达到锁定阈值，发送警告
-                if (user.getFailedLoginAttempts() >= 5) {
+                if (failedAttempts != null && failedAttempts >= 5) {
                     logger.warn("用户账户被锁定 - 用户: {}, IP: {}", username, loginIp);
                 }
             }
@@ -1,28 +1,80 @@
 package gov.changsha.finance.service;
 
+import gov.changsha.finance.service.backup.BackupJobLock;
+import gov.changsha.finance.service.backup.BackupManifest;
+import gov.changsha.finance.service.backup.BackupProgress;
+import gov.changsha.finance.service.backup.BackupRecordStore;
+import gov.changsha.finance.service.backup.BackupRecordStore.BackupRecord;
+import gov.changsha.finance.service.backup.BackupRecordStore.BackupType;
+import gov.changsha.finance.service.backup.BackupSampleReplayer;
+import gov.changsha.finance.service.backup.ChunkStore;
+import gov.changsha.finance.service.backup.CopyDataDigest;
+import gov.changsha.finance.service.backup.CopyDataDigest.TableDigest;
+import gov.changsha.finance.service.backup.CorruptBackupException;
+import gov.changsha.finance.service.backup.GcmChunkFormat;
+import gov.changsha.finance.service.backup.GcmChunkedInputStream;
+import gov.changsha.finance.service.backup.GcmChunkedOutputStream;
+import gov.changsha.finance.service.backup.IncrementalBackupExporter;
+import gov.changsha.finance.service.backup.LogicalBackupEngine;
+import gov.changsha.finance.service.backup.ParallelGzipOutputStream;
+import gov.changsha.finance.service.backup.ProcessOutputDrainer;
+import gov.changsha.finance.service.backup.ThrottledInputStream;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 /**
  * 数据备份和恢复服务
@@ -39,8 +91,49 @@ public class BackupService {
     private static final Logger logger = LoggerFactory.getLogger(BackupService.class);
     
     private static final String ENCRYPTION_ALGORITHM = "AES";
-    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    /** 旧版整流ECB加密，仅用于读取历史备份；新备份使用分块AES-GCM（GcmChunkFormat） */
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final String PART_SUFFIX = ".part";
+    private static final int STREAM_BUFFER_SIZE = 65536;
+    private static final int STDERR_TAIL_LINES = 50;
+    private static final long PROCESS_DRAIN_TIMEOUT_MS = 10_000L;
+    /** pg_dump纯文本输出的结束注释（新版本其后还有解除限制的元命令），缺失说明SQL备份被截断 */
+    private static final String SQL_DUMP_COMPLETE_MARKER = CopyDataDigest.DUMP_COMPLETE_MARKER;
+    private static final int VERIFY_TAIL_BYTES = 1024;
+    private static final String DIRECTORY_SUFFIX = ".dir";
+    private static final String DIRECTORY_TOC = "toc.dat";
+    private static final Pattern TABLE_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    /** 定时备份按计划时间去重的容差，覆盖节点间的时钟偏差 */
+    private static final Duration SCHEDULE_DEDUP_WINDOW = Duration.ofMinutes(5);
+    private static final int VERIFY_BATCH_SIZE = 500;
+    
+    @Value("${system.backup.enabled:false}")
+    private boolean scheduleEnabled;
+    
+    @Value("${system.backup.schedule:0 0 2 * * *}")
+    private String schedule;
+    
+    @Value("${system.backup.throttle.bytes-per-second:0}")
+    private long throttleBytesPerSecond;
+    
+    @Value("${system.backup.verify.enabled:false}")
+    private boolean verifyEnabled;
+    
+    @Value("${system.backup.verify.schedule:0 0 4 * * *}")
+    private String verifySchedule;
+    
+    @Value("${system.backup.verify.sample-tables:5}")
+    private int verifySampleTables;
+    
+    @Value("${system.backup.verify.max-rows-per-table:1000000}")
+    private long verifyMaxRowsPerTable;
+    
+    @Value("${system.backup.verify.bytes-per-second:20971520}")
+    private long verifyBytesPerSecond;
+    
+    @Value("${system.backup.verify.cache-size-kb:16384}")
+    private int verifyCacheSizeKb;
     
     @Value("${system.backup.location:/data/backups/manday-assess/}")
     private String backupLocation;
@@ -48,6 +141,12 @@ public class BackupService {
     @Value("${system.backup.retention-days:30}")
     private int retentionDays;
     
+    @Value("${system.backup.retention.weekly:8}")
+    private int retentionWeeks;
+    
+    @Value("${system.backup.retention.monthly:12}")
+    private int retentionMonths;
+    
     @Value("${system.backup.encrypt:true}")
     private boolean encryptBackup;
     
@@ -63,21 +162,179 @@ public class BackupService {
     @Value("${system.backup.encryption-key:manday-assess-backup-encryption-key}")
     private String encryptionKey;
     
+    @Value("${system.backup.compress.block-size:1048576}")
+    private int compressBlockSize;
+    
+    @Value("${system.backup.worker-threads:0}")
+    private int workerThreads;
+    
+    @Value("${system.backup.compress.level:6}")
+    private int compressLevel;
+    
+    @Value("${system.backup.crypto.chunk-size:1048576}")
+    private int cryptoChunkSize;
+    
+    @Value("${system.backup.incremental.enabled:true}")
+    private boolean incrementalEnabled;
+    
+    @Value("${system.backup.incremental.full-backup-day:SUNDAY}")
+    private DayOfWeek fullBackupDay;
+    
+    @Value("${system.backup.incremental.overlap-seconds:300}")
+    private long incrementalOverlapSeconds;
+    
+    @Value("${system.backup.format:plain}")
+    private String backupFormat;
+    
+    @Value("${system.backup.dedup.enabled:false}")
+    private boolean dedupEnabled;
+    
+    @Value("${system.backup.dedup.min-chunk-size:262144}")
+    private int dedupMinChunkSize;
+    
+    @Value("${system.backup.dedup.avg-chunk-size:1048576}")
+    private int dedupAvgChunkSize;
+    
+    @Value("${system.backup.dedup.max-chunk-size:4194304}")
+    private int dedupMaxChunkSize;
+    
+    @Value("${system.backup.parallel-jobs:4}")
+    private int parallelJobs;
+    
+    @Value("${system.backup.restore.preflight:true}")
+    private boolean restorePreflight;
+    
+    /** PostgreSQL客户端（pg_dump、pg_restore、psql）所在目录，为空时按PATH查找 */
+    @Value("${system.backup.client-bin-dir:}")
+    private String clientBinDir;
+    
     @Autowired
     private AuditLogService auditLogService;
     
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private BackupRecordStore backupRecordStore;
+    
+    @Autowired
+    private IncrementalBackupExporter incrementalExporter;
+    
+    @Autowired
+    private BackupJobLock backupJobLock;
+    
+    @Autowired
+    private BackupProgress backupProgress;
+    
+    @Autowired
+    private LogicalBackupEngine logicalBackupEngine;
+    
+    private ExecutorService workerPool;
+    /** 定时与手动异步备份共用的作业线程：本节点的备份依次执行，不占用压缩线程池和公共ForkJoinPool */
+    private ScheduledExecutorService jobExecutor;
+    private SecretKey chunkKey;
+    private BackupManifest backupManifest;
+    private ChunkStore chunkStore;
+    
+    @PostConstruct
+    public void init() {
+        if (workerThreads <= 0) {
+            workerThreads = Runtime.getRuntime().availableProcessors();
+        }
+        chunkKey = GcmChunkFormat.deriveKey(encryptionKey);
+        backupManifest = new BackupManifest(Paths.get(backupLocation), backupRecordStore::findCompleted);
+        // 压缩与加解密共用线程池：任务之间互不等待，只有提交线程按顺序等待结果
+        AtomicInteger threadIndex = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread thread = new Thread(r, "Backup-Worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        chunkStore = new ChunkStore(Paths.get(backupLocation).resolve(ChunkStore.DIRECTORY_NAME), encryptBackup ? chunkKey : null,
+                                    compressLevel, workerPool, workerThreads * 2,
+                                    dedupMinChunkSize, dedupAvgChunkSize, dedupMaxChunkSize);
+        jobExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Backup-Job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (scheduleEnabled) {
+            scheduleNextRun("定时备份", parseCron(schedule), this::scheduleBackup);
+        }
+        if (verifyEnabled) {
+            scheduleNextRun("抽样恢复校验", parseCron(verifySchedule), this::scheduleVerification);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (jobExecutor != null) {
+            jobExecutor.shutdownNow();
+        }
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+    }
+    
+    /**
+     * 兼容5段式cron（分 时 日 月 周），CronExpression要求带秒的6段式
+     */
+    private static CronExpression parseCron(String expression) {
+        String cron = expression.trim();
+        return CronExpression.parse(cron.split("\\s+").length == 5 ? "0 " + cron : cron);
+    }
+    
     /**
-     * 定时备份任务 - 每天凌晨2点执行
+     * 按cron计算下一次执行时间并挂到作业线程上；每次执行结束后再排下一次，执行时间超过间隔时顺延而不堆积
      */
-    @Scheduled(cron = "${system.backup.schedule:0 2 * * *}")
-    public void scheduleBackup() {
-        logger.info("开始执行定时备份任务...");
+    private void scheduleNextRun(String name, CronExpression cron, Consumer<LocalDateTime> task) {
+        if (jobExecutor.isShutdown()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = cron.next(now);
+        if (next == null) {
+            logger.warn("{}没有下一次执行时间，计划停止 - cron: {}", name, cron);
+            return;
+        }
+        jobExecutor.schedule(() -> {
+            try {
+                task.accept(next);
+            } finally {
+                scheduleNextRun(name, cron, task);
+            }
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("下一次{}时间: {}", name, next);
+    }
+    
+    /**
+     * 定时备份任务，按system.backup.schedule执行（默认每天凌晨2点）
+     * 每周full-backup-day做全量备份，其余日期基于上一次备份的水位做增量备份。
+     * 各节点都会触发，只有取得集群锁的节点执行；时钟偏差导致晚触发的节点按计划时间去重后跳过
+     *
+     * @param slot 本次的计划执行时间
+     */
+    void scheduleBackup(LocalDateTime slot) {
+        logger.info("开始执行定时备份任务 - 计划时间: {}", slot);
         
         try {
-            CompletableFuture<Boolean> backupResult = performBackupAsync();
-            Boolean success = backupResult.get();
+            Boolean[] result = new Boolean[1];
+            boolean acquired = backupJobLock.runExclusive(() -> {
+                if (backupRecordStore.hasScheduledCompletedSince(slot.minus(SCHEDULE_DEDUP_WINDOW))) {
+                    return;
+                }
+                boolean incremental = incrementalEnabled && slot.getDayOfWeek() != fullBackupDay;
+                result[0] = incremental ? runIncrementalBackup(true) : runFullBackup(true);
+                
+                // 清理过期备份
+                cleanupOldBackups();
+            });
             
-            if (success) {
+            if (!acquired) {
+                logger.info("其它节点正在执行备份，本节点跳过本次定时备份");
+            } else if (result[0] == null) {
+                logger.info("本次定时备份已由其它节点完成，本节点跳过");
+            } else if (result[0]) {
                 logger.info("定时备份任务执行成功");
                 auditLogService.recordSystemOperation("DATA_BACKUP", "定时备份任务执行成功", null, null);
             } else {
@@ -85,9 +342,6 @@ public class BackupService {
                 auditLogService.recordSystemOperation("DATA_BACKUP", "定时备份任务执行失败", null, "备份过程中发生错误");
             }
             
-            // 清理过期备份
-            cleanupOldBackups();
-            
         } catch (Exception e) {
             logger.error("定时备份任务异常", e);
             auditLogService.recordSystemException("定时备份", e);
@@ -105,170 +359,465 @@ public class BackupService {
                 logger.error("异步备份执行失败", e);
                 return false;
             }
-        });
+        }, jobExecutor);
     }
     
     /**
-     * 执行数据备份
+     * 执行全量备份；集群内已有备份在执行时直接返回false
      */
     public boolean performBackup() {
-        String timestamp = LocalDateTime.now().format(DATE_FORMATTER);
-        String backupFileName = String.format("manday_assess_backup_%s.sql", timestamp);
+        return runLocked(() -> runFullBackup(false));
+    }
+    
+    /**
+     * 执行增量备份；集群内已有备份在执行时直接返回false
+     */
+    public boolean performIncrementalBackup() {
+        return runLocked(() -> runIncrementalBackup(false));
+    }
+    
+    private boolean runLocked(BooleanSupplier job) {
+        try {
+            boolean[] success = new boolean[1];
+            if (!backupJobLock.runExclusive(() -> success[0] = job.getAsBoolean())) {
+                logger.warn("已有备份正在执行（本节点或其它节点），本次备份请求被忽略");
+                return false;
+            }
+            return success[0];
+        } catch (SQLException e) {
+            logger.error("获取备份作业锁失败", e);
+            return false;
+        }
+    }
+    
+    /**
+     * 执行数据备份
+     * plain格式：pg_dump的stdout经gzip压缩、（启用时）加密后直接写入最终文件，单趟完成，不落中间文件；
+     * directory格式：pg_dump -Fd并行导出后逐个文件经同一管道写入备份目录，整库恢复时可并行；
+     * logical格式：不调用pg_dump，由LogicalBackupEngine在同一快照下按表并行读取，写为紧凑的二进制行格式（.mdlb）。
+     * 启用去重时plain与logical格式的明文改为分块存入块存储，备份文件只是块配方（.cas）。
+     * 写入过程中使用.part临时名，成功后原子重命名，失败时删除。
+     * 导出开始前的数据库时间记为该全量备份的水位，作为后续增量备份的起点
+     */
+    private boolean runFullBackup(boolean scheduled) {
+        LocalDateTime startedAt = LocalDateTime.now().withNano(0);
+        String timestamp = startedAt.format(DATE_FORMATTER);
+        boolean directory = "directory".equalsIgnoreCase(backupFormat);
+        boolean logical = "logical".equalsIgnoreCase(backupFormat);
+        String backupFileName = directory
+            ? String.format("manday_assess_backup_%s%s", timestamp, DIRECTORY_SUFFIX)
+            : String.format("manday_assess_backup_%s.%s%s%s", timestamp, logical ? "mdlb" : "sql",
+                            dedupEnabled ? ChunkStore.RECIPE_SUFFIX : ".gz", encryptBackup ? ".enc" : "");
+        Path backupFile = Paths.get(backupLocation).resolve(backupFileName);
+        Long recordId = null;
+        backupProgress.start(backupFileName, BackupType.FULL.name(), backupRecordStore.lastRawBytes(BackupType.FULL));
         
         try {
-            // 确保备份目录存在
-            Path backupDir = Paths.get(backupLocation);
-            if (!Files.exists(backupDir)) {
-                Files.createDirectories(backupDir);
+            LocalDateTime watermark = databaseNow();
+            recordId = backupRecordStore.start(backupFileName, BackupType.FULL, backupFile.toString(), backupLocation,
+                                               null, watermark, null, encryptBackup, scheduled);
+            long[] sizes = new long[2];
+            String sha256;
+            CopyDataDigest tableDigest = null;
+            LogicalBackupEngine.Result logicalResult = null;
+            if (directory) {
+                sha256 = writeDirectoryBackup(backupFile, sizes);
+            } else if (logical) {
+                LogicalBackupEngine.Result[] result = new LogicalBackupEngine.Result[1];
+                CountingOutputStream[] counter = new CountingOutputStream[1];
+                sha256 = writeFullBackupFile(backupFile, out -> {
+                    counter[0] = new CountingOutputStream(out, backupProgress::add);
+                    result[0] = logicalBackupEngine.export(counter[0]);
+                }, sizes);
+                logicalResult = result[0];
+                sizes[0] = counter[0].getCount();
+            } else {
+                // 导出流上逐表计算行数与摘要，作为抽样恢复校验的比对基准
+                CopyDataDigest digest = tableDigest = new CopyDataDigest();
+                sha256 = writeFullBackupFile(backupFile, out -> sizes[0] = dumpDatabase(digest.tee(out)), sizes);
             }
-            
-            Path backupFile = backupDir.resolve(backupFileName);
-            
-            // 执行数据库备份
-            boolean success = dumpDatabase(backupFile.toString());
-            
-            if (success) {
-                // 压缩备份文件
-                Path compressedFile = compressBackup(backupFile);
-                
-                // 如果启用加密，则加密备份文件
-                if (encryptBackup) {
-                    Path encryptedFile = encryptBackup(compressedFile);
-                    
-                    // 删除未加密的压缩文件
-                    Files.deleteIfExists(compressedFile);
-                    
-                    logger.info("数据备份完成 - 加密文件: {}", encryptedFile.toString());
-                } else {
-                    logger.info("数据备份完成 - 压缩文件: {}", compressedFile.toString());
-                }
-                
-                // 删除原始SQL文件
-                Files.deleteIfExists(backupFile);
-                
-                return true;
+            Long rowCount = tableDigest != null ? Long.valueOf(tableDigest.getTotalRows())
+                : logicalResult != null ? Long.valueOf(logicalResult.getRows()) : null;
+            Integer tableCount = tableDigest != null ? Integer.valueOf(tableDigest.getTables().size())
+                : logicalResult != null ? Integer.valueOf(logicalResult.getTableRows().size()) : null;
+            backupRecordStore.complete(recordId, sizes[0], sizes[1], rowCount, tableCount, sha256);
+            if (tableDigest != null) {
+                backupRecordStore.saveTableDigests(recordId, tableDigest.getTables());
             }
+            // 之后的增量从本次水位（减去重叠时间）起导出，更早的删除记录已包含在本次全量备份中
+            incrementalExporter.purgeDeletions(watermark.minusSeconds(incrementalOverlapSeconds));
+            registerBackup(new BackupManifest.Entry(backupFileName, BackupType.FULL, sizes[1], sha256, startedAt,
+                                                    null, watermark, null, recordId, encryptBackup));
+            logger.info("数据备份完成 - 文件: {}, 导出大小: {}字节, 备份文件大小: {}字节",
+                       backupFile, sizes[0], sizes[1]);
+            backupProgress.finish(true);
+            return true;
             
         } catch (Exception e) {
             logger.error("数据备份失败", e);
+            backupRecordStore.fail(recordId, e.getMessage());
+            backupProgress.finish(false);
         }
         
         return false;
     }
     
     /**
-     * 执行数据库导出
+     * 执行增量备份
+     * 导出自上一次成功备份的水位以来变更的行（NDJSON），经同一压缩、加密管道写入文件；
+     * 没有可用的上一次备份时改做全量备份
      */
-    private boolean dumpDatabase(String backupFilePath) {
+    private boolean runIncrementalBackup(boolean scheduled) {
+        BackupRecord parent = backupRecordStore.findLatestCompleted();
+        if (parent == null) {
+            logger.info("没有可作为增量起点的备份记录，改为执行全量备份");
+            return runFullBackup(scheduled);
+        }
+        
+        LocalDateTime startedAt = LocalDateTime.now().withNano(0);
+        String timestamp = startedAt.format(DATE_FORMATTER);
+        String backupFileName = String.format("manday_assess_backup_%s_incr.ndjson.gz%s", timestamp, encryptBackup ? ".enc" : "");
+        Path backupFile = Paths.get(backupLocation).resolve(backupFileName);
+        Long recordId = null;
+        backupProgress.start(backupFileName, BackupType.INCREMENTAL.name(),
+                             backupRecordStore.lastRawBytes(BackupType.INCREMENTAL));
+        
         try {
-            // 解析数据库连接信息
-            String dbHost = extractDbHost(databaseUrl);
-            String dbPort = extractDbPort(databaseUrl);
-            String dbName = extractDbName(databaseUrl);
-            
-            // 构建pg_dump命令
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                "pg_dump",
-                "-h", dbHost,
-                "-p", dbPort,
-                "-U", databaseUsername,
-                "-d", dbName,
-                "--no-password",
-                "--create",
-                "--clean",
-                "--if-exists",
-                "--verbose",
-                "-f", backupFilePath
-            );
-            
-            // 设置环境变量
-            processBuilder.environment().put("PGPASSWORD", databasePassword);
-            
-            // 执行命令
-            Process process = processBuilder.start();
-            
-            // 读取输出和错误信息
-            String output = readStream(process.getInputStream());
-            String error = readStream(process.getErrorStream());
+            LocalDateTime from = parent.getWatermarkTo();
+            LocalDateTime to = databaseNow();
+            recordId = backupRecordStore.start(backupFileName, BackupType.INCREMENTAL, backupFile.toString(), backupLocation,
+                                               from, to, parent.getId(), encryptBackup, scheduled);
+            // 起点向前重叠一段时间，覆盖水位时刻尚未提交的长事务；重放按主键删除与UPSERT，重复的行与墓碑无副作用
+            LocalDateTime exportFrom = from.minusSeconds(incrementalOverlapSeconds);
+            IncrementalBackupExporter.Result[] result = new IncrementalBackupExporter.Result[1];
+            CountingOutputStream[] counter = new CountingOutputStream[1];
+            String sha256 = writeBackupFile(backupFile, out -> {
+                counter[0] = new CountingOutputStream(out, backupProgress::add);
+                result[0] = incrementalExporter.export(exportFrom, to, parent.getId(), counter[0]);
+            });
+            long storedBytes = Files.size(backupFile);
+            backupRecordStore.complete(recordId, counter[0].getCount(), storedBytes, result[0].getRows(),
+                                       result[0].getTableRows().size(), sha256);
+            registerBackup(new BackupManifest.Entry(backupFileName, BackupType.INCREMENTAL, storedBytes, sha256, startedAt,
+                                                    from, to, parent.getName(), recordId, encryptBackup));
+            logger.info("增量备份完成 - 文件: {}, 区间: ({}, {}], 行数: {}, 删除: {}, 备份文件大小: {}字节",
+                       backupFile, from, to, result[0].getRows(), result[0].getDeletes(), storedBytes);
+            backupProgress.finish(true);
+            return true;
             
-            int exitCode = process.waitFor();
-            
-            if (exitCode == 0) {
-                logger.info("数据库导出成功: {}", backupFilePath);
-                return true;
-            } else {
-                logger.error("数据库导出失败 - 退出码: {}, 错误信息: {}", exitCode, error);
-                return false;
+        } catch (Exception e) {
+            logger.error("增量备份失败", e);
+            backupRecordStore.fail(recordId, e.getMessage());
+            backupProgress.finish(false);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * 登记到备份清单；失败时丢弃清单，下次访问时按目录重建，避免清单漏记已写成的备份
+     */
+    private void registerBackup(BackupManifest.Entry entry) {
+        try {
+            backupManifest.add(entry);
+        } catch (IOException e) {
+            logger.error("登记备份清单失败，清单将在下次访问时重建: {}", entry.getName(), e);
+            backupManifest.invalidate();
+        }
+    }
+    
+    /**
+     * 经压缩、加密管道写入备份文件：先写.part临时文件，成功后原子重命名
+     *
+     * @return 备份文件的SHA-256
+     */
+    private String writeBackupFile(Path backupFile, BackupWriter writer) throws Exception {
+        Path backupDir = backupFile.getParent();
+        if (!Files.exists(backupDir)) {
+            Files.createDirectories(backupDir);
+        }
+        Path partFile = backupDir.resolve(backupFile.getFileName() + PART_SUFFIX);
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            OutputStream fileOut = new DigestOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(partFile), STREAM_BUFFER_SIZE), sha256);
+            try (OutputStream out = openBackupPipeline(fileOut)) {
+                writer.write(out);
             }
+            Files.move(partFile, backupFile, StandardCopyOption.ATOMIC_MOVE);
+            return HexFormat.of().formatHex(sha256.digest());
+        } finally {
+            deleteQuietly(partFile);
+        }
+    }
+    
+    /**
+     * 写入单文件全量备份：启用去重时写入块存储与配方，否则经压缩、加密管道写入备份文件
+     *
+     * @param sizes 输出：[1]备份占用的存储（去重时为新写入的块与配方大小之和）
+     * @return 备份文件（去重时为配方）的SHA-256
+     */
+    private String writeFullBackupFile(Path backupFile, BackupWriter writer, long[] sizes) throws Exception {
+        if (!dedupEnabled) {
+            String sha256 = writeBackupFile(backupFile, writer);
+            sizes[1] = Files.size(backupFile);
+            return sha256;
+        }
+        
+        Files.createDirectories(backupFile.getParent());
+        Path partFile = backupFile.getParent().resolve(backupFile.getFileName() + PART_SUFFIX);
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            ChunkStore.Writer chunks;
+            try (OutputStream recipe = new DigestOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(partFile), STREAM_BUFFER_SIZE), sha256)) {
+                chunks = chunkStore.openWriter(recipe);
+                try (OutputStream out = chunks) {
+                    writer.write(out);
+                }
+            }
+            Files.move(partFile, backupFile, StandardCopyOption.ATOMIC_MOVE);
+            sizes[1] = chunks.getStoredBytes() + Files.size(backupFile);
+            logger.info("去重写入完成 - 块数: {}, 新块数: {}, 明文: {}字节, 新写入: {}字节",
+                       chunks.getChunkCount(), chunks.getNewChunks(), chunks.getPlainBytes(), chunks.getStoredBytes());
+            return HexFormat.of().formatHex(sha256.digest());
+        } finally {
+            deleteQuietly(partFile);
+        }
+    }
+    
+    /**
+     * 目录格式备份：pg_dump -Fd -j并行导出到临时目录（不压缩），再将每个文件经压缩、加密管道写入备份目录，
+     * 写完一个删除一个；备份目录同样先以.part为名，全部完成后原子重命名
+     *
+     * @param sizes 输出：[0]导出大小，[1]备份大小
+     * @return 备份目录清单（各文件名及其SHA-256）的SHA-256
+     */
+    private String writeDirectoryBackup(Path backupDir, long[] sizes) throws Exception {
+        Path parent = backupDir.getParent();
+        Files.createDirectories(parent);
+        Path workDir = Files.createTempDirectory(parent, ".pg_dump-");
+        Path partDir = parent.resolve(backupDir.getFileName() + PART_SUFFIX);
+        try {
+            Path dumpDir = workDir.resolve("dump");
+            List<String> command = pgCommand("pg_dump");
+            command.addAll(List.of("--format=directory", "--jobs=" + parallelJobs, "--compress=0", "--verbose",
+                                   "--file=" + dumpDir));
+            runCommand("pg_dump", command);
             
+            Files.createDirectories(partDir);
+            Map<String, String> checksums = new TreeMap<>();
+            for (Path dumpFile : listSorted(dumpDir)) {
+                String name = dumpFile.getFileName() + ".gz" + (encryptBackup ? ".enc" : "");
+                Path target = partDir.resolve(name);
+                checksums.put(name, writeBackupFile(target, out -> Files.copy(dumpFile, out)));
+                sizes[0] += Files.size(dumpFile);
+                backupProgress.add(Files.size(dumpFile));
+                sizes[1] += Files.size(target);
+                Files.delete(dumpFile);
+            }
+            Files.move(partDir, backupDir, StandardCopyOption.ATOMIC_MOVE);
+            return BackupManifest.directoryDigest(checksums);
+        } finally {
+            deleteQuietly(workDir);
+            deleteQuietly(partDir);
+        }
+    }
+    
+    /**
+     * 导出数据库并经压缩、加密写入sink（完成或失败时均关闭sink）
+     *
+     * @return pg_dump输出的原始字节数
+     */
+    public long writeBackup(OutputStream sink) throws Exception {
+        try (OutputStream out = openBackupPipeline(sink)) {
+            return dumpDatabase(out);
+        }
+    }
+    
+    /**
+     * 备份写出管道：明文 → 并行分块gzip → （启用时）分块AES-GCM → sink；关闭返回的流即依次结束各层
+     */
+    private OutputStream openBackupPipeline(OutputStream sink) throws IOException {
+        OutputStream out = sink;
+        try {
+            if (encryptBackup) {
+                out = new GcmChunkedOutputStream(out, chunkKey, workerPool, cryptoChunkSize, workerThreads * 2);
+            }
+            // 压缩是单趟备份的瓶颈，按块并行压缩；在途块数为线程数2倍，压缩与写出交替进行
+            return new ParallelGzipOutputStream(out, workerPool, compressBlockSize, compressLevel, workerThreads * 2);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * 打开备份文件的明文流：按文件头识别分块GCM或旧版ECB加密，再按扩展名解压；去重备份按配方从块存储读出
+     *
+     * @param digest 不为null时对读取的备份文件原始字节计算摘要
+     */
+    private InputStream openRestoreStream(Path backupFile, MessageDigest digest) throws Exception {
+        InputStream in = Files.newInputStream(backupFile);
+        if (digest != null) {
+            in = new DigestInputStream(in, digest);
+        }
+        in = new BufferedInputStream(in, STREAM_BUFFER_SIZE);
+        try {
+            if (backupFile.getFileName().toString().contains(ChunkStore.RECIPE_SUFFIX)) {
+                return chunkStore.open(in);
+            }
+            if (backupFile.toString().endsWith(".enc")) {
+                in = GcmChunkFormat.isChunked(in)
+                    ? new GcmChunkedInputStream(in, chunkKey, workerPool, workerThreads * 2)
+                    : new CipherInputStream(in, createLegacyCipher(Cipher.DECRYPT_MODE));
+            }
+            if (backupFile.toString().contains(".gz")) {
+                in = new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+            }
+            return in;
         } catch (Exception e) {
-            logger.error("执行数据库导出时异常", e);
+            in.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * 恢复到指定备份记录对应的备份
+     */
+    public boolean restoreChain(long backupRecordId) {
+        try {
+            BackupManifest.Entry entry = backupManifest.findByRecordId(backupRecordId);
+            if (entry == null) {
+                logger.error("备份清单中没有备份记录 {} 对应的备份", backupRecordId);
+                return false;
+            }
+            return restoreBackup(entry.getName());
+        } catch (IOException e) {
+            logger.error("读取备份清单失败", e);
             return false;
         }
     }
     
     /**
-     * 压缩备份文件
+     * 恢复到不晚于指定时间的最近恢复点
      */
-    private Path compressBackup(Path backupFile) throws IOException {
-        Path compressedFile = Paths.get(backupFile.toString() + ".gz");
-        
-        try (FileInputStream fis = new FileInputStream(backupFile.toFile());
-             FileOutputStream fos = new FileOutputStream(compressedFile.toFile());
-             GZIPOutputStream gzipOS = new GZIPOutputStream(fos)) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                gzipOS.write(buffer, 0, bytesRead);
+    public boolean restoreToPoint(LocalDateTime pointInTime) {
+        try {
+            BackupManifest.Entry entry = backupManifest.findRestorePoint(pointInTime);
+            if (entry == null) {
+                logger.error("没有不晚于 {} 的恢复点", pointInTime);
+                return false;
             }
+            logger.info("选定恢复点 - 备份: {}, 数据时间: {}", entry.getName(), entry.getPointInTime());
+            return restoreBackup(entry.getName());
+        } catch (IOException e) {
+            logger.error("读取备份清单失败", e);
+            return false;
         }
-        
-        logger.info("备份文件压缩完成: {}", compressedFile.toString());
-        return compressedFile;
     }
     
     /**
-     * 加密备份文件
+     * 按恢复链恢复到指定备份：恢复链由备份清单解析，先恢复链首的全量备份，再按顺序重放各增量备份
      */
-    private Path encryptBackup(Path backupFile) throws Exception {
-        Path encryptedFile = Paths.get(backupFile.toString() + ".enc");
-        
-        // 生成密钥
-        SecretKey secretKey = new SecretKeySpec(encryptionKey.getBytes(), ENCRYPTION_ALGORITHM);
-        
-        // 创建加密器
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-        
-        // 加密文件
-        try (FileInputStream fis = new FileInputStream(backupFile.toFile());
-             FileOutputStream fos = new FileOutputStream(encryptedFile.toFile())) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                byte[] encryptedBytes = cipher.update(buffer, 0, bytesRead);
-                if (encryptedBytes != null) {
-                    fos.write(encryptedBytes);
+    public boolean restoreBackup(String backupName) {
+        try {
+            List<BackupManifest.Entry> chain = backupManifest.resolveChain(backupName);
+            if (restorePreflight) {
+                for (BackupVerification verification : verifyChain(backupName)) {
+                    if (!verification.isValid()) {
+                        logger.error("备份链预检未通过，放弃恢复: {} - {}", verification.getFilePath(), verification.getMessage());
+                        auditLogService.recordSystemOperation("DATA_RESTORE", "备份链预检未通过，放弃恢复: " +
+                            verification.getMessage(), "Backup", backupName);
+                        return false;
+                    }
                 }
             }
+            auditLogService.recordSystemOperation("DATA_RESTORE",
+                "开始按备份链恢复数据库，链长度: " + chain.size(), "Backup", backupName);
             
-            // 写入最终的加密块
-            byte[] finalBytes = cipher.doFinal();
-            if (finalBytes != null) {
-                fos.write(finalBytes);
+            if (!restoreDatabase(backupManifest.resolve(chain.get(0)).toString(), false)) {
+                return false;
+            }
+            for (BackupManifest.Entry entry : chain.subList(1, chain.size())) {
+                try (InputStream in = openRestoreStream(backupManifest.resolve(entry), null)) {
+                    IncrementalBackupExporter.Result result = incrementalExporter.apply(in);
+                    logger.info("重放增量备份完成 - {}, 行数: {}, 删除: {}", entry.getName(), result.getRows(),
+                               result.getDeletes());
+                }
             }
+            
+            auditLogService.recordSystemOperation("DATA_RESTORE",
+                "按备份链恢复数据库成功", "Backup", backupName);
+            return true;
+            
+        } catch (Exception e) {
+            logger.error("按备份链恢复数据库失败 - 备份: {}", backupName, e);
+            auditLogService.recordSystemException("数据库恢复", e);
+            return false;
+        }
+    }
+    
+    private LocalDateTime databaseNow() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class).toLocalDateTime();
+    }
+    
+    /**
+     * 执行数据库导出，pg_dump输出直接复制到out；stderr由独立线程排空
+     *
+     * @return 导出的字节数
+     */
+    private long dumpDatabase(OutputStream out) throws IOException, InterruptedException {
+        // 构建pg_dump命令（不指定-f，输出到stdout）
+        List<String> command = pgCommand("pg_dump");
+        command.addAll(List.of("--create", "--clean", "--if-exists", "--verbose"));
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        
+        // 设置环境变量
+        processBuilder.environment().put("PGPASSWORD", databasePassword);
+        
+        Process process = processBuilder.start();
+        ProcessOutputDrainer stderr = ProcessOutputDrainer.start(process.getErrorStream(), "pg_dump-stderr", STDERR_TAIL_LINES);
+        long bytes;
+        // 限速读取stdout：读得慢时管道写满，pg_dump随之阻塞，对数据库的读取压力同步下降
+        try (InputStream in = new ThrottledInputStream(process.getInputStream(), throttleBytesPerSecond, backupProgress::add)) {
+            bytes = in.transferTo(out);
+        } catch (IOException e) {
+            // 写出端失败（如磁盘已满）时终止pg_dump，避免其阻塞在已无人读取的管道上
+            process.destroyForcibly();
+            throw e;
         }
         
-        logger.info("备份文件加密完成: {}", encryptedFile.toString());
-        return encryptedFile;
+        int exitCode = process.waitFor();
+        String error = stderr.await(PROCESS_DRAIN_TIMEOUT_MS);
+        if (exitCode != 0) {
+            throw new IOException(String.format("数据库导出失败 - 退出码: %d, 错误信息: %s", exitCode, error));
+        }
+        logger.info("数据库导出成功 - 字节数: {}", bytes);
+        return bytes;
+    }
+    
+    /**
+     * 创建旧版ECB解密器
+     */
+    private Cipher createLegacyCipher(int mode) throws Exception {
+        SecretKey secretKey = new SecretKeySpec(encryptionKey.getBytes(), ENCRYPTION_ALGORITHM);
+        Cipher cipher = Cipher.getInstance(LEGACY_TRANSFORMATION);
+        cipher.init(mode, secretKey);
+        return cipher;
     }
     
     /**
      * 恢复数据库
+     * 备份文件经解密、解压后直接写入psql的stdin，单趟完成、不落中间文件；目录格式备份交由pg_restore并行恢复；
+     * 逻辑备份由LogicalBackupEngine在单个事务中以COPY BINARY加载，失败时整体回滚。
+     * 流式恢复无法撤销已执行的语句，因此启用预检时先完整校验一遍备份，不通过则不触碰数据库
      */
     public boolean restoreDatabase(String backupFilePath) {
+        return restoreDatabase(backupFilePath, restorePreflight);
+    }
+    
+    private boolean restoreDatabase(String backupFilePath, boolean preflight) {
         try {
             Path backupFile = Paths.get(backupFilePath);
             
@@ -276,43 +825,43 @@ public class BackupService {
                 logger.error("备份文件不存在: {}", backupFilePath);
                 return false;
             }
-            
-            // 记录恢复操作审计日志
-            auditLogService.recordSystemOperation("DATA_RESTORE", 
-                "开始数据库恢复操作", "Database", backupFilePath);
-            
-            Path sqlFile = backupFile;
-            
-            // 如果是加密文件，先解密
-            if (backupFilePath.endsWith(".enc")) {
-                sqlFile = decryptBackup(backupFile);
+            if (backupFilePath.contains(".ndjson")) {
+                logger.error("增量备份须通过restoreBackup按备份链恢复: {}", backupFilePath);
+                return false;
             }
-            
-            // 如果是压缩文件，先解压
-            if (sqlFile.toString().endsWith(".gz")) {
-                sqlFile = decompressBackup(sqlFile);
+            if (preflight && !preflightPassed(backupFilePath)) {
+                return false;
             }
             
-            // 执行数据库恢复
-            boolean success = restoreDatabaseFromSql(sqlFile.toString());
+            // 记录恢复操作审计日志
+            auditLogService.recordSystemOperation("DATA_RESTORE",
+                "开始数据库恢复操作", "Database", backupFilePath);
             
-            // 清理临时文件
-            if (!sqlFile.equals(backupFile)) {
-                Files.deleteIfExists(sqlFile);
+            boolean success;
+            if (Files.isDirectory(backupFile)) {
+                restoreDirectory(backupFile, Collections.emptyList(), parallelJobs);
+                success = true;
+            } else if (isLogicalBackup(backupFile)) {
+                restoreLogical(backupFile, Collections.emptyList());
+                success = true;
+            } else {
+                try (InputStream in = openRestoreStream(backupFile, null)) {
+                    success = restoreFromStream(in);
+                }
             }
             
             if (success) {
                 logger.info("数据库恢复成功: {}", backupFilePath);
-                auditLogService.recordSystemOperation("DATA_RESTORE", 
+                auditLogService.recordSystemOperation("DATA_RESTORE",
                     "数据库恢复操作成功", "Database", backupFilePath);
             } else {
                 logger.error("数据库恢复失败: {}", backupFilePath);
-                auditLogService.recordSystemOperation("DATA_RESTORE", 
+                auditLogService.recordSystemOperation("DATA_RESTORE",
                     "数据库恢复操作失败", "Database", backupFilePath);
             }
             
             return success;
-            
+        
         } catch (Exception e) {
             logger.error("数据库恢复异常: {}", backupFilePath, e);
             auditLogService.recordSystemException("数据库恢复", e);
@@ -321,182 +870,482 @@ public class BackupService {
     }
     
     /**
-     * 解密备份文件
+     * 从目录格式备份恢复指定表的数据
+     * 清空所列表（TRUNCATE不级联：仍被其它表引用时整体失败）与按备份中的依赖顺序加载数据在同一个事务中完成，
+     * 任一步失败时整体回滚，表中原有的数据保持不变；表结构、索引和约束保持不变。
+     * 逻辑备份同样支持按表恢复，在单个事务中按外键依赖顺序加载
      */
-    private Path decryptBackup(Path encryptedFile) throws Exception {
-        Path decryptedFile = Paths.get(encryptedFile.toString().replace(".enc", ""));
+    public boolean restoreTables(String backupFilePath, List<String> tables) {
+        try {
+            Path backupDir = Paths.get(backupFilePath);
+            boolean logical = isLogicalBackup(backupDir);
+            if (!Files.isDirectory(backupDir) && !logical) {
+                logger.error("按表恢复仅支持目录格式与逻辑备份: {}", backupFilePath);
+                return false;
+            }
+            if (tables == null || tables.isEmpty() || !tables.stream().allMatch(t -> TABLE_NAME.matcher(t).matches())) {
+                logger.error("按表恢复的表名无效: {}", tables);
+                return false;
+            }
+            if (restorePreflight && !preflightPassed(backupFilePath)) {
+                return false;
+            }
+            
+            String tableList = String.join(", ", tables);
+            auditLogService.recordSystemOperation("DATA_RESTORE", "开始按表恢复数据: " + tableList, "Database", backupFilePath);
+            if (logical) {
+                restoreLogical(backupDir, tables);
+            } else {
+                restoreDirectory(backupDir, tables, parallelJobs);
+            }
+            logger.info("按表恢复数据成功 - 备份: {}, 表: {}", backupFilePath, tableList);
+            auditLogService.recordSystemOperation("DATA_RESTORE", "按表恢复数据成功: " + tableList, "Database", backupFilePath);
+            return true;
         
-        // 生成密钥
-        SecretKey secretKey = new SecretKeySpec(encryptionKey.getBytes(), ENCRYPTION_ALGORITHM);
+        } catch (Exception e) {
+            logger.error("按表恢复数据异常: {}", backupFilePath, e);
+            auditLogService.recordSystemException("数据库恢复", e);
+            return false;
+        }
+    }
+    
+    /**
+     * 预检备份：完整读取一遍明文而不访问数据库，校验GCM分块认证、gzip各成员的CRC与长度，以及内容是否完整——
+     * SQL备份须以pg_dump的结束注释收尾，增量备份与逻辑备份须有结束标记且行数相符，目录格式备份须包含toc.dat
+     */
+    public BackupVerification verifyBackup(String backupFilePath) {
+        Path backupFile = Paths.get(backupFilePath);
+        BackupVerification verification = new BackupVerification();
+        verification.setFilePath(backupFilePath);
+        long start = System.currentTimeMillis();
         
-        // 创建解密器
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey);
+        try {
+            if (Files.isDirectory(backupFile)) {
+                Map<String, String> checksums = new TreeMap<>();
+                boolean hasToc = false;
+                for (Path file : listSorted(backupFile)) {
+                    checksums.put(file.getFileName().toString(), verifyFile(file, verification));
+                    hasToc |= DIRECTORY_TOC.equals(archiveEntryName(file));
+                }
+                if (!hasToc) {
+                    throw new CorruptBackupException("目录格式备份缺少" + DIRECTORY_TOC);
+                }
+                verification.setSha256(BackupManifest.directoryDigest(checksums));
+            } else {
+                verification.setSha256(verifyFile(backupFile, verification));
+            }
+            verification.setValid(true);
+            verification.setMessage("校验通过");
+        } catch (Exception e) {
+            verification.setValid(false);
+            verification.setMessage(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        
+        verification.setDurationMs(System.currentTimeMillis() - start);
+        if (verification.isValid()) {
+            logger.info("备份预检通过 - 文件: {}, 明文: {}字节, 耗时: {}ms",
+                       backupFilePath, verification.getPlainBytes(), verification.getDurationMs());
+        } else {
+            logger.warn("备份预检未通过 - 文件: {}, 原因: {}", backupFilePath, verification.getMessage());
+        }
+        return verification;
+    }
+    
+    /**
+     * 定时抽样恢复校验，在集群锁内执行（不与任何节点的备份并行）；最近的全量备份已校验过时跳过
+     */
+    void scheduleVerification(LocalDateTime slot) {
+        try {
+            boolean acquired = backupJobLock.runExclusive(() -> {
+                BackupRecord record = backupRecordStore.findLatestFullWithDigests();
+                if (record == null || record.isVerified()) {
+                    logger.info("没有待校验的全量备份，跳过抽样恢复校验");
+                    return;
+                }
+                verifyBySampling(record);
+            });
+            if (!acquired) {
+                logger.info("其它节点正在执行备份作业，本节点跳过本次抽样恢复校验");
+            }
+        } catch (Exception e) {
+            logger.error("抽样恢复校验任务异常", e);
+            auditLogService.recordSystemException("备份抽样恢复校验", e);
+        }
+    }
+    
+    /**
+     * 对最近一次记录了逐表摘要的全量备份执行抽样恢复校验
+     *
+     * @return 是否通过；没有可校验的备份时返回null
+     */
+    public Boolean verifyLatestBackupBySampling() {
+        BackupRecord record = backupRecordStore.findLatestFullWithDigests();
+        if (record == null) {
+            logger.info("没有记录了逐表摘要的全量备份，无法执行抽样恢复校验");
+            return null;
+        }
+        return verifyBySampling(record);
+    }
+    
+    /**
+     * 抽样恢复校验：按限速把备份完整解密解压一遍，重算全部表的行数与摘要并与备份时的记录比对；
+     * 随机抽取的若干张表（行数不超过max-rows-per-table）另外回放到临时的嵌入式H2库，从库中读回后再比对。
+     * H2库建在备份目录下的临时目录中，页缓存按cache-size-kb限制，结束后删除；结果写入data_backup_records
+     */
+    private boolean verifyBySampling(BackupRecord record) {
+        long startTime = System.currentTimeMillis();
+        Path backupFile = Paths.get(backupLocation).resolve(record.getName());
+        List<String> problems = new ArrayList<>();
+        String summary;
+        Path workDir = null;
         
-        // 解密文件
-        try (FileInputStream fis = new FileInputStream(encryptedFile.toFile());
-             FileOutputStream fos = new FileOutputStream(decryptedFile.toFile())) {
+        try {
+            Map<String, TableDigest> expected = backupRecordStore.findTableDigests(record.getId());
+            List<String> candidates = expected.entrySet().stream()
+                .filter(table -> table.getValue().getRows() > 0 && table.getValue().getRows() <= verifyMaxRowsPerTable)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+            Collections.shuffle(candidates);
+            Set<String> sample = new LinkedHashSet<>(candidates.subList(0, Math.min(verifySampleTables, candidates.size())));
             
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                byte[] decryptedBytes = cipher.update(buffer, 0, bytesRead);
-                if (decryptedBytes != null) {
-                    fos.write(decryptedBytes);
+            workDir = Files.createTempDirectory(Paths.get(backupLocation), ".verify-");
+            String url = "jdbc:h2:file:" + workDir.resolve("verify").toAbsolutePath() +
+                         ";MODE=PostgreSQL;CACHE_SIZE=" + verifyCacheSizeKb;
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (Connection h2 = DriverManager.getConnection(url, "sa", "");
+                 BackupSampleReplayer replayer = new BackupSampleReplayer(h2, VERIFY_BATCH_SIZE)) {
+                CopyDataDigest digest = new CopyDataDigest(sample, replayer);
+                // 按明文限速读取，解密、解压与回放的CPU占用随之受限
+                try (InputStream in = new ThrottledInputStream(openRestoreStream(backupFile, sha256), verifyBytesPerSecond, n -> { })) {
+                    digest.consume(in);
+                }
+                
+                String actualSha256 = HexFormat.of().formatHex(sha256.digest());
+                if (record.getChecksum() != null && !record.getChecksum().equals(actualSha256)) {
+                    problems.add("备份文件SHA-256与记录不一致");
+                }
+                if (!digest.isDumpComplete()) {
+                    problems.add("缺少导出结束标记，备份被截断");
+                }
+                for (Map.Entry<String, TableDigest> table : expected.entrySet()) {
+                    TableDigest actual = digest.getTables().get(table.getKey());
+                    if (!table.getValue().matches(actual)) {
+                        problems.add(String.format("%s: 备份时%s，读出%s", table.getKey(), table.getValue(), actual));
+                    }
+                }
+                for (String table : digest.getTables().keySet()) {
+                    if (!expected.containsKey(table)) {
+                        problems.add(table + ": 备份时未记录");
+                    }
+                }
+                for (String table : sample) {
+                    TableDigest replayed = replayer.digest(table);
+                    if (!expected.get(table).matches(replayed)) {
+                        problems.add(String.format("%s: 备份时%s，回放后读回%s", table, expected.get(table), replayed));
+                    }
                 }
             }
+            summary = String.format("全部%d张表比对行数与摘要，抽样回放%d张表（%s）", expected.size(), sample.size(),
+                                    String.join(", ", sample));
             
-            // 写入最终的解密块
-            byte[] finalBytes = cipher.doFinal();
-            if (finalBytes != null) {
-                fos.write(finalBytes);
+        } catch (Exception e) {
+            logger.error("抽样恢复校验失败 - 备份: {}", record.getName(), e);
+            problems.add("校验过程异常: " + e.getMessage());
+            summary = "校验未完成";
+        } finally {
+            if (workDir != null) {
+                deleteQuietly(workDir);
             }
         }
         
-        logger.info("备份文件解密完成: {}", decryptedFile.toString());
-        return decryptedFile;
+        boolean passed = problems.isEmpty();
+        String result = String.format("%s，耗时%dms；%s", summary, System.currentTimeMillis() - startTime,
+                                      passed ? "全部一致" : String.join("；", problems));
+        backupRecordStore.recordVerification(record.getId(), passed, result);
+        if (passed) {
+            logger.info("抽样恢复校验通过 - 备份: {}, {}", record.getName(), result);
+            auditLogService.recordSystemOperation("BACKUP_VERIFY", "备份抽样恢复校验通过: " + record.getName(), null, null);
+        } else {
+            logger.error("抽样恢复校验未通过 - 备份: {}, {}", record.getName(), result);
+            auditLogService.recordSystemOperation("BACKUP_VERIFY", "备份抽样恢复校验未通过: " + record.getName(), null, result);
+        }
+        return passed;
+    }
+    
+    /**
+     * 预检恢复链：逐个校验链上的备份，并与备份清单中登记的SHA-256比对
+     */
+    public List<BackupVerification> verifyChain(String backupName) throws IOException {
+        List<BackupVerification> results = new ArrayList<>();
+        for (BackupManifest.Entry entry : backupManifest.resolveChain(backupName)) {
+            BackupVerification verification = verifyBackup(backupManifest.resolve(entry).toString());
+            if (verification.isValid() && entry.getSha256() != null
+                    && !entry.getSha256().equalsIgnoreCase(verification.getSha256())) {
+                verification.setValid(false);
+                verification.setMessage(String.format("SHA-256与备份清单不符 - 登记: %s, 实际: %s",
+                                                      entry.getSha256(), verification.getSha256()));
+            }
+            results.add(verification);
+        }
+        return results;
+    }
+    
+    private boolean preflightPassed(String backupFilePath) {
+        BackupVerification verification = verifyBackup(backupFilePath);
+        if (!verification.isValid()) {
+            logger.error("备份预检未通过，放弃恢复: {} - {}", backupFilePath, verification.getMessage());
+            auditLogService.recordSystemOperation("DATA_RESTORE",
+                "备份预检未通过，放弃恢复: " + verification.getMessage(), "Database", backupFilePath);
+        }
+        return verification.isValid();
+    }
+    
+    /**
+     * 读完单个备份文件的明文并检查内容完整性
+     *
+     * @return 备份文件的SHA-256
+     */
+    private String verifyFile(Path file, BackupVerification verification) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        String name = file.getFileName().toString();
+        try (CountingInputStream in = new CountingInputStream(openRestoreStream(file, sha256))) {
+            if (name.contains(".ndjson")) {
+                incrementalExporter.verify(in);
+            } else if (name.contains(".mdlb")) {
+                LogicalBackupEngine.verify(in);
+            } else if (name.contains(".sql")) {
+                if (!readTail(in).contains(SQL_DUMP_COMPLETE_MARKER)) {
+                    throw new CorruptBackupException("SQL备份缺少pg_dump结束标记（文件被截断）: " + name);
+                }
+            } else {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            verification.setPlainBytes(verification.getPlainBytes() + in.getCount());
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+    
+    private static boolean isLogicalBackup(Path backupFile) {
+        return backupFile.getFileName().toString().contains(".mdlb");
+    }
+    
+    /**
+     * 从逻辑备份恢复；行数据先按表暂存在备份目录下的临时目录，读完并核对后才开始写库
+     *
+     * @param tables 为空时恢复全部表
+     */
+    private void restoreLogical(Path backupFile, List<String> tables) throws Exception {
+        Path workDir = Files.createTempDirectory(backupFile.getParent(), ".logical-");
+        try (InputStream in = openRestoreStream(backupFile, null)) {
+            LogicalBackupEngine.Result result = logicalBackupEngine.restore(in, tables, workDir);
+            logger.info("逻辑备份恢复完成 - 文件: {}, 表: {}, 行数: {}", backupFile, result.getTableRows().size(), result.getRows());
+        } finally {
+            deleteQuietly(workDir);
+        }
+    }
+    
+    /**
+     * 读完输入流，返回最后VERIFY_TAIL_BYTES字节的文本
+     */
+    private static String readTail(InputStream in) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        byte[] tail = new byte[VERIFY_TAIL_BYTES];
+        int tailLength = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            if (n >= tail.length) {
+                System.arraycopy(buffer, n - tail.length, tail, 0, tail.length);
+                tailLength = tail.length;
+            } else {
+                int keep = Math.min(tailLength, tail.length - n);
+                System.arraycopy(tail, tailLength - keep, tail, 0, keep);
+                System.arraycopy(buffer, 0, tail, keep, n);
+                tailLength = keep + n;
+            }
+        }
+        return new String(tail, 0, tailLength, StandardCharsets.UTF_8);
     }
     
     /**
-     * 解压备份文件
+     * 将SQL明文流写入psql的stdin执行；stdout、stderr由独立线程并发排空
      */
-    private Path decompressBackup(Path compressedFile) throws IOException {
-        Path decompressedFile = Paths.get(compressedFile.toString().replace(".gz", ""));
+    private boolean restoreFromStream(InputStream sql) throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder(pgCommand("psql"));
+        processBuilder.environment().put("PGPASSWORD", databasePassword);
+        Process process = processBuilder.start();
+        ProcessOutputDrainer stdout = ProcessOutputDrainer.start(process.getInputStream(), "psql-stdout", STDERR_TAIL_LINES);
+        ProcessOutputDrainer stderr = ProcessOutputDrainer.start(process.getErrorStream(), "psql-stderr", STDERR_TAIL_LINES);
         
-        try (FileInputStream fis = new FileInputStream(compressedFile.toFile());
-             java.util.zip.GZIPInputStream gzipIS = new java.util.zip.GZIPInputStream(fis);
-             FileOutputStream fos = new FileOutputStream(decompressedFile.toFile())) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = gzipIS.read(buffer)) != -1) {
-                fos.write(buffer, 0, bytesRead);
+        long bytes;
+        OutputStream stdin = process.getOutputStream();
+        try {
+            bytes = sql.transferTo(stdin);
+            stdin.close();
+        } catch (IOException e) {
+            // 备份流损坏或psql提前退出：先终止psql再关闭stdin，避免截断的输入被当作正常结束
+            process.destroyForcibly();
+            try {
+                stdin.close();
+            } catch (IOException ignored) {
+                // psql已终止
             }
+            logger.error("向psql传输备份数据中断 - psql输出: {}", stderr.await(PROCESS_DRAIN_TIMEOUT_MS));
+            throw e;
         }
         
-        logger.info("备份文件解压完成: {}", decompressedFile.toString());
-        return decompressedFile;
+        int exitCode = process.waitFor();
+        stdout.await(PROCESS_DRAIN_TIMEOUT_MS);
+        String error = stderr.await(PROCESS_DRAIN_TIMEOUT_MS);
+        if (exitCode == 0) {
+            logger.info("psql执行完成 - 传输字节数: {}", bytes);
+            return true;
+        }
+        logger.error("数据库恢复失败 - 退出码: {}, 错误信息: {}", exitCode, error);
+        return false;
     }
     
     /**
-     * 从SQL文件恢复数据库
+     * 目录格式备份恢复：逐个文件解密、解压到临时目录（pg_restore需要可随机读取的归档）；
+     * tables为空时由pg_restore -j整库并行恢复（先删除再重建对象），否则只在单个事务中清空并重新加载所列表的数据
      */
-    private boolean restoreDatabaseFromSql(String sqlFilePath) {
+    private void restoreDirectory(Path backupDir, List<String> tables, int jobs) throws Exception {
+        Path archive = Files.createTempDirectory(backupDir.getParent(), ".pg_restore-");
         try {
-            // 解析数据库连接信息
-            String dbHost = extractDbHost(databaseUrl);
-            String dbPort = extractDbPort(databaseUrl);
-            String dbName = extractDbName(databaseUrl);
-            
-            // 构建psql命令
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                "psql",
-                "-h", dbHost,
-                "-p", dbPort,
-                "-U", databaseUsername,
-                "-d", dbName,
-                "--no-password",
-                "-f", sqlFilePath
-            );
-            
-            // 设置环境变量
-            processBuilder.environment().put("PGPASSWORD", databasePassword);
-            
-            // 执行命令
-            Process process = processBuilder.start();
-            
-            // 读取输出和错误信息
-            String output = readStream(process.getInputStream());
-            String error = readStream(process.getErrorStream());
-            
-            int exitCode = process.waitFor();
+            for (Path file : listSorted(backupDir)) {
+                try (InputStream in = openRestoreStream(file, null)) {
+                    Files.copy(in, archive.resolve(archiveEntryName(file)));
+                }
+            }
             
-            if (exitCode == 0) {
-                logger.info("数据库恢复成功: {}", sqlFilePath);
-                return true;
-            } else {
-                logger.error("数据库恢复失败 - 退出码: {}, 错误信息: {}", exitCode, error);
-                return false;
+            if (!tables.isEmpty()) {
+                restoreTableData(archive, tables);
+                return;
             }
+            List<String> command = pgCommand("pg_restore");
+            command.addAll(List.of("--format=directory", "--jobs=" + jobs, "--verbose", "--clean", "--if-exists"));
+            command.add(archive.toString());
+            runCommand("pg_restore", command);
+        } finally {
+            deleteQuietly(archive);
+        }
+    }
+    
+    /**
+     * 按表恢复数据：pg_restore不连接数据库，先把所列表的数据按备份中的依赖顺序写成SQL脚本；
+     * 成功后psql在单个事务中执行TRUNCATE与该脚本，出错即停止并回滚。
+     * pg_restore -j的并行加载各用独立连接，无法与TRUNCATE同处一个事务，因此按表恢复不并行
+     */
+    private void restoreTableData(Path archive, List<String> tables) throws IOException, InterruptedException {
+        Path script = Files.createTempFile(archive.getParent(), ".pg_restore-", ".sql");
+        try {
+            List<String> extract = new ArrayList<>(List.of(clientTool("pg_restore"),
+                "--format=directory", "--data-only", "--file=" + script));
+            tables.forEach(table -> extract.add("--table=" + table));
+            extract.add(archive.toString());
+            runCommand("pg_restore", extract);
             
-        } catch (Exception e) {
-            logger.error("执行数据库恢复时异常", e);
-            return false;
+            List<String> load = pgCommand("psql");
+            load.addAll(List.of("--single-transaction", "--set=ON_ERROR_STOP=1", "--quiet",
+                "--command=TRUNCATE TABLE " + String.join(", ", tables), "--file=" + script));
+            runCommand("psql", load);
+        } finally {
+            deleteQuietly(script);
         }
     }
     
     /**
      * 清理过期备份文件
+     * 按备份清单执行分级保留：最近retention-days天全部保留，另按自然周、自然月各保留一个（优先全量），
+     * 被保留备份的恢复链一并保留；随后清理中断遗留的临时文件
      */
     public void cleanupOldBackups() {
         try {
-            Path backupDir = Paths.get(backupLocation);
-            if (!Files.exists(backupDir)) {
-                return;
-            }
-            
-            LocalDateTime cutoffTime = LocalDateTime.now().minusDays(retentionDays);
+            List<BackupManifest.Entry> expired = backupManifest.selectExpired(
+                LocalDate.now(), retentionDays, retentionWeeks, retentionMonths);
+            List<Long> expiredRecordIds = new ArrayList<>();
             
-            List<Path> oldBackups = Files.list(backupDir)
-                    .filter(path -> {
-                        try {
-                            return Files.getLastModifiedTime(path).toInstant()
-                                    .isBefore(cutoffTime.atZone(java.time.ZoneId.systemDefault()).toInstant());
-                        } catch (IOException e) {
-                            logger.warn("检查文件修改时间失败: {}", path, e);
-                            return false;
-                        }
-                    })
-                    .collect(Collectors.toList());
-            
-            for (Path oldBackup : oldBackups) {
+            for (BackupManifest.Entry entry : expired) {
                 try {
-                    Files.delete(oldBackup);
-                    logger.info("删除过期备份文件: {}", oldBackup.toString());
+                    deleteRecursively(backupManifest.resolve(entry));
+                    backupManifest.remove(entry.getName());
+                    if (entry.getRecordId() != null) {
+                        expiredRecordIds.add(entry.getRecordId());
+                    }
+                    logger.info("删除过期备份: {}", entry.getName());
                 } catch (IOException e) {
-                    logger.warn("删除过期备份文件失败: {}", oldBackup, e);
+                    logger.warn("删除过期备份失败: {}", entry.getName(), e);
                 }
             }
+            backupRecordStore.expire(expiredRecordIds);
             
-            if (!oldBackups.isEmpty()) {
-                logger.info("清理过期备份完成，删除文件数: {}", oldBackups.size());
+            if (!expired.isEmpty()) {
+                logger.info("清理过期备份完成，删除备份数: {}", expired.size());
             }
             
+            cleanupStaleTemporaryFiles();
+            collectChunkGarbage();
+            
         } catch (Exception e) {
             logger.error("清理过期备份时异常", e);
         }
     }
     
     /**
-     * 获取可用备份列表
+     * 回收块存储中不再被任何配方引用的块；过期备份的配方此前已删除，一天内写入或复用过的块暂不回收
+     */
+    private void collectChunkGarbage() throws IOException {
+        Path backupDir = Paths.get(backupLocation);
+        if (!Files.isDirectory(backupDir.resolve(ChunkStore.DIRECTORY_NAME))) {
+            return;
+        }
+        java.time.Instant cutoff = java.time.Instant.now().minus(java.time.Duration.ofDays(1));
+        ChunkStore.GcResult result = chunkStore.collectGarbage(backupDir, cutoff);
+        logger.info("回收数据块完成 - 配方数: {}, 引用中的块: {}, 删除块: {}, 释放空间: {}字节",
+                   result.getRecipes(), result.getLiveChunks(), result.getDeletedChunks(), result.getFreedBytes());
+    }
+    
+    /**
+     * 删除进程中断后遗留的.part文件和导出、恢复临时目录（超过一天未修改）
+     */
+    private void cleanupStaleTemporaryFiles() throws IOException {
+        Path backupDir = Paths.get(backupLocation);
+        if (!Files.isDirectory(backupDir)) {
+            return;
+        }
+        java.time.Instant cutoff = java.time.Instant.now().minus(java.time.Duration.ofDays(1));
+        try (Stream<Path> files = Files.list(backupDir)) {
+            for (Path path : files.collect(Collectors.toList())) {
+                String name = path.getFileName().toString();
+                boolean temporary = name.endsWith(PART_SUFFIX) || name.startsWith(".pg_dump-") || name.startsWith(".pg_restore-")
+                                    || name.startsWith(".verify-") || name.startsWith(".logical-");
+                if (temporary && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                    deleteQuietly(path);
+                    logger.info("删除遗留的临时备份文件: {}", path);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 获取可用备份列表（来自备份清单，按创建时间倒序）
      */
     public List<BackupInfo> getAvailableBackups() {
         try {
-            Path backupDir = Paths.get(backupLocation);
-            if (!Files.exists(backupDir)) {
-                return Collections.emptyList();
-            }
-            
-            return Files.list(backupDir)
-                    .filter(path -> path.getFileName().toString().startsWith("manday_assess_backup_"))
-                    .map(path -> {
-                        try {
-                            BackupInfo info = new BackupInfo();
-                            info.setFileName(path.getFileName().toString());
-                            info.setFilePath(path.toString());
-                            info.setFileSize(Files.size(path));
-                            info.setCreatedTime(Files.getLastModifiedTime(path).toInstant()
-                                    .atZone(java.time.ZoneId.systemDefault()).toLocalDateTime());
-                            info.setEncrypted(path.toString().endsWith(".enc"));
-                            info.setCompressed(path.toString().contains(".gz"));
-                            return info;
-                        } catch (IOException e) {
-                            logger.warn("读取备份文件信息失败: {}", path, e);
-                            return null;
-                        }
+            return backupManifest.list().stream()
+                    .map(entry -> {
+                        BackupInfo info = new BackupInfo();
+                        info.setFileName(entry.getName());
+                        info.setFilePath(backupManifest.resolve(entry).toString());
+                        info.setFileSize(entry.getSizeBytes());
+                        info.setCreatedTime(entry.getCreatedAt());
+                        info.setEncrypted(entry.isEncrypted());
+                        info.setCompressed(true);
+                        info.setBackupType(entry.getType().name());
+                        info.setSha256(entry.getSha256());
+                        info.setPointInTime(entry.getPointInTime());
+                        info.setParentName(entry.getParent());
+                        return info;
                     })
-                    .filter(info -> info != null)
-                    .sorted((a, b) -> b.getCreatedTime().compareTo(a.getCreatedTime()))
                     .collect(Collectors.toList());
                     
         } catch (Exception e) {
@@ -537,15 +1386,183 @@ public class BackupService {
         }
     }
     
-    private String readStream(InputStream inputStream) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-            return reader.lines().collect(Collectors.joining("\n"));
+    /**
+     * PostgreSQL客户端命令及连接参数（密码经PGPASSWORD传递）
+     */
+    private List<String> pgCommand(String tool) {
+        return new ArrayList<>(List.of(clientTool(tool),
+            "-h", extractDbHost(databaseUrl),
+            "-p", extractDbPort(databaseUrl),
+            "-U", databaseUsername,
+            "-d", extractDbName(databaseUrl),
+            "--no-password"));
+    }
+    
+    /**
+     * 客户端可执行文件：配置了client-bin-dir时取该目录下的文件，否则交由PATH查找
+     */
+    private String clientTool(String tool) {
+        return clientBinDir == null || clientBinDir.isBlank() ? tool : Paths.get(clientBinDir).resolve(tool).toString();
+    }
+    
+    /**
+     * 运行不经stdin/stdout传输数据的客户端命令（pg_dump -Fd、pg_restore），合并排空其输出，退出码非零时抛出异常
+     */
+    private void runCommand(String name, List<String> command) throws IOException, InterruptedException {
+        ProcessBuilder processBuilder = new ProcessBuilder(command).redirectErrorStream(true);
+        processBuilder.environment().put("PGPASSWORD", databasePassword);
+        Process process = processBuilder.start();
+        ProcessOutputDrainer output = ProcessOutputDrainer.start(process.getInputStream(), name + "-output", STDERR_TAIL_LINES);
+        int exitCode;
+        try {
+            exitCode = process.waitFor();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        String error = output.await(PROCESS_DRAIN_TIMEOUT_MS);
+        if (exitCode != 0) {
+            throw new IOException(String.format("%s执行失败 - 退出码: %d, 错误信息: %s", name, exitCode, error));
+        }
+    }
+    
+    /**
+     * 目录格式备份中的文件名去掉压缩、加密扩展名，即pg_dump目录中的原文件名
+     */
+    private static String archiveEntryName(Path backupEntry) {
+        return backupEntry.getFileName().toString().replaceFirst("\\.gz(\\.enc)?$", "");
+    }
+    
+    private static List<Path> listSorted(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+    
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(p);
+            }
+        }
+    }
+    
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            deleteRecursively(file);
         } catch (IOException e) {
-            logger.warn("读取流时异常", e);
-            return "";
+            logger.warn("删除临时备份文件失败: {}", file, e);
+        }
+    }
+    
+    /**
+     * 向备份管道写入明文
+     */
+    @FunctionalInterface
+    private interface BackupWriter {
+        void write(OutputStream out) throws Exception;
+    }
+    
+    /**
+     * 统计写入字节数（压缩前的数据量），并同步上报给listener
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final LongConsumer listener;
+        private long count;
+        
+        CountingOutputStream(OutputStream out, LongConsumer listener) {
+            super(out);
+            this.listener = listener;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+            listener.accept(1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+            listener.accept(len);
+        }
+        
+        long getCount() {
+            return count;
+        }
+    }
+    
+    /**
+     * 统计读取字节数（解压后的数据量）
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+        
+        long getCount() {
+            return count;
         }
     }
     
+    /**
+     * 备份预检结果
+     */
+    public static class BackupVerification {
+        private String filePath;
+        private boolean valid;
+        private String message;
+        private String sha256;
+        private long plainBytes;
+        private long durationMs;
+        
+        public String getFilePath() { return filePath; }
+        public void setFilePath(String filePath) { this.filePath = filePath; }
+        
+        public boolean isValid() { return valid; }
+        public void setValid(boolean valid) { this.valid = valid; }
+        
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+        
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
+        
+        public long getPlainBytes() { return plainBytes; }
+        public void setPlainBytes(long plainBytes) { this.plainBytes = plainBytes; }
+        
+        public long getDurationMs() { return durationMs; }
+        public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+    }
+    
     /**
      * 备份信息类
      */
@@ -556,6 +1573,10 @@ public class BackupService {
         private LocalDateTime createdTime;
         private boolean encrypted;
         private boolean compressed;
+        private String backupType;
+        private String sha256;
+        private LocalDateTime pointInTime;
+        private String parentName;
         
         // Getters and Setters
         public String getFileName() { return fileName; }
@@ -575,5 +1596,17 @@ public class BackupService {
         
         public boolean isCompressed() { return compressed; }
         public void setCompressed(boolean compressed) { this.compressed = compressed; }
+        
+        public String getBackupType() { return backupType; }
+        public void setBackupType(String backupType) { this.backupType = backupType; }
+        
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
+        
+        public LocalDateTime getPointInTime() { return pointInTime; }
+        public void setPointInTime(LocalDateTime pointInTime) { this.pointInTime = pointInTime; }
+        
+        public String getParentName() { return parentName; }
+        public void setParentName(String parentName) { this.parentName = parentName; }
     }
 }
\ No newline at end of file
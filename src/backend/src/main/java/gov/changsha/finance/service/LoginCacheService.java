@@ -4,15 +4,23 @@ import gov.changsha.finance.security.jwt.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
 
 /**
  * 登录缓存服务
  * 专门用于优化登录认证性能，缓存用户基本信息和权限
+ * 每个用户一个Redis哈希（主体、用户名），登录名（用户名/邮箱/工号）通过索引键指向用户ID；
+ * 读取为一次HMGET，失效为一次UNLINK，多键写入使用管道；
+ * 热点值（用户主体、用户ID）可按键前缀选择紧凑二进制格式写入
  * 
  * @author 开发团队
  * @version 1.0.0
@@ -25,37 +33,78 @@ public class LoginCacheService {
     
     // 缓存前缀
     private static final String USER_CACHE_PREFIX = "login:user:";
-    private static final String USER_ROLES_CACHE_PREFIX = "login:user:roles:";
-    private static final String USER_PERMISSIONS_CACHE_PREFIX = "login:user:permissions:";
+    private static final String USERNAME_INDEX_PREFIX = "login:username:";
+    private static final String FAILURE_COUNT_PREFIX = "login:failure-count:";
+    
+    // 用户哈希字段
+    private static final String FIELD_PRINCIPAL = "principal";
+    private static final String FIELD_USERNAME = "username";
+    private static final List<Object> USER_FIELDS = Arrays.asList(FIELD_PRINCIPAL, FIELD_USERNAME);
     
     // 缓存过期时间
     private static final Duration USER_CACHE_DURATION = Duration.ofMinutes(30);
-    private static final Duration ROLES_CACHE_DURATION = Duration.ofMinutes(60);
-    private static final Duration PERMISSIONS_CACHE_DURATION = Duration.ofMinutes(60);
+    private static final Duration FAILURE_COUNT_DURATION = Duration.ofMinutes(15);
+    
+    /**
+     * 写入紧凑二进制格式的键前缀（其余前缀写入JSON，便于调试；两种格式均可读取）
+     */
+    @Value("${system.cache.binary-prefixes:login:user:,login:username:}")
+    private String[] binaryPrefixes;
     
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private RedisTemplate<String, Object> compactRedisTemplate;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
     /**
-     * 缓存用户基本信息
+     * 缓存用户信息及其登录名索引（一次管道写入）
      */
-    public void cacheUserInfo(Long userId, UserPrincipal userPrincipal) {
+    public void cacheUser(UserPrincipal userPrincipal, String... loginNames) {
+        Long userId = userPrincipal.getId();
         try {
-            String cacheKey = USER_CACHE_PREFIX + userId;
-            redisTemplate.opsForValue().set(cacheKey, userPrincipal, USER_CACHE_DURATION);
-            logger.debug("缓存用户信息成功 - 用户ID: {}", userId);
+            String userKey = USER_CACHE_PREFIX + userId;
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(FIELD_PRINCIPAL, userPrincipal);
+            fields.put(FIELD_USERNAME, userPrincipal.getUsername());
+            
+            Set<String> indexKeys = new LinkedHashSet<>();
+            indexKeys.add(USERNAME_INDEX_PREFIX + userPrincipal.getUsername());
+            for (String loginName : loginNames) {
+                if (loginName != null) {
+                    indexKeys.add(USERNAME_INDEX_PREFIX + loginName);
+                }
+            }
+            
+            templateFor(USER_CACHE_PREFIX).executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.opsForHash().putAll(userKey, fields);
+                    ops.expire(userKey, USER_CACHE_DURATION);
+                    for (String indexKey : indexKeys) {
+                        ops.opsForValue().set(indexKey, userId, USER_CACHE_DURATION);
+                    }
+                    return null;
+                }
+            });
+            logger.debug("缓存用户信息成功 - 用户ID: {}, 登录名索引: {}", userId, indexKeys.size());
         } catch (Exception ex) {
             logger.warn("缓存用户信息失败 - 用户ID: {}, 错误: {}", userId, ex.getMessage());
         }
     }
     
     /**
-     * 获取缓存的用户信息
+     * 获取缓存的用户信息（一次HMGET）
      */
     public UserPrincipal getCachedUserInfo(Long userId) {
         try {
-            String cacheKey = USER_CACHE_PREFIX + userId;
-            Object cached = redisTemplate.opsForValue().get(cacheKey);
+            List<Object> values = templateFor(USER_CACHE_PREFIX).opsForHash().multiGet(USER_CACHE_PREFIX + userId, USER_FIELDS);
+            Object cached = values.get(0);
             if (cached instanceof UserPrincipal) {
                 logger.debug("获取缓存用户信息成功 - 用户ID: {}", userId);
                 return (UserPrincipal) cached;
@@ -67,17 +116,17 @@ public class LoginCacheService {
     }
     
     /**
-     * 根据用户名获取缓存的用户信息
+     * 根据登录名（用户名/邮箱/工号）获取缓存的用户信息
      */
     public UserPrincipal getCachedUserInfoByUsername(String username) {
         try {
-            // 构建用户名到用户ID的映射缓存键
-            String usernameCacheKey = "login:username:" + username;
-            Object userIdObj = redisTemplate.opsForValue().get(usernameCacheKey);
-            
-            if (userIdObj instanceof Long) {
-                Long userId = (Long) userIdObj;
-                return getCachedUserInfo(userId);
+            Object userIdObj = templateFor(USERNAME_INDEX_PREFIX).opsForValue().get(USERNAME_INDEX_PREFIX + username);
+            if (userIdObj instanceof Number) {
+                UserPrincipal cached = getCachedUserInfo(((Number) userIdObj).longValue());
+                // 索引可能因用户名变更而过期，命中的主体必须与登录名一致
+                if (cached != null && matchesLoginName(cached, username)) {
+                    return cached;
+                }
             }
         } catch (Exception ex) {
             logger.warn("根据用户名获取缓存信息失败 - 用户名: {}, 错误: {}", username, ex.getMessage());
@@ -86,37 +135,16 @@ public class LoginCacheService {
     }
     
     /**
-     * 缓存用户名到用户ID的映射
-     */
-    public void cacheUsernameMapping(String username, Long userId) {
-        try {
-            String usernameCacheKey = "login:username:" + username;
-            redisTemplate.opsForValue().set(usernameCacheKey, userId, USER_CACHE_DURATION);
-            logger.debug("缓存用户名映射成功 - 用户名: {}, 用户ID: {}", username, userId);
-        } catch (Exception ex) {
-            logger.warn("缓存用户名映射失败 - 用户名: {}, 错误: {}", username, ex.getMessage());
-        }
-    }
-    
-    /**
-     * 清除用户相关的所有缓存
+     * 清除用户相关的所有缓存（一次UNLINK）
      */
     public void clearUserCache(Long userId, String username) {
         try {
-            // 清除用户信息缓存
-            String userCacheKey = USER_CACHE_PREFIX + userId;
-            redisTemplate.delete(userCacheKey);
-            
-            // 清除用户名映射缓存
-            String usernameCacheKey = "login:username:" + username;
-            redisTemplate.delete(usernameCacheKey);
-            
-            // 清除角色和权限缓存
-            String rolesCacheKey = USER_ROLES_CACHE_PREFIX + userId;
-            String permissionsCacheKey = USER_PERMISSIONS_CACHE_PREFIX + userId;
-            redisTemplate.delete(rolesCacheKey);
-            redisTemplate.delete(permissionsCacheKey);
-            
+            List<String> keys = new ArrayList<>(2);
+            keys.add(USER_CACHE_PREFIX + userId);
+            if (username != null) {
+                keys.add(USERNAME_INDEX_PREFIX + username);
+            }
+            redisTemplate.unlink(keys);
             logger.debug("清除用户缓存成功 - 用户ID: {}, 用户名: {}", userId, username);
         } catch (Exception ex) {
             logger.warn("清除用户缓存失败 - 用户ID: {}, 错误: {}", userId, ex.getMessage());
@@ -124,61 +152,27 @@ public class LoginCacheService {
     }
     
     /**
-     * 缓存用户会话Token（用于快速验证）
-     */
-    public void cacheUserSession(String sessionToken, Long userId) {
-        try {
-            String sessionCacheKey = "login:session:" + sessionToken;
-            redisTemplate.opsForValue().set(sessionCacheKey, userId, Duration.ofHours(24));
-            logger.debug("缓存用户会话成功 - Token: {}, 用户ID: {}", sessionToken.substring(0, 8) + "...", userId);
-        } catch (Exception ex) {
-            logger.warn("缓存用户会话失败 - Token: {}, 错误: {}", sessionToken.substring(0, 8) + "...", ex.getMessage());
-        }
-    }
-    
-    /**
-     * 获取缓存的会话信息
-     */
-    public Long getCachedSession(String sessionToken) {
-        try {
-            String sessionCacheKey = "login:session:" + sessionToken;
-            Object cached = redisTemplate.opsForValue().get(sessionCacheKey);
-            if (cached instanceof Long) {
-                logger.debug("获取缓存会话成功 - Token: {}", sessionToken.substring(0, 8) + "...");
-                return (Long) cached;
-            }
-        } catch (Exception ex) {
-            logger.warn("获取缓存会话失败 - Token: {}, 错误: {}", sessionToken.substring(0, 8) + "...", ex.getMessage());
-        }
-        return null;
-    }
-    
-    /**
-     * 清除用户会话缓存
-     */
-    public void clearUserSession(String sessionToken) {
-        try {
-            String sessionCacheKey = "login:session:" + sessionToken;
-            redisTemplate.delete(sessionCacheKey);
-            logger.debug("清除用户会话成功 - Token: {}", sessionToken.substring(0, 8) + "...");
-        } catch (Exception ex) {
-            logger.warn("清除用户会话失败 - Token: {}, 错误: {}", sessionToken.substring(0, 8) + "...", ex.getMessage());
-        }
-    }
-    
-    /**
-     * 设置登录失败计数缓存（防暴力破解）
+     * 递增登录失败计数（防暴力破解），INCR与EXPIRE在同一管道中发送，返回递增后的次数
      */
-    public void cacheLoginFailureCount(String username, String clientIp) {
+    public int incrementLoginFailureCount(String username, String clientIp) {
         try {
-            String failureCacheKey = "login:failure:" + username + ":" + clientIp;
-            String countStr = (String) redisTemplate.opsForValue().get(failureCacheKey);
-            int count = (countStr != null) ? Integer.parseInt(countStr) + 1 : 1;
-            
-            redisTemplate.opsForValue().set(failureCacheKey, String.valueOf(count), Duration.ofMinutes(15));
+            String failureCacheKey = FAILURE_COUNT_PREFIX + username + ":" + clientIp;
+            List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.opsForValue().increment(failureCacheKey);
+                    ops.expire(failureCacheKey, FAILURE_COUNT_DURATION);
+                    return null;
+                }
+            });
+            int count = ((Number) results.get(0)).intValue();
             logger.debug("更新登录失败计数 - 用户: {}, IP: {}, 次数: {}", username, clientIp, count);
+            return count;
         } catch (Exception ex) {
             logger.warn("缓存登录失败计数失败 - 用户: {}, 错误: {}", username, ex.getMessage());
+            return 0;
         }
     }
     
@@ -187,8 +181,7 @@ public class LoginCacheService {
      */
     public int getLoginFailureCount(String username, String clientIp) {
         try {
-            String failureCacheKey = "login:failure:" + username + ":" + clientIp;
-            String countStr = (String) redisTemplate.opsForValue().get(failureCacheKey);
+            String countStr = stringRedisTemplate.opsForValue().get(FAILURE_COUNT_PREFIX + username + ":" + clientIp);
             return (countStr != null) ? Integer.parseInt(countStr) : 0;
         } catch (Exception ex) {
             logger.warn("获取登录失败计数失败 - 用户: {}, 错误: {}", username, ex.getMessage());
@@ -201,11 +194,28 @@ public class LoginCacheService {
      */
     public void clearLoginFailureCount(String username, String clientIp) {
         try {
-            String failureCacheKey = "login:failure:" + username + ":" + clientIp;
-            redisTemplate.delete(failureCacheKey);
+            stringRedisTemplate.unlink(FAILURE_COUNT_PREFIX + username + ":" + clientIp);
             logger.debug("清除登录失败计数 - 用户: {}, IP: {}", username, clientIp);
         } catch (Exception ex) {
             logger.warn("清除登录失败计数失败 - 用户: {}, 错误: {}", username, ex.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 按键前缀选择写入格式
+     */
+    private RedisTemplate<String, Object> templateFor(String keyPrefix) {
+        for (String prefix : binaryPrefixes) {
+            if (keyPrefix.startsWith(prefix.trim())) {
+                return compactRedisTemplate;
+            }
+        }
+        return redisTemplate;
+    }
+    
+    private boolean matchesLoginName(UserPrincipal principal, String loginName) {
+        return loginName.equals(principal.getUsername())
+                || loginName.equals(principal.getEmail())
+                || loginName.equals(principal.getEmployeeId());
+    }
+}
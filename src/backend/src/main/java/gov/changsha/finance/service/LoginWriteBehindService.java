@@ -0,0 +1,389 @@
+package gov.changsha.finance.service;
+
+import gov.changsha.finance.entity.User;
+import gov.changsha.finance.repository.UserRepository;
+import gov.changsha.finance.security.CustomUserDetailsService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 登录副作用写后队列服务
+ * 将登录成功后的最后登录时间更新和登录审计从请求线程移出，
+ * 按用户合并最后登录信息并定时批量写库；写库失败的批次重新入队等待下次刷新，停机时等待进行中的刷新并写出剩余事件。
+ * 登录失败的计数更新与刷新互斥，不会被进行中的批量更新清零
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Service
+public class LoginWriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginWriteBehindService.class);
+
+    private static final String UPDATE_LAST_LOGIN_SQL =
+        "UPDATE users SET last_login_at = ?, failed_login_attempts = 0, locked_at = NULL, updated_at = ? WHERE id = ?";
+
+    /**
+     * 失败次数在库内原子累加，达到阈值时锁定；不整行保存，避免覆盖并发写入的最后登录时间或锁定状态
+     */
+    private static final String INCREMENT_FAILED_LOGIN_SQL =
+        "UPDATE users SET failed_login_attempts = failed_login_attempts + 1, " +
+        "account_status = CASE WHEN failed_login_attempts + 1 >= ? THEN 'LOCKED' ELSE account_status END, " +
+        "locked_at = CASE WHEN failed_login_attempts + 1 >= ? THEN ? ELSE locked_at END, updated_at = ? WHERE id = ?";
+
+    /**
+     * 尚未落库的登录成功在失败之前发生：先按该次成功写入最后登录时间并清零，再记这一次失败
+     */
+    private static final String FAILED_AFTER_PENDING_LOGIN_SQL =
+        "UPDATE users SET last_login_at = ?, failed_login_attempts = 1, locked_at = NULL, updated_at = ? WHERE id = ?";
+
+    private static final int LOCK_THRESHOLD = 5;
+
+    @Value("${system.login.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${system.login.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    @Qualifier("loginAsyncExecutor")
+    private Executor loginAsyncExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private LoginCacheService loginCacheService;
+
+    /**
+     * 待写入的最后登录信息（按用户ID合并，只保留最近一次）
+     */
+    private final ConcurrentHashMap<Long, PendingLogin> pendingLogins = new ConcurrentHashMap<>();
+
+    /**
+     * 待写入的登录审计事件（不合并，每次登录一条）
+     */
+    private final ConcurrentLinkedQueue<PendingLogin> pendingAudits = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingAuditCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean shuttingDown = false;
+
+    private ScheduledExecutorService flushTicker;
+
+    @PostConstruct
+    public void start() {
+        flushTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LoginWriteBehind-Ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushTicker.scheduleWithFixedDelay(this::triggerFlush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("登录写后队列启动 - 刷新间隔: {}ms, 批量大小: {}", flushIntervalMs, batchSize);
+    }
+
+    /**
+     * 登记一次登录成功（仅入队，不访问数据库）
+     */
+    public void enqueueLogin(Long userId, String loginIp, String userAgent) {
+        PendingLogin login = new PendingLogin(userId, loginIp, userAgent, LocalDateTime.now());
+        pendingLogins.put(userId, login);
+        pendingAudits.offer(login);
+        int queued = pendingAuditCount.incrementAndGet();
+
+        if (shuttingDown) {
+            // 停机过程中到达的登录直接同步落库，避免丢失
+            flush();
+        } else if (queued >= batchSize) {
+            triggerFlush();
+        }
+    }
+
+    /**
+     * 记录一次登录失败并返回累计失败次数
+     * 在刷新锁内执行：已被进行中批次取走的登录成功先落库，尚在队列中的登录成功合并到本次更新，
+     * 之后的批量更新只包含失败之后的登录成功
+     *
+     * @return 更新后的失败次数，用户不存在时返回null
+     */
+    public Integer recordFailedLogin(Long userId) {
+        flushLock.lock();
+        try {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            PendingLogin pending = pendingLogins.remove(userId);
+            int updated = pending != null
+                ? jdbcTemplate.update(FAILED_AFTER_PENDING_LOGIN_SQL, Timestamp.valueOf(pending.getLoginAt()), now, userId)
+                : jdbcTemplate.update(INCREMENT_FAILED_LOGIN_SQL, LOCK_THRESHOLD, LOCK_THRESHOLD, now, now, userId);
+            if (updated == 0) {
+                return null;
+            }
+            return jdbcTemplate.queryForObject("SELECT failed_login_attempts FROM users WHERE id = ?", Integer.class, userId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前排队的事件数量
+     */
+    public int getPendingCount() {
+        return pendingLogins.size() + pendingAudits.size();
+    }
+
+    /**
+     * 在登录异步执行器上触发一次刷新（已有刷新进行中则跳过）
+     */
+    private void triggerFlush() {
+        if (pendingLogins.isEmpty() && pendingAudits.isEmpty()) {
+            return;
+        }
+        try {
+            loginAsyncExecutor.execute(this::tryFlush);
+        } catch (Exception ex) {
+            logger.warn("提交登录写后刷新任务失败: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 刷新所有排队事件，有刷新进行中时等待其结束后继续刷新剩余事件
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 异步刷新：已有刷新进行中则跳过，剩余事件由进行中的刷新或下次定时刷新写出
+     */
+    private void tryFlush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 逐批写出排队事件；某批写库失败时停止本轮，失败的事件已重新入队
+     */
+    private void drain() {
+        while (!pendingLogins.isEmpty() || !pendingAudits.isEmpty()) {
+            if (!flushBatch()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 刷新一批事件：批量更新最后登录时间、批量写入登录审计、清理相关缓存
+     *
+     * @return 本批是否全部写库成功
+     */
+    private boolean flushBatch() {
+        long startTime = System.currentTimeMillis();
+
+        List<PendingLogin> logins = new ArrayList<>();
+        Iterator<Long> iterator = pendingLogins.keySet().iterator();
+        while (iterator.hasNext() && logins.size() < batchSize) {
+            PendingLogin login = pendingLogins.remove(iterator.next());
+            if (login != null) {
+                logins.add(login);
+            }
+        }
+
+        List<PendingLogin> audits = new ArrayList<>();
+        PendingLogin audit;
+        while (audits.size() < batchSize && (audit = pendingAudits.poll()) != null) {
+            audits.add(audit);
+            pendingAuditCount.decrementAndGet();
+        }
+
+        boolean loginsWritten = true;
+        try {
+            writeLastLogins(logins);
+        } catch (Exception ex) {
+            loginsWritten = false;
+            logger.error("批量更新用户最后登录信息失败，重新入队 - 数量: {}", logins.size(), ex);
+            for (PendingLogin login : logins) {
+                // 期间同一用户有更新的登录时保留更新的一次
+                pendingLogins.putIfAbsent(login.getUserId(), login);
+            }
+        }
+
+        boolean auditsWritten = true;
+        Map<Long, User> auditUsers = null;
+        try {
+            auditUsers = loadUsers(audits);
+        } catch (Exception ex) {
+            // 尚未提交任何审计，整批重新入队不会重复
+            auditsWritten = false;
+            logger.error("加载登录审计用户失败，重新入队 - 数量: {}", audits.size(), ex);
+            for (PendingLogin login : audits) {
+                pendingAudits.offer(login);
+                pendingAuditCount.incrementAndGet();
+            }
+        }
+        if (auditUsers != null) {
+            submitLoginAudits(audits, auditUsers);
+        }
+
+        if (!loginsWritten) {
+            return false;
+        }
+        for (PendingLogin login : logins) {
+            if (login.getUsername() == null) {
+                continue;
+            }
+            try {
+                loginCacheService.clearLoginFailureCount(login.getUsername(), login.getLoginIp());
+            } catch (Exception ex) {
+                logger.warn("清除登录失败计数失败 - 用户ID: {}, 错误: {}", login.getUserId(), ex.getMessage());
+            }
+        }
+
+        logger.debug("登录写后队列刷新完成 - 登录更新: {}, 审计: {}, 耗时: {}ms",
+                    logins.size(), audits.size(), System.currentTimeMillis() - startTime);
+        return auditsWritten;
+    }
+
+    /**
+     * 以JDBC批量方式更新最后登录时间并重置失败次数
+     */
+    private void writeLastLogins(List<PendingLogin> logins) {
+        if (logins.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batchArgs = new ArrayList<>(logins.size());
+        for (PendingLogin login : logins) {
+            batchArgs.add(new Object[]{Timestamp.valueOf(login.getLoginAt()), now, login.getUserId()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN_SQL, batchArgs);
+
+        // 清除用户缓存，确保下次获取最新的最后登录时间
+        Map<Long, User> users = loadUsers(logins);
+        for (PendingLogin login : logins) {
+            User user = users.get(login.getUserId());
+            if (user != null) {
+                login.setUsername(user.getUsername());
+                userDetailsService.clearUserCache(user.getId(), user.getUsername());
+            }
+        }
+    }
+
+    /**
+     * 把一批登录审计提交给异步审计写入器；提交后的写库与重试由写入器负责，此处不重新入队，避免重复记录
+     */
+    private void submitLoginAudits(List<PendingLogin> audits, Map<Long, User> users) {
+        for (PendingLogin login : audits) {
+            User user = users.get(login.getUserId());
+            if (user == null) {
+                continue;
+            }
+            try {
+                auditLogService.recordLogin(user, login.getLoginIp(), login.getUserAgent(), login.getLoginAt());
+            } catch (Exception ex) {
+                logger.error("提交登录审计日志失败 - 用户ID: {}", login.getUserId(), ex);
+            }
+        }
+    }
+
+    private Map<Long, User> loadUsers(List<PendingLogin> logins) {
+        if (logins.isEmpty()) {
+            return new HashMap<>();
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (PendingLogin login : logins) {
+            userIds.add(login.getUserId());
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+        return users;
+    }
+
+    /**
+     * 停机时停止定时刷新，等待进行中的刷新结束并同步写出全部排队事件
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        if (flushTicker != null) {
+            flushTicker.shutdown();
+        }
+
+        // flush在刷新锁上等待进行中的异步刷新结束，再同步写出剩余事件
+        flush();
+
+        int remaining = getPendingCount();
+        if (remaining > 0) {
+            logger.error("登录写后队列关闭时写库失败，剩余未写事件: {}", remaining);
+        } else {
+            logger.info("登录写后队列已关闭");
+        }
+    }
+
+    /**
+     * 待写入的登录事件
+     */
+    public static class PendingLogin {
+        private final Long userId;
+        private final String loginIp;
+        private final String userAgent;
+        private final LocalDateTime loginAt;
+        private volatile String username;
+
+        public PendingLogin(Long userId, String loginIp, String userAgent, LocalDateTime loginAt) {
+            this.userId = userId;
+            this.loginIp = loginIp;
+            this.userAgent = userAgent;
+            this.loginAt = loginAt;
+        }
+
+        public Long getUserId() { return userId; }
+        public String getLoginIp() { return loginIp; }
+        public String getUserAgent() { return userAgent; }
+        public LocalDateTime getLoginAt() { return loginAt; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+    }
+}
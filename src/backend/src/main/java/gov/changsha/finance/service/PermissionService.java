@@ -1,16 +1,19 @@
 package gov.changsha.finance.service;
 
+import gov.changsha.finance.dto.response.PermissionTreeNode;
 import gov.changsha.finance.entity.Permission;
 import gov.changsha.finance.repository.PermissionRepository;
 import gov.changsha.finance.repository.RoleRepository;
+import gov.changsha.finance.security.CustomUserDetailsService;
+import gov.changsha.finance.security.jwt.UserPrincipal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 权限管理服务
@@ -36,6 +39,12 @@ public class PermissionService {
     @Autowired
     private AuditLogService auditLogService; // 将在后续创建
     
+    @Autowired
+    private PermissionTreeCache permissionTreeCache;
+    
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+    
     /**
      * 创建权限
      */
@@ -58,6 +67,7 @@ public class PermissionService {
         }
         
         Permission savedPermission = permissionRepository.save(permission);
+        permissionTreeCache.refreshAfterCommit();
         
         // 记录创建权限的审计日志
         auditLogService.recordPermissionCreate(savedPermission);
@@ -108,6 +118,7 @@ public class PermissionService {
         }
         
         Permission savedPermission = permissionRepository.save(existingPermission);
+        permissionTreeCache.refreshAfterCommit();
         
         // 记录更新权限的审计日志
         auditLogService.recordPermissionUpdate(originalPermission, savedPermission);
@@ -139,6 +150,7 @@ public class PermissionService {
         }
         
         permissionRepository.delete(permission);
+        permissionTreeCache.refreshAfterCommit();
         
         // 记录删除权限的审计日志
         auditLogService.recordPermissionDelete(permission);
@@ -148,52 +160,19 @@ public class PermissionService {
     }
     
     /**
-     * 获取权限树结构
-     */
-    @Transactional(readOnly = true)
-    public List<Permission> getPermissionTree() {
-        List<Permission> allPermissions = permissionRepository.findPermissionTree();
-        return buildPermissionTree(allPermissions);
-    }
-    
-    /**
-     * 获取指定模块的权限树
+     * 获取权限树结构（读取内存快照）
      */
-    @Transactional(readOnly = true)
-    public List<Permission> getPermissionTreeByModule(String module) {
-        List<Permission> permissions = permissionRepository.findByModule(module)
-                .stream()
-                .filter(Permission::isActive)
-                .collect(Collectors.toList());
-        return buildPermissionTree(permissions);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<PermissionTreeNode> getPermissionTree() {
+        return permissionTreeCache.getSnapshot().getActiveTree();
     }
     
     /**
-     * 构建权限树结构
+     * 获取指定模块的权限树（读取内存快照）
      */
-    private List<Permission> buildPermissionTree(List<Permission> permissions) {
-        Map<Long, Permission> permissionMap = new HashMap<>();
-        List<Permission> rootPermissions = new ArrayList<>();
-        
-        // 构建权限映射
-        for (Permission permission : permissions) {
-            permissionMap.put(permission.getId(), permission);
-            permission.getChildren().clear(); // 清空现有子节点
-        }
-        
-        // 构建树结构
-        for (Permission permission : permissions) {
-            if (permission.isRoot()) {
-                rootPermissions.add(permission);
-            } else {
-                Permission parent = permissionMap.get(permission.getParentId());
-                if (parent != null) {
-                    parent.getChildren().add(permission);
-                }
-            }
-        }
-        
-        return rootPermissions;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<PermissionTreeNode> getPermissionTreeByModule(String module) {
+        return permissionTreeCache.getSnapshot().getModuleTree(module);
     }
     
     /**
@@ -229,16 +208,12 @@ public class PermissionService {
     }
     
     /**
-     * 获取用户可访问的菜单权限
+     * 获取用户可访问的菜单权限树（由权限树快照按用户权限位图过滤，相同权限的用户共享同一视图）
      */
-    @Transactional(readOnly = true)
-    public List<Permission> getUserMenuPermissions(Long userId) {
-        List<Permission> allPermissions = permissionRepository.findByUserId(userId);
-        List<Permission> menuPermissions = allPermissions.stream()
-                .filter(p -> p.isMenu() && p.isActive())
-                .collect(Collectors.toList());
-        
-        return buildPermissionTree(menuPermissions);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<PermissionTreeNode> getUserMenuPermissions(Long userId) {
+        UserPrincipal principal = (UserPrincipal) userDetailsService.loadUserById(userId);
+        return permissionTreeCache.getUserMenuTree(principal);
     }
     
     /**
@@ -279,6 +254,8 @@ public class PermissionService {
         // 按钮权限
         createButtonPermissions();
         
+        permissionTreeCache.refreshAfterCommit();
+        
         logger.info("系统权限初始化完成");
     }
     
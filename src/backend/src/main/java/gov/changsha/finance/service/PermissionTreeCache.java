@@ -0,0 +1,284 @@
+package gov.changsha.finance.service;
+
+import gov.changsha.finance.dto.response.PermissionTreeNode;
+import gov.changsha.finance.entity.Permission;
+import gov.changsha.finance.repository.PermissionRepository;
+import gov.changsha.finance.security.AuthorityBitsetRegistry;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * 权限树快照缓存
+ * 权限树在内存中以不可变快照形式保存，读请求不访问数据库；
+ * 权限增删改的事务提交后重建新快照并原子替换，用户菜单树作为快照上的过滤视图按权限位图缓存
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class PermissionTreeCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PermissionTreeCache.class);
+
+    /**
+     * 权限变更广播频道（多实例之间同步权限树快照）
+     */
+    public static final String PERMISSION_CHANGED_CHANNEL = "authz:permission-changed";
+
+    private static final Sort TREE_ORDER = Sort.by("level", "sortOrder", "name");
+
+    @Value("${system.permission.tree.max-menu-views:1024}")
+    private int maxMenuViews;
+
+    @Autowired
+    private PermissionRepository permissionRepository;
+
+    @Autowired
+    private AuthorityBitsetRegistry authorityBitsetRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 独立只读事务（事务提交回调中重建时必须使用新事务）
+     */
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 应用启动完成后构建首个快照并订阅变更广播
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            rebuild();
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(PERMISSION_CHANGED_CHANNEL));
+        } catch (Exception ex) {
+            logger.error("权限树快照初始化失败，将在首次访问时构建", ex);
+        }
+    }
+
+    /**
+     * 获取当前快照（尚未构建时同步构建）
+     */
+    public Snapshot getSnapshot() {
+        Snapshot snapshot = current.get();
+        return snapshot != null ? snapshot : rebuild();
+    }
+
+    /**
+     * 权限变更后调用：事务提交后重建快照并广播到其他实例
+     */
+    public void refreshAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAndPublish();
+                }
+            });
+        } else {
+            refreshAndPublish();
+        }
+    }
+
+    /**
+     * 获取用户的菜单树（按用户权限位图从当前快照派生并缓存）
+     */
+    public List<PermissionTreeNode> getUserMenuTree(UserPrincipal principal) {
+        Snapshot snapshot = getSnapshot();
+        long[] bits = authorityBitsetRegistry.bitsFor(principal);
+        String viewKey = authorityBitsetRegistry.toKey(bits);
+
+        List<PermissionTreeNode> view = snapshot.menuViews.get(viewKey);
+        if (view != null) {
+            return view;
+        }
+
+        view = filter(snapshot.menuTree, node -> hasBit(bits, authorityBitsetRegistry.idOf(node.getCode())));
+        if (snapshot.menuViews.size() >= maxMenuViews) {
+            snapshot.menuViews.clear();
+        }
+        snapshot.menuViews.put(viewKey, view);
+        return view;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (instanceId.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            return;
+        }
+        try {
+            rebuild();
+            logger.debug("收到权限变更广播，已重建权限树快照");
+        } catch (Exception ex) {
+            logger.warn("同步权限树快照失败: {}", ex.getMessage());
+        }
+    }
+
+    private void refreshAndPublish() {
+        try {
+            rebuild();
+        } catch (Exception ex) {
+            // 重建失败时丢弃旧快照，下次访问重新构建
+            current.set(null);
+            logger.error("重建权限树快照失败", ex);
+        }
+        try {
+            stringRedisTemplate.convertAndSend(PERMISSION_CHANGED_CHANNEL, instanceId);
+        } catch (Exception ex) {
+            logger.warn("广播权限变更失败: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 从数据库加载全部权限并原子替换快照
+     */
+    private synchronized Snapshot rebuild() {
+        long startTime = System.currentTimeMillis();
+        List<Permission> permissions = readOnlyTransaction.execute(status -> permissionRepository.findAll(TREE_ORDER));
+        Snapshot snapshot = new Snapshot(versionSequence.incrementAndGet(), permissions);
+        current.set(snapshot);
+        logger.info("权限树快照已更新 - 版本: {}, 权限数量: {}, 耗时: {}ms",
+                   snapshot.version, permissions.size(), System.currentTimeMillis() - startTime);
+        return snapshot;
+    }
+
+    private static boolean hasBit(long[] bits, int id) {
+        int word = id >> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0L;
+    }
+
+    /**
+     * 保留满足条件的节点（不满足的节点连同子树一起剪除），生成新的不可变视图
+     */
+    private static List<PermissionTreeNode> filter(List<PermissionTreeNode> nodes, Predicate<PermissionTreeNode> predicate) {
+        List<PermissionTreeNode> result = new ArrayList<>();
+        for (PermissionTreeNode node : nodes) {
+            if (predicate.test(node)) {
+                result.add(node.withChildren(filter(node.getChildren(), predicate)));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 由权限列表构建树（列表已按层级、排序权重、名称排序；父节点不在列表中的非根节点被丢弃）
+     */
+    private static List<PermissionTreeNode> buildTree(List<Permission> permissions) {
+        Map<Long, List<Permission>> childrenByParent = new HashMap<>();
+        List<Permission> roots = new ArrayList<>();
+        for (Permission permission : permissions) {
+            if (permission.isRoot()) {
+                roots.add(permission);
+            } else {
+                childrenByParent.computeIfAbsent(permission.getParentId(), key -> new ArrayList<>()).add(permission);
+            }
+        }
+        return buildNodes(roots, childrenByParent);
+    }
+
+    private static List<PermissionTreeNode> buildNodes(List<Permission> permissions, Map<Long, List<Permission>> childrenByParent) {
+        List<PermissionTreeNode> nodes = new ArrayList<>(permissions.size());
+        for (Permission permission : permissions) {
+            List<Permission> children = childrenByParent.getOrDefault(permission.getId(), Collections.emptyList());
+            nodes.add(new PermissionTreeNode(permission, buildNodes(children, childrenByParent)));
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * 权限树快照（构建后不再修改，菜单视图缓存随快照一起失效）
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<PermissionTreeNode> activeTree;
+        private final Map<String, List<PermissionTreeNode>> moduleTrees;
+        private final List<PermissionTreeNode> menuTree;
+        private final Map<String, List<PermissionTreeNode>> menuViews = new ConcurrentHashMap<>();
+
+        Snapshot(long version, List<Permission> permissions) {
+            this.version = version;
+
+            List<Permission> active = new ArrayList<>();
+            List<Permission> activeMenus = new ArrayList<>();
+            Map<String, List<Permission>> activeByModule = new HashMap<>();
+            for (Permission permission : permissions) {
+                if (!permission.isActive()) {
+                    continue;
+                }
+                active.add(permission);
+                if (permission.isMenu()) {
+                    activeMenus.add(permission);
+                }
+                activeByModule.computeIfAbsent(permission.getModule(), key -> new ArrayList<>()).add(permission);
+            }
+
+            this.activeTree = buildTree(active);
+            this.menuTree = buildTree(activeMenus);
+            Map<String, List<PermissionTreeNode>> modules = new HashMap<>();
+            for (Map.Entry<String, List<Permission>> entry : activeByModule.entrySet()) {
+                modules.put(entry.getKey(), buildTree(entry.getValue()));
+            }
+            this.moduleTrees = Collections.unmodifiableMap(modules);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<PermissionTreeNode> getActiveTree() {
+            return activeTree;
+        }
+
+        public List<PermissionTreeNode> getModuleTree(String module) {
+            return moduleTrees.getOrDefault(module, Collections.emptyList());
+        }
+
+        public List<PermissionTreeNode> getMenuTree() {
+            return menuTree;
+        }
+    }
+}
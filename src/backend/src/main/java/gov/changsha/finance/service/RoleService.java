@@ -6,6 +6,7 @@ import gov.changsha.finance.entity.User;
 import gov.changsha.finance.repository.PermissionRepository;
 import gov.changsha.finance.repository.RoleRepository;
 import gov.changsha.finance.repository.UserRepository;
+import gov.changsha.finance.security.AuthorityBitsetRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +43,9 @@ public class RoleService {
     @Autowired
     private AuditLogService auditLogService; // 将在后续创建
     
+    @Autowired
+    private AuthorityBitsetRegistry authorityBitsetRegistry;
+    
     /**
      * 创建角色
      */
@@ -57,6 +61,7 @@ public class RoleService {
         }
         
         Role savedRole = roleRepository.save(role);
+        authorityBitsetRegistry.updateRole(savedRole);
         
         // 记录创建角色的审计日志
         auditLogService.recordRoleCreate(savedRole);
@@ -135,6 +140,7 @@ public class RoleService {
         }
         
         roleRepository.delete(role);
+        authorityBitsetRegistry.removeRole(role.getCode());
         
         // 记录删除角色的审计日志
         auditLogService.recordRoleDelete(role);
@@ -166,6 +172,7 @@ public class RoleService {
         role.getPermissions().addAll(permissions);
         
         Role savedRole = roleRepository.save(role);
+        authorityBitsetRegistry.updateRole(savedRole);
         
         // 记录权限分配的审计日志
         Set<String> newPermissions = savedRole.getPermissionCodes();
@@ -192,6 +199,7 @@ public class RoleService {
         role.getPermissions().addAll(permissions);
         
         Role savedRole = roleRepository.save(role);
+        authorityBitsetRegistry.updateRole(savedRole);
         
         // 记录权限添加的审计日志
         Set<String> newPermissions = savedRole.getPermissionCodes();
@@ -217,6 +225,7 @@ public class RoleService {
         role.getPermissions().removeAll(permissions);
         
         Role savedRole = roleRepository.save(role);
+        authorityBitsetRegistry.updateRole(savedRole);
         
         // 记录权限移除的审计日志
         Set<String> newPermissions = savedRole.getPermissionCodes();
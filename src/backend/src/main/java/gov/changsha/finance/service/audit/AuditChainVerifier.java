@@ -0,0 +1,242 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.dto.response.AuditChainVerificationReport;
+import gov.changsha.finance.dto.response.AuditChainVerificationReport.SegmentIssue;
+import gov.changsha.finance.entity.AuditSegment;
+import gov.changsha.finance.repository.AuditSegmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 审计日志哈希链校验服务
+ * 先在段级校验封段签名和段链衔接（每段一次HMAC），再并行重算各段Merkle根与封段比对；
+ * 只有根不一致的段才逐行下钻，定位被修改、被删除的行
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Service
+public class AuditChainVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditChainVerifier.class);
+
+    private static final String SEGMENT_ROWS_SQL =
+        "SELECT " + AuditHashChain.ROW_COLUMNS + " FROM audit_logs " +
+        "WHERE chain_id = ? AND chain_seq BETWEEN ? AND ? ORDER BY chain_seq";
+
+    @Value("${system.audit.chain.verify-parallelism:4}")
+    private int parallelism;
+
+    @Value("${system.audit.verify.fetch-size:2000}")
+    private int fetchSize;
+
+    @Autowired
+    private AuditSegmentRepository segmentRepository;
+
+    @Autowired
+    private AuditLogSigner signer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ForkJoinPool verifyPool;
+    private TransactionTemplate cursorTransaction;
+
+    @PostConstruct
+    public void init() {
+        // 每个并行段占用一个数据库连接，并行度不宜超过连接池余量
+        verifyPool = new ForkJoinPool(Math.max(1, parallelism));
+        cursorTransaction = new TransactionTemplate(transactionManager);
+        cursorTransaction.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (verifyPool != null) {
+            verifyPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 校验时间段与 [startTime, endTime) 相交的全部封段
+     */
+    public AuditChainVerificationReport verifyRange(LocalDateTime startTime, LocalDateTime endTime) {
+        long start = System.currentTimeMillis();
+        AuditChainVerificationReport report = new AuditChainVerificationReport(startTime, endTime);
+        List<AuditSegment> segments = segmentRepository.findOverlapping(startTime, endTime);
+        report.setSegmentCount(segments.size());
+
+        // 段级：封段签名与段链衔接
+        AuditSegment previous = null;
+        for (AuditSegment segment : segments) {
+            boolean sameChain = previous != null && previous.getChainId().equals(segment.getChainId());
+            AuditSegment predecessor = sameChain ? previous : loadPredecessor(segment);
+            SegmentIssue sealIssue = checkSeal(segment, predecessor);
+            if (sealIssue != null) {
+                report.getIssues().add(sealIssue);
+            }
+            previous = segment;
+        }
+
+        // 行级：并行重算Merkle根，不一致时下钻
+        List<SegmentResult> results;
+        try {
+            results = verifyPool.submit(() -> segments.parallelStream().map(this::verifySegment).toList()).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("审计哈希链校验被中断", ex);
+        } catch (Exception ex) {
+            throw new IllegalStateException("审计哈希链校验失败: " + ex.getMessage(), ex);
+        }
+
+        long rows = 0;
+        for (SegmentResult result : results) {
+            rows += result.rowCount;
+            if (result.issue != null) {
+                report.getIssues().add(result.issue);
+            }
+        }
+        report.setRowCount(rows);
+        report.setElapsedMs(System.currentTimeMillis() - start);
+
+        if (report.isIntact()) {
+            logger.info("审计哈希链校验通过 - 范围: {} ~ {}, 封段: {}, 行数: {}, 耗时: {}ms",
+                        startTime, endTime, segments.size(), rows, report.getElapsedMs());
+        } else {
+            logger.warn("审计哈希链校验发现问题 - 范围: {} ~ {}, 封段: {}, 问题段: {}, 耗时: {}ms",
+                        startTime, endTime, segments.size(), report.getIssues().size(), report.getElapsedMs());
+        }
+        return report;
+    }
+
+    private AuditSegment loadPredecessor(AuditSegment segment) {
+        if (segment.getSegmentNo() <= 1) {
+            return null;
+        }
+        return segmentRepository.findByChainIdAndSegmentNo(segment.getChainId(), segment.getSegmentNo() - 1).orElse(null);
+    }
+
+    /**
+     * 校验封段签名，以及与前一段的签名、序号和行哈希衔接
+     */
+    private SegmentIssue checkSeal(AuditSegment segment, AuditSegment predecessor) {
+        if (!MessageDigest.isEqual(signer.hmacHex(segment.sealPayload()).getBytes(StandardCharsets.UTF_8),
+                segment.getSeal().getBytes(StandardCharsets.UTF_8))) {
+            return new SegmentIssue(segment.getChainId(), segment.getSegmentNo(), "SEAL_INVALID", "封段签名无效，封段记录被修改");
+        }
+        if (segment.getSegmentNo() == 1) {
+            if (segment.getPrevSeal() != null || !AuditHashChain.GENESIS_HASH.equals(segment.getFirstPrevHash())) {
+                return new SegmentIssue(segment.getChainId(), 1L, "SEGMENT_GAP", "首段未从链起点开始");
+            }
+            return null;
+        }
+        if (predecessor == null) {
+            return new SegmentIssue(segment.getChainId(), segment.getSegmentNo(), "SEGMENT_GAP",
+                "前一封段（段号" + (segment.getSegmentNo() - 1) + "）缺失");
+        }
+        if (!Objects.equals(predecessor.getSeal(), segment.getPrevSeal())
+                || predecessor.getSegmentNo() != segment.getSegmentNo() - 1
+                || predecessor.getLastSeq() + 1 != segment.getFirstSeq()
+                || !predecessor.getLastRowHash().equals(segment.getFirstPrevHash())) {
+            return new SegmentIssue(segment.getChainId(), segment.getSegmentNo(), "SEGMENT_GAP",
+                "与前一封段不衔接，封段被删除或替换");
+        }
+        return null;
+    }
+
+    /**
+     * 重算段内Merkle根；与封段一致时直接通过，否则再逐行下钻
+     */
+    private SegmentResult verifySegment(AuditSegment segment) {
+        MessageDigest digest = AuditHashChain.newDigest();
+        MerkleAccumulator merkle = new MerkleAccumulator();
+        scanSegment(segment, rs -> merkle.add(HexFormat.of().parseHex(
+            AuditHashChain.rowHash(digest, AuditHashChain.canonicalFields(rs)))));
+
+        byte[] root = merkle.root();
+        boolean rootMatches = root != null && HexFormat.of().formatHex(root).equals(segment.getMerkleRoot());
+        if (rootMatches && merkle.getLeafCount() == segment.getRowCount()) {
+            return new SegmentResult(merkle.getLeafCount(), null);
+        }
+        return new SegmentResult(merkle.getLeafCount(), drillDown(segment));
+    }
+
+    private SegmentIssue drillDown(AuditSegment segment) {
+        SegmentIssue issue = new SegmentIssue(segment.getChainId(), segment.getSegmentNo(), "ROOT_MISMATCH",
+            "段内Merkle根与封段不一致");
+        MessageDigest digest = AuditHashChain.newDigest();
+        long[] expectedSeq = {segment.getFirstSeq()};
+        String[] previousHash = {segment.getFirstPrevHash()};
+
+        scanSegment(segment, rs -> {
+            long id = rs.getLong("id");
+            long seq = rs.getLong("chain_seq");
+            String storedHash = rs.getString("row_hash");
+            String recomputed = AuditHashChain.rowHash(digest, AuditHashChain.canonicalFields(rs));
+
+            if (seq > expectedSeq[0]) {
+                issue.getMissingSeqRanges().add(range(expectedSeq[0], seq - 1));
+            }
+            if (!recomputed.equals(storedHash)) {
+                issue.getModifiedRowIds().add(id);
+            }
+            if (!Objects.equals(rs.getString("prev_hash"), previousHash[0])) {
+                issue.getBrokenLinkRowIds().add(id);
+            }
+            expectedSeq[0] = seq + 1;
+            previousHash[0] = storedHash;
+        });
+        if (expectedSeq[0] <= segment.getLastSeq()) {
+            issue.getMissingSeqRanges().add(range(expectedSeq[0], segment.getLastSeq()));
+        }
+        return issue;
+    }
+
+    private void scanSegment(AuditSegment segment, RowCallbackHandler handler) {
+        cursorTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SEGMENT_ROWS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, segment.getChainId());
+            ps.setLong(2, segment.getFirstSeq());
+            ps.setLong(3, segment.getLastSeq());
+            return ps;
+        }, handler));
+    }
+
+    private static String range(long from, long to) {
+        return from == to ? Long.toString(from) : from + "-" + to;
+    }
+
+    private static final class SegmentResult {
+        final long rowCount;
+        final SegmentIssue issue;
+
+        SegmentResult(long rowCount, SegmentIssue issue) {
+            this.rowCount = rowCount;
+            this.issue = issue;
+        }
+    }
+}
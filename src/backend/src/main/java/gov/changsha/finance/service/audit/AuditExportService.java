@@ -0,0 +1,306 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import gov.changsha.finance.dto.request.AuditLogQuery;
+import gov.changsha.finance.dto.response.AuditLogPage;
+import gov.changsha.finance.entity.AuditLog;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 审计日志导出服务
+ * 按(timestamp, id)键集逐页读取（每页一次短查询，连接和事务不跨越向客户端写出的过程），
+ * 逐行编码为CSV或NDJSON，经gzip压缩直接写入响应流，内存占用只与页大小有关。
+ * 数据之后追加一行清单：行数、数据部分（未压缩字节）的SHA-256、逐行签名校验结果，以及清单本身的HMAC
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Service
+public class AuditExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditExportService.class);
+
+    /**
+     * CSV清单行前缀；NDJSON清单为最后一行的 {"manifest": {...}}
+     */
+    public static final String CSV_MANIFEST_PREFIX = "#MANIFEST ";
+
+    private static final String[] CSV_HEADER = {
+        "id", "timestamp", "user_id", "username", "real_name", "operation", "module", "operation_desc",
+        "business_type", "business_id", "business_data", "operation_status", "result_message", "ip_address",
+        "user_agent", "request_uri", "http_method", "request_params", "duration", "exception_info", "risk_level",
+        "session_id", "signature", "chain_id", "chain_seq", "prev_hash", "row_hash"
+    };
+
+    /**
+     * 导出格式
+     */
+    public enum ExportFormat {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        ExportFormat(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    @Value("${system.audit.export.page-size:2000}")
+    private int pageSize;
+
+    @Value("${system.audit.export.max-reported-ids:1000}")
+    private int maxReportedIds;
+
+    @Autowired
+    private AuditQueryService auditQueryService;
+
+    @Autowired
+    private AuditLogSigner auditLogSigner;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter auditLogWriter;
+
+    @PostConstruct
+    public void init() {
+        auditLogWriter = objectMapper.writerFor(AuditLog.class);
+    }
+
+    /**
+     * 导出满足条件的审计日志（忽略query中的cursor和size），不关闭输出流
+     *
+     * @return 清单内容
+     */
+    public Map<String, Object> export(AuditLogQuery query, ExportFormat format, OutputStream out,
+                                      String exportedBy) throws IOException {
+        long start = System.currentTimeMillis();
+        MessageDigest sha256 = newSha256();
+        GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(out), 65536);
+        DigestOutputStream digestOut = new DigestOutputStream(gzip, sha256);
+        Writer writer = new OutputStreamWriter(digestOut, StandardCharsets.UTF_8);
+        JsonGenerator generator = null;
+
+        long rows = 0;
+        long valid = 0;
+        long unsigned = 0;
+        List<Long> invalidIds = new ArrayList<>();
+        long invalid = 0;
+
+        AuditLogQuery pageQuery = query.copy();
+        pageQuery.setCursor(null);
+        pageQuery.setSize(pageSize);
+
+        Map<String, Object> manifest;
+        try {
+            if (format == ExportFormat.CSV) {
+                writeCsvRow(writer, CSV_HEADER);
+            } else {
+                generator = objectMapper.getFactory().createGenerator(writer);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            }
+
+            AuditLogPage page;
+            do {
+                page = auditQueryService.query(pageQuery);
+                for (AuditLog auditLog : page.getRecords()) {
+                    if (auditLog.getSignature() == null) {
+                        unsigned++;
+                    } else if (auditLogSigner.verify(auditLog)) {
+                        valid++;
+                    } else {
+                        invalid++;
+                        if (invalidIds.size() < maxReportedIds) {
+                            invalidIds.add(auditLog.getId());
+                        }
+                    }
+                    if (generator != null) {
+                        auditLogWriter.writeValue(generator, auditLog);
+                        generator.writeRaw('\n');
+                    } else {
+                        writeCsvRow(writer, csvValues(auditLog));
+                    }
+                    rows++;
+                }
+                pageQuery.setCursor(page.getNextCursor());
+            } while (page.isHasMore());
+
+            if (generator != null) {
+                generator.flush();
+            }
+            writer.flush();
+            // 摘要只覆盖数据部分，清单行本身不计入
+            digestOut.on(false);
+
+            Map<String, Object> signatures = new LinkedHashMap<>();
+            signatures.put("valid", valid);
+            signatures.put("invalid", invalid);
+            signatures.put("unsigned", unsigned);
+            signatures.put("invalidIds", invalidIds);
+            signatures.put("invalidIdsTruncated", invalid > invalidIds.size());
+
+            manifest = new LinkedHashMap<>();
+            manifest.put("format", format.name());
+            manifest.put("startTime", query.getStartTime() != null ? query.getStartTime().toString() : null);
+            manifest.put("endTime", query.getEndTime() != null ? query.getEndTime().toString() : null);
+            manifest.put("rowCount", rows);
+            manifest.put("sha256", HexFormat.of().formatHex(sha256.digest()));
+            manifest.put("signatures", signatures);
+            manifest.put("exportedBy", exportedBy);
+            manifest.put("exportedAt", LocalDateTime.now().toString());
+            // 清单HMAC覆盖以上全部字段，防止清单与数据被一并替换
+            manifest.put("manifestHmac", auditLogSigner.hmacHex(objectMapper.writeValueAsString(manifest)));
+
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_MANIFEST_PREFIX);
+                writer.write(objectMapper.writeValueAsString(manifest));
+                writer.write('\n');
+            } else {
+                writer.write(objectMapper.writeValueAsString(Map.of("manifest", manifest)));
+                writer.write('\n');
+            }
+            writer.flush();
+            gzip.finish();
+            out.flush();
+        } finally {
+            closeQuietly(generator);
+            // 结束gzip并释放Deflater本地内存，底层响应流不关闭
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                logger.debug("关闭导出压缩流失败: {}", ex.getMessage());
+            }
+        }
+
+        logger.info("审计日志导出完成 - 格式: {}, 行数: {}, 签名无效: {}, 未签名: {}, 耗时: {}ms",
+                    format, rows, invalid, unsigned, System.currentTimeMillis() - start);
+        return manifest;
+    }
+
+    private static void closeQuietly(JsonGenerator generator) {
+        if (generator != null) {
+            try {
+                generator.close();
+            } catch (IOException ex) {
+                logger.debug("关闭JSON生成器失败: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private static String[] csvValues(AuditLog a) {
+        return new String[]{
+            str(a.getId()), str(a.getTimestamp()), str(a.getUserId()), a.getUsername(), a.getRealName(),
+            str(a.getOperation()), a.getModule(), a.getOperationDesc(), a.getBusinessType(), a.getBusinessId(),
+            a.getBusinessData(), str(a.getOperationStatus()), a.getResultMessage(), a.getIpAddress(),
+            a.getUserAgent(), a.getRequestUri(), a.getHttpMethod(), a.getRequestParams(), str(a.getDuration()),
+            a.getExceptionInfo(), str(a.getRiskLevel()), a.getSessionId(), a.getSignature(), a.getChainId(),
+            str(a.getChainSeq()), a.getPrevHash(), a.getRowHash()
+        };
+    }
+
+    private static void writeCsvRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(writer, values[i]);
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * RFC 4180转义；以公式字符开头的值加单引号前缀，防止在电子表格中被执行
+     */
+    static void writeCsvValue(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        char first = value.charAt(0);
+        boolean formula = first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+        boolean quote = formula || first == '#';
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static String str(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof Enum<?> ? ((Enum<?>) value).name() : value.toString();
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256不可用", ex);
+        }
+    }
+
+    /**
+     * gzip结束时不关闭底层响应流，由容器负责
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
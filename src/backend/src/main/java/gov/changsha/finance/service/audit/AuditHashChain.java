@@ -0,0 +1,392 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.entity.AuditLog;
+import gov.changsha.finance.entity.AuditSegment;
+import gov.changsha.finance.repository.AuditSegmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 审计日志哈希链
+ * 每个写入实例（进程）维护一条独立的链：行在写库前依次分配链内序号，行哈希覆盖前一行哈希和本行内容，
+ * 删除或修改任一行都会破坏链接；按时间段封段，记录段内行范围与Merkle根，封段签名再串成段级链。
+ * 多实例并发写入互不协调；实例宕机未封的链尾由其它实例按库内数据补封
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class AuditHashChain {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditHashChain.class);
+
+    public static final String GENESIS_HASH = "0".repeat(64);
+
+    /**
+     * 参与行哈希计算的列（与{@link #canonicalFields(AuditLog)}顺序一致），前5列为id和链字段
+     */
+    public static final String ROW_COLUMNS =
+        "id, chain_id, chain_seq, prev_hash, row_hash, user_id, username, operation, module, operation_desc, " +
+        "business_type, business_id, operation_status, result_message, timestamp, ip_address, risk_level, signature";
+
+    private static final String ORPHAN_CHAINS_SQL =
+        "SELECT chain_id, MAX(chain_seq) AS last_seq, MAX(timestamp) AS last_time FROM audit_logs " +
+        "WHERE timestamp >= ? AND chain_id IS NOT NULL AND chain_id <> ? GROUP BY chain_id";
+
+    private static final String CHAIN_ROWS_SQL =
+        "SELECT " + ROW_COLUMNS + " FROM audit_logs WHERE chain_id = ? AND chain_seq > ? ORDER BY chain_seq";
+
+    @Value("${system.audit.chain.segment-minutes:60}")
+    private int segmentMinutes;
+
+    @Value("${system.audit.chain.orphan-seal-after-minutes:120}")
+    private int orphanSealAfterMinutes;
+
+    @Autowired
+    private AuditLogSigner signer;
+
+    @Autowired
+    private AuditSegmentRepository segmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String chainId = instanceName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private final MessageDigest rowDigest = newDigest();
+
+    private long nextSeq = 1L;
+    private String lastRowHash = GENESIS_HASH;
+    private long nextSegmentNo = 1L;
+    private String lastSeal;
+    private OpenSegment open;
+
+    private final ConcurrentLinkedQueue<AuditSegment> pendingSeals = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService sealTicker;
+
+    @PostConstruct
+    public void start() {
+        sealTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AuditChain-Sealer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sealTicker.scheduleWithFixedDelay(this::sealTick, 1, 1, TimeUnit.MINUTES);
+        sealTicker.scheduleWithFixedDelay(this::sealOrphanChains, 5, 60, TimeUnit.MINUTES);
+        logger.info("审计哈希链启动 - 链ID: {}, 封段周期: {}分钟", chainId, segmentMinutes);
+    }
+
+    public String getChainId() {
+        return chainId;
+    }
+
+    /**
+     * 为一批待写库的审计日志分配链字段（已分配过的行跳过，例如溢出文件回放的行）
+     */
+    public synchronized void link(List<AuditLog> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        rollIfDue(now);
+        for (AuditLog auditLog : batch) {
+            if (auditLog.getChainId() != null) {
+                continue;
+            }
+            if (open == null) {
+                open = new OpenSegment(periodStart(now), nextSeq, lastRowHash);
+            }
+            auditLog.setChainId(chainId);
+            auditLog.setChainSeq(nextSeq);
+            auditLog.setPrevHash(lastRowHash);
+            String rowHash = rowHash(rowDigest, canonicalFields(auditLog));
+            auditLog.setRowHash(rowHash);
+
+            open.add(nextSeq, rowHash);
+            lastRowHash = rowHash;
+            nextSeq++;
+        }
+    }
+
+    /**
+     * 封存当前未封的段（停机时调用）
+     */
+    public synchronized void sealOpenSegment() {
+        if (open != null) {
+            seal(open, LocalDateTime.now());
+            open = null;
+        }
+    }
+
+    /**
+     * 写出待持久化的封段；失败的封段保留在队列中下次重试
+     */
+    public void persistPendingSeals() {
+        AuditSegment segment;
+        while ((segment = pendingSeals.peek()) != null) {
+            try {
+                segmentRepository.save(segment);
+                pendingSeals.poll();
+                logger.debug("审计封段已保存 - {}", segment);
+            } catch (DataIntegrityViolationException ex) {
+                // 段号已被补封占用（本实例长时间无法写库时），放弃本段，由补封记录覆盖
+                pendingSeals.poll();
+                logger.error("审计封段段号冲突，已被补封 - {}", segment);
+            } catch (Exception ex) {
+                logger.warn("保存审计封段失败，稍后重试 - {}, 错误: {}", segment, ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void sealTick() {
+        try {
+            synchronized (this) {
+                rollIfDue(LocalDateTime.now());
+            }
+            persistPendingSeals();
+        } catch (Exception ex) {
+            logger.error("审计哈希链封段任务异常", ex);
+        }
+    }
+
+    private void rollIfDue(LocalDateTime now) {
+        if (open != null && !now.isBefore(open.periodStart.plusMinutes(segmentMinutes))) {
+            seal(open, open.periodStart.plusMinutes(segmentMinutes));
+            open = null;
+        }
+    }
+
+    private void seal(OpenSegment segment, LocalDateTime periodEnd) {
+        AuditSegment sealed = segment.toSegment(chainId, nextSegmentNo++, periodEnd, lastSeal, AuditSegment.SealedBy.WRITER);
+        sealed.setSeal(signer.hmacHex(sealed.sealPayload()));
+        lastSeal = sealed.getSeal();
+        pendingSeals.offer(sealed);
+        logger.info("审计哈希链封段 - 链: {}, 段号: {}, 序号: {}~{}, 行数: {}",
+                    chainId, sealed.getSegmentNo(), sealed.getFirstSeq(), sealed.getLastSeq(), sealed.getRowCount());
+    }
+
+    /**
+     * 补封宕机实例遗留的未封链尾：链最后一行早于阈值且最大序号超出已封范围时，按库内数据重算封段
+     */
+    public void sealOrphanChains() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime quietSince = now.minusMinutes(orphanSealAfterMinutes);
+            List<Map<String, Object>> chains = jdbcTemplate.queryForList(ORPHAN_CHAINS_SQL,
+                Timestamp.valueOf(now.minusDays(7)), chainId);
+            for (Map<String, Object> chain : chains) {
+                String orphanChainId = (String) chain.get("chain_id");
+                long lastSeq = ((Number) chain.get("last_seq")).longValue();
+                LocalDateTime lastTime = ((Timestamp) chain.get("last_time")).toLocalDateTime();
+                if (lastTime.isAfter(quietSince)) {
+                    continue;
+                }
+                AuditSegment previous = segmentRepository.findTopByChainIdOrderBySegmentNoDesc(orphanChainId).orElse(null);
+                long sealedSeq = previous != null ? previous.getLastSeq() : 0L;
+                if (lastSeq > sealedSeq) {
+                    sealFromDatabase(orphanChainId, previous, lastTime);
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("补封遗留审计哈希链失败", ex);
+        }
+    }
+
+    private void sealFromDatabase(String orphanChainId, AuditSegment previous, LocalDateTime lastTime) {
+        long afterSeq = previous != null ? previous.getLastSeq() : 0L;
+        MessageDigest digest = newDigest();
+        OpenSegment[] holder = new OpenSegment[1];
+        jdbcTemplate.query(CHAIN_ROWS_SQL, rs -> {
+            String rowHash = rowHash(digest, canonicalFields(rs));
+            if (holder[0] == null) {
+                LocalDateTime start = rs.getTimestamp("timestamp").toLocalDateTime();
+                holder[0] = new OpenSegment(start.truncatedTo(ChronoUnit.MINUTES), rs.getLong("chain_seq"),
+                    rs.getString("prev_hash"));
+            }
+            holder[0].add(rs.getLong("chain_seq"), rowHash);
+        }, orphanChainId, afterSeq);
+        if (holder[0] == null) {
+            return;
+        }
+
+        long segmentNo = previous != null ? previous.getSegmentNo() + 1 : 1L;
+        AuditSegment sealed = holder[0].toSegment(orphanChainId, segmentNo, lastTime.plusSeconds(1),
+            previous != null ? previous.getSeal() : null, AuditSegment.SealedBy.RECOVERY);
+        sealed.setSeal(signer.hmacHex(sealed.sealPayload()));
+        try {
+            segmentRepository.save(sealed);
+            logger.warn("已补封遗留审计哈希链 - {}", sealed);
+        } catch (DataIntegrityViolationException ex) {
+            // 其它实例已补封
+            logger.debug("遗留审计哈希链已由其它实例补封 - 链: {}, 段号: {}", orphanChainId, segmentNo);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sealTicker != null) {
+            sealTicker.shutdown();
+        }
+        sealOpenSegment();
+        persistPendingSeals();
+        if (!pendingSeals.isEmpty()) {
+            logger.warn("停机时仍有{}个审计封段未保存，将由其它实例补封", pendingSeals.size());
+        }
+    }
+
+    private LocalDateTime periodStart(LocalDateTime time) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        long minutes = Duration.between(hour, time).toMinutes();
+        return segmentMinutes >= 60 ? hour : hour.plusMinutes(minutes - minutes % segmentMinutes);
+    }
+
+    /**
+     * 审计日志实体的行哈希规范字段
+     */
+    public static String[] canonicalFields(AuditLog auditLog) {
+        return new String[]{
+            auditLog.getChainId(),
+            auditLog.getChainSeq() != null ? auditLog.getChainSeq().toString() : null,
+            auditLog.getPrevHash(),
+            auditLog.getUserId() != null ? auditLog.getUserId().toString() : null,
+            auditLog.getUsername(),
+            auditLog.getOperation() != null ? auditLog.getOperation().name() : null,
+            auditLog.getModule(),
+            auditLog.getOperationDesc(),
+            auditLog.getBusinessType(),
+            auditLog.getBusinessId(),
+            auditLog.getOperationStatus() != null ? auditLog.getOperationStatus().name() : null,
+            auditLog.getResultMessage(),
+            auditLog.getTimestamp() != null ? auditLog.getTimestamp().toString() : null,
+            auditLog.getIpAddress(),
+            auditLog.getRiskLevel() != null ? auditLog.getRiskLevel().name() : null,
+            auditLog.getSignature()
+        };
+    }
+
+    /**
+     * 按{@link #ROW_COLUMNS}读取的数据库行的行哈希规范字段
+     */
+    public static String[] canonicalFields(ResultSet rs) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        long userId = rs.getLong("user_id");
+        boolean userIdNull = rs.wasNull();
+        return new String[]{
+            rs.getString("chain_id"),
+            rs.getString("chain_seq"),
+            rs.getString("prev_hash"),
+            userIdNull ? null : Long.toString(userId),
+            rs.getString("username"),
+            rs.getString("operation"),
+            rs.getString("module"),
+            rs.getString("operation_desc"),
+            rs.getString("business_type"),
+            rs.getString("business_id"),
+            rs.getString("operation_status"),
+            rs.getString("result_message"),
+            timestamp != null ? timestamp.toLocalDateTime().toString() : null,
+            rs.getString("ip_address"),
+            rs.getString("risk_level"),
+            rs.getString("signature")
+        };
+    }
+
+    /**
+     * 行哈希：SHA-256(字段1 0x1F 字段2 0x1F ...)，null字段写为0x00
+     */
+    public static String rowHash(MessageDigest digest, String[] fields) {
+        digest.reset();
+        for (String field : fields) {
+            if (field == null) {
+                digest.update((byte) 0x00);
+            } else {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0x1F);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256不可用", ex);
+        }
+    }
+
+    private static String instanceName() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > 40 ? host.substring(0, 40) : host;
+        } catch (Exception ex) {
+            return "instance";
+        }
+    }
+
+    /**
+     * 尚未封存的段
+     */
+    static final class OpenSegment {
+        final LocalDateTime periodStart;
+        final long firstSeq;
+        final String firstPrevHash;
+        final MerkleAccumulator merkle = new MerkleAccumulator();
+        long lastSeq;
+        String lastRowHash;
+
+        OpenSegment(LocalDateTime periodStart, long firstSeq, String firstPrevHash) {
+            this.periodStart = periodStart;
+            this.firstSeq = firstSeq;
+            this.firstPrevHash = firstPrevHash;
+        }
+
+        void add(long seq, String rowHash) {
+            merkle.add(HexFormat.of().parseHex(rowHash));
+            lastSeq = seq;
+            lastRowHash = rowHash;
+        }
+
+        AuditSegment toSegment(String chainId, long segmentNo, LocalDateTime periodEnd, String prevSeal,
+                               AuditSegment.SealedBy sealedBy) {
+            AuditSegment segment = new AuditSegment();
+            segment.setChainId(chainId);
+            segment.setSegmentNo(segmentNo);
+            segment.setPeriodStart(periodStart);
+            segment.setPeriodEnd(periodEnd);
+            segment.setFirstSeq(firstSeq);
+            segment.setLastSeq(lastSeq);
+            segment.setRowCount(merkle.getLeafCount());
+            segment.setFirstPrevHash(firstPrevHash);
+            segment.setLastRowHash(lastRowHash);
+            segment.setMerkleRoot(HexFormat.of().formatHex(merkle.root()));
+            segment.setPrevSeal(prevSeal);
+            segment.setSealedBy(sealedBy);
+            return segment;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.entity.AuditLog;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * 审计日志HMAC签名器
+ * 每个线程持有一个已初始化的Mac实例重复使用（Mac非线程安全，doFinal后自动复位），
+ * 避免每行日志都执行Mac.getInstance和init；签名内容与历史数据保持一致
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class AuditLogSigner {
+
+    static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+
+    @Value("${system.audit.signature-key:manday-assess-audit-signature-key-2025}")
+    private String signatureKey;
+
+    private SecretKeySpec secretKey;
+
+    private final ThreadLocal<Mac> threadMac = ThreadLocal.withInitial(this::newMac);
+
+    public AuditLogSigner() {
+    }
+
+    /**
+     * 供非Spring环境（测试、离线校验工具）直接指定密钥
+     */
+    public AuditLogSigner(String signatureKey) {
+        this.signatureKey = signatureKey;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        secretKey = new SecretKeySpec(signatureKey.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM);
+    }
+
+    /**
+     * 计算审计日志签名（Base64）
+     */
+    public String sign(AuditLog auditLog) {
+        return Base64.getEncoder().encodeToString(digest(auditLog.getUsername(), auditLog.getOperation(),
+            auditLog.getModule(), auditLog.getOperationDesc(), auditLog.getTimestamp(), auditLog.getIpAddress()));
+    }
+
+    /**
+     * 校验审计日志签名
+     */
+    public boolean verify(AuditLog auditLog) {
+        return verify(auditLog.getUsername(), auditLog.getOperation(), auditLog.getModule(),
+            auditLog.getOperationDesc(), auditLog.getTimestamp(), auditLog.getIpAddress(), auditLog.getSignature());
+    }
+
+    /**
+     * 按原始列值校验签名（批量校验直接读取数据库列，无需构造实体），使用常量时间比较
+     */
+    public boolean verify(Object username, Object operation, Object module, Object operationDesc,
+                          LocalDateTime timestamp, Object ipAddress, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        byte[] actual;
+        try {
+            actual = Base64.getDecoder().decode(signature);
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        return MessageDigest.isEqual(digest(username, operation, module, operationDesc, timestamp, ipAddress), actual);
+    }
+
+    /**
+     * 对任意内容计算HMAC（十六进制），用于封段签名
+     */
+    public String hmacHex(String payload) {
+        return HexFormat.of().formatHex(threadMac.get().doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private byte[] digest(Object username, Object operation, Object module, Object operationDesc,
+                          LocalDateTime timestamp, Object ipAddress) {
+        // 与历史签名格式一致："%s:%s:%s:%s:%s:%s"（null按"null"拼接）
+        String data = new StringBuilder(160)
+            .append(username).append(':')
+            .append(operation).append(':')
+            .append(module).append(':')
+            .append(operationDesc).append(':')
+            .append(timestamp).append(':')
+            .append(ipAddress)
+            .toString();
+        return threadMac.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("初始化审计日志签名器失败", ex);
+        }
+    }
+}
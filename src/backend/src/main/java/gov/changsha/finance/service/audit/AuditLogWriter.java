@@ -0,0 +1,374 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.changsha.finance.entity.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 审计日志异步批量写入器
+ * 业务线程只把已签名的审计日志放入有界环形队列，由专用写线程按批量大小或刷新间隔
+ * 以JDBC批量插入落库并累加小时统计汇总；队列满时按配置的背压策略处理，写库失败和停机剩余数据fsync溢出到本地文件，
+ * 数据库恢复后自动回放
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class AuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    /**
+     * business_data为JSON列（PostgreSQL为jsonb），%s处填入按数据库方言的JSON参数表达式
+     */
+    private static final String INSERT_SQL_TEMPLATE =
+        "INSERT INTO audit_logs (user_id, username, real_name, operation, module, operation_desc, " +
+        "business_type, business_id, business_data, operation_status, result_message, timestamp, " +
+        "ip_address, user_agent, request_uri, http_method, request_params, duration, exception_info, " +
+        "risk_level, session_id, signature, chain_id, chain_seq, prev_hash, row_hash) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, %s, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {
+        Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP,
+        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR,
+        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.VARCHAR
+    };
+
+    /**
+     * 队列满时的背压策略
+     */
+    public enum BackpressurePolicy {
+        /** 阻塞调用线程直至有空位，超过等待时间后溢出到磁盘 */
+        BLOCK,
+        /** 直接fsync溢出到磁盘，调用线程不等待数据库 */
+        SPILL,
+        /** 在调用线程同步写库 */
+        CALLER_RUNS,
+        /** 丢弃并计数（仅用于压测环境） */
+        DROP
+    }
+
+    @Value("${system.audit.writer.capacity:8192}")
+    private int capacity;
+
+    @Value("${system.audit.writer.flush-size:500}")
+    private int flushSize;
+
+    @Value("${system.audit.writer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${system.audit.writer.backpressure:SPILL}")
+    private BackpressurePolicy backpressurePolicy;
+
+    @Value("${system.audit.writer.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+
+    @Value("${system.audit.writer.spill-dir:${java.io.tmpdir}/manday-assess/audit-spill}")
+    private String spillDir;
+
+    @Value("${system.audit.writer.replay-interval-ms:30000}")
+    private long replayIntervalMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AuditHashChain hashChain;
+
+    @Autowired
+    private AuditStatisticsRollup statisticsRollup;
+
+    private volatile String insertSql;
+    private ArrayBlockingQueue<AuditLog> ringBuffer;
+    private AuditSpillFile spillFile;
+    private Thread writerThread;
+    private volatile boolean running = false;
+    private long lastReplayAt = 0L;
+
+    private Timer flushTimer;
+    private Counter writtenCounter;
+    private Counter spilledCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void start() {
+        ringBuffer = new ArrayBlockingQueue<>(capacity);
+        spillFile = new AuditSpillFile(Paths.get(spillDir), objectMapper);
+
+        Gauge.builder("audit.writer.queue.depth", ringBuffer, ArrayBlockingQueue::size)
+            .description("审计日志写入队列当前深度")
+            .register(meterRegistry);
+        Gauge.builder("audit.writer.queue.capacity", ringBuffer, q -> q.size() + q.remainingCapacity())
+            .register(meterRegistry);
+        flushTimer = Timer.builder("audit.writer.flush.latency")
+            .description("审计日志批量写库耗时")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        writtenCounter = Counter.builder("audit.writer.written").register(meterRegistry);
+        spilledCounter = Counter.builder("audit.writer.spilled").register(meterRegistry);
+        droppedCounter = Counter.builder("audit.writer.dropped").register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::drainLoop, "AuditLog-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("审计日志写入器启动 - 队列容量: {}, 批量大小: {}, 刷新间隔: {}ms, 背压策略: {}, 溢出目录: {}",
+                    capacity, flushSize, flushIntervalMs, backpressurePolicy, spillDir);
+    }
+
+    /**
+     * 提交一条已签名的审计日志（不访问数据库，除非背压策略为CALLER_RUNS且队列已满）
+     */
+    public void submit(AuditLog auditLog) {
+        if (!running) {
+            // 写入器已关闭（停机阶段）时直接落盘，下次启动回放
+            spill(List.of(auditLog));
+            return;
+        }
+        if (ringBuffer.offer(auditLog)) {
+            return;
+        }
+
+        switch (backpressurePolicy) {
+            case BLOCK:
+                try {
+                    if (ringBuffer.offer(auditLog, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                spill(List.of(auditLog));
+                break;
+            case CALLER_RUNS:
+                List<AuditLog> single = List.of(auditLog);
+                if (!writeBatch(single)) {
+                    spill(single);
+                }
+                break;
+            case DROP:
+                droppedCounter.increment();
+                logger.warn("审计日志队列已满，丢弃审计日志 - 操作: {}, 用户: {}",
+                            auditLog.getOperation(), auditLog.getUsername());
+                break;
+            case SPILL:
+            default:
+                spill(List.of(auditLog));
+                break;
+        }
+    }
+
+    /**
+     * 当前队列深度
+     */
+    public int getQueueDepth() {
+        return ringBuffer == null ? 0 : ringBuffer.size();
+    }
+
+    /**
+     * 写线程主循环：凑满一批或到达刷新间隔即写库
+     */
+    private void drainLoop() {
+        List<AuditLog> batch = new ArrayList<>(flushSize);
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (running || !ringBuffer.isEmpty()) {
+            try {
+                long deadline = System.nanoTime() + intervalNanos;
+                while (batch.size() < flushSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    AuditLog next = ringBuffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    ringBuffer.drainTo(batch, flushSize - batch.size());
+                }
+                if (!batch.isEmpty()) {
+                    flushBatch(batch);
+                    batch = new ArrayList<>(flushSize);
+                }
+                replaySpillIfDue();
+            } catch (InterruptedException ex) {
+                if (!running) {
+                    break;
+                }
+            } catch (Exception ex) {
+                logger.error("审计日志写线程异常", ex);
+            }
+        }
+        if (!batch.isEmpty()) {
+            spill(batch);
+        }
+    }
+
+    private void flushBatch(List<AuditLog> batch) {
+        if (!writeBatch(batch)) {
+            spill(batch);
+        }
+    }
+
+    /**
+     * 以JDBC批量插入写入一批审计日志
+     *
+     * @return 是否写入成功
+     */
+    boolean writeBatch(List<AuditLog> batch) {
+        long start = System.nanoTime();
+        try {
+            // 入链后即使写库失败转存溢出文件，回放时也保持原链字段
+            hashChain.link(batch);
+            List<Object[]> batchArgs = new ArrayList<>(batch.size());
+            for (AuditLog auditLog : batch) {
+                batchArgs.add(toRow(auditLog));
+            }
+            jdbcTemplate.batchUpdate(insertSql(), batchArgs, INSERT_TYPES);
+            writtenCounter.increment(batch.size());
+            // 汇总累加失败不影响日志落库，由定期对账修正
+            statisticsRollup.increment(batch);
+            return true;
+        } catch (Exception ex) {
+            logger.error("批量写入审计日志失败，转存本地溢出文件 - 数量: {}, 错误: {}", batch.size(), ex.getMessage());
+            return false;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String insertSql() {
+        if (insertSql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+            // PostgreSQL不会把varchar参数隐式转换为jsonb；H2需FORMAT JSON才按JSON解析而非存为JSON字符串
+            insertSql = String.format(INSERT_SQL_TEMPLATE,
+                                      "PostgreSQL".equalsIgnoreCase(product) ? "CAST(? AS jsonb)" : "? FORMAT JSON");
+        }
+        return insertSql;
+    }
+
+    private void spill(List<AuditLog> auditLogs) {
+        try {
+            spillFile.append(auditLogs);
+            spilledCounter.increment(auditLogs.size());
+        } catch (Exception ex) {
+            // 本地磁盘也不可用时只能记录到应用日志，保证审计内容至少可追溯
+            logger.error("审计日志溢出到磁盘失败，丢失{}条审计日志: {}", auditLogs.size(), auditLogs, ex);
+            droppedCounter.increment(auditLogs.size());
+        }
+    }
+
+    /**
+     * 队列空闲且距上次回放超过间隔时，回放溢出文件
+     */
+    private void replaySpillIfDue() {
+        long now = System.currentTimeMillis();
+        if (!ringBuffer.isEmpty() || now - lastReplayAt < replayIntervalMs) {
+            return;
+        }
+        lastReplayAt = now;
+        replaySpill();
+    }
+
+    private void replaySpill() {
+        try {
+            if (!spillFile.hasPending()) {
+                return;
+            }
+            int replayed = spillFile.replay(flushSize, batch -> {
+                if (!writeBatch(batch)) {
+                    throw new IllegalStateException("数据库不可用，暂停回放");
+                }
+            });
+            if (replayed > 0) {
+                logger.info("审计溢出日志回放完成 - 条数: {}", replayed);
+            }
+        } catch (Exception ex) {
+            logger.warn("审计溢出日志回放中断，稍后重试: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * 停机时停止写线程，等待其写完队列；仍未写出的数据fsync溢出到磁盘
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(10_000L);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (writerThread.isAlive()) {
+                writerThread.interrupt();
+            }
+        }
+
+        List<AuditLog> remaining = new ArrayList<>();
+        ringBuffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+        }
+        logger.info("审计日志写入器已关闭，溢出到磁盘: {}条", remaining.size());
+    }
+
+    private static Object[] toRow(AuditLog auditLog) {
+        return new Object[]{
+            auditLog.getUserId(),
+            auditLog.getUsername(),
+            auditLog.getRealName(),
+            auditLog.getOperation() != null ? auditLog.getOperation().name() : null,
+            auditLog.getModule(),
+            auditLog.getOperationDesc(),
+            auditLog.getBusinessType(),
+            auditLog.getBusinessId(),
+            auditLog.getBusinessData(),
+            auditLog.getOperationStatus() != null ? auditLog.getOperationStatus().name() : AuditLog.OperationStatus.SUCCESS.name(),
+            auditLog.getResultMessage(),
+            auditLog.getTimestamp() != null ? Timestamp.valueOf(auditLog.getTimestamp()) : null,
+            auditLog.getIpAddress(),
+            auditLog.getUserAgent(),
+            auditLog.getRequestUri(),
+            auditLog.getHttpMethod(),
+            auditLog.getRequestParams(),
+            auditLog.getDuration(),
+            auditLog.getExceptionInfo(),
+            auditLog.getRiskLevel() != null ? auditLog.getRiskLevel().name() : null,
+            auditLog.getSessionId(),
+            auditLog.getSignature(),
+            auditLog.getChainId(),
+            auditLog.getChainSeq(),
+            auditLog.getPrevHash(),
+            auditLog.getRowHash()
+        };
+    }
+}
@@ -0,0 +1,217 @@
+package gov.changsha.finance.service.audit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 审计日志分区管理
+ * audit_logs为按timestamp月度范围分区的PostgreSQL分区表（V21）：启动时和每日预建未来若干月的分区，
+ * 保留期清理时整块分离并删除过期分区，只对跨越截止时间的那个分区执行按行删除。
+ * 非分区表（如H2开发环境）退回按行删除
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class AuditPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+
+    private static final String PARENT_TABLE = "audit_logs";
+    private static final String DEFAULT_PARTITION = "audit_logs_default";
+    private static final Pattern PARTITION_NAME = Pattern.compile("audit_logs_y(\\d{4})m(\\d{2})");
+
+    private static final String IS_PARTITIONED_SQL =
+        "SELECT COUNT(*) FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid " +
+        "WHERE c.relname = ? AND pg_table_is_visible(c.oid)";
+
+    private static final String LIST_PARTITIONS_SQL =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+        "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = ? AND pg_table_is_visible(p.oid) ORDER BY c.relname";
+
+    /**
+     * 封段的时间段按写入时间划分，段内行的timestamp可能晚于period_end（如写后队列补记的登录时间），
+     * 因此只删除所封的行已全部不存在的封段
+     */
+    private static final String DELETE_EXPIRED_SEGMENTS_SQL =
+        "DELETE FROM audit_segments s WHERE s.period_end <= ? AND NOT EXISTS (SELECT 1 FROM " + PARENT_TABLE +
+        " l WHERE l.chain_id = s.chain_id AND l.chain_seq BETWEEN s.first_seq AND s.last_seq)";
+
+    @Value("${system.audit.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${system.audit.partition.retention-months:0}")
+    private int retentionMonths;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private volatile Boolean partitioned;
+    private ScheduledExecutorService maintenanceTicker;
+
+    @PostConstruct
+    public void start() {
+        maintenanceTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AuditPartition-Maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenanceTicker.scheduleWithFixedDelay(this::maintain, 0, 1, TimeUnit.DAYS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (maintenanceTicker != null) {
+            maintenanceTicker.shutdownNow();
+        }
+    }
+
+    /**
+     * 每日维护：预建分区，并按配置的保留月数清理（retention-months为0时不自动清理）
+     */
+    void maintain() {
+        try {
+            if (!isPartitioned()) {
+                return;
+            }
+            ensureFuturePartitions();
+            if (retentionMonths > 0) {
+                LocalDateTime cutoff = YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+                dropPartitionsBefore(cutoff);
+            }
+        } catch (Exception ex) {
+            logger.error("审计日志分区维护失败", ex);
+        }
+    }
+
+    /**
+     * audit_logs是否为分区表
+     */
+    public boolean isPartitioned() {
+        if (partitioned == null) {
+            try {
+                Integer count = jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class, PARENT_TABLE);
+                partitioned = count != null && count > 0;
+            } catch (Exception ex) {
+                // 非PostgreSQL（无pg_partitioned_table）
+                partitioned = false;
+            }
+            logger.info("审计日志表分区模式: {}", partitioned ? "按月范围分区" : "未分区");
+        }
+        return partitioned;
+    }
+
+    /**
+     * 预建当前月至未来monthsAhead个月的分区
+     */
+    public void ensureFuturePartitions() {
+        List<String> existing = listPartitions();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (!existing.contains(name)) {
+                createPartition(month, name);
+            }
+        }
+    }
+
+    /**
+     * 建立一个月的分区；兜底分区中已有落入该月的行时先迁出，再挂载为分区
+     */
+    private void createPartition(YearMonth month, String name) {
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String bounds = partitionBounds(month);
+
+        Integer stray = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?", Integer.class, from, to);
+        if (stray == null || stray == 0) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + PARENT_TABLE + " FOR VALUES " + bounds);
+            logger.info("已创建审计日志分区 {}", name);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + PARENT_TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM " + DEFAULT_PARTITION +
+                " WHERE timestamp >= ? AND timestamp < ?", from, to);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?", from, to);
+            jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " ATTACH PARTITION " + name + " FOR VALUES " + bounds);
+        });
+        logger.warn("已创建审计日志分区 {}，并从兜底分区迁入{}行", name, stray);
+    }
+
+    /**
+     * 删除早于截止时间的审计日志：整月早于截止时间的分区分离后删除，截止时间所在分区按行删除
+     *
+     * @return 删除的分区数
+     */
+    public int dropPartitionsBefore(LocalDateTime cutoff) {
+        int dropped = 0;
+        for (String name : listPartitions()) {
+            if (isExpired(name, cutoff)) {
+                jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + name);
+                jdbcTemplate.execute("DROP TABLE " + name);
+                dropped++;
+                logger.info("已分离并删除过期审计日志分区 {}", name);
+            }
+        }
+
+        // 截止时间不在月初时，仅对其所在分区（及兜底分区）按行删除，分区裁剪保证不扫描其它月份
+        int rows = jdbcTemplate.update("DELETE FROM " + PARENT_TABLE + " WHERE timestamp < ?", Timestamp.valueOf(cutoff));
+        // 所封的行已全部删除的封段失去校验意义，一并清理；跨越截止时间、仍有行存在的封段保留
+        int segments = jdbcTemplate.update(DELETE_EXPIRED_SEGMENTS_SQL, Timestamp.valueOf(cutoff));
+        logger.info("审计日志保留期清理完成 - 截止: {}, 删除分区: {}, 按行删除: {}, 删除封段: {}", cutoff, dropped, rows, segments);
+        return dropped;
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class, PARENT_TABLE);
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("audit_logs_y%04dm%02d", month.getYear(), month.getMonthValue());
+    }
+
+    /**
+     * 月度分区的范围：含当月1日零点，不含次月1日零点
+     */
+    static String partitionBounds(YearMonth month) {
+        return String.format("FROM ('%s') TO ('%s')",
+            Timestamp.valueOf(month.atDay(1).atStartOfDay()), Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+    }
+
+    /**
+     * 分区的整月都早于截止时间时可整块删除；兜底分区及其它非月度分区不删除
+     */
+    static boolean isExpired(String partition, LocalDateTime cutoff) {
+        Matcher matcher = PARTITION_NAME.matcher(partition);
+        if (!matcher.matches()) {
+            return false;
+        }
+        YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        return !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff);
+    }
+}
@@ -0,0 +1,40 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 审计业务数据序列化器
+ * 每个载荷类型只构造一次ObjectWriter（序列化器在首次使用时解析并缓存），
+ * 避免逐条事件按HashMap动态解析值类型
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class AuditPayloadWriter {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ClassValue<ObjectWriter> writers = new ClassValue<>() {
+        @Override
+        protected ObjectWriter computeValue(Class<?> type) {
+            return objectMapper.writerFor(type);
+        }
+    };
+
+    /**
+     * 序列化为JSON文本；payload为null时返回null
+     */
+    public String write(Object payload) throws JsonProcessingException {
+        if (payload == null) {
+            return null;
+        }
+        return writers.get(payload.getClass()).writeValueAsString(payload);
+    }
+}
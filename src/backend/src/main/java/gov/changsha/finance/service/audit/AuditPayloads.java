@@ -0,0 +1,109 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import gov.changsha.finance.entity.Permission;
+import gov.changsha.finance.entity.Role;
+import gov.changsha.finance.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * 审计日志业务数据（business_data）载荷类型
+ * 字段名与原HashMap载荷保持一致，历史数据与新数据可按相同JSON路径检索（如 targetUser.id）；
+ * 由 {@link AuditPayloadWriter} 按类型缓存的ObjectWriter序列化
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public final class AuditPayloads {
+
+    private AuditPayloads() {
+    }
+
+    /**
+     * 脱敏的用户信息（不含密码等敏感字段，邮箱脱敏）
+     */
+    public record UserInfo(Long id, String username, String realName, String email, String employeeId,
+                           String department, String position, User.AccountStatus accountStatus) {
+
+        public static UserInfo of(User user) {
+            return new UserInfo(user.getId(), user.getUsername(), user.getRealName(), maskEmail(user.getEmail()),
+                                user.getEmployeeId(), user.getDepartment(), user.getPosition(), user.getAccountStatus());
+        }
+    }
+
+    public record RoleInfo(Long id, String name, String code, String description,
+                           Role.RoleType roleType, Role.RoleStatus status) {
+
+        public static RoleInfo of(Role role) {
+            return new RoleInfo(role.getId(), role.getName(), role.getCode(), role.getDescription(),
+                                role.getRoleType(), role.getStatus());
+        }
+    }
+
+    public record PermissionInfo(Long id, String code, String name, String description,
+                                 Permission.PermissionType permissionType, String module, String resourcePath,
+                                 String httpMethod, Permission.PermissionStatus status) {
+
+        public static PermissionInfo of(Permission permission) {
+            return new PermissionInfo(permission.getId(), permission.getCode(), permission.getName(),
+                                      permission.getDescription(), permission.getPermissionType(),
+                                      permission.getModule(), permission.getResourcePath(),
+                                      permission.getHttpMethod(), permission.getStatus());
+        }
+    }
+
+    public record Login(LocalDateTime loginTime, UserInfo userInfo) {
+    }
+
+    public record Registration(LocalDateTime registrationTime, UserInfo userInfo) {
+    }
+
+    /**
+     * 账户锁定/解锁，reason为空时不输出
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record AccountAction(UserInfo targetUser, String action, String reason) {
+    }
+
+    public record RoleCreated(RoleInfo roleInfo) {
+    }
+
+    public record RoleUpdated(RoleInfo originalRole, RoleInfo updatedRole) {
+    }
+
+    public record RoleDeleted(RoleInfo deletedRole) {
+    }
+
+    public record RolePermissionsChanged(RoleInfo roleInfo, Set<String> originalPermissions, Set<String> newPermissions,
+                                         Set<String> addedPermissions, Set<String> removedPermissions) {
+    }
+
+    public record PermissionCreated(PermissionInfo permissionInfo) {
+    }
+
+    public record PermissionUpdated(PermissionInfo originalPermission, PermissionInfo updatedPermission) {
+    }
+
+    public record PermissionDeleted(PermissionInfo deletedPermission) {
+    }
+
+    public record DataExport(String dataType, String exportFormat, int recordCount, LocalDateTime exportTime) {
+    }
+
+    /**
+     * 邮箱脱敏
+     */
+    static String maskEmail(String email) {
+        if (email == null || email.length() <= 3) {
+            return "***";
+        }
+        int atIndex = email.indexOf("@");
+        if (atIndex <= 0) {
+            return "***";
+        }
+        return email.charAt(0) + "***" + email.substring(atIndex);
+    }
+}
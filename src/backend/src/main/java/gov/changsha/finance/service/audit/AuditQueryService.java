@@ -0,0 +1,345 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gov.changsha.finance.dto.request.AuditLogQuery;
+import gov.changsha.finance.dto.response.AuditLogPage;
+import gov.changsha.finance.entity.AuditLog;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 审计日志查询服务
+ * 条件可任意组合，按(timestamp, id)倒序做键集分页（不使用OFFSET，翻到任意深度代价相同）；
+ * 大范围查询通过服务端游标逐行读取并直接写出NDJSON，不在堆中累积结果
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Service
+public class AuditQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditQueryService.class);
+
+    public static final String SELECT_COLUMNS =
+        "id, user_id, username, real_name, operation, module, operation_desc, business_type, business_id, " +
+        "business_data, operation_status, result_message, timestamp, ip_address, user_agent, request_uri, " +
+        "http_method, request_params, duration, exception_info, risk_level, session_id, signature, " +
+        "chain_id, chain_seq, prev_hash, row_hash";
+
+    private static final String ORDER_BY = " ORDER BY timestamp DESC, id DESC";
+
+    @Value("${system.audit.query.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${system.audit.query.stream-flush-rows:500}")
+    private int streamFlushRows;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate cursorTransaction;
+    private ObjectWriter auditLogWriter;
+    private volatile Boolean postgres;
+
+    /**
+     * 游标逐行回调
+     */
+    @FunctionalInterface
+    public interface RowSink {
+        void accept(AuditLog auditLog) throws IOException;
+    }
+
+    @PostConstruct
+    public void init() {
+        cursorTransaction = new TransactionTemplate(transactionManager);
+        // PostgreSQL驱动仅在非自动提交事务内按fetchSize分批拉取
+        cursorTransaction.setReadOnly(true);
+        auditLogWriter = objectMapper.writerFor(AuditLog.class);
+    }
+
+    /**
+     * 查询一页审计日志
+     */
+    public AuditLogPage query(AuditLogQuery query) {
+        int size = query.getSize() != null ? query.getSize() : 50;
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + SELECT_COLUMNS + " FROM audit_logs" + where(query, params) + ORDER_BY + " LIMIT ?";
+        params.add(size + 1);
+
+        List<AuditLog> rows = jdbcTemplate.query(sql, (rs, rowNum) -> mapRow(rs), params.toArray());
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = new ArrayList<>(rows.subList(0, size));
+        }
+        String nextCursor = hasMore ? encodeCursor(rows.get(rows.size() - 1)) : null;
+        return new AuditLogPage(rows, nextCursor, hasMore);
+    }
+
+    /**
+     * 通过服务端游标逐行读取满足条件的审计日志（忽略size，从cursor位置开始直到结束）
+     *
+     * @return 读取的行数
+     */
+    public long scan(AuditLogQuery query, RowSink sink) {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT " + SELECT_COLUMNS + " FROM audit_logs" + where(query, params) + ORDER_BY;
+        long[] count = {0L};
+
+        cursorTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, rs -> {
+            try {
+                sink.accept(mapRow(rs));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            count[0]++;
+        }));
+        return count[0];
+    }
+
+    /**
+     * 以NDJSON（每行一个JSON对象）写出满足条件的审计日志，不关闭输出流
+     *
+     * @return 写出的行数
+     */
+    public long streamNdjson(AuditLogQuery query, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long[] pending = {0L};
+        long rows;
+        try {
+            rows = scan(query, auditLog -> {
+                auditLogWriter.writeValue(generator, auditLog);
+                generator.writeRaw('\n');
+                // 定期刷出，使客户端尽早收到数据，同时避免逐行flush
+                if (++pending[0] >= streamFlushRows) {
+                    generator.flush();
+                    pending[0] = 0;
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            // 客户端中断连接等写出异常
+            throw ex.getCause();
+        } finally {
+            generator.close();
+        }
+        logger.info("审计日志NDJSON流式输出完成 - 行数: {}, 耗时: {}ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * 拼接WHERE子句，参数按顺序追加到params
+     */
+    String where(AuditLogQuery query, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (query.getUserId() != null) {
+            and(where, "user_id = ?");
+            params.add(query.getUserId());
+        }
+        if (hasText(query.getUsername())) {
+            and(where, "username = ?");
+            params.add(query.getUsername());
+        }
+        if (query.getOperations() != null && !query.getOperations().isEmpty()) {
+            and(where, "operation IN (" + placeholders(query.getOperations()) + ")");
+            query.getOperations().forEach(op -> params.add(op.name()));
+        }
+        if (hasText(query.getModule())) {
+            and(where, "module = ?");
+            params.add(query.getModule());
+        }
+        if (query.getStatus() != null) {
+            and(where, "operation_status = ?");
+            params.add(query.getStatus().name());
+        }
+        if (query.getRiskLevels() != null && !query.getRiskLevels().isEmpty()) {
+            and(where, "risk_level IN (" + placeholders(query.getRiskLevels()) + ")");
+            query.getRiskLevels().forEach(level -> params.add(level.name()));
+        }
+        if (hasText(query.getIpAddress())) {
+            and(where, "ip_address = ?");
+            params.add(query.getIpAddress());
+        }
+        if (hasText(query.getBusinessType())) {
+            and(where, "business_type = ?");
+            params.add(query.getBusinessType());
+        }
+        if (hasText(query.getBusinessId())) {
+            and(where, "business_id = ?");
+            params.add(query.getBusinessId());
+        }
+        if (query.getPayloadField() != null && query.getPayloadValue() != null) {
+            // 包含查询 business_data @> {"a":{"b":值}} 可走jsonb_path_ops GIN索引
+            and(where, "business_data @> CAST(? AS jsonb)");
+            params.add(payloadContainment(query.getPayloadField(), query.getPayloadValue()));
+        }
+        if (query.getStartTime() != null) {
+            and(where, "timestamp >= ?");
+            params.add(Timestamp.valueOf(query.getStartTime()));
+        }
+        if (query.getEndTime() != null) {
+            and(where, "timestamp < ?");
+            params.add(Timestamp.valueOf(query.getEndTime()));
+        }
+        if (hasText(query.getCursor())) {
+            Object[] cursor = decodeCursor(query.getCursor());
+            // 行值比较可直接使用(timestamp, id)复合索引；timestamp条件同时参与分区裁剪
+            and(where, "(timestamp, id) < (?, ?)");
+            params.add(cursor[0]);
+            params.add(cursor[1]);
+        }
+        return where.toString();
+    }
+
+    /**
+     * 把字段路径（如 targetUser.id）和值构造为嵌套JSON；整数和布尔值按JSON类型匹配，其余按字符串匹配。
+     * 有前导零的数字（如工号007）不是JSON整数的写法，按字符串匹配
+     */
+    String payloadContainment(String field, String value) {
+        if (!isPostgres()) {
+            throw new IllegalArgumentException("载荷字段查询仅支持PostgreSQL");
+        }
+        String[] path = field.split("\\.");
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode node = root;
+        for (int i = 0; i < path.length - 1; i++) {
+            node = node.putObject(path[i]);
+        }
+        String leaf = path[path.length - 1];
+        if (value.matches("-?(0|[1-9]\\d{0,17})")) {
+            node.put(leaf, Long.parseLong(value));
+        } else if ("true".equals(value) || "false".equals(value)) {
+            node.put(leaf, Boolean.parseBoolean(value));
+        } else {
+            node.put(leaf, value);
+        }
+        return root.toString();
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+
+    static String encodeCursor(AuditLog last) {
+        String raw = last.getTimestamp() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            LocalDateTime timestamp = LocalDateTime.parse(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new Object[]{Timestamp.valueOf(timestamp), id};
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 按{@link #SELECT_COLUMNS}映射审计日志
+     */
+    public static AuditLog mapRow(ResultSet rs) throws SQLException {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setId(rs.getLong("id"));
+        long userId = rs.getLong("user_id");
+        auditLog.setUserId(rs.wasNull() ? null : userId);
+        auditLog.setUsername(rs.getString("username"));
+        auditLog.setRealName(rs.getString("real_name"));
+        auditLog.setOperation(enumValue(AuditLog.OperationType.class, rs.getString("operation")));
+        auditLog.setModule(rs.getString("module"));
+        auditLog.setOperationDesc(rs.getString("operation_desc"));
+        auditLog.setBusinessType(rs.getString("business_type"));
+        auditLog.setBusinessId(rs.getString("business_id"));
+        auditLog.setBusinessData(rs.getString("business_data"));
+        auditLog.setOperationStatus(enumValue(AuditLog.OperationStatus.class, rs.getString("operation_status")));
+        auditLog.setResultMessage(rs.getString("result_message"));
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        auditLog.setTimestamp(timestamp != null ? timestamp.toLocalDateTime() : null);
+        auditLog.setIpAddress(rs.getString("ip_address"));
+        auditLog.setUserAgent(rs.getString("user_agent"));
+        auditLog.setRequestUri(rs.getString("request_uri"));
+        auditLog.setHttpMethod(rs.getString("http_method"));
+        auditLog.setRequestParams(rs.getString("request_params"));
+        long duration = rs.getLong("duration");
+        auditLog.setDuration(rs.wasNull() ? null : duration);
+        auditLog.setExceptionInfo(rs.getString("exception_info"));
+        auditLog.setRiskLevel(enumValue(AuditLog.RiskLevel.class, rs.getString("risk_level")));
+        auditLog.setSessionId(rs.getString("session_id"));
+        auditLog.setSignature(rs.getString("signature"));
+        auditLog.setChainId(rs.getString("chain_id"));
+        long chainSeq = rs.getLong("chain_seq");
+        auditLog.setChainSeq(rs.wasNull() ? null : chainSeq);
+        auditLog.setPrevHash(rs.getString("prev_hash"));
+        auditLog.setRowHash(rs.getString("row_hash"));
+        return auditLog;
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static void and(StringBuilder where, String condition) {
+        where.append(where.length() == 0 ? " WHERE " : " AND ").append(condition);
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
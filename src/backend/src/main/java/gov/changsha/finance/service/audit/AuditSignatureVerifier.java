@@ -0,0 +1,230 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.dto.response.AuditVerificationReport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 审计日志签名批量校验服务
+ * 通过服务端游标流式读取时间范围内的审计日志，按块提交到专用ForkJoin池并行校验签名，
+ * 在途块数量有上限，内存占用与范围大小无关；返回被篡改（签名不匹配或缺失）的日志ID
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Service
+public class AuditSignatureVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditSignatureVerifier.class);
+
+    private static final String RANGE_SQL =
+        "SELECT id, username, operation, module, operation_desc, timestamp, ip_address, signature " +
+        "FROM audit_logs WHERE timestamp >= ? AND timestamp < ?";
+
+    /** 单个ForkJoin叶子任务顺序校验的行数 */
+    private static final int LEAF_SIZE = 256;
+
+    @Value("${system.audit.verify.parallelism:0}")
+    private int parallelism;
+
+    @Value("${system.audit.verify.chunk-size:4096}")
+    private int chunkSize;
+
+    @Value("${system.audit.verify.fetch-size:2000}")
+    private int fetchSize;
+
+    @Value("${system.audit.verify.max-reported-ids:10000}")
+    private int maxReportedIds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AuditLogSigner signer;
+
+    private ForkJoinPool verifyPool;
+    private TransactionTemplate cursorTransaction;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        verifyPool = new ForkJoinPool(threads);
+        cursorTransaction = new TransactionTemplate(transactionManager);
+        // PostgreSQL驱动只有在非自动提交的事务内才按fetchSize分批拉取（服务端游标）
+        cursorTransaction.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (verifyPool != null) {
+            verifyPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 校验 [startTime, endTime) 范围内全部审计日志的签名
+     */
+    public AuditVerificationReport verifyRange(LocalDateTime startTime, LocalDateTime endTime) {
+        long start = System.currentTimeMillis();
+        logger.info("开始批量校验审计日志签名 - 范围: {} ~ {}, 并行度: {}", startTime, endTime, verifyPool.getParallelism());
+
+        RangeScan scan = new RangeScan();
+        cursorTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RANGE_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(startTime));
+            ps.setTimestamp(2, Timestamp.valueOf(endTime));
+            return ps;
+        }, scan));
+        scan.finish();
+
+        List<Long> tampered = scan.tamperedIds;
+        Collections.sort(tampered);
+        boolean truncated = tampered.size() > maxReportedIds;
+        List<Long> reported = truncated ? new ArrayList<>(tampered.subList(0, maxReportedIds)) : tampered;
+        long elapsed = System.currentTimeMillis() - start;
+
+        if (tampered.isEmpty()) {
+            logger.info("审计日志签名校验通过 - 范围: {} ~ {}, 校验: {}条, 耗时: {}ms", startTime, endTime, scan.verified, elapsed);
+        } else {
+            logger.warn("审计日志签名校验发现篡改 - 范围: {} ~ {}, 校验: {}条, 篡改: {}条, 耗时: {}ms",
+                        startTime, endTime, scan.verified, tampered.size(), elapsed);
+        }
+        return new AuditVerificationReport(startTime, endTime, scan.verified, tampered.size(), reported, truncated, elapsed);
+    }
+
+    /**
+     * 游标行处理：攒满一块即提交并行校验，在途块超过上限时先回收最早的块
+     */
+    private class RangeScan implements RowCallbackHandler {
+
+        private final int maxInFlight = verifyPool.getParallelism() * 2;
+        private final Deque<ForkJoinTask<List<Long>>> inFlight = new ArrayDeque<>();
+        private final List<Long> tamperedIds = new ArrayList<>();
+        private List<SignedRow> chunk = new ArrayList<>(chunkSize);
+        private long verified;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            Timestamp timestamp = rs.getTimestamp(6);
+            chunk.add(new SignedRow(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getString(5), timestamp != null ? timestamp.toLocalDateTime() : null, rs.getString(7), rs.getString(8)));
+            if (chunk.size() >= chunkSize) {
+                submitChunk();
+            }
+        }
+
+        private void submitChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            verified += chunk.size();
+            inFlight.addLast(verifyPool.submit(new VerifyTask(chunk, 0, chunk.size())));
+            chunk = new ArrayList<>(chunkSize);
+            while (inFlight.size() > maxInFlight) {
+                tamperedIds.addAll(inFlight.removeFirst().join());
+            }
+        }
+
+        void finish() {
+            submitChunk();
+            while (!inFlight.isEmpty()) {
+                tamperedIds.addAll(inFlight.removeFirst().join());
+            }
+        }
+    }
+
+    /**
+     * 二分拆分的校验任务，返回签名不匹配的ID
+     */
+    private class VerifyTask extends RecursiveTask<List<Long>> {
+
+        private final List<SignedRow> rows;
+        private final int from;
+        private final int to;
+
+        VerifyTask(List<SignedRow> rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Long> compute() {
+            if (to - from <= LEAF_SIZE) {
+                List<Long> tampered = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    SignedRow row = rows.get(i);
+                    if (!signer.verify(row.username, row.operation, row.module, row.operationDesc,
+                            row.timestamp, row.ipAddress, row.signature)) {
+                        tampered.add(row.id);
+                    }
+                }
+                return tampered;
+            }
+            int mid = (from + to) >>> 1;
+            VerifyTask left = new VerifyTask(rows, from, mid);
+            left.fork();
+            List<Long> result = new VerifyTask(rows, mid, to).compute();
+            List<Long> leftResult = left.join();
+            if (leftResult.isEmpty()) {
+                return result;
+            }
+            leftResult.addAll(result);
+            return leftResult;
+        }
+    }
+
+    /**
+     * 参与签名的列
+     */
+    private static final class SignedRow {
+        final long id;
+        final String username;
+        final String operation;
+        final String module;
+        final String operationDesc;
+        final LocalDateTime timestamp;
+        final String ipAddress;
+        final String signature;
+
+        SignedRow(long id, String username, String operation, String module, String operationDesc,
+                  LocalDateTime timestamp, String ipAddress, String signature) {
+            this.id = id;
+            this.username = username;
+            this.operation = operation;
+            this.module = module;
+            this.operationDesc = operationDesc;
+            this.timestamp = timestamp;
+            this.ipAddress = ipAddress;
+            this.signature = signature;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.changsha.finance.entity.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 审计日志溢出文件
+ * 内存队列溢出、批量写库失败或停机时，将审计日志以JSON行追加到本地文件并fsync落盘；
+ * 数据库恢复后由写入器回放。回放语义为“至少一次”：回放中途宕机可能重复写入已回放的批次
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class AuditSpillFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditSpillFile.class);
+
+    private static final String ACTIVE_FILE = "audit-spill.ndjson";
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final Object lock = new Object();
+
+    public AuditSpillFile(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 追加一批审计日志并强制落盘
+     */
+    public void append(Collection<AuditLog> auditLogs) throws IOException {
+        if (auditLogs.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder(auditLogs.size() * 512);
+        for (AuditLog auditLog : auditLogs) {
+            lines.append(objectMapper.writeValueAsString(auditLog)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+
+        synchronized (lock) {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(directory.resolve(ACTIVE_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * 是否存在待回放的溢出数据
+     */
+    public boolean hasPending() {
+        synchronized (lock) {
+            if (Files.exists(directory.resolve(ACTIVE_FILE))) {
+                return true;
+            }
+            return !replayFiles().isEmpty();
+        }
+    }
+
+    /**
+     * 回放全部溢出数据：先将活动文件轮转为回放文件（之后的溢出写入新文件），
+     * 再逐个文件按批交给写入回调，回调成功后删除该文件；回调抛出异常时保留文件等待下次回放
+     *
+     * @return 回放成功的条数
+     */
+    public int replay(int batchSize, Consumer<List<AuditLog>> sink) throws IOException {
+        List<Path> files;
+        synchronized (lock) {
+            Path active = directory.resolve(ACTIVE_FILE);
+            if (Files.exists(active)) {
+                Path rotated = directory.resolve(ACTIVE_FILE + "." + System.currentTimeMillis() + REPLAY_SUFFIX);
+                Files.move(active, rotated, StandardCopyOption.ATOMIC_MOVE);
+            }
+            files = replayFiles();
+        }
+
+        int replayed = 0;
+        for (Path file : files) {
+            int fileCount = 0;
+            List<AuditLog> batch = new ArrayList<>(batchSize);
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        batch.add(objectMapper.readValue(line, AuditLog.class));
+                    } catch (IOException ex) {
+                        // 宕机时写到一半的尾行无法解析，跳过
+                        logger.warn("跳过无法解析的审计溢出记录 - 文件: {}, 错误: {}", file.getFileName(), ex.getMessage());
+                        continue;
+                    }
+                    if (batch.size() >= batchSize) {
+                        sink.accept(batch);
+                        fileCount += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+                fileCount += batch.size();
+            }
+            Files.deleteIfExists(file);
+            replayed += fileCount;
+            logger.info("审计溢出文件回放完成 - 文件: {}, 条数: {}", file.getFileName(), fileCount);
+        }
+        return replayed;
+    }
+
+    private List<Path> replayFiles() {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + REPLAY_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } catch (IOException ex) {
+            logger.warn("列出审计溢出回放文件失败: {}", ex.getMessage());
+        }
+        files.sort(null);
+        return files;
+    }
+}
@@ -0,0 +1,306 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.entity.AuditLog;
+import gov.changsha.finance.entity.AuditStatsHourly.Dimension;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 审计统计小时汇总维护
+ * 写入器每批写库成功后按(小时, 维度, 取值)聚合并累加到audit_stats_hourly；
+ * 后台任务定期按原始表重算最近若干小时（修正写库后累加失败、溢出回放与重算并发等造成的偏差），
+ * 并向前回填汇总表建立之前的历史数据。原始日志按保留期清理后汇总数据继续保留。
+ * 重算先删除再按原始表插入，多节点同时重算同一范围时以PostgreSQL事务级advisory锁串行执行；
+ * 写入器的累加不取该锁，恰在重算的删除与插入之间累加到同一小时时重算因唯一约束失败并回滚，由下次对账重做
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class AuditStatisticsRollup {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditStatisticsRollup.class);
+
+    static final String TOTAL_KEY = "*";
+
+    /** 重算的advisory锁键，全库唯一；取自"audstats"的固定值 */
+    static final long REBUILD_LOCK_KEY = 0x6175_6473_7461_7473L;
+
+    private static final String UPSERT_POSTGRES_SQL =
+        "INSERT INTO audit_stats_hourly (bucket_hour, dimension, dim_key, user_id, event_count, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (dimension, bucket_hour, dim_key) DO UPDATE SET " +
+        "event_count = audit_stats_hourly.event_count + EXCLUDED.event_count, " +
+        "user_id = COALESCE(EXCLUDED.user_id, audit_stats_hourly.user_id), updated_at = CURRENT_TIMESTAMP";
+
+    private static final String UPSERT_MERGE_SQL =
+        "MERGE INTO audit_stats_hourly t USING (VALUES (CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(20)), " +
+        "CAST(? AS VARCHAR(100)), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+        "AS s(bucket_hour, dimension, dim_key, user_id, event_count) " +
+        "ON t.dimension = s.dimension AND t.bucket_hour = s.bucket_hour AND t.dim_key = s.dim_key " +
+        "WHEN MATCHED THEN UPDATE SET event_count = t.event_count + s.event_count, " +
+        "user_id = COALESCE(s.user_id, t.user_id), updated_at = CURRENT_TIMESTAMP " +
+        "WHEN NOT MATCHED THEN INSERT (bucket_hour, dimension, dim_key, user_id, event_count, updated_at) " +
+        "VALUES (s.bucket_hour, s.dimension, s.dim_key, s.user_id, s.event_count, CURRENT_TIMESTAMP)";
+
+    private static final int[] UPSERT_TYPES = {
+        Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT
+    };
+
+    private static final String HOUR = "DATE_TRUNC('hour', timestamp)";
+
+    /**
+     * 各维度按原始表重算的取值表达式，顺序与Dimension一致
+     */
+    private static final String[][] REBUILD_DIMENSIONS = {
+        {Dimension.TOTAL.name(), "'" + TOTAL_KEY + "'", "NULL", ""},
+        {Dimension.USER.name(), "COALESCE(username, '')", "MAX(user_id)", ", COALESCE(username, '')"},
+        {Dimension.OPERATION.name(), "COALESCE(operation, '')", "NULL", ", COALESCE(operation, '')"},
+        {Dimension.IP.name(), "COALESCE(ip_address, '')", "NULL", ", COALESCE(ip_address, '')"},
+        {Dimension.STATUS.name(), "COALESCE(operation_status, '')", "NULL", ", COALESCE(operation_status, '')"},
+        {Dimension.RISK.name(), "COALESCE(risk_level, '')", "NULL", ", COALESCE(risk_level, '')"}
+    };
+
+    @Value("${system.audit.stats.reconcile-interval-minutes:60}")
+    private long reconcileIntervalMinutes;
+
+    @Value("${system.audit.stats.reconcile-hours:48}")
+    private int reconcileHours;
+
+    @Value("${system.audit.stats.reconcile-lag-minutes:10}")
+    private int reconcileLagMinutes;
+
+    @Value("${system.audit.stats.backfill-pause-ms:200}")
+    private long backfillPauseMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private volatile Boolean postgres;
+    private volatile boolean running = false;
+    private ScheduledExecutorService reconcileTicker;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        reconcileTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AuditStats-Reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconcileTicker.scheduleWithFixedDelay(this::maintain, 1, Math.max(1, reconcileIntervalMinutes), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (reconcileTicker != null) {
+            reconcileTicker.shutdownNow();
+        }
+    }
+
+    /**
+     * 将一批已写库的审计日志累加到小时汇总（失败只记录告警，由定期对账修正）
+     */
+    public void increment(Collection<AuditLog> auditLogs) {
+        try {
+            // 按键排序后写入，避免多实例并发累加同一批键时死锁
+            Map<Bucket, long[]> buckets = new TreeMap<>();
+            Map<Bucket, Long> userIds = new TreeMap<>();
+            for (AuditLog auditLog : auditLogs) {
+                if (auditLog.getTimestamp() == null) {
+                    continue;
+                }
+                LocalDateTime hour = auditLog.getTimestamp().truncatedTo(ChronoUnit.HOURS);
+                add(buckets, new Bucket(hour, Dimension.TOTAL, TOTAL_KEY));
+                Bucket user = new Bucket(hour, Dimension.USER, auditLog.getUsername());
+                add(buckets, user);
+                if (auditLog.getUserId() != null) {
+                    userIds.put(user, auditLog.getUserId());
+                }
+                add(buckets, new Bucket(hour, Dimension.OPERATION, name(auditLog.getOperation())));
+                add(buckets, new Bucket(hour, Dimension.IP, auditLog.getIpAddress()));
+                add(buckets, new Bucket(hour, Dimension.STATUS, name(auditLog.getOperationStatus())));
+                add(buckets, new Bucket(hour, Dimension.RISK, name(auditLog.getRiskLevel())));
+            }
+            if (buckets.isEmpty()) {
+                return;
+            }
+
+            List<Object[]> batchArgs = new ArrayList<>(buckets.size());
+            for (Map.Entry<Bucket, long[]> entry : buckets.entrySet()) {
+                Bucket bucket = entry.getKey();
+                batchArgs.add(new Object[]{
+                    Timestamp.valueOf(bucket.hour), bucket.dimension.name(), bucket.key,
+                    userIds.get(bucket), entry.getValue()[0]
+                });
+            }
+            jdbcTemplate.batchUpdate(upsertSql(), batchArgs, UPSERT_TYPES);
+        } catch (Exception ex) {
+            logger.warn("审计统计小时汇总累加失败，等待定期对账修正 - 日志数: {}, 错误: {}", auditLogs.size(), ex.getMessage());
+        }
+    }
+
+    /**
+     * 按原始表重算 [from, to) 内各小时的汇总（from、to应为整点）
+     */
+    public void rebuildRange(LocalDateTime from, LocalDateTime to) {
+        Timestamp start = Timestamp.valueOf(from);
+        Timestamp end = Timestamp.valueOf(to);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (isPostgres()) {
+                // 事务结束时自动释放
+                jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + REBUILD_LOCK_KEY + ")");
+            }
+            jdbcTemplate.update("DELETE FROM audit_stats_hourly WHERE bucket_hour >= ? AND bucket_hour < ?", start, end);
+            for (String[] dimension : REBUILD_DIMENSIONS) {
+                jdbcTemplate.update(
+                    "INSERT INTO audit_stats_hourly (bucket_hour, dimension, dim_key, user_id, event_count, updated_at) " +
+                    "SELECT " + HOUR + ", '" + dimension[0] + "', " + dimension[1] + ", " + dimension[2] +
+                    ", COUNT(*), CURRENT_TIMESTAMP FROM audit_logs WHERE timestamp >= ? AND timestamp < ? " +
+                    "GROUP BY " + HOUR + dimension[3],
+                    start, end);
+            }
+        });
+    }
+
+    /**
+     * 定期维护：重算最近reconcile-hours个已结束的小时，然后回填更早的历史
+     */
+    void maintain() {
+        try {
+            reconcileRecent();
+            backfill();
+        } catch (Exception ex) {
+            logger.error("审计统计小时汇总对账失败", ex);
+        }
+    }
+
+    private void reconcileRecent() {
+        LocalDateTime to = LocalDateTime.now().minusMinutes(reconcileLagMinutes).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime from = to.minusHours(reconcileHours);
+        long start = System.currentTimeMillis();
+        rebuildRange(from, to);
+        logger.debug("审计统计小时汇总对账完成 - 范围: {} ~ {}, 耗时: {}ms", from, to, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 从汇总表最早的小时向前逐日回填到原始表最早的日志；中断后下次从已回填的位置继续
+     */
+    private void backfill() throws InterruptedException {
+        Timestamp earliestLog = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM audit_logs", Timestamp.class);
+        if (earliestLog == null) {
+            return;
+        }
+        Timestamp earliestBucket = jdbcTemplate.queryForObject(
+            "SELECT MIN(bucket_hour) FROM audit_stats_hourly WHERE dimension = ?", Timestamp.class, Dimension.TOTAL.name());
+        LocalDateTime floor = earliestLog.toLocalDateTime().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = earliestBucket != null
+            ? earliestBucket.toLocalDateTime()
+            : LocalDateTime.now().minusMinutes(reconcileLagMinutes).truncatedTo(ChronoUnit.HOURS);
+        if (!end.isAfter(floor)) {
+            return;
+        }
+
+        logger.info("开始回填审计统计小时汇总 - 范围: {} ~ {}", floor, end);
+        long begin = System.currentTimeMillis();
+        int days = 0;
+        while (running && end.isAfter(floor)) {
+            LocalDateTime start = end.minusDays(1);
+            if (start.isBefore(floor)) {
+                start = floor;
+            }
+            rebuildRange(start, end);
+            end = start;
+            days++;
+            // 逐日提交并让出数据库资源，避免长事务和持续高负载
+            Thread.sleep(backfillPauseMs);
+        }
+        logger.info("审计统计小时汇总回填{} - 天数: {}, 耗时: {}ms",
+                    end.isAfter(floor) ? "中断" : "完成", days, System.currentTimeMillis() - begin);
+    }
+
+    private String upsertSql() {
+        // H2等不支持ON CONFLICT DO UPDATE的数据库使用标准MERGE
+        return isPostgres() ? UPSERT_POSTGRES_SQL : UPSERT_MERGE_SQL;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+
+    private static void add(Map<Bucket, long[]> buckets, Bucket bucket) {
+        buckets.computeIfAbsent(bucket, k -> new long[1])[0]++;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    /**
+     * 汇总键：小时 + 维度 + 取值（空值归为''，与重算时的COALESCE一致）
+     */
+    private static final class Bucket implements Comparable<Bucket> {
+        private final LocalDateTime hour;
+        private final Dimension dimension;
+        private final String key;
+
+        Bucket(LocalDateTime hour, Dimension dimension, String key) {
+            this.hour = hour;
+            this.dimension = dimension;
+            this.key = key != null ? key : "";
+        }
+
+        @Override
+        public int compareTo(Bucket other) {
+            int result = dimension.compareTo(other.dimension);
+            if (result == 0) {
+                result = hour.compareTo(other.hour);
+            }
+            return result != 0 ? result : key.compareTo(other.key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Bucket)) return false;
+            Bucket other = (Bucket) o;
+            return hour.equals(other.hour) && dimension == other.dimension && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hour, dimension, key);
+        }
+    }
+}
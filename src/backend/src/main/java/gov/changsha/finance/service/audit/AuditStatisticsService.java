@@ -0,0 +1,133 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.dto.response.AuditStatistics;
+import gov.changsha.finance.entity.AuditLog;
+import gov.changsha.finance.entity.AuditStatsHourly.Dimension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 审计统计查询服务
+ * 只查询小时汇总表audit_stats_hourly，代价与统计区间的小时数和维度取值数相关，与原始日志量无关。
+ * 时间区间按整点对齐：起点向下取整，终点不在整点时其所在小时整体计入。
+ * 需要精确到秒的统计使用AuditLogRepository中直接扫描原始表的方法
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Service
+public class AuditStatisticsService {
+
+    private static final String SUM_SQL = "SELECT COALESCE(SUM(event_count), 0) FROM audit_stats_hourly WHERE dimension = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 安全仪表盘统计
+     *
+     * @param top 用户、IP排行返回的条数
+     */
+    public AuditStatistics getDashboard(LocalDateTime startTime, LocalDateTime endTime, int top) {
+        LocalDateTime from = floorHour(startTime);
+        LocalDateTime to = ceilHour(endTime);
+        return new AuditStatistics(from, to,
+            countBetween(startTime, endTime),
+            sumKeys(Dimension.STATUS, from, to, AuditLog.OperationStatus.FAILED.name()),
+            sumKeys(Dimension.RISK, from, to, AuditLog.RiskLevel.HIGH.name(), AuditLog.RiskLevel.CRITICAL.name()),
+            ranking(Dimension.USER, from, to, top),
+            ranking(Dimension.OPERATION, from, to, 0),
+            ranking(Dimension.IP, from, to, top),
+            ranking(Dimension.STATUS, from, to, 0),
+            ranking(Dimension.RISK, from, to, 0));
+    }
+
+    /**
+     * 时间区间内的日志总数
+     */
+    public long countBetween(LocalDateTime startTime, LocalDateTime endTime) {
+        return sumKeys(Dimension.TOTAL, floorHour(startTime), ceilHour(endTime), AuditStatisticsRollup.TOTAL_KEY);
+    }
+
+    public long countByUserId(Long userId) {
+        return jdbcTemplate.queryForObject(SUM_SQL + " AND user_id = ?", Long.class, Dimension.USER.name(), userId);
+    }
+
+    public long countByOperation(AuditLog.OperationType operation) {
+        return jdbcTemplate.queryForObject(SUM_SQL + " AND dim_key = ?", Long.class,
+                                           Dimension.OPERATION.name(), operation.name());
+    }
+
+    public long countFailedOperations() {
+        return jdbcTemplate.queryForObject(SUM_SQL + " AND dim_key = ?", Long.class,
+                                           Dimension.STATUS.name(), AuditLog.OperationStatus.FAILED.name());
+    }
+
+    public long countHighRiskOperations() {
+        return jdbcTemplate.queryForObject(SUM_SQL + " AND dim_key IN (?, ?)", Long.class, Dimension.RISK.name(),
+                                           AuditLog.RiskLevel.HIGH.name(), AuditLog.RiskLevel.CRITICAL.name());
+    }
+
+    /**
+     * 用户活跃度排行（对应findUserActivityStatistics）
+     */
+    public List<AuditStatistics.Entry> userActivity(LocalDateTime startTime, LocalDateTime endTime, int top) {
+        return ranking(Dimension.USER, floorHour(startTime), ceilHour(endTime), top);
+    }
+
+    /**
+     * 操作类型分布（对应findOperationTypeStatistics）
+     */
+    public List<AuditStatistics.Entry> operationTypes(LocalDateTime startTime, LocalDateTime endTime) {
+        return ranking(Dimension.OPERATION, floorHour(startTime), ceilHour(endTime), 0);
+    }
+
+    /**
+     * IP访问排行（对应findIpAccessStatistics）
+     */
+    public List<AuditStatistics.Entry> ipAccess(LocalDateTime startTime, LocalDateTime endTime, int top) {
+        return ranking(Dimension.IP, floorHour(startTime), ceilHour(endTime), top);
+    }
+
+    private long sumKeys(Dimension dimension, LocalDateTime from, LocalDateTime to, String... keys) {
+        Object[] args = new Object[keys.length + 3];
+        args[0] = dimension.name();
+        args[1] = Timestamp.valueOf(from);
+        args[2] = Timestamp.valueOf(to);
+        System.arraycopy(keys, 0, args, 3, keys.length);
+        String placeholders = String.join(", ", Collections.nCopies(keys.length, "?"));
+        return jdbcTemplate.queryForObject(
+            SUM_SQL + " AND bucket_hour >= ? AND bucket_hour < ? AND dim_key IN (" + placeholders + ")",
+            Long.class, args);
+    }
+
+    /**
+     * 按条数倒序的维度取值排行，limit为0时返回全部
+     */
+    private List<AuditStatistics.Entry> ranking(Dimension dimension, LocalDateTime from, LocalDateTime to, int limit) {
+        String sql = "SELECT dim_key, MAX(user_id) AS user_id, SUM(event_count) AS total FROM audit_stats_hourly " +
+                     "WHERE dimension = ? AND bucket_hour >= ? AND bucket_hour < ? " +
+                     "GROUP BY dim_key ORDER BY total DESC, dim_key" + (limit > 0 ? " LIMIT " + limit : "");
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            long userId = rs.getLong("user_id");
+            return new AuditStatistics.Entry(rs.getString("dim_key"), rs.wasNull() ? null : userId, rs.getLong("total"));
+        }, dimension.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private static LocalDateTime floorHour(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static LocalDateTime ceilHour(LocalDateTime time) {
+        LocalDateTime floor = time.truncatedTo(ChronoUnit.HOURS);
+        return floor.equals(time) ? floor : floor.plusHours(1);
+    }
+}
@@ -0,0 +1,153 @@
+package gov.changsha.finance.service.audit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按固定时间窗口的高频键近似统计（Space-Saving算法）
+ * 最多保留k个计数器，键空间再大内存也固定；任何出现次数超过 窗口总数/k 的键必定被保留，
+ * 估计值不低于真实值，且高估不超过记录的误差上界。窗口结束后保留上一窗口的结果供查询
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class HeavyHitterSketch {
+
+    private final int capacity;
+    private final long windowMillis;
+
+    private Map<String, long[]> counters;
+    private long windowStart = Long.MIN_VALUE;
+    private long total;
+    private List<Entry> previous = new ArrayList<>();
+
+    /**
+     * 高频键估计
+     */
+    public static class Entry {
+        private final String key;
+        private final long count;
+        private final long error;
+
+        Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() { return key; }
+
+        /**
+         * 估计次数（上界）
+         */
+        public long getCount() { return count; }
+
+        /**
+         * 最大高估量，count - error为真实次数的下界
+         */
+        public long getError() { return error; }
+    }
+
+    public HeavyHitterSketch(int capacity, long windowMillis) {
+        if (capacity <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("高频统计参数必须为正数");
+        }
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 记录一次出现
+     *
+     * @return 该键在当前窗口的估计次数
+     */
+    public synchronized long offer(String key, long nowMillis) {
+        roll(nowMillis);
+        total++;
+        long[] counter = counters.get(key);
+        if (counter != null) {
+            return ++counter[0];
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new long[]{1L, 0L});
+            return 1L;
+        }
+        // 替换计数最小的键，新键继承其计数作为误差上界
+        String minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            if (entry.getValue()[0] < min) {
+                min = entry.getValue()[0];
+                minKey = entry.getKey();
+            }
+        }
+        counters.remove(minKey);
+        counters.put(key, new long[]{min + 1, min});
+        return min + 1;
+    }
+
+    /**
+     * 当前窗口内该键的保证次数下界（未被保留时为0）
+     */
+    public synchronized long guaranteed(String key, long nowMillis) {
+        roll(nowMillis);
+        long[] counter = counters.get(key);
+        return counter != null ? counter[0] - counter[1] : 0L;
+    }
+
+    /**
+     * 当前窗口估计次数不小于minCount的键，按估计次数倒序
+     */
+    public synchronized List<Entry> top(long minCount, long nowMillis) {
+        roll(nowMillis);
+        List<Entry> result = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            if (entry.getValue()[0] >= minCount) {
+                result.add(new Entry(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+            }
+        }
+        result.sort((a, b) -> Long.compare(b.count, a.count));
+        return result;
+    }
+
+    /**
+     * 上一个完整窗口的全部计数器，按估计次数倒序
+     */
+    public synchronized List<Entry> previousWindow(long nowMillis) {
+        roll(nowMillis);
+        return new ArrayList<>(previous);
+    }
+
+    /**
+     * 当前窗口记录的总次数
+     */
+    public synchronized long total(long nowMillis) {
+        roll(nowMillis);
+        return total;
+    }
+
+    private void roll(long nowMillis) {
+        long start = nowMillis - Math.floorMod(nowMillis, windowMillis);
+        if (start == windowStart) {
+            return;
+        }
+        if (start == windowStart + windowMillis) {
+            List<Entry> snapshot = new ArrayList<>(counters.size());
+            counters.forEach((key, counter) -> snapshot.add(new Entry(key, counter[0], counter[1])));
+            snapshot.sort((a, b) -> Long.compare(b.count, a.count));
+            previous = snapshot;
+        } else if (start > windowStart) {
+            previous = new ArrayList<>();
+        } else {
+            // 时钟回拨：保持当前窗口
+            return;
+        }
+        counters = new HashMap<>(capacity * 2);
+        windowStart = start;
+        total = 0;
+    }
+}
@@ -0,0 +1,78 @@
+package gov.changsha.finance.service.audit;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式Merkle根累加器
+ * 按顺序追加叶子哈希，只保留每个高度最多一个待合并节点（O(log n)内存）；
+ * 根的计算方式：同高度节点两两合并，剩余节点从右向左折叠。写入器封段和校验器重算使用同一实现，
+ * 保证两侧结果一致
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class MerkleAccumulator {
+
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final List<byte[]> nodes = new ArrayList<>();
+    private final List<Integer> heights = new ArrayList<>();
+    private final MessageDigest digest;
+    private long leafCount;
+
+    public MerkleAccumulator() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256不可用", ex);
+        }
+    }
+
+    /**
+     * 追加一个叶子（行哈希）
+     */
+    public void add(byte[] leaf) {
+        byte[] node = leaf;
+        int height = 0;
+        int top = nodes.size() - 1;
+        while (top >= 0 && heights.get(top) == height) {
+            node = combine(nodes.remove(top), node);
+            heights.remove(top);
+            height++;
+            top--;
+        }
+        nodes.add(node);
+        heights.add(height);
+        leafCount++;
+    }
+
+    public long getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * 当前Merkle根；无叶子时返回null
+     */
+    public byte[] root() {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+        byte[] acc = nodes.get(nodes.size() - 1);
+        for (int i = nodes.size() - 2; i >= 0; i--) {
+            acc = combine(nodes.get(i), acc);
+        }
+        return acc;
+    }
+
+    private byte[] combine(byte[] left, byte[] right) {
+        digest.reset();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+}
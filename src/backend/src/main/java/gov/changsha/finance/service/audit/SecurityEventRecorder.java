@@ -0,0 +1,166 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 安全事件记录器
+ * 将检测到的安全事件异步写入security_event_logs（V7），调用线程不访问数据库；
+ * 队列满时丢弃最早的待写事件。该表使用JSONB/INET类型，仅PostgreSQL环境落库
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class SecurityEventRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecurityEventRecorder.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO security_event_logs (event_type, event_category, event_name, event_description, " +
+        "severity_level, risk_level, affected_user_id, affected_username, event_details, attack_indicators, " +
+        "source_ip, detection_method, detection_system) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS JSONB), CAST(? AS JSONB), CAST(? AS INET), ?, ?)";
+
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9a-fA-F:.]{2,45}");
+
+    /**
+     * 事件类型（与chk_security_event_logs_event_type一致）
+     */
+    public enum EventType {
+        LOGIN_FAILURE, UNAUTHORIZED_ACCESS, SUSPICIOUS_ACTIVITY, PRIVILEGE_ESCALATION
+    }
+
+    /**
+     * 待写入的安全事件
+     */
+    public static class SecurityEvent {
+        private final EventType eventType;
+        private final String eventName;
+        private final String description;
+        private final String severity;
+        private final Long userId;
+        private final String username;
+        private final String sourceIp;
+        private final Map<String, Object> details;
+        private final Map<String, Object> indicators;
+
+        public SecurityEvent(EventType eventType, String eventName, String description, String severity,
+                             Long userId, String username, String sourceIp,
+                             Map<String, Object> details, Map<String, Object> indicators) {
+            this.eventType = eventType;
+            this.eventName = eventName;
+            this.description = description;
+            this.severity = severity;
+            this.userId = userId;
+            this.username = username;
+            this.sourceIp = sourceIp;
+            this.details = details;
+            this.indicators = indicators;
+        }
+    }
+
+    @Value("${system.audit.anomaly.event-queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ThreadPoolExecutor executor;
+    private volatile Boolean supported;
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread thread = new Thread(r, "SecurityEvent-Recorder");
+                thread.setDaemon(true);
+                return thread;
+            },
+            (task, pool) -> {
+                // 丢弃最早的待写事件，保留最新告警
+                pool.getQueue().poll();
+                pool.execute(task);
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 提交安全事件（异步写库）
+     */
+    public void record(SecurityEvent event) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            executor.execute(() -> write(event));
+        } catch (Exception ex) {
+            logger.warn("提交安全事件失败 - 类型: {}, 错误: {}", event.eventType, ex.getMessage());
+        }
+    }
+
+    private void write(SecurityEvent event) {
+        if (!isSupported()) {
+            return;
+        }
+        try {
+            String sourceIp = event.sourceIp != null && IP_LITERAL.matcher(event.sourceIp).matches() ? event.sourceIp : null;
+            String username = event.username != null && event.username.length() > 50
+                ? event.username.substring(0, 50) : event.username;
+            jdbcTemplate.update(INSERT_SQL,
+                event.eventType.name(), "AUTHENTICATION", event.eventName, event.description,
+                event.severity, event.severity, event.userId, username,
+                objectMapper.writeValueAsString(event.details),
+                event.indicators != null ? objectMapper.writeValueAsString(event.indicators) : null,
+                sourceIp, "SLIDING_WINDOW", "AUDIT_STREAM");
+        } catch (Exception ex) {
+            logger.warn("写入安全事件失败 - 类型: {}, 名称: {}, 错误: {}", event.eventType, event.eventName, ex.getMessage());
+        }
+    }
+
+    private boolean isSupported() {
+        if (supported == null) {
+            try {
+                String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+                supported = "PostgreSQL".equalsIgnoreCase(product);
+            } catch (Exception ex) {
+                logger.warn("检测数据库类型失败，暂不写入安全事件: {}", ex.getMessage());
+                return false;
+            }
+            if (!supported) {
+                logger.info("当前数据库不是PostgreSQL，安全事件只记录日志，不写入security_event_logs");
+            }
+        }
+        return supported;
+    }
+}
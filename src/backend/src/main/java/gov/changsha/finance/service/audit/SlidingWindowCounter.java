@@ -0,0 +1,232 @@
+package gov.changsha.finance.service.audit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 定容滑动窗口计数器
+ * 按键的64位哈希分段开放寻址存储，每个键占一个槽位，槽位内为按时间分桶的环形计数；
+ * 窗口内计数为最近buckets个桶之和。容量固定、不随键数增长：装载率达到上限时先清理过期键，
+ * 仍然不足则拒绝新键（返回-1，由调用方退回近似统计）
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class SlidingWindowCounter {
+
+    private static final double MAX_LOAD = 0.75;
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param windowMillis 窗口长度
+     * @param buckets      窗口分桶数（精度为windowMillis / buckets）
+     * @param capacity     最多同时跟踪的键数
+     * @param concurrency  分段数（向上取2的幂）
+     */
+    public SlidingWindowCounter(long windowMillis, int buckets, int capacity, int concurrency) {
+        if (windowMillis <= 0 || buckets <= 0 || capacity <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("滑动窗口参数必须为正数");
+        }
+        this.buckets = buckets;
+        this.bucketMillis = Math.max(1L, windowMillis / buckets);
+        int segmentCount = ceilPowerOfTwo(concurrency);
+        int perSegment = (int) Math.ceil((double) capacity / segmentCount);
+        int slots = ceilPowerOfTwo(Math.max(2, (int) Math.ceil(perSegment / MAX_LOAD)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(slots, buckets, (int) (slots * MAX_LOAD));
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * 计数加一
+     *
+     * @return 加一后的窗口内计数；容量已满无法跟踪该键时返回-1
+     */
+    public int increment(String key, long nowMillis) {
+        long hash = hash(key);
+        return segmentFor(hash).increment(hash, nowMillis / bucketMillis);
+    }
+
+    /**
+     * 当前窗口内计数（未跟踪的键为0）
+     */
+    public int count(String key, long nowMillis) {
+        long hash = hash(key);
+        return segmentFor(hash).count(hash, nowMillis / bucketMillis);
+    }
+
+    /**
+     * 当前占用的槽位数（含尚未清理的过期键）
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.used;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 因容量已满被拒绝的新键累计次数
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments.length == 1 ? segments[0] : segments[(int) (hash >>> segmentShift)];
+    }
+
+    private static int ceilPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * 64位FNV-1a + murmur3终混，0保留为空槽标记
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1L;
+    }
+
+    private final class Segment {
+        private long[] keys;
+        private long[] stamps;
+        private int[] counts;
+        private final int mask;
+        private final int maxUsed;
+        private int used;
+        private long purgeBlockedUntil = Long.MIN_VALUE;
+
+        Segment(int slots, int buckets, int maxUsed) {
+            this.keys = new long[slots];
+            this.stamps = new long[slots];
+            this.counts = new int[slots * buckets];
+            this.mask = slots - 1;
+            this.maxUsed = maxUsed;
+        }
+
+        synchronized int increment(long hash, long epoch) {
+            int slot = find(hash);
+            if (slot < 0) {
+                if (used >= maxUsed && !purge(epoch)) {
+                    rejected.incrementAndGet();
+                    return -1;
+                }
+                slot = insert(hash, epoch);
+            }
+            advance(slot, epoch);
+            counts[slot * buckets + bucket(stamps[slot])]++;
+            return sum(slot, stamps[slot]);
+        }
+
+        synchronized int count(long hash, long epoch) {
+            int slot = find(hash);
+            return slot < 0 ? 0 : sum(slot, epoch);
+        }
+
+        private int find(long hash) {
+            int i = (int) hash & mask;
+            while (keys[i] != 0) {
+                if (keys[i] == hash) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int insert(long hash, long epoch) {
+            int i = (int) hash & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = hash;
+            stamps[i] = epoch;
+            used++;
+            return i;
+        }
+
+        /**
+         * 推进槽位到指定时间桶，清零期间跳过的桶；乱序的较早事件计入最新桶
+         */
+        private void advance(int slot, long epoch) {
+            long stamp = stamps[slot];
+            if (epoch <= stamp) {
+                return;
+            }
+            long gap = Math.min(epoch - stamp, buckets);
+            for (long e = epoch - gap + 1; e <= epoch; e++) {
+                counts[slot * buckets + bucket(e)] = 0;
+            }
+            stamps[slot] = epoch;
+        }
+
+        /**
+         * 窗口(epoch - buckets, epoch]内的计数；槽位只保存(stamp - buckets, stamp]的桶
+         */
+        private int sum(int slot, long epoch) {
+            long stamp = stamps[slot];
+            long from = Math.max(epoch, stamp) - buckets + 1;
+            long to = Math.min(epoch, stamp);
+            int total = 0;
+            for (long e = from; e <= to; e++) {
+                total += counts[slot * buckets + bucket(e)];
+            }
+            return total;
+        }
+
+        /**
+         * 重建段内哈希表，只保留窗口内仍有计数的键
+         *
+         * @return 清理后是否有空位
+         */
+        private boolean purge(long epoch) {
+            if (epoch < purgeBlockedUntil) {
+                return false;
+            }
+            long[] oldKeys = keys;
+            long[] oldStamps = stamps;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length];
+            stamps = new long[oldKeys.length];
+            counts = new int[oldCounts.length];
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0 && oldStamps[i] > epoch - buckets) {
+                    int slot = insert(oldKeys[i], oldStamps[i]);
+                    System.arraycopy(oldCounts, i * buckets, counts, slot * buckets, buckets);
+                }
+            }
+            if (used >= maxUsed) {
+                // 活跃键已占满，本时间桶内不再重复重建
+                purgeBlockedUntil = epoch + 1;
+                return false;
+            }
+            return true;
+        }
+
+        private int bucket(long epoch) {
+            return (int) Math.floorMod(epoch, (long) buckets);
+        }
+    }
+}
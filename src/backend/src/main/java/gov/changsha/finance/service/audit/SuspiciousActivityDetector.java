@@ -0,0 +1,233 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.dto.response.SuspiciousSource;
+import gov.changsha.finance.dto.response.SuspiciousSource.SourceType;
+import gov.changsha.finance.entity.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 可疑活动实时检测器
+ * 由审计日志提交路径逐条喂入，对失败操作按来源IP和用户名做滑动窗口计数，
+ * 达到阈值时立即写入安全事件；查询只读内存计数，不访问数据库。
+ * 精确计数器容量固定，键空间超出容量时（如大范围分布式探测）由高频近似统计兜底
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class SuspiciousActivityDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuspiciousActivityDetector.class);
+
+    private static final int MAX_COOLDOWN_ENTRIES = 10000;
+
+    @Value("${system.audit.anomaly.window-seconds:300}")
+    private long windowSeconds;
+
+    @Value("${system.audit.anomaly.buckets:10}")
+    private int buckets;
+
+    @Value("${system.audit.anomaly.capacity:65536}")
+    private int capacity;
+
+    @Value("${system.audit.anomaly.heavy-hitters:256}")
+    private int heavyHitters;
+
+    @Value("${system.audit.anomaly.ip-failure-threshold:20}")
+    private int ipFailureThreshold;
+
+    @Value("${system.audit.anomaly.username-failure-threshold:10}")
+    private int usernameFailureThreshold;
+
+    @Value("${system.audit.anomaly.alert-cooldown-seconds:300}")
+    private long alertCooldownSeconds;
+
+    @Autowired
+    private SecurityEventRecorder securityEventRecorder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private SlidingWindowCounter ipCounter;
+    private SlidingWindowCounter usernameCounter;
+    private HeavyHitterSketch ipSketch;
+    private HeavyHitterSketch usernameSketch;
+    private Map<String, Long> lastAlertAt;
+    private Counter alertCounter;
+
+    @PostConstruct
+    public void init() {
+        long windowMillis = windowSeconds * 1000L;
+        int concurrency = Runtime.getRuntime().availableProcessors() * 2;
+        ipCounter = new SlidingWindowCounter(windowMillis, buckets, capacity, concurrency);
+        usernameCounter = new SlidingWindowCounter(windowMillis, buckets, capacity, concurrency);
+        ipSketch = new HeavyHitterSketch(heavyHitters, windowMillis);
+        usernameSketch = new HeavyHitterSketch(heavyHitters, windowMillis);
+        lastAlertAt = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_COOLDOWN_ENTRIES;
+            }
+        };
+
+        Gauge.builder("audit.anomaly.tracked.keys", ipCounter, SlidingWindowCounter::size)
+            .tag("source", "ip").register(meterRegistry);
+        Gauge.builder("audit.anomaly.tracked.keys", usernameCounter, SlidingWindowCounter::size)
+            .tag("source", "username").register(meterRegistry);
+        Gauge.builder("audit.anomaly.rejected.keys", ipCounter, c -> c.getRejectedCount() + usernameCounter.getRejectedCount())
+            .description("精确计数器容量已满被拒绝的新键次数").register(meterRegistry);
+        alertCounter = Counter.builder("audit.anomaly.alerts").register(meterRegistry);
+        logger.info("可疑活动检测器启动 - 窗口: {}s/{}桶, 容量: {}, IP阈值: {}, 用户名阈值: {}",
+                    windowSeconds, buckets, capacity, ipFailureThreshold, usernameFailureThreshold);
+    }
+
+    /**
+     * 喂入一条审计日志（只统计失败操作）
+     */
+    public void record(AuditLog auditLog) {
+        if (auditLog.getOperationStatus() != AuditLog.OperationStatus.FAILED) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String ip = auditLog.getIpAddress();
+        String username = auditLog.getUsername();
+
+        if (hasText(ip)) {
+            long count = observe(ipCounter, ipSketch, ip, now);
+            if (count >= ipFailureThreshold) {
+                alert(SourceType.IP, ip, count, auditLog, now);
+            }
+        }
+        if (hasText(username)) {
+            long count = observe(usernameCounter, usernameSketch, username, now);
+            if (count >= usernameFailureThreshold) {
+                alert(SourceType.USERNAME, username, count, auditLog, now);
+            }
+        }
+    }
+
+    /**
+     * 该IP当前是否可疑
+     */
+    public boolean isSuspiciousIp(String ip) {
+        return hasText(ip) && getFailureCount(SourceType.IP, ip) >= ipFailureThreshold;
+    }
+
+    /**
+     * 该用户名当前是否可疑
+     */
+    public boolean isSuspiciousUsername(String username) {
+        return hasText(username) && getFailureCount(SourceType.USERNAME, username) >= usernameFailureThreshold;
+    }
+
+    /**
+     * 滑动窗口内的失败次数；未被精确跟踪时取高频统计的保证下界
+     */
+    public long getFailureCount(SourceType type, String key) {
+        long now = System.currentTimeMillis();
+        SlidingWindowCounter counter = type == SourceType.IP ? ipCounter : usernameCounter;
+        HeavyHitterSketch sketch = type == SourceType.IP ? ipSketch : usernameSketch;
+        return Math.max(counter.count(key, now), sketch.guaranteed(key, now));
+    }
+
+    /**
+     * 当前达到阈值的可疑来源（替代按原始表GROUP BY的findSuspiciousActivity）
+     */
+    public List<SuspiciousSource> getSuspiciousSources() {
+        long now = System.currentTimeMillis();
+        List<SuspiciousSource> sources = new ArrayList<>();
+        collect(sources, SourceType.IP, ipCounter, ipSketch, ipFailureThreshold, now);
+        collect(sources, SourceType.USERNAME, usernameCounter, usernameSketch, usernameFailureThreshold, now);
+        sources.sort((a, b) -> Long.compare(b.getFailureCount(), a.getFailureCount()));
+        return sources;
+    }
+
+    private long observe(SlidingWindowCounter counter, HeavyHitterSketch sketch, String key, long now) {
+        long estimate = sketch.offer(key, now);
+        int exact = counter.increment(key, now);
+        // 精确计数器已满时按高频统计的估计值判断（只会高估，告警偏保守）
+        return exact >= 0 ? exact : estimate;
+    }
+
+    private void collect(List<SuspiciousSource> sources, SourceType type, SlidingWindowCounter counter,
+                         HeavyHitterSketch sketch, long threshold, long now) {
+        // 高频统计必定保留超过 总数/k 的键；候选取当前与上一窗口，按滑动窗口精确计数复核
+        Set<String> candidates = new HashSet<>();
+        sketch.previousWindow(now).forEach(entry -> candidates.add(entry.getKey()));
+        sketch.top(1, now).forEach(entry -> candidates.add(entry.getKey()));
+        for (String key : candidates) {
+            int exact = counter.count(key, now);
+            long guaranteed = sketch.guaranteed(key, now);
+            long count = Math.max(exact, guaranteed);
+            if (count >= threshold) {
+                sources.add(new SuspiciousSource(type, key, count, threshold, exact < guaranteed));
+            }
+        }
+    }
+
+    private void alert(SourceType type, String key, long count, AuditLog trigger, long now) {
+        String cooldownKey = type + ":" + key;
+        synchronized (lastAlertAt) {
+            Long last = lastAlertAt.get(cooldownKey);
+            if (last != null && now - last < alertCooldownSeconds * 1000L) {
+                return;
+            }
+            lastAlertAt.put(cooldownKey, now);
+        }
+        alertCounter.increment();
+
+        boolean byIp = type == SourceType.IP;
+        long threshold = byIp ? ipFailureThreshold : usernameFailureThreshold;
+        logger.warn("检测到可疑活动 - 类型: {}, 来源: {}, {}秒内失败次数: {}, 阈值: {}",
+                    type, key, windowSeconds, count, threshold);
+
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("sourceType", type.name());
+        details.put("sourceKey", key);
+        details.put("failureCount", count);
+        details.put("threshold", threshold);
+        details.put("windowSeconds", windowSeconds);
+        details.put("detectedAt", LocalDateTime.now().toString());
+        details.put("lastOperation", trigger.getOperation() != null ? trigger.getOperation().name() : null);
+        details.put("lastModule", trigger.getModule());
+
+        Map<String, Object> indicators = new LinkedHashMap<>();
+        indicators.put("failureRatePerMinute", count * 60.0 / windowSeconds);
+        if (byIp) {
+            indicators.put("lastUsername", trigger.getUsername());
+        } else {
+            indicators.put("lastSourceIp", trigger.getIpAddress());
+        }
+
+        securityEventRecorder.record(new SecurityEventRecorder.SecurityEvent(
+            byIp ? SecurityEventRecorder.EventType.SUSPICIOUS_ACTIVITY : SecurityEventRecorder.EventType.LOGIN_FAILURE,
+            byIp ? "疑似暴力破解来源IP" : "账户连续失败操作",
+            String.format("%s %s 在%d秒内失败%d次（阈值%d）", byIp ? "IP" : "用户名", key, windowSeconds, count, threshold),
+            count >= threshold * 5 ? "CRITICAL" : "HIGH",
+            byIp ? null : trigger.getUserId(),
+            byIp ? null : key,
+            byIp ? key : trigger.getIpAddress(),
+            details, indicators));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,71 @@
+package gov.changsha.finance.service.backup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 备份作业的集群互斥锁
+ * 在独占的连接上取PostgreSQL会话级advisory锁，作业期间一直持有该连接，结束后释放。
+ * 持锁节点崩溃时连接断开，锁随之释放，不需要像Redis锁那样设置过期时间并续期。
+ * 非PostgreSQL环境视为单节点部署，直接执行
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class BackupJobLock {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackupJobLock.class);
+
+    /** advisory锁键，全库唯一；取自"manday-assess-backup"的固定值 */
+    static final long LOCK_KEY = 0x6d64_6261_636b_7570L;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 取得锁后执行作业并返回true；锁已被其它节点（或本节点的另一个作业）持有时不执行，返回false
+     */
+    public boolean runExclusive(Runnable job) throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            if (!"PostgreSQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName())) {
+                job.run();
+                return true;
+            }
+            if (!advisory(con, "SELECT pg_try_advisory_lock(?)")) {
+                return false;
+            }
+            try {
+                job.run();
+                return true;
+            } finally {
+                try {
+                    if (!advisory(con, "SELECT pg_advisory_unlock(?)")) {
+                        logger.warn("释放备份作业锁时发现锁已不在本会话上");
+                    }
+                } catch (SQLException ex) {
+                    // 连接已断开时锁已随会话释放
+                    logger.warn("释放备份作业锁失败: {}", ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean advisory(Connection con, String sql) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setLong(1, LOCK_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
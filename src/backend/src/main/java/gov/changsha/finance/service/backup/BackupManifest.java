@@ -0,0 +1,545 @@
+package gov.changsha.finance.service.backup;
+
+import gov.changsha.finance.service.backup.BackupRecordStore.BackupRecord;
+import gov.changsha.finance.service.backup.BackupRecordStore.BackupType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 备份清单索引
+ * 备份目录下的追加写清单文件，每行一条带CRC32校验的新增或删除记录，首次使用时整体载入内存；
+ * 列表、按时间点选择恢复点、恢复链解析和分级（GFS）保留都只在内存中完成，不再扫描目录、解析文件名。
+ * 清单缺失或中间某行校验失败时扫描备份目录重建（重新计算SHA-256，水位与父备份取自data_backup_records）；
+ * 末行校验失败视为上次写入中途崩溃，丢弃该行。作废的行多于有效条目时整体重写压缩
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class BackupManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackupManifest.class);
+
+    public static final String FILE_NAME = ".backup-manifest";
+    public static final String BACKUP_PREFIX = "manday_assess_backup_";
+
+    private static final String HEADER = "#manday-assess backup manifest v1";
+    private static final String PART_SUFFIX = ".part";
+    private static final String OP_ADD = "A";
+    private static final String OP_DELETE = "D";
+    private static final int ADD_FIELDS = 11;
+    private static final Pattern NAME_TIMESTAMP = Pattern.compile("^" + BACKUP_PREFIX + "(\\d{8}_\\d{6})");
+    private static final DateTimeFormatter NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    private final Path directory;
+    private final Path file;
+    private final Supplier<List<BackupRecord>> recordSource;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private int deadLines;
+    private boolean loaded;
+
+    /**
+     * @param recordSource 重建清单时提供已完成的备份记录（水位、父备份、记录ID）；不可用时返回空列表
+     */
+    public BackupManifest(Path directory, Supplier<List<BackupRecord>> recordSource) {
+        this.directory = directory;
+        this.file = directory.resolve(FILE_NAME);
+        this.recordSource = recordSource;
+    }
+
+    /**
+     * 登记一个已写入完成的备份
+     */
+    public synchronized void add(Entry entry) throws IOException {
+        ensureLoaded();
+        if (entries.put(entry.getName(), entry) != null) {
+            deadLines++;
+        }
+        append(encode(entry));
+    }
+
+    /**
+     * 移除一个备份条目（备份文件由调用方删除）
+     */
+    public synchronized void remove(String name) throws IOException {
+        ensureLoaded();
+        if (entries.remove(name) == null) {
+            return;
+        }
+        deadLines += 2;
+        append(OP_DELETE + "\t" + name);
+        if (deadLines > entries.size()) {
+            rewrite();
+        }
+    }
+
+    /**
+     * 全部备份，按创建时间倒序
+     */
+    public synchronized List<Entry> list() throws IOException {
+        ensureLoaded();
+        return entries.values().stream()
+            .sorted(Comparator.comparing(Entry::getCreatedAt).reversed())
+            .collect(Collectors.toList());
+    }
+
+    public synchronized Entry find(String name) throws IOException {
+        ensureLoaded();
+        return entries.get(name);
+    }
+
+    public synchronized Entry findByRecordId(long recordId) throws IOException {
+        ensureLoaded();
+        return entries.values().stream()
+            .filter(entry -> entry.getRecordId() != null && entry.getRecordId() == recordId)
+            .findFirst().orElse(null);
+    }
+
+    /**
+     * 不晚于指定时间的最近恢复点（按备份覆盖到的水位，无水位时按创建时间）
+     */
+    public synchronized Entry findRestorePoint(LocalDateTime pointInTime) throws IOException {
+        ensureLoaded();
+        return entries.values().stream()
+            .filter(entry -> !entry.getPointInTime().isAfter(pointInTime))
+            .max(Comparator.comparing(Entry::getPointInTime).thenComparing(Entry::getCreatedAt))
+            .orElse(null);
+    }
+
+    /**
+     * 解析恢复链：从目标备份沿父备份回溯到全量备份，按全量在前的顺序返回
+     */
+    public synchronized List<Entry> resolveChain(String name) throws IOException {
+        ensureLoaded();
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("备份清单中不存在该备份: " + name);
+        }
+        Deque<Entry> chain = new ArrayDeque<>();
+        while (entry.getType() != BackupType.FULL) {
+            chain.addFirst(entry);
+            if (entry.getParent() == null || chain.size() > entries.size()) {
+                throw new IllegalStateException("备份 " + name + " 的恢复链不完整：未找到全量备份");
+            }
+            Entry parent = entries.get(entry.getParent());
+            if (parent == null) {
+                throw new IllegalStateException("恢复链中的备份已不存在: " + entry.getParent());
+            }
+            entry = parent;
+        }
+        chain.addFirst(entry);
+        return new ArrayList<>(chain);
+    }
+
+    /**
+     * 按分级保留策略选出可删除的备份
+     * 最近dailyDays天内的备份全部保留；最近weeklyCount个自然周、monthlyCount个自然月各保留一个（优先该周期内最新的全量备份）；
+     * 被保留的增量备份所依赖的整条恢复链一并保留
+     */
+    public synchronized List<Entry> selectExpired(LocalDate today, int dailyDays, int weeklyCount, int monthlyCount)
+            throws IOException {
+        List<Entry> newestFirst = list();
+        LocalDate dailyFrom = today.minusDays(Math.max(dailyDays, 1) - 1L);
+        LocalDate weeklyFrom = today.with(DayOfWeek.MONDAY).minusWeeks(weeklyCount - 1L);
+        YearMonth monthlyFrom = YearMonth.from(today).minusMonths(monthlyCount - 1L);
+
+        Set<String> keep = new HashSet<>();
+        Map<LocalDate, Entry> weekly = new HashMap<>();
+        Map<YearMonth, Entry> monthly = new HashMap<>();
+        for (Entry entry : newestFirst) {
+            LocalDate day = entry.getCreatedAt().toLocalDate();
+            if (!day.isBefore(dailyFrom)) {
+                keep.add(entry.getName());
+            }
+            if (weeklyCount > 0 && !day.isBefore(weeklyFrom)) {
+                weekly.merge(day.with(DayOfWeek.MONDAY), entry, BackupManifest::preferFull);
+            }
+            if (monthlyCount > 0 && !YearMonth.from(day).isBefore(monthlyFrom)) {
+                monthly.merge(YearMonth.from(day), entry, BackupManifest::preferFull);
+            }
+        }
+        weekly.values().forEach(entry -> keep.add(entry.getName()));
+        monthly.values().forEach(entry -> keep.add(entry.getName()));
+
+        for (String name : new ArrayList<>(keep)) {
+            Entry entry = entries.get(name);
+            while (entry != null && entry.getParent() != null && keep.add(entry.getParent())) {
+                entry = entries.get(entry.getParent());
+            }
+        }
+        return newestFirst.stream().filter(entry -> !keep.contains(entry.getName())).collect(Collectors.toList());
+    }
+
+    /**
+     * 丢弃清单，下次访问时扫描备份目录重建（登记失败导致清单与备份文件不一致时调用）
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        entries.clear();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.warn("删除备份清单失败: {}", ex.getMessage());
+        }
+    }
+
+    public Path resolve(Entry entry) {
+        return directory.resolve(entry.getName());
+    }
+
+    /**
+     * 扫描备份目录重建清单
+     */
+    public synchronized void rebuild() throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, BackupRecord> recordsByName = new HashMap<>();
+        Map<Long, BackupRecord> recordsById = new HashMap<>();
+        try {
+            for (BackupRecord record : recordSource.get()) {
+                recordsByName.put(record.getName(), record);
+                recordsById.put(record.getId(), record);
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("读取备份记录失败，仅依据备份文件重建清单: {}", ex.getMessage());
+        }
+
+        List<Path> paths = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(path -> path.getFileName().toString().startsWith(BACKUP_PREFIX))
+                     .filter(path -> !path.getFileName().toString().endsWith(PART_SUFFIX))
+                     .sorted()
+                     .forEach(paths::add);
+            }
+        }
+
+        entries.clear();
+        Entry previous = null;
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            BackupRecord record = recordsByName.get(name);
+            BackupType type = name.contains("_incr") ? BackupType.INCREMENTAL : BackupType.FULL;
+            String sha256 = sha256Of(path);
+            if (record != null && record.getChecksum() != null && !record.getChecksum().equalsIgnoreCase(sha256)) {
+                logger.warn("备份文件的SHA-256与备份记录不符，可能已损坏: {}", name);
+            }
+            String parent = null;
+            if (type == BackupType.INCREMENTAL) {
+                BackupRecord parentRecord = record != null && record.getParentId() != null
+                    ? recordsById.get(record.getParentId()) : null;
+                // 没有备份记录时按生成方式推断：增量备份总是基于它之前最近的一次备份
+                parent = parentRecord != null ? parentRecord.getName() : previous != null ? previous.getName() : null;
+            }
+            Entry entry = new Entry(name, type, sizeOf(path), sha256, createdAt(path, name),
+                                    record != null ? record.getWatermarkFrom() : null,
+                                    record != null ? record.getWatermarkTo() : null,
+                                    parent, record != null ? record.getId() : null, isEncrypted(path));
+            entries.put(name, entry);
+            previous = entry;
+        }
+        loaded = true;
+        rewrite();
+        logger.info("备份清单重建完成 - 目录: {}, 条目数: {}, 耗时: {}ms",
+                    directory, entries.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 备份的SHA-256：文件为其内容的摘要，目录格式备份为各文件摘要清单的摘要
+     */
+    public static String sha256Of(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            Map<String, String> checksums = new TreeMap<>();
+            try (Stream<Path> files = Files.list(path)) {
+                for (Path child : files.collect(Collectors.toList())) {
+                    checksums.put(child.getFileName().toString(), sha256Of(child));
+                }
+            }
+            return directoryDigest(checksums);
+        }
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[65536];
+        try (InputStream in = Files.newInputStream(path)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 目录格式备份的SHA-256：按文件名排序的"文件名 SHA-256"清单的摘要
+     */
+    public static String directoryDigest(Map<String, String> checksums) {
+        MessageDigest digest = newSha256();
+        new TreeMap<>(checksums).forEach((name, sha256) ->
+            digest.update((name + " " + sha256 + "\n").getBytes(StandardCharsets.UTF_8)));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static long sizeOf(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.size(path);
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private void ensureLoaded() throws IOException {
+        if (loaded) {
+            return;
+        }
+        if (!Files.exists(file)) {
+            logger.warn("备份清单不存在，扫描备份目录重建: {}", directory);
+            rebuild();
+            return;
+        }
+
+        byte[] data = Files.readAllBytes(file);
+        String[] lines = new String(data, StandardCharsets.UTF_8).split("\n", -1);
+        entries.clear();
+        deadLines = 0;
+        boolean needsRewrite = data.length == 0 || data[data.length - 1] != '\n';
+        try {
+            if (!HEADER.equals(lines[0])) {
+                throw new IllegalStateException("清单文件头无效");
+            }
+            // 以换行结尾时split的最后一项为空串
+            int last = needsRewrite ? lines.length - 1 : lines.length - 2;
+            for (int i = 1; i <= last; i++) {
+                String payload = unseal(lines[i]);
+                if (payload == null) {
+                    if (i == last) {
+                        logger.warn("丢弃备份清单末尾不完整的记录（上次写入中断）");
+                        needsRewrite = true;
+                        break;
+                    }
+                    throw new IllegalStateException("第" + (i + 1) + "行校验失败");
+                }
+                apply(payload);
+            }
+        } catch (RuntimeException ex) {
+            logger.warn("备份清单损坏（{}），扫描备份目录重建", ex.getMessage());
+            rebuild();
+            return;
+        }
+        loaded = true;
+        if (needsRewrite || deadLines > entries.size()) {
+            rewrite();
+        }
+        logger.info("载入备份清单 - 条目数: {}", entries.size());
+    }
+
+    private void apply(String payload) {
+        String[] fields = payload.split("\t", -1);
+        if (OP_ADD.equals(fields[0])) {
+            Entry entry = decode(fields);
+            if (entries.put(entry.getName(), entry) != null) {
+                deadLines++;
+            }
+        } else if (OP_DELETE.equals(fields[0]) && fields.length == 2) {
+            if (entries.remove(fields[1]) != null) {
+                deadLines++;
+            }
+            deadLines++;
+        } else {
+            throw new IllegalStateException("无法识别的清单记录: " + fields[0]);
+        }
+    }
+
+    private void append(String payload) throws IOException {
+        if (!Files.exists(file)) {
+            logger.warn("备份清单文件已丢失，按内存中的索引重写");
+            rewrite();
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap((seal(payload) + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 将内存中的有效条目写入临时文件后原子替换清单
+     */
+    private void rewrite() throws IOException {
+        Files.createDirectories(directory);
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (Entry entry : entries.values()) {
+            content.append(seal(encode(entry))).append('\n');
+        }
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        deadLines = 0;
+    }
+
+    private static String seal(String payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", crc.getValue()) + "\t" + payload;
+    }
+
+    /**
+     * 校验一行的CRC32，返回其内容；校验失败返回null
+     */
+    private static String unseal(String line) {
+        if (line.length() < 10 || line.charAt(8) != '\t') {
+            return null;
+        }
+        String payload = line.substring(9);
+        return seal(payload).equals(line) ? payload : null;
+    }
+
+    private static String encode(Entry entry) {
+        return String.join("\t", OP_ADD, entry.getName(), entry.getType().name(), Long.toString(entry.getSizeBytes()),
+                           text(entry.getSha256()), text(entry.getCreatedAt()), text(entry.getWatermarkFrom()),
+                           text(entry.getWatermarkTo()), text(entry.getParent()), text(entry.getRecordId()),
+                           Boolean.toString(entry.isEncrypted()));
+    }
+
+    private static Entry decode(String[] fields) {
+        if (fields.length != ADD_FIELDS) {
+            throw new IllegalStateException("清单记录字段数无效: " + fields.length);
+        }
+        return new Entry(fields[1], BackupType.valueOf(fields[2]), Long.parseLong(fields[3]), emptyToNull(fields[4]),
+                         LocalDateTime.parse(fields[5]), time(fields[6]), time(fields[7]), emptyToNull(fields[8]),
+                         fields[9].isEmpty() ? null : Long.valueOf(fields[9]), Boolean.parseBoolean(fields[10]));
+    }
+
+    private static Entry preferFull(Entry newer, Entry older) {
+        return newer.getType() != BackupType.FULL && older.getType() == BackupType.FULL ? older : newer;
+    }
+
+    private static LocalDateTime createdAt(Path path, String name) throws IOException {
+        Matcher matcher = NAME_TIMESTAMP.matcher(name);
+        if (matcher.find()) {
+            try {
+                return LocalDateTime.parse(matcher.group(1), NAME_FORMATTER);
+            } catch (DateTimeParseException ignored) {
+                // 文件名被改动过，退回到修改时间
+            }
+        }
+        return LocalDateTime.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+    }
+
+    private static boolean isEncrypted(Path path) {
+        return Files.isDirectory(path)
+            ? Files.exists(path.resolve("toc.dat.gz.enc"))
+            : path.getFileName().toString().endsWith(".enc");
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static LocalDateTime time(String value) {
+        return value.isEmpty() ? null : LocalDateTime.parse(value);
+    }
+
+    /**
+     * 清单条目
+     */
+    public static final class Entry {
+        private final String name;
+        private final BackupType type;
+        private final long sizeBytes;
+        private final String sha256;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime watermarkFrom;
+        private final LocalDateTime watermarkTo;
+        private final String parent;
+        private final Long recordId;
+        private final boolean encrypted;
+
+        /**
+         * @param parent 增量备份所依赖的上一个备份的名称，全量备份为null
+         */
+        public Entry(String name, BackupType type, long sizeBytes, String sha256, LocalDateTime createdAt,
+                     LocalDateTime watermarkFrom, LocalDateTime watermarkTo, String parent, Long recordId,
+                     boolean encrypted) {
+            this.name = name;
+            this.type = type;
+            this.sizeBytes = sizeBytes;
+            this.sha256 = sha256;
+            this.createdAt = createdAt;
+            this.watermarkFrom = watermarkFrom;
+            this.watermarkTo = watermarkTo;
+            this.parent = parent;
+            this.recordId = recordId;
+            this.encrypted = encrypted;
+        }
+
+        public String getName() { return name; }
+        public BackupType getType() { return type; }
+        public long getSizeBytes() { return sizeBytes; }
+        public String getSha256() { return sha256; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public LocalDateTime getWatermarkFrom() { return watermarkFrom; }
+        public LocalDateTime getWatermarkTo() { return watermarkTo; }
+        public String getParent() { return parent; }
+        public Long getRecordId() { return recordId; }
+        public boolean isEncrypted() { return encrypted; }
+
+        /**
+         * 恢复到该备份后数据所处的时间点
+         */
+        public LocalDateTime getPointInTime() {
+            return watermarkTo != null ? watermarkTo : createdAt;
+        }
+    }
+}
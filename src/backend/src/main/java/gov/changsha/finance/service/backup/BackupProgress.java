@@ -0,0 +1,123 @@
+package gov.changsha.finance.service.backup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 备份进度
+ * 记录本节点当前（或最近一次）备份的已处理字节数、平均速率和预计剩余时间，
+ * 以backup.progress.*指标和/actuator/backup端点对外提供。预计总量取同类型上一次备份的导出大小，仅作估算
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class BackupProgress {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile boolean running;
+    private volatile String backupName;
+    private volatile String backupType;
+    private volatile long expectedBytes;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile Boolean lastSuccess;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("backup.progress.running", this, p -> p.running ? 1 : 0)
+            .description("本节点是否正在执行备份")
+            .register(meterRegistry);
+        Gauge.builder("backup.progress.bytes", bytes, AtomicLong::get)
+            .description("当前备份已处理的导出字节数")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("backup.progress.rate", this, BackupProgress::bytesPerSecond)
+            .description("当前备份的平均速率")
+            .baseUnit("bytes/s")
+            .register(meterRegistry);
+        Gauge.builder("backup.progress.eta", this, BackupProgress::etaSeconds)
+            .description("当前备份预计剩余时间，无法估算时为-1")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    public void start(String name, String type, long expectedBytes) {
+        bytes.set(0);
+        this.backupName = name;
+        this.backupType = type;
+        this.expectedBytes = expectedBytes;
+        this.startedAt = LocalDateTime.now();
+        this.finishedAt = null;
+        this.startedNanos = System.nanoTime();
+        this.running = true;
+    }
+
+    public void add(long n) {
+        bytes.addAndGet(n);
+    }
+
+    public void finish(boolean success) {
+        finishedNanos = System.nanoTime();
+        finishedAt = LocalDateTime.now();
+        lastSuccess = success;
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public double bytesPerSecond() {
+        if (startedAt == null) {
+            return 0;
+        }
+        long elapsed = (running ? System.nanoTime() : finishedNanos) - startedNanos;
+        return elapsed > 0 ? bytes.get() * 1_000_000_000.0 / elapsed : 0;
+    }
+
+    /**
+     * 预计剩余秒数；未在执行、没有可参照的预计总量或已超过预计总量时为-1
+     */
+    public double etaSeconds() {
+        double rate = bytesPerSecond();
+        long remaining = expectedBytes - bytes.get();
+        if (!running || expectedBytes <= 0 || remaining <= 0 || rate <= 0) {
+            return -1;
+        }
+        return remaining / rate;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("running", running);
+        snapshot.put("backupName", backupName);
+        snapshot.put("backupType", backupType);
+        snapshot.put("bytes", bytes.get());
+        snapshot.put("expectedBytes", expectedBytes > 0 ? expectedBytes : null);
+        snapshot.put("bytesPerSecond", Math.round(bytesPerSecond()));
+        double eta = etaSeconds();
+        snapshot.put("etaSeconds", eta >= 0 ? Math.round(eta) : null);
+        snapshot.put("startedAt", startedAt);
+        snapshot.put("finishedAt", finishedAt);
+        snapshot.put("elapsedSeconds", startedAt != null
+            ? Duration.ofNanos((running ? System.nanoTime() : finishedNanos) - startedNanos).toSeconds() : null);
+        snapshot.put("lastSuccess", lastSuccess);
+        return snapshot;
+    }
+}
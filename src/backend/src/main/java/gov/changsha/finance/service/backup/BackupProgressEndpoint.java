@@ -0,0 +1,28 @@
+package gov.changsha.finance.service.backup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 备份进度端点（/actuator/backup）
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+@Endpoint(id = "backup")
+public class BackupProgressEndpoint {
+
+    @Autowired
+    private BackupProgress backupProgress;
+
+    @ReadOperation
+    public Map<String, Object> progress() {
+        return backupProgress.snapshot();
+    }
+}
@@ -0,0 +1,347 @@
+package gov.changsha.finance.service.backup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import gov.changsha.finance.service.backup.CopyDataDigest.TableDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 备份记录存储
+ * 读写data_backup_records（V7/V25/V26/V27）：每次备份的类型、文件、大小、校验值、水位区间和所依赖的上一个备份。
+ * 该表含JSONB列且未映射为实体，仅PostgreSQL环境落库；其它数据库上写入静默跳过、查询返回空
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class BackupRecordStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackupRecordStore.class);
+
+    private static final String SELECT_COLUMNS =
+        "id, backup_name, backup_type, backup_status, backup_file_path, checksum_value, start_time, end_time, " +
+        "watermark_from, watermark_to, parent_id, records_count, is_verified";
+
+    /**
+     * 备份类型（与chk_data_backup_records_backup_type一致）
+     */
+    public enum BackupType {
+        FULL, INCREMENTAL
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile Boolean supported;
+
+    /**
+     * 登记一次开始执行的备份
+     *
+     * @return 记录ID；不支持或写入失败时返回null
+     */
+    public Long start(String name, BackupType type, String filePath, String storageLocation,
+                      LocalDateTime watermarkFrom, LocalDateTime watermarkTo, Long parentId,
+                      boolean encrypted, boolean scheduled) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            return jdbcTemplate.queryForObject(
+                "INSERT INTO data_backup_records (backup_name, backup_type, backup_scope, backup_strategy, " +
+                "compression_enabled, encryption_enabled, backup_status, start_time, storage_location, storage_type, " +
+                "backup_file_path, watermark_from, watermark_to, parent_id, is_scheduled) " +
+                "VALUES (?, ?, ?, ?, true, ?, 'RUNNING', CURRENT_TIMESTAMP, ?, 'LOCAL', ?, ?, ?, ?, ?) RETURNING id",
+                Long.class,
+                name, type.name(), type == BackupType.FULL ? "DATABASE" : "TABLES",
+                type == BackupType.FULL ? "PG_DUMP" : "WATERMARK", encrypted, storageLocation, filePath,
+                timestamp(watermarkFrom), timestamp(watermarkTo), parentId, scheduled);
+        } catch (Exception ex) {
+            logger.warn("登记备份记录失败 - 名称: {}, 错误: {}", name, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 标记备份成功
+     *
+     * @param rawBytes    压缩前的数据量
+     * @param storedBytes 备份文件大小
+     */
+    public void complete(Long id, long rawBytes, long storedBytes, Long recordsCount, Integer tablesCount, String sha256) {
+        if (id == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(
+                "UPDATE data_backup_records SET backup_status = 'COMPLETED', end_time = CURRENT_TIMESTAMP, " +
+                "duration_minutes = CAST(EXTRACT(EPOCH FROM (CURRENT_TIMESTAMP - start_time)) / 60 AS INTEGER), " +
+                "backup_size_mb = ?, compressed_size_mb = ?, backup_size_bytes = ?, records_count = ?, tables_count = ?, " +
+                "checksum_value = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                megabytes(rawBytes), megabytes(storedBytes), storedBytes, recordsCount, tablesCount, sha256, id);
+        } catch (Exception ex) {
+            logger.warn("更新备份记录失败 - ID: {}, 错误: {}", id, ex.getMessage());
+        }
+    }
+
+    /**
+     * 标记备份失败
+     */
+    public void fail(Long id, String errorMessage) {
+        if (id == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(
+                "UPDATE data_backup_records SET backup_status = 'FAILED', end_time = CURRENT_TIMESTAMP, " +
+                "error_message = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?", errorMessage, id);
+        } catch (Exception ex) {
+            logger.warn("更新备份记录失败 - ID: {}, 错误: {}", id, ex.getMessage());
+        }
+    }
+
+    /**
+     * 最近一次成功且带水位的备份（下一次增量的起点）
+     */
+    public BackupRecord findLatestCompleted() {
+        if (!isSupported()) {
+            return null;
+        }
+        List<BackupRecord> records = jdbcTemplate.query(
+            "SELECT " + SELECT_COLUMNS + " FROM data_backup_records " +
+            "WHERE backup_status = 'COMPLETED' AND watermark_to IS NOT NULL ORDER BY watermark_to DESC, id DESC LIMIT 1",
+            (rs, rowNum) -> mapRow(rs));
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    /**
+     * 全部成功完成的备份记录（重建备份清单时合并水位与父备份）
+     */
+    public List<BackupRecord> findCompleted() {
+        if (!isSupported()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.query(
+            "SELECT " + SELECT_COLUMNS + " FROM data_backup_records WHERE backup_status = 'COMPLETED' ORDER BY id",
+            (rs, rowNum) -> mapRow(rs));
+    }
+
+    /**
+     * 指定时间以来是否已有成功的定时备份（多节点按计划时间去重）
+     */
+    public boolean hasScheduledCompletedSince(LocalDateTime since) {
+        if (!isSupported()) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM data_backup_records WHERE is_scheduled = true AND backup_status = 'COMPLETED' " +
+            "AND start_time >= ?", Integer.class, timestamp(since));
+        return count != null && count > 0;
+    }
+
+    /**
+     * 同类型上一次成功备份的导出大小（压缩前），用于估算进度；没有记录时返回0
+     */
+    public long lastRawBytes(BackupType type) {
+        if (!isSupported()) {
+            return 0;
+        }
+        try {
+            List<BigDecimal> sizes = jdbcTemplate.queryForList(
+                "SELECT backup_size_mb FROM data_backup_records WHERE backup_status = 'COMPLETED' AND backup_type = ? " +
+                "AND backup_size_mb IS NOT NULL ORDER BY id DESC LIMIT 1", BigDecimal.class, type.name());
+            return sizes.isEmpty() ? 0 : sizes.get(0).multiply(BigDecimal.valueOf(1024L * 1024L)).longValue();
+        } catch (Exception ex) {
+            logger.warn("读取上一次备份大小失败: {}", ex.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 记录备份时计算的逐表行数与摘要（抽样恢复校验的比对基准）
+     */
+    public void saveTableDigests(Long id, Map<String, TableDigest> digests) {
+        if (id == null) {
+            return;
+        }
+        try {
+            ObjectNode tables = objectMapper.createObjectNode();
+            digests.forEach((table, digest) -> tables.putObject(table)
+                .put("rows", digest.getRows())
+                .put("checksum", digest.getChecksumHex()));
+            jdbcTemplate.update("UPDATE data_backup_records SET table_checksums = CAST(? AS jsonb) WHERE id = ?",
+                                objectMapper.writeValueAsString(tables), id);
+        } catch (Exception ex) {
+            logger.warn("记录逐表摘要失败 - ID: {}, 错误: {}", id, ex.getMessage());
+        }
+    }
+
+    /**
+     * 最近一次记录了逐表摘要的成功全量备份
+     */
+    public BackupRecord findLatestFullWithDigests() {
+        if (!isSupported()) {
+            return null;
+        }
+        List<BackupRecord> records = jdbcTemplate.query(
+            "SELECT " + SELECT_COLUMNS + " FROM data_backup_records WHERE backup_status = 'COMPLETED' " +
+            "AND backup_type = 'FULL' AND table_checksums IS NOT NULL ORDER BY id DESC LIMIT 1",
+            (rs, rowNum) -> mapRow(rs));
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    public Map<String, TableDigest> findTableDigests(long id) throws IOException {
+        Map<String, TableDigest> digests = new LinkedHashMap<>();
+        List<String> json = jdbcTemplate.queryForList(
+            "SELECT CAST(table_checksums AS text) FROM data_backup_records WHERE id = ?", String.class, id);
+        if (json.isEmpty() || json.get(0) == null) {
+            return digests;
+        }
+        Iterator<Map.Entry<String, JsonNode>> tables = objectMapper.readTree(json.get(0)).fields();
+        while (tables.hasNext()) {
+            Map.Entry<String, JsonNode> table = tables.next();
+            digests.put(table.getKey(), new TableDigest(table.getValue().get("rows").asLong(),
+                Long.parseUnsignedLong(table.getValue().get("checksum").asText(), 16)));
+        }
+        return digests;
+    }
+
+    /**
+     * 记录校验结果：is_verified表示已执行过校验，结论见verification_status（PASSED/FAILED）
+     */
+    public void recordVerification(long id, boolean passed, String result) {
+        if (!isSupported()) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(
+                "UPDATE data_backup_records SET is_verified = true, verification_status = ?, " +
+                "verification_time = CURRENT_TIMESTAMP, verification_result = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                passed ? "PASSED" : "FAILED", result, id);
+        } catch (Exception ex) {
+            logger.warn("记录备份校验结果失败 - ID: {}, 错误: {}", id, ex.getMessage());
+        }
+    }
+
+    /**
+     * 标记已按保留策略删除的备份
+     */
+    public void expire(Collection<Long> ids) {
+        if (ids.isEmpty() || !isSupported()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(
+                "UPDATE data_backup_records SET backup_status = 'EXPIRED', expired_at = CURRENT_TIMESTAMP, " +
+                "updated_at = CURRENT_TIMESTAMP WHERE id = ?",
+                ids.stream().map(id -> new Object[]{id}).collect(Collectors.toList()));
+        } catch (Exception ex) {
+            logger.warn("标记过期备份记录失败 - ID: {}, 错误: {}", ids, ex.getMessage());
+        }
+    }
+
+    private static BackupRecord mapRow(ResultSet rs) throws SQLException {
+        BackupRecord record = new BackupRecord();
+        record.id = rs.getLong("id");
+        record.name = rs.getString("backup_name");
+        String type = rs.getString("backup_type");
+        record.type = "FULL".equals(type) ? BackupType.FULL : BackupType.INCREMENTAL;
+        record.status = rs.getString("backup_status");
+        record.filePath = rs.getString("backup_file_path");
+        record.checksum = rs.getString("checksum_value");
+        record.startTime = localDateTime(rs.getTimestamp("start_time"));
+        record.endTime = localDateTime(rs.getTimestamp("end_time"));
+        record.watermarkFrom = localDateTime(rs.getTimestamp("watermark_from"));
+        record.watermarkTo = localDateTime(rs.getTimestamp("watermark_to"));
+        long parentId = rs.getLong("parent_id");
+        record.parentId = rs.wasNull() ? null : parentId;
+        record.recordsCount = rs.getLong("records_count");
+        record.verified = rs.getBoolean("is_verified");
+        return record;
+    }
+
+    private boolean isSupported() {
+        if (supported == null) {
+            try {
+                String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+                supported = "PostgreSQL".equalsIgnoreCase(product);
+            } catch (Exception ex) {
+                logger.warn("检测数据库类型失败，暂不读写备份记录: {}", ex.getMessage());
+                return false;
+            }
+            if (!supported) {
+                logger.info("当前数据库不是PostgreSQL，备份记录不写入data_backup_records");
+            }
+        }
+        return supported;
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    private static LocalDateTime localDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static BigDecimal megabytes(long bytes) {
+        return BigDecimal.valueOf(bytes).divide(BigDecimal.valueOf(1024L * 1024L), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 备份记录
+     */
+    public static class BackupRecord {
+        private long id;
+        private String name;
+        private BackupType type;
+        private String status;
+        private String filePath;
+        private String checksum;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private LocalDateTime watermarkFrom;
+        private LocalDateTime watermarkTo;
+        private Long parentId;
+        private long recordsCount;
+        private boolean verified;
+
+        public long getId() { return id; }
+        public String getName() { return name; }
+        public BackupType getType() { return type; }
+        public String getStatus() { return status; }
+        public String getFilePath() { return filePath; }
+        public String getChecksum() { return checksum; }
+        public LocalDateTime getStartTime() { return startTime; }
+        public LocalDateTime getEndTime() { return endTime; }
+        public LocalDateTime getWatermarkFrom() { return watermarkFrom; }
+        public LocalDateTime getWatermarkTo() { return watermarkTo; }
+        public Long getParentId() { return parentId; }
+        public long getRecordsCount() { return recordsCount; }
+        public boolean isVerified() { return verified; }
+    }
+}
@@ -0,0 +1,124 @@
+package gov.changsha.finance.service.backup;
+
+import gov.changsha.finance.service.backup.CopyDataDigest.TableDigest;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 抽样恢复校验的回放端：把CopyDataDigest交来的数据行批量写入校验库（嵌入式H2），
+ * 写完后再从库中读回，按同一编码重算行数和摘要。
+ * 各表在校验库中建为T1、T2…，列为C1、C2…（大文本类型），只校验数据能否完整落库读回，不还原原表结构
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class BackupSampleReplayer implements CopyDataDigest.RowListener, AutoCloseable {
+
+    private final Connection connection;
+    private final int batchSize;
+    private final Map<String, String> tableNames = new HashMap<>();
+    private final Map<String, Integer> columnCounts = new HashMap<>();
+    private PreparedStatement insert;
+    private int pending;
+
+    public BackupSampleReplayer(Connection connection, int batchSize) {
+        this.connection = connection;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void begin(String table, List<String> columns) throws IOException {
+        String name = "T" + (tableNames.size() + 1);
+        tableNames.put(table, name);
+        columnCounts.put(table, columns.size());
+        List<String> definitions = new ArrayList<>();
+        for (int i = 1; i <= columns.size(); i++) {
+            definitions.add("C" + i + " CHARACTER LARGE OBJECT");
+        }
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE " + name + " (" + String.join(", ", definitions) + ")");
+            }
+            insert = connection.prepareStatement("INSERT INTO " + name + " VALUES (" +
+                columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")");
+        } catch (SQLException e) {
+            throw new IOException("校验库建表失败: " + table, e);
+        }
+    }
+
+    @Override
+    public void row(String table, List<String> values) throws IOException {
+        if (values.size() != columnCounts.get(table)) {
+            throw new IOException(String.format("数据行列数与COPY语句不符 - 表: %s, 列数: %d, 实际: %d",
+                                                table, columnCounts.get(table), values.size()));
+        }
+        try {
+            for (int i = 0; i < values.size(); i++) {
+                insert.setString(i + 1, values.get(i));
+            }
+            insert.addBatch();
+            if (++pending >= batchSize) {
+                insert.executeBatch();
+                pending = 0;
+            }
+        } catch (SQLException e) {
+            throw new IOException("写入校验库失败: " + table, e);
+        }
+    }
+
+    @Override
+    public void end(String table) throws IOException {
+        try {
+            if (pending > 0) {
+                insert.executeBatch();
+                pending = 0;
+            }
+            insert.close();
+            insert = null;
+        } catch (SQLException e) {
+            throw new IOException("写入校验库失败: " + table, e);
+        }
+    }
+
+    /**
+     * 从校验库读回表数据并重算摘要；表未回放（备份中没有该表的数据块）时返回null
+     */
+    public TableDigest digest(String table) throws SQLException {
+        String name = tableNames.get(table);
+        if (name == null) {
+            return null;
+        }
+        int columns = columnCounts.get(table);
+        TableDigest digest = new TableDigest(0, 0);
+        List<String> values = new ArrayList<>(columns);
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT * FROM " + name)) {
+            while (rs.next()) {
+                values.clear();
+                for (int i = 1; i <= columns; i++) {
+                    values.add(rs.getString(i));
+                }
+                digest.add(CopyDataDigest.rowHash(CopyDataDigest.encodeRow(values)));
+            }
+        }
+        return digest;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (insert != null) {
+            insert.close();
+        }
+    }
+}
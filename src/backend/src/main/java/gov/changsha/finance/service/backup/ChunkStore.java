@@ -0,0 +1,664 @@
+package gov.changsha.finance.service.backup;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 去重数据块存储
+ * 备份明文按内容定义分块（Gear滚动哈希，边界只取决于附近内容，插入或删除数据只影响相邻的块），
+ * 每块以内容哈希命名存放在备份目录的.chunks下，相同的块只存一份；每块单独压缩、（启用时）单独AES-GCM加密。
+ * 一次备份只写出一个配方文件（.cas），按顺序列出各块的哈希与长度。
+ * 加密时块哈希为HMAC-SHA256（密钥与备份加密密钥相同），不暴露明文内容的摘要。
+ * <pre>
+ * 块文件：魔数"MDCK" | 版本(1) | 标志(1，bit0=deflate，bit1=AES-GCM) | 明文长度(4) | [nonce(12)] | 数据[+16字节GCM标签]
+ * 配方：  首行文件头，每块一行"哈希 长度"，末行"END 块数 总字节数"
+ * </pre>
+ * 块不做引用计数持久化：回收时读取全部配方重新计数，引用数为0且超过宽限期的块才删除，
+ * 写入中的备份（.part配方）同样计入引用，宽限期内新写的块不删除
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class ChunkStore {
+
+    public static final String DIRECTORY_NAME = ".chunks";
+    public static final String RECIPE_SUFFIX = ".cas";
+
+    static final byte[] MAGIC = {'M', 'D', 'C', 'K'};
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 10;
+    static final int FLAG_DEFLATE = 1;
+    static final int FLAG_ENCRYPTED = 2;
+
+    private static final String RECIPE_HEADER = "#manday-assess chunk recipe v1";
+    private static final String RECIPE_END = "END";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String PART_SUFFIX = ".part";
+    private static final int NONCE_SIZE = 12;
+    private static final int TAG_SIZE = 16;
+    private static final Pattern CHUNK_ID = Pattern.compile("[0-9a-f]{64}");
+    /** Gear表由固定种子生成：改动种子不影响已有备份的读取，但之后的块边界全部变化、无法与旧块去重 */
+    private static final long[] GEAR = new SplittableRandom(0x6D616E6461794C42L).longs(256).toArray();
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Path directory;
+    private final SecretKey key;
+    private final int compressLevel;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long boundaryMask;
+
+    /**
+     * @param directory    块存储目录（备份目录下的.chunks）
+     * @param key          块加密密钥，为null时不加密
+     * @param executor     压缩、加密线程池（由调用方管理生命周期）
+     * @param maxInFlight  并行处理的最大块数
+     * @param avgChunkSize 边界判定的平均间隔（取不大于它的2的幂），实际平均块大小约为minChunkSize + avgChunkSize
+     */
+    public ChunkStore(Path directory, SecretKey key, int compressLevel, ExecutorService executor, int maxInFlight,
+                      int minChunkSize, int avgChunkSize, int maxChunkSize) {
+        if (minChunkSize <= 0 || avgChunkSize <= 0 || maxChunkSize < minChunkSize
+                || maxChunkSize > GcmChunkFormat.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException(String.format("块大小配置无效 - min: %d, avg: %d, max: %d",
+                                                             minChunkSize, avgChunkSize, maxChunkSize));
+        }
+        this.directory = directory;
+        this.key = key;
+        this.compressLevel = compressLevel;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        int bits = 31 - Integer.numberOfLeadingZeros(avgChunkSize);
+        // Gear哈希的低位只由最近几个字节决定，取高位判断边界
+        this.boundaryMask = bits == 0 ? 0 : -1L << (64 - bits);
+    }
+
+    /**
+     * 打开写入流：写入的明文分块入库，关闭时向recipe写出配方（不关闭recipe）
+     */
+    public Writer openWriter(OutputStream recipe) {
+        return new Writer(recipe);
+    }
+
+    /**
+     * 按配方读出明文；各块读取时校验哈希，缺块、块损坏或配方不完整时抛出 {@link CorruptBackupException}
+     */
+    public InputStream open(InputStream recipe) throws IOException {
+        return new Reader(recipe);
+    }
+
+    /**
+     * 块回收：统计配方目录下全部配方（含写入中的.part）对每个块的引用数，删除无引用且早于cutoff的块与遗留临时文件。
+     * 任一配方无法解析时不删除任何块
+     *
+     * @param recipeDirectory 配方所在目录（备份目录）
+     */
+    public GcResult collectGarbage(Path recipeDirectory, Instant cutoff) throws IOException {
+        Map<String, Integer> references = new HashMap<>();
+        int recipes = 0;
+        try (Stream<Path> files = Files.list(recipeDirectory)) {
+            for (Path path : files.filter(ChunkStore::isRecipe).collect(Collectors.toList())) {
+                try (InputStream in = Files.newInputStream(path)) {
+                    for (ChunkRef ref : readRecipe(in, path.getFileName().toString().endsWith(PART_SUFFIX))) {
+                        references.merge(ref.id, 1, Integer::sum);
+                    }
+                } catch (NoSuchFileException e) {
+                    // 扫描期间刚好完成重命名或被删除的配方：新名字已在列表中或不再需要
+                    continue;
+                }
+                recipes++;
+            }
+        }
+
+        GcResult result = new GcResult();
+        result.recipes = recipes;
+        if (!Files.isDirectory(directory)) {
+            return result;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                String name = path.getFileName().toString();
+                boolean chunk = CHUNK_ID.matcher(name).matches();
+                if (chunk && references.containsKey(name)) {
+                    result.liveChunks++;
+                    continue;
+                }
+                if ((chunk || name.endsWith(TEMP_SUFFIX)) && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                    long size = Files.size(path);
+                    Files.deleteIfExists(path);
+                    result.deletedChunks += chunk ? 1 : 0;
+                    result.freedBytes += size;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isRecipe(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(BackupManifest.BACKUP_PREFIX) && name.contains(RECIPE_SUFFIX);
+    }
+
+    /**
+     * 读取配方；partial为true时允许缺少结束行（写入中的配方）
+     */
+    static List<ChunkRef> readRecipe(InputStream in, boolean partial) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (!RECIPE_HEADER.equals(reader.readLine())) {
+            if (partial) {
+                return List.of();
+            }
+            throw new CorruptBackupException("不是数据块配方文件");
+        }
+        List<ChunkRef> refs = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            ChunkRef ref = parseRecipeLine(line, refs);
+            if (ref == null) {
+                return refs;
+            }
+            refs.add(ref);
+        }
+        if (!partial) {
+            throw new CorruptBackupException("配方文件缺少结束行（文件被截断）");
+        }
+        return refs;
+    }
+
+    /**
+     * 解析配方的一行；结束行校验块数与总字节数后返回null
+     */
+    private static ChunkRef parseRecipeLine(String line, List<ChunkRef> refs) throws CorruptBackupException {
+        String[] fields = line.split(" ");
+        if (fields.length == 3 && RECIPE_END.equals(fields[0])) {
+            long bytes = refs.stream().mapToLong(ref -> ref.length).sum();
+            if (Long.parseLong(fields[1]) != refs.size() || Long.parseLong(fields[2]) != bytes) {
+                throw new CorruptBackupException("配方结束行与内容不符: " + line);
+            }
+            return null;
+        }
+        if (fields.length != 2 || !CHUNK_ID.matcher(fields[0]).matches()) {
+            throw new CorruptBackupException("配方行无效: " + line);
+        }
+        return new ChunkRef(fields[0], Integer.parseInt(fields[1]));
+    }
+
+    /**
+     * 在data[from, to)中找块边界，返回块结束位置；未找到返回-1
+     * hash为跨调用延续的滚动哈希状态（长度1的数组）
+     */
+    int findBoundary(byte[] data, int from, int to, long[] hash) {
+        long h = hash[0];
+        for (int i = from; i < to; i++) {
+            h = (h << 1) + GEAR[data[i] & 0xff];
+            if ((h & boundaryMask) == 0) {
+                hash[0] = 0;
+                return i + 1;
+            }
+        }
+        hash[0] = h;
+        return -1;
+    }
+
+    /**
+     * 存入一块：已存在时只计算哈希；返回该块的引用与新写入的字节数
+     */
+    private Stored store(byte[] data, int length) throws IOException, GeneralSecurityException {
+        String id = chunkId(data, length);
+        Path file = chunkFile(id);
+        if (Files.exists(file)) {
+            try {
+                // 刷新修改时间：写入中的配方尚未落盘，复用的旧块靠宽限期避免被同时进行的回收删除
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+                return new Stored(new ChunkRef(id, length), 0);
+            } catch (NoSuchFileException e) {
+                // 恰好被回收，按新块重新写入
+            }
+        }
+        byte[] encoded = encode(data, length);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), id, TEMP_SUFFIX);
+        try {
+            Files.write(temp, encoded);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return new Stored(new ChunkRef(id, length), encoded.length);
+    }
+
+    private byte[] load(ChunkRef ref) throws IOException, GeneralSecurityException {
+        byte[] encoded;
+        try {
+            encoded = Files.readAllBytes(chunkFile(ref.id));
+        } catch (NoSuchFileException e) {
+            throw new CorruptBackupException("缺少数据块: " + ref.id);
+        }
+        if (encoded.length < HEADER_SIZE || !Arrays.equals(Arrays.copyOf(encoded, MAGIC.length), MAGIC)
+                || encoded[MAGIC.length] != VERSION) {
+            throw new CorruptBackupException("数据块文件头无效: " + ref.id);
+        }
+        ByteBuffer header = ByteBuffer.wrap(encoded, MAGIC.length + 1, HEADER_SIZE - MAGIC.length - 1);
+        int flags = header.get();
+        int length = header.getInt();
+        if (length != ref.length) {
+            throw new CorruptBackupException("数据块长度与配方不符: " + ref.id);
+        }
+        byte[] payload;
+        if ((flags & FLAG_ENCRYPTED) != 0) {
+            if (key == null) {
+                throw new CorruptBackupException("数据块已加密，但未配置密钥: " + ref.id);
+            }
+            byte[] nonce = Arrays.copyOfRange(encoded, HEADER_SIZE, HEADER_SIZE + NONCE_SIZE);
+            Cipher cipher = cipher(Cipher.DECRYPT_MODE, nonce, Arrays.copyOf(encoded, HEADER_SIZE));
+            payload = cipher.doFinal(encoded, HEADER_SIZE + NONCE_SIZE, encoded.length - HEADER_SIZE - NONCE_SIZE);
+        } else {
+            payload = Arrays.copyOfRange(encoded, HEADER_SIZE, encoded.length);
+        }
+        byte[] data = (flags & FLAG_DEFLATE) != 0 ? inflate(payload, length, ref.id) : payload;
+        if (data.length != length || !chunkId(data, length).equals(ref.id)) {
+            throw new CorruptBackupException("数据块内容与哈希不符: " + ref.id);
+        }
+        return data;
+    }
+
+    private byte[] encode(byte[] data, int length) throws GeneralSecurityException {
+        byte[] payload = deflate(data, length);
+        int flags = 0;
+        if (payload != null) {
+            flags |= FLAG_DEFLATE;
+        } else {
+            payload = Arrays.copyOf(data, length);
+        }
+        if (key != null) {
+            flags |= FLAG_ENCRYPTED;
+        }
+        byte[] header = ByteBuffer.allocate(HEADER_SIZE)
+            .put(MAGIC).put(VERSION).put((byte) flags).putInt(length)
+            .array();
+        if (key == null) {
+            return ByteBuffer.allocate(HEADER_SIZE + payload.length).put(header).put(payload).array();
+        }
+        byte[] nonce = new byte[NONCE_SIZE];
+        RANDOM.nextBytes(nonce);
+        byte[] ciphertext = cipher(Cipher.ENCRYPT_MODE, nonce, header).doFinal(payload);
+        return ByteBuffer.allocate(HEADER_SIZE + NONCE_SIZE + ciphertext.length)
+            .put(header).put(nonce).put(ciphertext).array();
+    }
+
+    /**
+     * 压缩一块；压缩后不比原文小时返回null，按原文存放
+     */
+    private byte[] deflate(byte[] data, int length) {
+        Deflater deflater = new Deflater(compressLevel, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[length];
+            int n = 0;
+            while (!deflater.finished() && n < buffer.length) {
+                n += deflater.deflate(buffer, n, buffer.length - n);
+            }
+            return deflater.finished() && n < length ? Arrays.copyOf(buffer, n) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] payload, int length, String id) throws CorruptBackupException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(payload);
+            byte[] data = new byte[length];
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int read = inflater.inflate(data, n, length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != length) {
+                throw new CorruptBackupException("数据块解压长度不符: " + id);
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new CorruptBackupException("数据块解压失败: " + id);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private Cipher cipher(int mode, byte[] nonce, byte[] header) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, key, new GCMParameterSpec(TAG_SIZE * 8, nonce));
+        cipher.updateAAD(header);
+        return cipher;
+    }
+
+    private String chunkId(byte[] data, int length) throws GeneralSecurityException {
+        if (key == null) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data, 0, length);
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key.getEncoded(), "HmacSHA256"));
+        mac.update(data, 0, length);
+        return HexFormat.of().formatHex(mac.doFinal());
+    }
+
+    /**
+     * 块文件按哈希前两位分目录，避免单目录文件过多
+     */
+    private Path chunkFile(String id) {
+        return directory.resolve(id.substring(0, 2)).resolve(id);
+    }
+
+    /**
+     * 配方中的一块
+     */
+    static final class ChunkRef {
+        final String id;
+        final int length;
+
+        ChunkRef(String id, int length) {
+            this.id = id;
+            this.length = length;
+        }
+    }
+
+    private static final class Stored {
+        final ChunkRef ref;
+        final long storedBytes;
+
+        Stored(ChunkRef ref, long storedBytes) {
+            this.ref = ref;
+            this.storedBytes = storedBytes;
+        }
+    }
+
+    /**
+     * 分块写入流：调用线程只找边界，哈希、压缩、加密与写盘交给线程池；配方按块顺序在关闭时写出
+     */
+    public final class Writer extends OutputStream {
+        private final OutputStream recipe;
+        private final Deque<Future<Stored>> pending = new ArrayDeque<>();
+        private final List<ChunkRef> refs = new ArrayList<>();
+        private final long[] hash = new long[1];
+        private byte[] buffer = new byte[maxChunkSize];
+        private int count;
+        private long plainBytes;
+        private long storedBytes;
+        private int newChunks;
+        private boolean closed;
+
+        private Writer(OutputStream recipe) {
+            this.recipe = recipe;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("分块写入流已关闭");
+            }
+            while (len > 0) {
+                int n = Math.min(len, maxChunkSize - count);
+                System.arraycopy(b, off, buffer, count, n);
+                int from = Math.max(count, minChunkSize);
+                count += n;
+                off += n;
+                len -= n;
+                int end = from < count ? findBoundary(buffer, from, count, hash) : -1;
+                if (end < 0 && count == maxChunkSize) {
+                    end = maxChunkSize;
+                    hash[0] = 0;
+                }
+                if (end > 0) {
+                    // 边界之后已拷入的字节回退给调用方的输入，下一块从边界处重新开始计算哈希
+                    int rest = count - end;
+                    off -= rest;
+                    len += rest;
+                    count = end;
+                    emit();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                if (count > 0) {
+                    emit();
+                }
+                while (!pending.isEmpty()) {
+                    collect();
+                }
+                StringBuilder text = new StringBuilder(RECIPE_HEADER).append('\n');
+                for (ChunkRef ref : refs) {
+                    text.append(ref.id).append(' ').append(ref.length).append('\n');
+                }
+                text.append(RECIPE_END).append(' ').append(refs.size()).append(' ').append(plainBytes).append('\n');
+                recipe.write(text.toString().getBytes(StandardCharsets.UTF_8));
+                recipe.flush();
+            } finally {
+                closed = true;
+                pending.forEach(future -> future.cancel(true));
+                pending.clear();
+                buffer = null;
+            }
+        }
+
+        public long getPlainBytes() { return plainBytes; }
+        public long getStoredBytes() { return storedBytes; }
+        public int getChunkCount() { return refs.size(); }
+        public int getNewChunks() { return newChunks; }
+
+        private void emit() throws IOException {
+            while (pending.size() >= maxInFlight) {
+                collect();
+            }
+            byte[] data = buffer;
+            int length = count;
+            pending.addLast(executor.submit(() -> store(data, length)));
+            plainBytes += length;
+            buffer = new byte[maxChunkSize];
+            count = 0;
+        }
+
+        private void collect() throws IOException {
+            try {
+                Stored stored = pending.removeFirst().get();
+                refs.add(stored.ref);
+                storedBytes += stored.storedBytes;
+                newChunks += stored.storedBytes > 0 ? 1 : 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待数据块写入时被中断");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException("数据块写入失败", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 按配方读取：逐行解析配方，提前提交后续块到线程池并行读取、解密、解压与校验，按顺序返回明文
+     */
+    private final class Reader extends InputStream {
+        private final BufferedReader recipe;
+        private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        private final List<ChunkRef> refs = new ArrayList<>();
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean ended;
+        private boolean closed;
+
+        private Reader(InputStream in) throws IOException {
+            this.recipe = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            if (!RECIPE_HEADER.equals(recipe.readLine())) {
+                recipe.close();
+                throw new CorruptBackupException("不是数据块配方文件");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            int buffered = current.length - position;
+            if (buffered > 0 || closed) {
+                return buffered;
+            }
+            return !pending.isEmpty() || !ended ? 1 : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            recipe.close();
+        }
+
+        private boolean fill() throws IOException {
+            if (closed) {
+                throw new IOException("配方读取流已关闭");
+            }
+            while (position == current.length) {
+                while (!ended && pending.size() < maxInFlight) {
+                    submitNext();
+                }
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                current = await(pending.removeFirst());
+                position = 0;
+            }
+            return true;
+        }
+
+        private void submitNext() throws IOException {
+            String line = recipe.readLine();
+            if (line == null) {
+                throw new CorruptBackupException("配方文件缺少结束行（文件被截断）");
+            }
+            ChunkRef ref = parseRecipeLine(line, refs);
+            if (ref == null) {
+                ended = true;
+                if (recipe.readLine() != null) {
+                    throw new CorruptBackupException("配方结束行之后存在多余数据");
+                }
+                return;
+            }
+            refs.add(ref);
+            pending.addLast(executor.submit(() -> load(ref)));
+        }
+
+        private byte[] await(Future<byte[]> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待数据块读取时被中断");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof AEADBadTagException) {
+                    throw new CorruptBackupException("数据块认证失败（数据被篡改、损坏或密钥不匹配）");
+                }
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("数据块读取失败", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * 块回收结果
+     */
+    public static class GcResult {
+        private int recipes;
+        private int liveChunks;
+        private int deletedChunks;
+        private long freedBytes;
+
+        public int getRecipes() { return recipes; }
+        public int getLiveChunks() { return liveChunks; }
+        public int getDeletedChunks() { return deletedChunks; }
+        public long getFreedBytes() { return freedBytes; }
+    }
+}
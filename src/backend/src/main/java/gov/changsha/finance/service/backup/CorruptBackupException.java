@@ -0,0 +1,19 @@
+package gov.changsha.finance.service.backup;
+
+import java.io.IOException;
+
+/**
+ * 备份文件损坏、被篡改或被截断
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class CorruptBackupException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CorruptBackupException(String message) {
+        super(message);
+    }
+}
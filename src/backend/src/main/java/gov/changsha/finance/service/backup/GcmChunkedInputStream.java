@@ -0,0 +1,170 @@
+package gov.changsha.finance.service.backup;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 分块AES-GCM解密输入流（格式见 {@link GcmChunkFormat}）
+ * 顺序读取帧并提前提交到线程池并行解密校验，按块序号顺序返回明文。
+ * 任一块认证失败、帧结构损坏或缺少最后一块标志（截断）时立即抛出 {@link CorruptBackupException}，
+ * 不会返回未经认证的数据
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class GcmChunkedInputStream extends InputStream {
+
+    private final InputStream in;
+    private final SecretKey key;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final byte[] fileHeader;
+    private final int chunkSize;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] current = new byte[0];
+    private int position;
+    private long readIndex;
+    private long returnedIndex;
+    private boolean finalFrameRead;
+    private boolean closed;
+
+    /**
+     * 构造时读取并校验文件头
+     *
+     * @param executor    解密线程池（由调用方管理生命周期）
+     * @param maxInFlight 预读解密的最大块数
+     */
+    public GcmChunkedInputStream(InputStream in, SecretKey key, ExecutorService executor, int maxInFlight)
+            throws IOException {
+        this.in = in;
+        this.key = key;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.fileHeader = in.readNBytes(GcmChunkFormat.FILE_HEADER_SIZE);
+        if (fileHeader.length != GcmChunkFormat.FILE_HEADER_SIZE
+                || !Arrays.equals(Arrays.copyOf(fileHeader, GcmChunkFormat.MAGIC.length), GcmChunkFormat.MAGIC)
+                || fileHeader[GcmChunkFormat.MAGIC.length] != GcmChunkFormat.VERSION) {
+            throw new CorruptBackupException("不是分块GCM格式的备份文件");
+        }
+        this.chunkSize = GcmChunkFormat.chunkSize(fileHeader);
+        if (chunkSize <= 0 || chunkSize > GcmChunkFormat.MAX_CHUNK_SIZE) {
+            throw new CorruptBackupException("备份文件头中的块大小无效: " + chunkSize);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    /**
+     * 当前块读完而后面仍有块时返回1：GZIPInputStream在一个成员结束后依据available()判断是否还有下一个成员，
+     * 返回0会使并行压缩产生的多成员gzip在块边界处被提前当作结束
+     */
+    @Override
+    public int available() {
+        int buffered = current.length - position;
+        if (buffered > 0 || closed) {
+            return buffered;
+        }
+        return !pending.isEmpty() || !finalFrameRead ? 1 : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.forEach(future -> future.cancel(true));
+        pending.clear();
+        in.close();
+    }
+
+    /**
+     * 当前块读完时取下一块明文；返回false表示已读到最后一块之后
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("解密流已关闭");
+        }
+        while (position == current.length) {
+            while (!finalFrameRead && pending.size() < maxInFlight) {
+                submitNextFrame();
+            }
+            if (pending.isEmpty()) {
+                return false;
+            }
+            current = await(pending.removeFirst());
+            position = 0;
+            returnedIndex++;
+        }
+        return true;
+    }
+
+    private void submitNextFrame() throws IOException {
+        byte[] frameHeader = in.readNBytes(GcmChunkFormat.FRAME_HEADER_SIZE);
+        if (frameHeader.length < GcmChunkFormat.FRAME_HEADER_SIZE) {
+            throw new CorruptBackupException("备份文件被截断：第" + readIndex + "块之前缺少结束块");
+        }
+        int length = GcmChunkFormat.frameLength(frameHeader);
+        if (length < 0 || length > chunkSize) {
+            throw new CorruptBackupException("第" + readIndex + "块长度无效: " + length);
+        }
+        byte[] ciphertext = in.readNBytes(length + GcmChunkFormat.TAG_SIZE);
+        if (ciphertext.length < length + GcmChunkFormat.TAG_SIZE) {
+            throw new CorruptBackupException("备份文件被截断：第" + readIndex + "块不完整");
+        }
+        long index = readIndex++;
+        if (GcmChunkFormat.isFinal(frameHeader)) {
+            finalFrameRead = true;
+            if (in.read() != -1) {
+                throw new CorruptBackupException("备份文件结束块之后存在多余数据");
+            }
+        }
+        pending.addLast(executor.submit(() ->
+            GcmChunkFormat.decrypt(key, fileHeader, index, frameHeader, ciphertext)));
+    }
+
+    private byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待块解密时被中断");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof AEADBadTagException) {
+                throw new CorruptBackupException("第" + returnedIndex + "块认证失败（数据被篡改、损坏或密钥不匹配）");
+            }
+            throw new IOException("块解密失败", ex.getCause());
+        }
+    }
+}
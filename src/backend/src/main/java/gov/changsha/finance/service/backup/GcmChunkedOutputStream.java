@@ -0,0 +1,151 @@
+package gov.changsha.finance.service.backup;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 分块AES-GCM加密输出流（格式见 {@link GcmChunkFormat}）
+ * 满块在线程池中并行加密，按块序号顺序写出；关闭时写出带最后一块标志的帧
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class GcmChunkedOutputStream extends OutputStream {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final OutputStream out;
+    private final SecretKey key;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final byte[] fileHeader;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] buffer;
+    private int count;
+    private long index;
+    private boolean closed;
+
+    /**
+     * 构造时即写出文件头
+     *
+     * @param executor    加密线程池（由调用方管理生命周期）
+     * @param maxInFlight 最多同时在途的块数
+     */
+    public GcmChunkedOutputStream(OutputStream out, SecretKey key, ExecutorService executor,
+                                  int chunkSize, int maxInFlight) throws IOException {
+        if (chunkSize <= 0 || chunkSize > GcmChunkFormat.MAX_CHUNK_SIZE || maxInFlight <= 0) {
+            throw new IllegalArgumentException("块大小或在途块数无效");
+        }
+        this.out = out;
+        this.key = key;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+        byte[] noncePrefix = new byte[GcmChunkFormat.NONCE_PREFIX_SIZE];
+        RANDOM.nextBytes(noncePrefix);
+        this.fileHeader = GcmChunkFormat.fileHeader(chunkSize, noncePrefix);
+        this.buffer = new byte[chunkSize];
+        out.write(fileHeader);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        // 满块等到确认后面还有数据才提交，最后一块留到关闭时带标志写出
+        if (count == chunkSize) {
+            submitChunk(false);
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (count == chunkSize) {
+                submitChunk(false);
+            }
+            int n = Math.min(len, chunkSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 当前不满的块作为一个较短的帧提交并写出全部在途块
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            submitChunk(false);
+        }
+        drain(0);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            submitChunk(true);
+            drain(0);
+        } finally {
+            closed = true;
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            out.close();
+        }
+    }
+
+    private void submitChunk(boolean last) throws IOException {
+        if (index >= GcmChunkFormat.MAX_CHUNKS) {
+            throw new IOException("块数超过格式上限");
+        }
+        byte[] chunk = buffer;
+        int length = count;
+        long chunkIndex = index++;
+        drain(maxInFlight - 1);
+        pending.addLast(executor.submit(() ->
+            GcmChunkFormat.encrypt(key, fileHeader, chunkIndex, chunk, length, last)));
+        buffer = last ? null : new byte[chunkSize];
+        count = 0;
+    }
+
+    private void drain(int limit) throws IOException {
+        while (pending.size() > limit) {
+            byte[] frame;
+            try {
+                frame = pending.peekFirst().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待块加密时被中断");
+            } catch (ExecutionException ex) {
+                throw new IOException("块加密失败", ex.getCause());
+            }
+            pending.removeFirst();
+            out.write(frame);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("加密流已关闭");
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package gov.changsha.finance.service.backup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 增量备份导出与重放
+ * 按变更时间水位从业务表中导出 (from, to] 区间内新增或修改的行，经JDBC游标逐行写为NDJSON：
+ * <pre>
+ * {"backup":"INCREMENTAL","version":2,"from":"...","to":"...","parentId":1}
+ * {"table":"projects","columns":["id",...],"key":["id"]}
+ * {"delete":["7"]}                                    （墓碑：被删除行的主键，按表头key的顺序）
+ * {"row":["1","...",null,...]}                       （列值统一为数据库文本表示）
+ * {"end":true,"rows":N,"deletes":M,"tables":{...}}   （结束标记，用于校验完整性）
+ * </pre>
+ * 删除无法由时间水位捕获，由V28的触发器记入backup_deletions，区间内的记录导出为墓碑。
+ * 墓碑按表的逆序排在所有行数据之前：重放时先删除（子表先于父表），再按表顺序UPSERT，删除后又以同一主键插入的行得以保留。
+ * 所有表在同一个可重复读只读事务中导出，看到同一快照。区间重叠的行与墓碑重复应用无副作用。
+ * 非PostgreSQL数据库（H2）上重放改用MERGE，不做类型转换与序列同步
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class IncrementalBackupExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalBackupExporter.class);
+
+    public static final int FORMAT_VERSION = 2;
+
+    static final String DELETIONS_TABLE = "backup_deletions";
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final String COLUMN_TYPES_SQL =
+        "SELECT a.attname, format_type(a.atttypid, a.atttypmod) FROM pg_attribute a " +
+        "WHERE a.attrelid = CAST(? AS regclass) AND a.attnum > 0 AND NOT a.attisdropped";
+
+    private static final String INFORMATION_SCHEMA_COLUMNS_SQL =
+        "SELECT column_name, data_type FROM information_schema.columns " +
+        "WHERE LOWER(table_name) = ? AND table_schema = CURRENT_SCHEMA";
+
+    /**
+     * 参与增量备份的表，"表名"或"表名:水位列"；未指定水位列时取 COALESCE(updated_at, created_at)
+     */
+    @Value("${system.backup.incremental.tables:projects,function_points,calculation_results,function_point_history,vaf_factors,ei_details,eif_details,eo_details,eq_details,ilf_details,users,roles,permissions,audit_logs:timestamp}")
+    private List<String> tables;
+
+    @Value("${system.backup.incremental.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${system.backup.incremental.apply-batch-size:500}")
+    private int applyBatchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate snapshotTransaction;
+    private TransactionTemplate applyTransaction;
+
+    @PostConstruct
+    public void init() {
+        snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setReadOnly(true);
+        // 各表导出看到同一快照；PostgreSQL驱动也只在事务内按fetchSize分批拉取
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        applyTransaction = new TransactionTemplate(transactionManager);
+        for (String spec : tables) {
+            if (!IDENTIFIER.matcher(spec.split(":")[0].trim()).matches()) {
+                throw new IllegalArgumentException("增量备份表名不合法: " + spec);
+            }
+        }
+    }
+
+    /**
+     * 导出 (from, to] 区间内变更的行，不关闭输出流
+     */
+    public Result export(LocalDateTime from, LocalDateTime to, Long parentId, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Result result = new Result();
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("backup", "INCREMENTAL");
+        header.put("version", FORMAT_VERSION);
+        header.put("from", from.toString());
+        header.put("to", to.toString());
+        header.put("parentId", parentId);
+        writeLine(generator, header);
+
+        try {
+            snapshotTransaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                List<TableSpec> specs = new ArrayList<>();
+                for (String spec : tables) {
+                    TableSpec table = resolve(con, spec);
+                    if (table != null) {
+                        specs.add(table);
+                    }
+                }
+                if (hasTable(con, DELETIONS_TABLE)) {
+                    for (int i = specs.size() - 1; i >= 0; i--) {
+                        exportDeletions(con, specs.get(i), from, to, generator, result);
+                    }
+                } else {
+                    logger.warn("增量备份未找到删除日志表 {}，本次不导出删除", DELETIONS_TABLE);
+                }
+                for (TableSpec table : specs) {
+                    exportTable(con, table, from, to, generator, result);
+                }
+                return null;
+            }));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        Map<String, Object> trailer = new LinkedHashMap<>();
+        trailer.put("end", true);
+        trailer.put("rows", result.rows);
+        trailer.put("deletes", result.deletes);
+        trailer.put("tables", result.tableRows);
+        writeLine(generator, trailer);
+        generator.flush();
+
+        logger.info("增量备份导出完成 - 区间: ({}, {}], 表数: {}, 行数: {}, 删除: {}, 耗时: {}ms",
+                    from, to, result.tableRows.size(), result.rows, result.deletes, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 在一个事务中重放增量备份（按主键删除墓碑、UPSERT行），结束标记缺失或行数不符时整体回滚
+     */
+    public Result apply(InputStream in) throws IOException {
+        boolean postgres = isPostgres();
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        JsonNode header = readHeader(reader);
+        Result result = new Result();
+        try {
+            applyTransaction.executeWithoutResult(status -> {
+                try {
+                    applyRows(reader, postgres, result);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        logger.info("增量备份重放完成 - 区间: ({}, {}], 行数: {}, 删除: {}, 耗时: {}ms",
+                    header.path("from").asText(), header.path("to").asText(), result.rows, result.deletes,
+                    System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 校验增量备份的结构完整性而不访问数据库：文件头、表头先于行数据与墓碑、行与墓碑的列数、结束标记及其行数
+     */
+    public Result verify(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        readHeader(reader);
+        Result result = new Result();
+        String table = null;
+        int columnCount = 0;
+        int keyCount = 0;
+        long tableRows = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            JsonNode node = objectMapper.readTree(line);
+            if (node.has("row")) {
+                if (table == null || node.get("row").size() != columnCount) {
+                    throw new CorruptBackupException("增量备份行数据与表头不符: " + table);
+                }
+                tableRows++;
+            } else if (node.has("delete")) {
+                if (table == null || node.get("delete").size() != keyCount) {
+                    throw new CorruptBackupException("增量备份墓碑与表头主键不符: " + table);
+                }
+                result.deletes++;
+            } else if (node.has("table")) {
+                if (table != null) {
+                    result.add(table, tableRows);
+                }
+                table = node.get("table").asText();
+                columnCount = node.path("columns").size();
+                keyCount = node.path("key").size();
+                tableRows = 0;
+            } else if (node.path("end").asBoolean()) {
+                if (table != null) {
+                    result.add(table, tableRows);
+                }
+                checkTrailer(node, result);
+                if (reader.readLine() != null) {
+                    throw new CorruptBackupException("增量备份结束标记之后存在多余数据");
+                }
+                return result;
+            }
+        }
+        throw new CorruptBackupException("增量备份缺少结束标记（文件被截断）");
+    }
+
+    /**
+     * 读取并校验增量备份头
+     */
+    public JsonNode readHeader(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        JsonNode header = line != null ? objectMapper.readTree(line) : null;
+        if (header == null || !"INCREMENTAL".equals(header.path("backup").asText())
+                || header.path("version").asInt() < 1 || header.path("version").asInt() > FORMAT_VERSION) {
+            throw new CorruptBackupException("不是可识别的增量备份文件");
+        }
+        return header;
+    }
+
+    private void exportTable(Connection con, TableSpec table, LocalDateTime from, LocalDateTime to,
+                             JsonGenerator generator, Result result) throws SQLException {
+        Map<String, Object> tableHeader = new LinkedHashMap<>();
+        tableHeader.put("table", table.name);
+        tableHeader.put("columns", table.columns);
+        tableHeader.put("key", table.key);
+        writeLine(generator, tableHeader);
+
+        String sql = "SELECT " + String.join(", ", table.columns) + " FROM " + table.name +
+                     " WHERE " + table.watermark + " > ? AND " + table.watermark + " <= ?";
+        long rows = 0;
+        try (PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                int columnCount = table.columns.size();
+                while (rs.next()) {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("row");
+                    for (int i = 1; i <= columnCount; i++) {
+                        generator.writeString(rs.getString(i));
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    rows++;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        result.add(table.name, rows);
+    }
+
+    /**
+     * 导出表在区间内的删除记录；有记录时才写表头
+     */
+    private void exportDeletions(Connection con, TableSpec table, LocalDateTime from, LocalDateTime to,
+                                 JsonGenerator generator, Result result) throws SQLException {
+        String sql = "SELECT pk FROM " + DELETIONS_TABLE + " WHERE table_name = ? AND deleted_at > ? AND deleted_at <= ? ORDER BY id";
+        try (PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            ps.setString(1, table.name);
+            ps.setTimestamp(2, Timestamp.valueOf(from));
+            ps.setTimestamp(3, Timestamp.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                boolean headerWritten = false;
+                while (rs.next()) {
+                    JsonNode pk = objectMapper.readTree(rs.getString(1));
+                    if (!headerWritten) {
+                        Map<String, Object> tableHeader = new LinkedHashMap<>();
+                        tableHeader.put("table", table.name);
+                        tableHeader.put("columns", table.columns);
+                        tableHeader.put("key", table.key);
+                        writeLine(generator, tableHeader);
+                        headerWritten = true;
+                    }
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("delete");
+                    for (String column : table.key) {
+                        JsonNode value = pk.get(column);
+                        if (value == null || value.isNull()) {
+                            throw new IllegalStateException("删除日志缺少主键列 " + column + ": " + table.name);
+                        }
+                        generator.writeString(value.asText());
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                    result.deletes++;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * 清理早于指定时间的删除记录：新的全量备份已包含这些删除，之后的增量不再需要
+     *
+     * @return 清理的记录数，删除日志表不存在时为0
+     */
+    public int purgeDeletions(LocalDateTime before) {
+        try {
+            int purged = jdbcTemplate.update("DELETE FROM " + DELETIONS_TABLE + " WHERE deleted_at < ?", Timestamp.valueOf(before));
+            if (purged > 0) {
+                logger.info("清理增量备份删除日志 - 早于: {}, 记录数: {}", before, purged);
+            }
+            return purged;
+        } catch (DataAccessException ex) {
+            logger.warn("清理增量备份删除日志失败: {}", ex.getMessage());
+            return 0;
+        }
+    }
+
+    private void applyRows(BufferedReader reader, boolean postgres, Result result) throws IOException {
+        String table = null;
+        TableStatements statements = null;
+        List<Object[]> upserts = new ArrayList<>(applyBatchSize);
+        List<Object[]> deletes = new ArrayList<>(applyBatchSize);
+        long tableRows = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            JsonNode node = objectMapper.readTree(line);
+            boolean delete = node.has("delete");
+            if (delete || node.has("row")) {
+                if (statements == null) {
+                    throw new CorruptBackupException("增量备份行数据之前缺少表头");
+                }
+                JsonNode values = node.get(delete ? "delete" : "row");
+                Object[] args = new Object[delete ? statements.key().size() : statements.columns().size()];
+                for (int i = 0; i < args.length; i++) {
+                    JsonNode value = values.get(i);
+                    args[i] = value == null || value.isNull() ? null : value.asText();
+                }
+                if (delete) {
+                    deletes.add(args);
+                    result.deletes++;
+                    flush(statements.deleteSql(), deletes, applyBatchSize);
+                } else {
+                    // 同一表中先删后插，保持文件中的顺序
+                    flush(statements.deleteSql(), deletes, 1);
+                    upserts.add(args);
+                    tableRows++;
+                    flush(statements.upsertSql(), upserts, applyBatchSize);
+                }
+            } else if (node.has("table")) {
+                finishTable(table, statements, upserts, deletes, tableRows, postgres, result);
+                table = node.get("table").asText();
+                statements = statements(table, strings(node.get("columns")), strings(node.get("key")), postgres);
+                tableRows = 0;
+            } else if (node.path("end").asBoolean()) {
+                finishTable(table, statements, upserts, deletes, tableRows, postgres, result);
+                checkTrailer(node, result);
+                return;
+            }
+        }
+        throw new CorruptBackupException("增量备份缺少结束标记（文件被截断）");
+    }
+
+    private void finishTable(String table, TableStatements statements, List<Object[]> upserts, List<Object[]> deletes,
+                             long tableRows, boolean postgres, Result result) {
+        if (table == null) {
+            return;
+        }
+        flush(statements.deleteSql(), deletes, 1);
+        flush(statements.upsertSql(), upserts, 1);
+        // 以显式主键插入后同步序列，避免之后的新增与重放的行冲突
+        if (postgres && statements.columns().contains("id") && tableRows > 0) {
+            jdbcTemplate.queryForList("SELECT setval(seq, GREATEST((SELECT MAX(id) FROM " + table + "), 1)) " +
+                                      "FROM (SELECT pg_get_serial_sequence(?, 'id') AS seq) s WHERE seq IS NOT NULL", table);
+        }
+        result.add(table, tableRows);
+    }
+
+    /**
+     * 批次达到threshold时执行并清空
+     */
+    private void flush(String sql, List<Object[]> batch, int threshold) {
+        if (!batch.isEmpty() && batch.size() >= threshold) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+
+    private static void checkTrailer(JsonNode trailer, Result result) throws CorruptBackupException {
+        long rows = trailer.path("rows").asLong();
+        long deletes = trailer.path("deletes").asLong();
+        if (rows != result.rows || deletes != result.deletes) {
+            throw new CorruptBackupException(String.format("增量备份行数不符 - 结束标记: %d行/%d删除, 实际: %d行/%d删除",
+                                                           rows, deletes, result.rows, result.deletes));
+        }
+    }
+
+    /**
+     * 构造UPSERT与按主键DELETE：PostgreSQL上参数按目标列类型CAST（导出值为文本表示），主键冲突时更新其余列；
+     * 其他数据库用MERGE，由驱动隐式转换
+     */
+    private TableStatements statements(String table, List<String> columns, List<String> key, boolean postgres) {
+        if (!IDENTIFIER.matcher(table).matches() || key.isEmpty()) {
+            throw new IllegalStateException("增量备份表头无效: " + table);
+        }
+        Map<String, String> types = new LinkedHashMap<>();
+        jdbcTemplate.query(postgres ? COLUMN_TYPES_SQL : INFORMATION_SCHEMA_COLUMNS_SQL, rs -> {
+            types.put(rs.getString(1).toLowerCase(Locale.ROOT), rs.getString(2));
+        }, table);
+        Map<String, String> binds = new LinkedHashMap<>();
+        for (String column : columns) {
+            String type = types.get(column);
+            if (!IDENTIFIER.matcher(column).matches() || type == null) {
+                throw new IllegalStateException("目标表 " + table + " 缺少列: " + column);
+            }
+            binds.put(column, postgres ? "CAST(? AS " + type + ")" : "?");
+        }
+        List<String> conditions = new ArrayList<>(key.size());
+        for (String column : key) {
+            if (!binds.containsKey(column)) {
+                throw new IllegalStateException("增量备份表头主键不在列中: " + table + "." + column);
+            }
+            conditions.add(column + " = " + binds.get(column));
+        }
+        String deleteSql = "DELETE FROM " + table + " WHERE " + String.join(" AND ", conditions);
+
+        String values = String.join(", ", binds.values());
+        if (!postgres) {
+            return new TableStatements(columns, key, "MERGE INTO " + table + " (" + String.join(", ", columns) +
+                                       ") KEY (" + String.join(", ", key) + ") VALUES (" + values + ")", deleteSql);
+        }
+        List<String> updates = new ArrayList<>();
+        for (String column : columns) {
+            if (!key.contains(column)) {
+                updates.add(column + " = EXCLUDED." + column);
+            }
+        }
+        String upsertSql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + values +
+                           ") ON CONFLICT (" + String.join(", ", key) + ") DO " +
+                           (updates.isEmpty() ? "NOTHING" : "UPDATE SET " + String.join(", ", updates));
+        return new TableStatements(columns, key, upsertSql, deleteSql);
+    }
+
+    /**
+     * 读取表结构：列（按序）、主键和水位表达式；表不存在或没有可用的水位列时跳过
+     */
+    private TableSpec resolve(Connection con, String spec) throws SQLException {
+        String[] parts = spec.split(":");
+        String name = parts[0].trim();
+        DatabaseMetaData meta = con.getMetaData();
+        List<String> columns = new ArrayList<>();
+        try (ResultSet rs = meta.getColumns(null, null, name, null)) {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME").toLowerCase());
+            }
+        }
+        if (columns.isEmpty()) {
+            logger.warn("增量备份跳过不存在的表: {}", name);
+            return null;
+        }
+        List<String> key = new ArrayList<>();
+        try (ResultSet rs = meta.getPrimaryKeys(null, null, name)) {
+            while (rs.next()) {
+                key.add(rs.getString("COLUMN_NAME").toLowerCase());
+            }
+        }
+
+        String watermark;
+        if (parts.length > 1) {
+            watermark = parts[1].trim();
+            if (!columns.contains(watermark)) {
+                logger.warn("增量备份跳过表 {}：水位列 {} 不存在", name, watermark);
+                return null;
+            }
+        } else if (columns.contains("updated_at") && columns.contains("created_at")) {
+            watermark = "COALESCE(updated_at, created_at)";
+        } else if (columns.contains("updated_at") || columns.contains("created_at")) {
+            watermark = columns.contains("updated_at") ? "updated_at" : "created_at";
+        } else {
+            logger.warn("增量备份跳过表 {}：没有updated_at/created_at列", name);
+            return null;
+        }
+        if (key.isEmpty()) {
+            logger.warn("增量备份跳过表 {}：没有主键，无法按主键重放", name);
+            return null;
+        }
+        return new TableSpec(name, columns, key, watermark);
+    }
+
+    private void writeLine(JsonGenerator generator, Object value) {
+        try {
+            objectMapper.writeValue(generator, value);
+            generator.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean hasTable(Connection con, String name) throws SQLException {
+        try (ResultSet rs = con.getMetaData().getTables(null, null, name, null)) {
+            return rs.next();
+        }
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    private static List<String> strings(JsonNode array) {
+        if (array == null || !array.isArray()) {
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>(array.size());
+        array.forEach(node -> values.add(node.asText()));
+        return values;
+    }
+
+    private record TableSpec(String name, List<String> columns, List<String> key, String watermark) {
+    }
+
+    private record TableStatements(List<String> columns, List<String> key, String upsertSql, String deleteSql) {
+    }
+
+    /**
+     * 导出/重放结果：总行数、各表行数与删除（墓碑）数
+     */
+    public static class Result {
+        private long rows;
+        private long deletes;
+        private final Map<String, Long> tableRows = new LinkedHashMap<>();
+
+        void add(String table, long count) {
+            tableRows.merge(table, count, Long::sum);
+            rows += count;
+        }
+
+        public long getRows() { return rows; }
+        public long getDeletes() { return deletes; }
+        public Map<String, Long> getTableRows() { return tableRows; }
+    }
+}
@@ -0,0 +1,702 @@
+package gov.changsha.finance.service.backup;
+
+import gov.changsha.finance.service.backup.LogicalBackupFormat.ColumnType;
+import gov.changsha.finance.service.backup.LogicalBackupFormat.RowBlock;
+import gov.changsha.finance.service.backup.LogicalBackupFormat.TableDef;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 逻辑备份引擎：不依赖pg_dump/psql的导出与导入
+ * 导出：协调连接开启可重复读只读事务并以pg_export_snapshot()导出快照，各表由独立线程各取一个连接池连接、
+ * 导入同一快照后以服务端游标（fetchSize）逐行读取，编码为LogicalBackupFormat行块写入同一输出流。
+ * 协调连接的事务保持到所有表读完，快照在此期间有效。非PostgreSQL数据库（H2）上所有表在协调连接的同一事务中依次导出。
+ * 导入：行块按表暂存到临时文件，读到结束帧并核对行数后，在单个事务中清空所列表（TRUNCATE不级联），
+ * 按外键依赖先父后子用COPY BINARY加载，最后恢复序列值；任一步失败整体回滚，数据库保持原状。
+ * 只恢复数据，表结构、索引与约束由Flyway维护
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@Component
+public class LogicalBackupEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogicalBackupEngine.class);
+
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+    private static final int SPOOL_BUFFER_SIZE = 8192;
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${system.backup.logical.parallelism:4}")
+    private int parallelism;
+
+    @Value("${system.backup.logical.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${system.backup.logical.block-size:262144}")
+    private int blockSize;
+
+    @Value("${system.backup.logical.apply-batch-size:500}")
+    private int applyBatchSize;
+
+    @Value("${system.backup.logical.exclude-tables:flyway_schema_history}")
+    private List<String> excludeTables;
+
+    /**
+     * 导出全部表的数据到out（不关闭out）
+     */
+    public Result export(OutputStream out) throws Exception {
+        long startTime = System.currentTimeMillis();
+        try (Connection coordinator = dataSource.getConnection()) {
+            boolean postgres = isPostgres(coordinator);
+            beginSnapshotTransaction(coordinator);
+            try {
+                String snapshot = postgres ? queryString(coordinator, "SELECT pg_export_snapshot()") : null;
+                List<String> tables = listTables(coordinator);
+                FrameWriter writer = new FrameWriter(out, coordinator.getMetaData().getDatabaseProductName());
+                Result result = new Result();
+
+                if (postgres && parallelism > 1 && tables.size() > 1) {
+                    exportParallel(tables, snapshot, writer, result);
+                } else {
+                    for (int i = 0; i < tables.size(); i++) {
+                        result.add(tables.get(i), exportTable(coordinator, i + 1, tables.get(i), writer));
+                    }
+                }
+                if (postgres) {
+                    for (Map.Entry<String, Long> sequence : readSequences(coordinator).entrySet()) {
+                        writer.sequence(sequence.getKey(), sequence.getValue());
+                    }
+                }
+                writer.end(result);
+                logger.info("逻辑导出完成 - 表: {}, 行数: {}, 耗时: {}ms",
+                           result.getTableRows().size(), result.getRows(), System.currentTimeMillis() - startTime);
+                return result;
+            } finally {
+                coordinator.rollback();
+            }
+        }
+    }
+
+    private void exportParallel(List<String> tables, String snapshot, FrameWriter writer, Result result) throws Exception {
+        if (!SNAPSHOT_ID.matcher(snapshot).matches()) {
+            throw new SQLException("快照标识无效: " + snapshot);
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, tables.size()), r -> {
+            Thread thread = new Thread(r, "Logical-Export-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < tables.size(); i++) {
+                int tableId = i + 1;
+                String table = tables.get(i);
+                futures.add(pool.submit(() -> {
+                    // 每张表一个连接，导入协调事务的快照后读取，各表看到同一时刻的数据
+                    try (Connection con = dataSource.getConnection()) {
+                        beginSnapshotTransaction(con);
+                        try {
+                            try (Statement statement = con.createStatement()) {
+                                statement.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+                            }
+                            return exportTable(con, tableId, table, writer);
+                        } finally {
+                            con.rollback();
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.add(tables.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    futures.forEach(future -> future.cancel(true));
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long exportTable(Connection con, int tableId, String table, FrameWriter writer) throws SQLException, IOException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT * FROM " + quote(table),
+                                                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                List<String> columns = new ArrayList<>();
+                List<ColumnType> types = new ArrayList<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    columns.add(meta.getColumnName(i));
+                    types.add(ColumnType.of(meta.getColumnType(i), meta.getColumnTypeName(i)));
+                }
+                writer.table(new TableDef(tableId, table, columns, types));
+
+                RowBlock block = new RowBlock();
+                Object[] values = new Object[types.size()];
+                long rows = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = LogicalBackupFormat.readColumn(rs, i + 1, types.get(i));
+                    }
+                    block.add(types, values);
+                    rows++;
+                    if (block.size() >= blockSize) {
+                        writer.rows(tableId, block);
+                    }
+                }
+                if (block.rows() > 0) {
+                    writer.rows(tableId, block);
+                }
+                writer.tableEnd(tableId, rows);
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * 从逻辑备份恢复数据
+     *
+     * @param tables  只恢复这些表，为空时恢复备份中的全部表（并恢复序列值）
+     * @param workDir 暂存行数据的目录（结束后清空）
+     */
+    public Result restore(InputStream in, Collection<String> tables, Path workDir) throws Exception {
+        long startTime = System.currentTimeMillis();
+        Spool spool = new Spool(workDir, tables);
+        try {
+            read(in, spool);
+            spool.close();
+            if (!tables.isEmpty() && !spool.defs.keySet().containsAll(lowerCase(tables))) {
+                throw new IOException("备份中没有以下表: " + tables.stream()
+                    .filter(table -> !spool.defs.containsKey(table.toLowerCase(Locale.ROOT)))
+                    .collect(Collectors.joining(", ")));
+            }
+
+            try (Connection con = dataSource.getConnection()) {
+                boolean autoCommit = con.getAutoCommit();
+                con.setAutoCommit(false);
+                try {
+                    List<TableDef> order = dependencyOrder(con, new ArrayList<>(spool.defs.values()));
+                    boolean postgres = isPostgres(con);
+                    if (postgres) {
+                        // 一次清空全部所列表：相互引用的表可以同时清空，仍被未列出的表引用时整体失败
+                        try (Statement statement = con.createStatement()) {
+                            statement.execute("TRUNCATE TABLE " + order.stream().map(def -> quote(def.getName()))
+                                .collect(Collectors.joining(", ")));
+                        }
+                    } else {
+                        for (int i = order.size() - 1; i >= 0; i--) {
+                            try (Statement statement = con.createStatement()) {
+                                statement.executeUpdate("DELETE FROM " + quote(order.get(i).getName()));
+                            }
+                        }
+                    }
+                    for (TableDef def : order) {
+                        long rows = postgres ? copyTable(con, def, spool.file(def)) : insertTable(con, def, spool.file(def));
+                        logger.info("逻辑恢复表完成 - 表: {}, 行数: {}", def.getName(), rows);
+                    }
+                    if (postgres && tables.isEmpty()) {
+                        restoreSequences(con, spool.sequences);
+                    }
+                    con.commit();
+                } catch (Exception e) {
+                    con.rollback();
+                    throw e;
+                } finally {
+                    con.setAutoCommit(autoCommit);
+                }
+            }
+            logger.info("逻辑恢复完成 - 表: {}, 行数: {}, 耗时: {}ms",
+                       spool.result.getTableRows().size(), spool.result.getRows(), System.currentTimeMillis() - startTime);
+            return spool.result;
+        } finally {
+            spool.close();
+            spool.delete();
+        }
+    }
+
+    /**
+     * 完整读一遍逻辑备份，校验帧结构、各表行数与结束帧，不需要数据库
+     */
+    public static Result verify(InputStream in) throws IOException {
+        Result result = new Result();
+        read(in, new FrameHandler() {
+            private final Map<Integer, TableDef> defs = new HashMap<>();
+
+            @Override
+            public void table(TableDef def) {
+                defs.put(def.getId(), def);
+            }
+
+            @Override
+            public void rows(TableDef def, int count, DataInputStream block) throws IOException {
+                for (int i = 0; i < count; i++) {
+                    LogicalBackupFormat.readRow(block, def.getTypes());
+                }
+            }
+
+            @Override
+            public void tableEnd(TableDef def, long rows) {
+                result.add(def.getName(), rows);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 按帧读取逻辑备份；行块数与表结束帧、表数与总行数与结束帧不一致时视为损坏
+     */
+    static void read(InputStream input, FrameHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        LogicalBackupFormat.readHeader(in);
+        Map<Integer, TableDef> defs = new HashMap<>();
+        Map<Integer, Long> counted = new HashMap<>();
+        long totalRows = 0;
+        while (true) {
+            int frame = in.read();
+            if (frame < 0) {
+                throw new CorruptBackupException("逻辑备份缺少结束帧（文件被截断）");
+            }
+            switch (frame) {
+                case LogicalBackupFormat.FRAME_TABLE: {
+                    TableDef def = LogicalBackupFormat.readTableDef(in);
+                    defs.put(def.getId(), def);
+                    counted.put(def.getId(), 0L);
+                    handler.table(def);
+                    break;
+                }
+                case LogicalBackupFormat.FRAME_ROWS: {
+                    TableDef def = requireTable(defs, (int) LogicalBackupFormat.readVarLong(in));
+                    int count = (int) LogicalBackupFormat.readVarLong(in);
+                    byte[] payload = LogicalBackupFormat.readBytes(in);
+                    counted.merge(def.getId(), (long) count, Long::sum);
+                    handler.rows(def, count, new DataInputStream(new ByteArrayInputStream(payload)));
+                    break;
+                }
+                case LogicalBackupFormat.FRAME_TABLE_END: {
+                    TableDef def = requireTable(defs, (int) LogicalBackupFormat.readVarLong(in));
+                    long rows = LogicalBackupFormat.readVarLong(in);
+                    if (rows != counted.get(def.getId())) {
+                        throw new CorruptBackupException(String.format("表%s行数不符 - 记录: %d, 实际: %d",
+                                                                       def.getName(), rows, counted.get(def.getId())));
+                    }
+                    totalRows += rows;
+                    handler.tableEnd(def, rows);
+                    break;
+                }
+                case LogicalBackupFormat.FRAME_SEQUENCE: {
+                    String name = LogicalBackupFormat.readString(in);
+                    boolean called = in.readBoolean();
+                    long value = LogicalBackupFormat.readSignedVarLong(in);
+                    handler.sequence(name, called ? value : null);
+                    break;
+                }
+                case LogicalBackupFormat.FRAME_END: {
+                    long tables = LogicalBackupFormat.readVarLong(in);
+                    long rows = LogicalBackupFormat.readVarLong(in);
+                    if (tables != defs.size() || rows != totalRows) {
+                        throw new CorruptBackupException(String.format("逻辑备份结束帧不符 - 表: %d/%d, 行: %d/%d",
+                                                                       tables, defs.size(), rows, totalRows));
+                    }
+                    return;
+                }
+                default:
+                    throw new CorruptBackupException("未知的帧类型: " + frame);
+            }
+        }
+    }
+
+    private static TableDef requireTable(Map<Integer, TableDef> defs, int id) throws CorruptBackupException {
+        TableDef def = defs.get(id);
+        if (def == null) {
+            throw new CorruptBackupException("行块引用了未定义的表号: " + id);
+        }
+        return def;
+    }
+
+    private long copyTable(Connection con, TableDef def, Path spoolFile) throws SQLException, IOException {
+        boolean binary = def.isBinaryCopyable();
+        String sql = "COPY " + quote(def.getName()) + " (" +
+                     def.getColumns().stream().map(LogicalBackupEngine::quote).collect(Collectors.joining(", ")) +
+                     ") FROM STDIN" + (binary ? " (FORMAT binary)" : "");
+        PGCopyOutputStream copy = new PGCopyOutputStream(con.unwrap(PGConnection.class), sql, COPY_BUFFER_SIZE);
+        long rows = 0;
+        try (DataInputStream in = openSpool(spoolFile)) {
+            DataOutputStream out = new DataOutputStream(copy);
+            if (binary) {
+                PgCopyEncoder.writeBinaryHeader(out);
+            }
+            Object[] values;
+            while ((values = readSpooledRow(in, def)) != null) {
+                if (binary) {
+                    PgCopyEncoder.writeBinaryRow(out, def.getTypes(), values);
+                } else {
+                    out.write(PgCopyEncoder.textRow(def.getTypes(), values));
+                }
+                rows++;
+            }
+            if (binary) {
+                PgCopyEncoder.writeBinaryTrailer(out);
+            }
+            out.flush();
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+        return rows;
+    }
+
+    private long insertTable(Connection con, TableDef def, Path spoolFile) throws SQLException, IOException {
+        String sql = "INSERT INTO " + quote(def.getName()) + " (" +
+                     def.getColumns().stream().map(LogicalBackupEngine::quote).collect(Collectors.joining(", ")) +
+                     ") VALUES (" + def.getTypes().stream()
+                         .map(type -> type == ColumnType.JSON || type == ColumnType.JSONB ? "? FORMAT JSON" : "?")
+                         .collect(Collectors.joining(", ")) + ")";
+        long rows = 0;
+        try (DataInputStream in = openSpool(spoolFile);
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            Object[] values;
+            int pending = 0;
+            while ((values = readSpooledRow(in, def)) != null) {
+                for (int i = 0; i < values.length; i++) {
+                    ps.setObject(i + 1, values[i]);
+                }
+                ps.addBatch();
+                rows++;
+                if (++pending >= applyBatchSize) {
+                    ps.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                ps.executeBatch();
+            }
+        }
+        return rows;
+    }
+
+    private static DataInputStream openSpool(Path spoolFile) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(spoolFile), COPY_BUFFER_SIZE));
+    }
+
+    private static Object[] readSpooledRow(DataInputStream in, TableDef def) throws IOException {
+        in.mark(1);
+        if (in.read() < 0) {
+            return null;
+        }
+        in.reset();
+        return LogicalBackupFormat.readRow(in, def.getTypes());
+    }
+
+    /**
+     * 按目标库的外键关系排序：被引用的表在前；存在环时其余表按原顺序排在最后
+     */
+    private static List<TableDef> dependencyOrder(Connection con, List<TableDef> defs) throws SQLException {
+        DatabaseMetaData meta = con.getMetaData();
+        String schema = con.getSchema();
+        Map<String, TableDef> byName = new LinkedHashMap<>();
+        defs.stream().sorted(Comparator.comparingInt(TableDef::getId))
+            .forEach(def -> byName.put(def.getName().toLowerCase(Locale.ROOT), def));
+        Map<String, Set<String>> parents = new HashMap<>();
+        for (TableDef def : byName.values()) {
+            Set<String> refs = new HashSet<>();
+            try (ResultSet rs = meta.getImportedKeys(con.getCatalog(), schema, def.getName())) {
+                while (rs.next()) {
+                    String parent = rs.getString("PKTABLE_NAME").toLowerCase(Locale.ROOT);
+                    if (byName.containsKey(parent) && !parent.equals(def.getName().toLowerCase(Locale.ROOT))) {
+                        refs.add(parent);
+                    }
+                }
+            }
+            parents.put(def.getName().toLowerCase(Locale.ROOT), refs);
+        }
+        List<TableDef> order = new ArrayList<>();
+        Set<String> done = new LinkedHashSet<>();
+        boolean progressed = true;
+        while (progressed) {
+            progressed = false;
+            for (Map.Entry<String, TableDef> entry : byName.entrySet()) {
+                if (!done.contains(entry.getKey()) && done.containsAll(parents.get(entry.getKey()))) {
+                    done.add(entry.getKey());
+                    order.add(entry.getValue());
+                    progressed = true;
+                }
+            }
+        }
+        byName.forEach((name, def) -> {
+            if (!done.contains(name)) {
+                order.add(def);
+            }
+        });
+        return order;
+    }
+
+    private static Map<String, Long> readSequences(Connection con) throws SQLException {
+        Map<String, Long> sequences = new LinkedHashMap<>();
+        try (Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(
+                 "SELECT sequencename, last_value FROM pg_sequences WHERE schemaname = current_schema() ORDER BY sequencename")) {
+            while (rs.next()) {
+                long value = rs.getLong(2);
+                sequences.put(rs.getString(1), rs.wasNull() ? null : value);
+            }
+        }
+        return sequences;
+    }
+
+    private static void restoreSequences(Connection con, Map<String, Long> sequences) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT setval(CAST(? AS regclass), ?, true)")) {
+            for (Map.Entry<String, Long> sequence : sequences.entrySet()) {
+                if (sequence.getValue() != null) {
+                    ps.setString(1, quote(sequence.getKey()));
+                    ps.setLong(2, sequence.getValue());
+                    ps.executeQuery().close();
+                }
+            }
+        }
+    }
+
+    private List<String> listTables(Connection con) throws SQLException {
+        Set<String> excluded = new HashSet<>(lowerCase(excludeTables));
+        List<String> tables = new ArrayList<>();
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), con.getSchema(), "%", null)) {
+            while (rs.next()) {
+                String type = rs.getString("TABLE_TYPE");
+                String name = rs.getString("TABLE_NAME");
+                // PostgreSQL分区表的父表不存数据，只导出各分区（类型为TABLE）
+                if (("TABLE".equals(type) || "BASE TABLE".equals(type)) && !excluded.contains(name.toLowerCase(Locale.ROOT))) {
+                    tables.add(name);
+                }
+            }
+        }
+        tables.sort(null);
+        return tables;
+    }
+
+    private static void beginSnapshotTransaction(Connection con) throws SQLException {
+        con.setAutoCommit(false);
+        con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        con.setReadOnly(true);
+    }
+
+    private static boolean isPostgres(Connection con) throws SQLException {
+        return "PostgreSQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName());
+    }
+
+    private static String queryString(Connection con, String sql) throws SQLException {
+        try (Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static List<String> lowerCase(Collection<String> names) {
+        return names.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).collect(Collectors.toList());
+    }
+
+    static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * 帧回调
+     */
+    interface FrameHandler {
+        void table(TableDef def) throws IOException;
+
+        void rows(TableDef def, int count, DataInputStream block) throws IOException;
+
+        void tableEnd(TableDef def, long rows) throws IOException;
+
+        default void sequence(String name, Long value) throws IOException {
+        }
+    }
+
+    /**
+     * 帧写出：各导出线程共用，整帧加锁写出，行块在线程内编码好再写
+     */
+    private static final class FrameWriter {
+        private final DataOutputStream out;
+        private int tables;
+        private long rows;
+
+        FrameWriter(OutputStream sink, String sourceProduct) throws IOException {
+            this.out = new DataOutputStream(sink);
+            LogicalBackupFormat.writeHeader(out, sourceProduct);
+        }
+
+        synchronized void table(TableDef def) throws IOException {
+            out.writeByte(LogicalBackupFormat.FRAME_TABLE);
+            LogicalBackupFormat.writeTableDef(out, def);
+            tables++;
+        }
+
+        void rows(int tableId, RowBlock block) throws IOException {
+            byte[] payload = block.toByteArray();
+            int count = block.rows();
+            block.reset();
+            synchronized (this) {
+                out.writeByte(LogicalBackupFormat.FRAME_ROWS);
+                LogicalBackupFormat.writeVarLong(out, tableId);
+                LogicalBackupFormat.writeVarLong(out, count);
+                LogicalBackupFormat.writeBytes(out, payload);
+            }
+        }
+
+        synchronized void tableEnd(int tableId, long tableRows) throws IOException {
+            out.writeByte(LogicalBackupFormat.FRAME_TABLE_END);
+            LogicalBackupFormat.writeVarLong(out, tableId);
+            LogicalBackupFormat.writeVarLong(out, tableRows);
+            rows += tableRows;
+        }
+
+        synchronized void sequence(String name, Long value) throws IOException {
+            out.writeByte(LogicalBackupFormat.FRAME_SEQUENCE);
+            LogicalBackupFormat.writeString(out, name);
+            out.writeBoolean(value != null);
+            LogicalBackupFormat.writeSignedVarLong(out, value != null ? value : 0);
+        }
+
+        synchronized void end(Result result) throws IOException {
+            out.writeByte(LogicalBackupFormat.FRAME_END);
+            LogicalBackupFormat.writeVarLong(out, tables);
+            LogicalBackupFormat.writeVarLong(out, rows);
+            out.flush();
+        }
+    }
+
+    /**
+     * 导入暂存：每张表一个临时文件，行块原样追加
+     */
+    private static final class Spool implements FrameHandler {
+        private final Path workDir;
+        private final Set<String> include;
+        private final Map<String, TableDef> defs = new LinkedHashMap<>();
+        private final Map<Integer, OutputStream> files = new HashMap<>();
+        private final Map<String, Long> sequences = new LinkedHashMap<>();
+        private final Result result = new Result();
+
+        Spool(Path workDir, Collection<String> tables) {
+            this.workDir = workDir;
+            this.include = new HashSet<>(lowerCase(tables));
+        }
+
+        @Override
+        public void table(TableDef def) throws IOException {
+            if (!include.isEmpty() && !include.contains(def.getName().toLowerCase(Locale.ROOT))) {
+                return;
+            }
+            defs.put(def.getName().toLowerCase(Locale.ROOT), def);
+            files.put(def.getId(), new BufferedOutputStream(Files.newOutputStream(file(def)), SPOOL_BUFFER_SIZE));
+        }
+
+        @Override
+        public void rows(TableDef def, int count, DataInputStream block) throws IOException {
+            OutputStream file = files.get(def.getId());
+            if (file != null) {
+                block.transferTo(file);
+            }
+        }
+
+        @Override
+        public void tableEnd(TableDef def, long rows) {
+            if (files.containsKey(def.getId())) {
+                result.add(def.getName(), rows);
+            }
+        }
+
+        @Override
+        public void sequence(String name, Long value) {
+            sequences.put(name, value);
+        }
+
+        Path file(TableDef def) {
+            return workDir.resolve("table-" + def.getId() + ".rows");
+        }
+
+        void close() throws IOException {
+            for (OutputStream file : files.values()) {
+                file.close();
+            }
+        }
+
+        void delete() {
+            try (Stream<Path> paths = Files.list(workDir)) {
+                for (Path path : paths.collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            } catch (IOException e) {
+                logger.warn("清理逻辑恢复暂存文件失败: {}", workDir, e);
+            }
+        }
+    }
+
+    /**
+     * 导出/导入结果
+     */
+    public static class Result {
+        private final Map<String, Long> tableRows = new LinkedHashMap<>();
+        private long rows;
+
+        synchronized void add(String table, long tableRows) {
+            this.tableRows.put(table, tableRows);
+            this.rows += tableRows;
+        }
+
+        public long getRows() { return rows; }
+        public Map<String, Long> getTableRows() { return tableRows; }
+    }
+}
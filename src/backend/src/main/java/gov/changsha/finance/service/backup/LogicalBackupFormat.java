@@ -0,0 +1,385 @@
+package gov.changsha.finance.service.backup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * 逻辑备份（.mdlb）的二进制格式
+ * <pre>
+ * 文件头  "MDLB" 版本(1字节) 源数据库产品名
+ * 'T'     表定义：表号 表名 列数 {列名 类型码}
+ * 'R'     行块：表号 行数 字节数 行数据
+ * 'E'     表结束：表号 行数
+ * 'S'     序列：序列名 是否有值(1字节) 当前值
+ * 'Z'     结束：表数 总行数
+ * </pre>
+ * 整数为变长编码（有符号值先做zigzag），字符串为长度+UTF-8。各表由独立线程并行导出，行块按写出先后交错排列，
+ * 导入时按表号归并。每行以空值位图开头，其后只写非空列，各列按类型紧凑编码（时间类型为微秒数）。
+ * 类型无法识别的列按数据库文本表示保存（OTHER）
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public final class LogicalBackupFormat {
+
+    public static final int VERSION = 1;
+    static final byte[] MAGIC = {'M', 'D', 'L', 'B'};
+
+    static final int FRAME_TABLE = 'T';
+    static final int FRAME_ROWS = 'R';
+    static final int FRAME_TABLE_END = 'E';
+    static final int FRAME_SEQUENCE = 'S';
+    static final int FRAME_END = 'Z';
+
+    private LogicalBackupFormat() {
+    }
+
+    /**
+     * 列类型；OTHER按数据库文本表示保存，导入PostgreSQL时没有对应的COPY BINARY编码
+     */
+    public enum ColumnType {
+        BOOL(1), INT16(2), INT32(3), INT64(4), FLOAT32(5), FLOAT64(6), NUMERIC(7), TEXT(8), BYTES(9),
+        DATE(10), TIME(11), TIMESTAMP(12), TIMESTAMPTZ(13), UUID(14), JSON(15), JSONB(16), OTHER(17);
+
+        private final int code;
+
+        ColumnType(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        static ColumnType ofCode(int code) throws IOException {
+            for (ColumnType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new CorruptBackupException("未知的列类型码: " + code);
+        }
+
+        /**
+         * 按JDBC类型与数据库类型名识别；类型名优先，区分JDBC类型相同的json/jsonb、timestamp/timestamptz等
+         */
+        public static ColumnType of(int jdbcType, String typeName) {
+            String name = typeName == null ? "" : typeName.toLowerCase(Locale.ROOT);
+            switch (name) {
+                case "uuid": return UUID;
+                case "json": return JSON;
+                case "jsonb": return JSONB;
+                case "bool": case "boolean": return BOOL;
+                case "timestamptz": case "timestamp with time zone": return TIMESTAMPTZ;
+                case "money": case "bit": case "varbit": case "timetz": case "time with time zone": case "interval":
+                    return OTHER;
+                default:
+                    break;
+            }
+            switch (jdbcType) {
+                case Types.BOOLEAN: return BOOL;
+                case Types.TINYINT: case Types.SMALLINT: return INT16;
+                case Types.INTEGER: return INT32;
+                case Types.BIGINT: return INT64;
+                case Types.REAL: return FLOAT32;
+                case Types.FLOAT: case Types.DOUBLE: return FLOAT64;
+                case Types.NUMERIC: case Types.DECIMAL: return NUMERIC;
+                case Types.CHAR: case Types.VARCHAR: case Types.LONGVARCHAR: case Types.NCHAR: case Types.NVARCHAR:
+                case Types.LONGNVARCHAR: case Types.CLOB: case Types.NCLOB:
+                    return TEXT;
+                case Types.BINARY: case Types.VARBINARY: case Types.LONGVARBINARY: case Types.BLOB: return BYTES;
+                case Types.DATE: return DATE;
+                case Types.TIME: return TIME;
+                case Types.TIMESTAMP: return TIMESTAMP;
+                case Types.TIMESTAMP_WITH_TIMEZONE: return TIMESTAMPTZ;
+                default: return OTHER;
+            }
+        }
+    }
+
+    /**
+     * 表定义
+     */
+    public static final class TableDef {
+        private final int id;
+        private final String name;
+        private final List<String> columns;
+        private final List<ColumnType> types;
+
+        public TableDef(int id, String name, List<String> columns, List<ColumnType> types) {
+            this.id = id;
+            this.name = name;
+            this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+            this.types = Collections.unmodifiableList(new ArrayList<>(types));
+        }
+
+        public int getId() { return id; }
+        public String getName() { return name; }
+        public List<String> getColumns() { return columns; }
+        public List<ColumnType> getTypes() { return types; }
+
+        public boolean isBinaryCopyable() {
+            return !types.contains(ColumnType.OTHER);
+        }
+    }
+
+    /**
+     * 从结果集读取当前行第index列（从1开始）
+     */
+    static Object readColumn(ResultSet rs, int index, ColumnType type) throws SQLException {
+        Object value;
+        switch (type) {
+            case BOOL: value = rs.getBoolean(index); break;
+            case INT16: value = rs.getShort(index); break;
+            case INT32: value = rs.getInt(index); break;
+            case INT64: value = rs.getLong(index); break;
+            case FLOAT32: value = rs.getFloat(index); break;
+            case FLOAT64: value = rs.getDouble(index); break;
+            case NUMERIC: value = rs.getBigDecimal(index); break;
+            case BYTES: value = rs.getBytes(index); break;
+            case DATE: value = rs.getObject(index, LocalDate.class); break;
+            case TIME: value = rs.getObject(index, LocalTime.class); break;
+            case TIMESTAMP: value = rs.getObject(index, LocalDateTime.class); break;
+            case TIMESTAMPTZ: value = rs.getObject(index, OffsetDateTime.class); break;
+            case UUID: value = rs.getObject(index, java.util.UUID.class); break;
+            default: value = rs.getString(index); break;
+        }
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * 编码一行：空值位图 + 各非空列
+     */
+    static void writeRow(DataOutputStream out, List<ColumnType> types, Object[] values) throws IOException {
+        byte[] nulls = new byte[(types.size() + 7) / 8];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                nulls[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(nulls);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                writeValue(out, types.get(i), values[i]);
+            }
+        }
+    }
+
+    static Object[] readRow(DataInputStream in, List<ColumnType> types) throws IOException {
+        byte[] nulls = new byte[(types.size() + 7) / 8];
+        in.readFully(nulls);
+        Object[] values = new Object[types.size()];
+        for (int i = 0; i < values.length; i++) {
+            if ((nulls[i >> 3] & (1 << (i & 7))) == 0) {
+                values[i] = readValue(in, types.get(i));
+            }
+        }
+        return values;
+    }
+
+    private static void writeValue(DataOutputStream out, ColumnType type, Object value) throws IOException {
+        switch (type) {
+            case BOOL: out.writeBoolean((Boolean) value); break;
+            case INT16: case INT32: case INT64: writeSignedVarLong(out, ((Number) value).longValue()); break;
+            case FLOAT32: out.writeFloat((Float) value); break;
+            case FLOAT64: out.writeDouble((Double) value); break;
+            case NUMERIC:
+                BigDecimal decimal = (BigDecimal) value;
+                writeSignedVarLong(out, decimal.scale());
+                writeBytes(out, decimal.unscaledValue().toByteArray());
+                break;
+            case BYTES: writeBytes(out, (byte[]) value); break;
+            case DATE: writeSignedVarLong(out, ((LocalDate) value).toEpochDay()); break;
+            case TIME: writeVarLong(out, ((LocalTime) value).toNanoOfDay() / 1000); break;
+            case TIMESTAMP: writeSignedVarLong(out, epochMicros(((LocalDateTime) value).toInstant(ZoneOffset.UTC))); break;
+            case TIMESTAMPTZ: writeSignedVarLong(out, epochMicros(((OffsetDateTime) value).toInstant())); break;
+            case UUID:
+                out.writeLong(((UUID) value).getMostSignificantBits());
+                out.writeLong(((UUID) value).getLeastSignificantBits());
+                break;
+            default: writeString(out, (String) value); break;
+        }
+    }
+
+    private static Object readValue(DataInputStream in, ColumnType type) throws IOException {
+        switch (type) {
+            case BOOL: return in.readBoolean();
+            case INT16: return (short) readSignedVarLong(in);
+            case INT32: return (int) readSignedVarLong(in);
+            case INT64: return readSignedVarLong(in);
+            case FLOAT32: return in.readFloat();
+            case FLOAT64: return in.readDouble();
+            case NUMERIC:
+                int scale = (int) readSignedVarLong(in);
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BYTES: return readBytes(in);
+            case DATE: return LocalDate.ofEpochDay(readSignedVarLong(in));
+            case TIME: return LocalTime.ofNanoOfDay(readVarLong(in) * 1000);
+            case TIMESTAMP: return LocalDateTime.ofInstant(ofEpochMicros(readSignedVarLong(in)), ZoneOffset.UTC);
+            case TIMESTAMPTZ: return OffsetDateTime.ofInstant(ofEpochMicros(readSignedVarLong(in)), ZoneOffset.UTC);
+            case UUID: return new UUID(in.readLong(), in.readLong());
+            default: return readString(in);
+        }
+    }
+
+    static long epochMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1000);
+    }
+
+    static Instant ofEpochMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1000);
+    }
+
+    static void writeHeader(DataOutputStream out, String sourceProduct) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeString(out, sourceProduct);
+    }
+
+    /**
+     * 读取并校验文件头
+     *
+     * @return 源数据库产品名
+     */
+    static String readHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            throw new CorruptBackupException("逻辑备份为空或不完整");
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new CorruptBackupException("不是逻辑备份文件");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new CorruptBackupException("不支持的逻辑备份版本: " + version);
+        }
+        return readString(in);
+    }
+
+    static void writeTableDef(DataOutputStream out, TableDef table) throws IOException {
+        writeVarLong(out, table.getId());
+        writeString(out, table.getName());
+        writeVarLong(out, table.getColumns().size());
+        for (int i = 0; i < table.getColumns().size(); i++) {
+            writeString(out, table.getColumns().get(i));
+            out.writeByte(table.getTypes().get(i).getCode());
+        }
+    }
+
+    static TableDef readTableDef(DataInputStream in) throws IOException {
+        int id = (int) readVarLong(in);
+        String name = readString(in);
+        int count = (int) readVarLong(in);
+        List<String> columns = new ArrayList<>(count);
+        List<ColumnType> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            columns.add(readString(in));
+            types.add(ColumnType.ofCode(in.readUnsignedByte()));
+        }
+        return new TableDef(id, name, columns, types);
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("逻辑备份在变长整数中间结束");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new CorruptBackupException("变长整数过长");
+    }
+
+    static void writeSignedVarLong(OutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSignedVarLong(InputStream in) throws IOException {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static byte[] readBytes(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new CorruptBackupException("字段长度无效: " + length);
+        }
+        byte[] bytes = new byte[(int) length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 行块缓冲：同一张表的行累积到一定大小后整体写为一个'R'帧
+     */
+    static final class RowBlock {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private int rows;
+
+        void add(List<ColumnType> types, Object[] values) throws IOException {
+            writeRow(out, types, values);
+            rows++;
+        }
+
+        int size() { return buffer.size(); }
+        int rows() { return rows; }
+        byte[] toByteArray() { return buffer.toByteArray(); }
+
+        void reset() {
+            buffer.reset();
+            rows = 0;
+        }
+    }
+}
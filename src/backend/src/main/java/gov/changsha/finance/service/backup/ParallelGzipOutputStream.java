@@ -0,0 +1,198 @@
+package gov.changsha.finance.service.backup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 并行分块gzip输出流
+ * 输入按固定块大小切分，每块在线程池中独立压缩为一个完整的gzip成员（头 + deflate数据 + CRC32/ISIZE尾），
+ * 按提交顺序写出。多成员gzip是标准格式（RFC 1952），gunzip和GZIPInputStream均可直接读取。
+ * 在途块数有上限，内存占用约为 块大小 × (在途块数 + 1)
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /**
+     * gzip成员头：魔数、CM=deflate、无标志、MTIME=0、XFL=0、OS=未知
+     */
+    private static final byte[] MEMBER_HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int blockSize;
+    private final int level;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] buffer;
+    private int count;
+    private long members;
+    private boolean closed;
+
+    /**
+     * @param executor    压缩线程池（由调用方管理生命周期）
+     * @param blockSize   每个gzip成员的未压缩字节数
+     * @param level       压缩级别 0-9
+     * @param maxInFlight 最多同时在途（提交未写出）的块数
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int blockSize, int level, int maxInFlight) {
+        if (blockSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("块大小和在途块数必须为正数");
+        }
+        this.out = out;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.maxInFlight = maxInFlight;
+        this.buffer = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[count++] = (byte) b;
+        if (count == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * 把当前不满的块作为一个成员压缩并写出全部在途块
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        submitBlock();
+        drain(0);
+        out.flush();
+    }
+
+    /**
+     * 写出剩余数据，不关闭底层流；空输入也输出一个空成员，保证结果是合法gzip
+     */
+    public void finish() throws IOException {
+        ensureOpen();
+        submitBlock();
+        drain(0);
+        if (members == 0) {
+            out.write(compress(new byte[0], 0, level));
+            members++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            finish();
+        } finally {
+            closed = true;
+            pending.forEach(future -> future.cancel(true));
+            pending.clear();
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        byte[] block = buffer;
+        int length = count;
+        drain(maxInFlight - 1);
+        pending.addLast(executor.submit(() -> compress(block, length, level)));
+        buffer = new byte[blockSize];
+        count = 0;
+    }
+
+    /**
+     * 按顺序写出已提交的块，直到在途块数不超过limit
+     */
+    private void drain(int limit) throws IOException {
+        while (pending.size() > limit) {
+            Future<byte[]> head = pending.peekFirst();
+            byte[] member;
+            try {
+                member = head.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待块压缩时被中断");
+            } catch (ExecutionException ex) {
+                throw new IOException("块压缩失败", ex.getCause());
+            }
+            pending.removeFirst();
+            out.write(member);
+            members++;
+        }
+    }
+
+    /**
+     * 把一块数据压缩为一个完整的gzip成员
+     */
+    static byte[] compress(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+
+            ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + 64);
+            member.write(MEMBER_HEADER, 0, MEMBER_HEADER.length);
+            byte[] chunk = new byte[Math.max(1024, Math.min(length + 64, 65536))];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                member.write(chunk, 0, n);
+            }
+            writeIntLE(member, (int) crc.getValue());
+            writeIntLE(member, length);
+            return member.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("压缩流已关闭");
+        }
+    }
+}
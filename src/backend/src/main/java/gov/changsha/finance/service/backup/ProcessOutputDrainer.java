@@ -0,0 +1,78 @@
+package gov.changsha.finance.service.backup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 外部进程输出排空器
+ * 在独立守护线程中持续读取子进程的stderr（或不关心的stdout），避免管道缓冲区写满后子进程阻塞；
+ * 只保留最后若干行用于失败时的错误信息，--verbose等大量输出不会在内存中累积
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class ProcessOutputDrainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessOutputDrainer.class);
+
+    private final Deque<String> tail = new ArrayDeque<>();
+    private final int maxLines;
+    private final Thread thread;
+
+    private ProcessOutputDrainer(InputStream in, String name, int maxLines) {
+        this.maxLines = maxLines;
+        this.thread = new Thread(() -> drain(in, name), name);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * 启动排空线程
+     *
+     * @param maxLines 保留的末尾行数
+     */
+    public static ProcessOutputDrainer start(InputStream in, String name, int maxLines) {
+        ProcessOutputDrainer drainer = new ProcessOutputDrainer(in, name, maxLines);
+        drainer.thread.start();
+        return drainer;
+    }
+
+    /**
+     * 等待输出读完（进程退出后管道关闭），返回保留的末尾行
+     */
+    public String await(long timeoutMillis) {
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (tail) {
+            return String.join("\n", tail);
+        }
+    }
+
+    private void drain(InputStream in, String name) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.debug("[{}] {}", name, line);
+                synchronized (tail) {
+                    if (tail.size() == maxLines) {
+                        tail.removeFirst();
+                    }
+                    tail.addLast(line);
+                }
+            }
+        } catch (IOException ex) {
+            logger.debug("读取进程输出中断 - {}: {}", name, ex.getMessage());
+        }
+    }
+}
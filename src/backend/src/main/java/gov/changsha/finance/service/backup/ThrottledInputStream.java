@@ -0,0 +1,73 @@
+package gov.changsha.finance.service.backup;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * 限速输入流
+ * 按令牌桶限制读取速率（桶容量为1秒的额度，bytesPerSecond不大于0时不限速），并把每次读取的字节数交给onRead。
+ * 包在pg_dump的stdout上时，读取放慢使管道写满，pg_dump随之放慢对数据库的读取，从而限制备份对联机业务的IO压力
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final long bytesPerSecond;
+    private final LongConsumer onRead;
+    private final int maxReadSize;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public ThrottledInputStream(InputStream in, long bytesPerSecond, LongConsumer onRead) {
+        super(in);
+        this.bytesPerSecond = bytesPerSecond;
+        this.onRead = onRead;
+        // 单次读取不超过0.1秒的额度，使限速平滑而不是整块读完后长时间停顿
+        this.maxReadSize = bytesPerSecond > 0 ? (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytesPerSecond / 10)) : Integer.MAX_VALUE;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            consumed(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, Math.min(len, maxReadSize));
+        if (n > 0) {
+            consumed(n);
+        }
+        return n;
+    }
+
+    private void consumed(int n) throws IOException {
+        onRead.accept(n);
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * (double) bytesPerSecond / 1_000_000_000L);
+        lastRefillNanos = now;
+        tokens -= n;
+        if (tokens < 0) {
+            long waitNanos = (long) (-tokens * 1_000_000_000L / bytesPerSecond);
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("备份限速等待被中断");
+            }
+        }
+    }
+}
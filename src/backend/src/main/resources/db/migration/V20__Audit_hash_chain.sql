@@ -0,0 +1,48 @@
+-- 审计日志哈希链与封段
+-- Version: V20__Audit_hash_chain.sql
+-- Description: 审计日志行按写入实例组成哈希链，按时间段封段并记录Merkle根，用于检测篡改和删除
+
+-- 哈希链字段（历史数据为空，不参与链校验）
+ALTER TABLE audit_logs ADD COLUMN chain_id VARCHAR(64);
+ALTER TABLE audit_logs ADD COLUMN chain_seq BIGINT;
+ALTER TABLE audit_logs ADD COLUMN prev_hash VARCHAR(64);
+ALTER TABLE audit_logs ADD COLUMN row_hash VARCHAR(64);
+
+CREATE INDEX idx_audit_chain_seq ON audit_logs(chain_id, chain_seq);
+
+-- 封段表：每条链每个时间段一行
+CREATE TABLE audit_segments (
+    id BIGSERIAL PRIMARY KEY,
+    chain_id VARCHAR(64) NOT NULL,
+    segment_no BIGINT NOT NULL,
+
+    -- 封段时间段（按写入时间划分）
+    period_start TIMESTAMP NOT NULL,
+    period_end TIMESTAMP NOT NULL,
+
+    -- 段内行范围
+    first_seq BIGINT NOT NULL,
+    last_seq BIGINT NOT NULL,
+    row_count BIGINT NOT NULL,
+    first_prev_hash VARCHAR(64) NOT NULL,
+    last_row_hash VARCHAR(64) NOT NULL,
+    merkle_root VARCHAR(64) NOT NULL,
+
+    -- 封段链：本段HMAC覆盖上一段的封段签名
+    prev_seal VARCHAR(64),
+    seal VARCHAR(64) NOT NULL,
+    sealed_by VARCHAR(20) NOT NULL DEFAULT 'WRITER',
+    sealed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uk_audit_segments_chain_no UNIQUE (chain_id, segment_no),
+    CONSTRAINT chk_audit_segments_sealed_by CHECK (sealed_by IN ('WRITER', 'RECOVERY'))
+);
+
+CREATE INDEX idx_audit_segments_period ON audit_segments(period_start);
+
+COMMENT ON TABLE audit_segments IS '审计日志封段表 - 每条哈希链按时间段封段的Merkle根';
+COMMENT ON COLUMN audit_logs.chain_id IS '哈希链ID（写入实例）';
+COMMENT ON COLUMN audit_logs.chain_seq IS '链内序号';
+COMMENT ON COLUMN audit_logs.prev_hash IS '前一行的行哈希';
+COMMENT ON COLUMN audit_logs.row_hash IS '本行哈希 SHA-256(前一行哈希 + 本行内容)';
+COMMENT ON COLUMN audit_segments.sealed_by IS '封段来源：WRITER 写入实例在线封段，RECOVERY 实例宕机后由其它实例按库内数据补封';
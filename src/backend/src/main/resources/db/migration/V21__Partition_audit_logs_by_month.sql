@@ -0,0 +1,108 @@
+-- 审计日志按月范围分区
+-- Version: V21__Partition_audit_logs_by_month.sql
+-- Description: 将audit_logs改为按timestamp的月度范围分区表，保留期清理改为分离并删除整个分区；
+--              后续月份分区由应用启动及每日任务（AuditPartitionManager）预建
+
+-- 1. 原表改名，新建分区父表（列与原表一致；分区表主键必须包含分区键）
+ALTER TABLE audit_logs RENAME TO audit_logs_unpartitioned;
+
+CREATE TABLE audit_logs (
+    id BIGINT NOT NULL DEFAULT nextval('audit_logs_id_seq'),
+
+    -- 用户信息
+    user_id BIGINT,
+    username VARCHAR(100),
+    real_name VARCHAR(100),
+
+    -- 操作信息
+    operation VARCHAR(50) NOT NULL,
+    module VARCHAR(50) NOT NULL,
+    operation_desc VARCHAR(500) NOT NULL,
+
+    -- 业务信息
+    business_type VARCHAR(50),
+    business_id VARCHAR(100),
+    business_data TEXT,
+
+    -- 操作结果
+    operation_status VARCHAR(20) NOT NULL DEFAULT 'SUCCESS',
+    result_message VARCHAR(1000),
+
+    -- 时间和网络信息
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ip_address VARCHAR(45),
+    user_agent VARCHAR(500),
+
+    -- 请求信息
+    request_uri VARCHAR(500),
+    http_method VARCHAR(10),
+    request_params TEXT,
+
+    -- 其他信息
+    duration BIGINT,
+    exception_info TEXT,
+    risk_level VARCHAR(20) DEFAULT 'LOW',
+    session_id VARCHAR(100),
+    signature VARCHAR(500),
+
+    -- 哈希链
+    chain_id VARCHAR(64),
+    chain_seq BIGINT,
+    prev_hash VARCHAR(64),
+    row_hash VARCHAR(64),
+
+    CONSTRAINT pk_audit_logs PRIMARY KEY (id, timestamp),
+    CONSTRAINT chk_audit_logs_operation_status CHECK (operation_status IN ('SUCCESS', 'FAILED', 'PARTIAL')),
+    CONSTRAINT chk_audit_logs_risk_level CHECK (risk_level IN ('LOW', 'MEDIUM', 'HIGH', 'CRITICAL'))
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+-- 2. 为已有数据所在月份至未来3个月建立分区；兜底分区接收超出范围的行（如回放很久以前的溢出日志）
+DO $$
+DECLARE
+    first_month DATE;
+    last_month DATE := date_trunc('month', CURRENT_DATE + INTERVAL '3 months')::DATE;
+    month_start DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(timestamp))::DATE, date_trunc('month', CURRENT_DATE)::DATE)
+      INTO first_month FROM audit_logs_unpartitioned;
+
+    month_start := first_month;
+    WHILE month_start <= last_month LOOP
+        EXECUTE format('CREATE TABLE audit_logs_y%sm%s PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+                       to_char(month_start, 'YYYY'), to_char(month_start, 'MM'),
+                       month_start, (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+CREATE TABLE audit_logs_default PARTITION OF audit_logs DEFAULT;
+
+-- 3. 迁移数据后删除原表
+INSERT INTO audit_logs (id, user_id, username, real_name, operation, module, operation_desc,
+                        business_type, business_id, business_data, operation_status, result_message,
+                        timestamp, ip_address, user_agent, request_uri, http_method, request_params,
+                        duration, exception_info, risk_level, session_id, signature,
+                        chain_id, chain_seq, prev_hash, row_hash)
+SELECT id, user_id, username, real_name, operation, module, operation_desc,
+       business_type, business_id, business_data, operation_status, result_message,
+       timestamp, ip_address, user_agent, request_uri, http_method, request_params,
+       duration, exception_info, risk_level, session_id, signature,
+       chain_id, chain_seq, prev_hash, row_hash
+  FROM audit_logs_unpartitioned;
+
+DROP TABLE audit_logs_unpartitioned;
+
+-- 4. 在父表上建索引（自动建到每个分区；新分区自动继承）
+CREATE INDEX idx_audit_user_id ON audit_logs(user_id);
+CREATE INDEX idx_audit_operation ON audit_logs(operation);
+CREATE INDEX idx_audit_timestamp ON audit_logs(timestamp);
+CREATE INDEX idx_audit_ip ON audit_logs(ip_address);
+CREATE INDEX idx_audit_module ON audit_logs(module);
+CREATE INDEX idx_audit_status ON audit_logs(operation_status);
+CREATE INDEX idx_audit_risk_level ON audit_logs(risk_level);
+CREATE INDEX idx_audit_chain_seq ON audit_logs(chain_id, chain_seq);
+
+COMMENT ON TABLE audit_logs IS '审计日志表 - 按timestamp月度范围分区，分区命名audit_logs_yYYYYmMM';
+COMMENT ON TABLE audit_logs_default IS '审计日志兜底分区 - 正常应为空，预建分区时会把落入新分区范围的行迁出';
@@ -0,0 +1,20 @@
+-- 审计日志键集分页复合索引
+-- Version: V22__Audit_logs_keyset_indexes.sql
+-- Description: 常用过滤条件 + (timestamp DESC, id DESC) 复合索引，支持按条件键集翻页时直接按索引顺序读取前N行；
+--              被复合索引前缀覆盖的单列索引删除以减少写放大（分区表上的索引自动建到各分区）
+
+CREATE INDEX idx_audit_ts_id ON audit_logs(timestamp DESC, id DESC);
+CREATE INDEX idx_audit_user_ts_id ON audit_logs(user_id, timestamp DESC, id DESC);
+CREATE INDEX idx_audit_username_ts_id ON audit_logs(username, timestamp DESC, id DESC);
+CREATE INDEX idx_audit_operation_ts_id ON audit_logs(operation, timestamp DESC, id DESC);
+CREATE INDEX idx_audit_status_ts_id ON audit_logs(operation_status, timestamp DESC, id DESC);
+CREATE INDEX idx_audit_risk_ts_id ON audit_logs(risk_level, timestamp DESC, id DESC);
+CREATE INDEX idx_audit_ip_ts_id ON audit_logs(ip_address, timestamp DESC, id DESC);
+CREATE INDEX idx_audit_business_ts_id ON audit_logs(business_type, business_id, timestamp DESC, id DESC);
+
+DROP INDEX IF EXISTS idx_audit_timestamp;
+DROP INDEX IF EXISTS idx_audit_user_id;
+DROP INDEX IF EXISTS idx_audit_operation;
+DROP INDEX IF EXISTS idx_audit_status;
+DROP INDEX IF EXISTS idx_audit_risk_level;
+DROP INDEX IF EXISTS idx_audit_ip;
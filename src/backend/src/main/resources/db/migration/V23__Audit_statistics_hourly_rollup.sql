@@ -0,0 +1,28 @@
+-- 审计统计小时汇总表
+-- Version: V23__Audit_statistics_hourly_rollup.sql
+-- Description: 按小时、按维度（总量/用户/操作类型/IP/状态/风险等级）预聚合审计日志条数；
+--              写入器批量写库后增量累加，后台任务回填历史并定期对账，安全仪表盘只查询本表
+
+CREATE TABLE audit_stats_hourly (
+    id BIGSERIAL PRIMARY KEY,
+    bucket_hour TIMESTAMP NOT NULL,
+    dimension VARCHAR(20) NOT NULL,
+    -- 维度取值：TOTAL为'*'，USER为用户名，其余为对应字段值；字段为空时为''
+    dim_key VARCHAR(100) NOT NULL,
+    -- 仅USER维度使用
+    user_id BIGINT,
+    event_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uk_audit_stats_hourly UNIQUE (dimension, bucket_hour, dim_key),
+    CONSTRAINT chk_audit_stats_dimension CHECK (dimension IN ('TOTAL', 'USER', 'OPERATION', 'IP', 'STATUS', 'RISK'))
+);
+
+CREATE INDEX idx_audit_stats_key ON audit_stats_hourly(dimension, dim_key, bucket_hour);
+CREATE INDEX idx_audit_stats_user ON audit_stats_hourly(user_id) WHERE user_id IS NOT NULL;
+
+COMMENT ON TABLE audit_stats_hourly IS '审计日志小时汇总表';
+COMMENT ON COLUMN audit_stats_hourly.bucket_hour IS '统计小时（整点）';
+COMMENT ON COLUMN audit_stats_hourly.dimension IS '统计维度';
+COMMENT ON COLUMN audit_stats_hourly.dim_key IS '维度取值';
+COMMENT ON COLUMN audit_stats_hourly.event_count IS '该小时该取值的日志条数';
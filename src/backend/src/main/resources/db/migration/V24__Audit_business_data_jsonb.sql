@@ -0,0 +1,23 @@
+-- 审计日志业务数据改为jsonb并建立GIN索引
+-- Version: V24__Audit_business_data_jsonb.sql
+-- Description: business_data由TEXT改为jsonb，写入时只解析一次，按载荷字段检索（如 targetUser.id）
+--              可走GIN索引，不再对全表文本做LIKE扫描。分区表上的ALTER TYPE会逐分区重写数据，
+--              应在维护窗口执行；非合法JSON的历史值保留为JSON字符串，不丢弃
+
+CREATE FUNCTION audit_try_jsonb(value TEXT) RETURNS jsonb AS $$
+BEGIN
+    IF value IS NULL OR btrim(value) = '' THEN
+        RETURN NULL;
+    END IF;
+    RETURN value::jsonb;
+EXCEPTION WHEN others THEN
+    RETURN to_jsonb(value);
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+ALTER TABLE audit_logs ALTER COLUMN business_data TYPE jsonb USING audit_try_jsonb(business_data);
+
+DROP FUNCTION audit_try_jsonb(TEXT);
+
+-- jsonb_path_ops只支持@>包含查询，索引体积约为默认jsonb_ops的一半
+CREATE INDEX idx_audit_business_data ON audit_logs USING GIN (business_data jsonb_path_ops);
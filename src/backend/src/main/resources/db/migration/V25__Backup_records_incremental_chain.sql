@@ -0,0 +1,14 @@
+-- 增量备份水位与备份链
+-- Version: V25__Backup_records_incremental_chain.sql
+-- Description: data_backup_records（V7）记录每次备份覆盖的变更时间区间(watermark_from, watermark_to]
+--              及其所依赖的上一个备份（parent_id）；全量备份的watermark_to为导出开始时的数据库时间，
+--              恢复时从目标备份沿parent_id回溯到全量备份，再按顺序重放增量
+
+ALTER TABLE data_backup_records ADD COLUMN IF NOT EXISTS watermark_from TIMESTAMP WITH TIME ZONE;
+ALTER TABLE data_backup_records ADD COLUMN IF NOT EXISTS watermark_to TIMESTAMP WITH TIME ZONE;
+ALTER TABLE data_backup_records ADD COLUMN IF NOT EXISTS parent_id BIGINT REFERENCES data_backup_records(id);
+
+-- 取最近一次成功备份的水位
+CREATE INDEX IF NOT EXISTS idx_data_backup_records_watermark
+    ON data_backup_records(backup_status, watermark_to DESC);
+CREATE INDEX IF NOT EXISTS idx_data_backup_records_parent ON data_backup_records(parent_id);
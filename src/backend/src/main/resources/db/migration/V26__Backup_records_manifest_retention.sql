@@ -0,0 +1,12 @@
+-- 备份清单索引与分级保留
+-- Version: V26__Backup_records_manifest_retention.sql
+-- Description: 备份目录下的清单文件（.backup-manifest）是列表、恢复链解析和保留策略的快速索引，
+--              data_backup_records与之对应：记录备份文件的精确字节数；按分级（GFS）保留策略删除的备份
+--              标记为EXPIRED并记录删除时间，记录本身保留以便追溯
+
+ALTER TABLE data_backup_records ADD COLUMN IF NOT EXISTS backup_size_bytes BIGINT;
+ALTER TABLE data_backup_records ADD COLUMN IF NOT EXISTS expired_at TIMESTAMP WITH TIME ZONE;
+
+ALTER TABLE data_backup_records DROP CONSTRAINT IF EXISTS chk_data_backup_records_backup_status;
+ALTER TABLE data_backup_records ADD CONSTRAINT chk_data_backup_records_backup_status
+    CHECK (backup_status IN ('PENDING', 'RUNNING', 'COMPLETED', 'FAILED', 'CANCELLED', 'EXPIRED'));
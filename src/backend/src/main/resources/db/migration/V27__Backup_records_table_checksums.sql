@@ -0,0 +1,11 @@
+-- 备份逐表摘要与抽样恢复校验
+-- Version: V27__Backup_records_table_checksums.sql
+-- Description: 全量备份时在导出流上逐表计算COPY数据的行数与摘要，记录在table_checksums中，
+--              形如 {"public.projects": {"rows": 120, "checksum": "9f3c..."}}；
+--              抽样恢复校验对解密解压后的备份重算并比对，结果写入已有的is_verified/verification_*列
+
+ALTER TABLE data_backup_records ADD COLUMN IF NOT EXISTS table_checksums JSONB;
+
+ALTER TABLE data_backup_records DROP CONSTRAINT IF EXISTS chk_data_backup_records_verification_status;
+ALTER TABLE data_backup_records ADD CONSTRAINT chk_data_backup_records_verification_status
+    CHECK (verification_status IS NULL OR verification_status IN ('PASSED', 'FAILED'));
@@ -0,0 +1,57 @@
+-- 增量备份删除日志
+-- Version: V28__Backup_deletions_log.sql
+-- Description: 时间水位只能捕获新增与修改，按备份链恢复时全量备份之后删除的行会被重新带回。
+--              参与增量备份的表上的AFTER DELETE触发器把被删除行的主键（文本表示）写入backup_deletions，
+--              增量备份导出区间内的删除记录作为墓碑，重放时先按主键删除再UPSERT；
+--              全量备份完成后早于其水位的记录不再需要，由备份服务清理。
+--              audit_logs只按整个分区清理（V21），DROP不触发行级触发器，不在此记录
+
+CREATE TABLE IF NOT EXISTS backup_deletions (
+    id BIGSERIAL PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    pk JSONB NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_backup_deletions_table_deleted_at ON backup_deletions (table_name, deleted_at);
+
+COMMENT ON TABLE backup_deletions IS '增量备份删除日志（墓碑）';
+COMMENT ON COLUMN backup_deletions.pk IS '被删除行的主键列及其文本值，如 {"id": "42"}';
+
+-- 触发器参数：TG_ARGV[0]为表名，其余为主键列
+CREATE OR REPLACE FUNCTION record_backup_deletion()
+RETURNS TRIGGER AS $$
+DECLARE
+    old_row JSONB := to_jsonb(OLD);
+    key_values JSONB := '{}'::JSONB;
+    i INTEGER;
+BEGIN
+    FOR i IN 1 .. TG_NARGS - 1 LOOP
+        key_values := key_values || jsonb_build_object(TG_ARGV[i], old_row ->> TG_ARGV[i]);
+    END LOOP;
+    INSERT INTO backup_deletions (table_name, pk) VALUES (TG_ARGV[0], key_values);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 为增量备份默认的表（system.backup.incremental.tables）按主键建立触发器；新增参与增量备份的表时需同样建立
+DO $$
+DECLARE
+    target_table TEXT;
+    key_columns TEXT;
+BEGIN
+    FOREACH target_table IN ARRAY ARRAY['projects', 'function_points', 'calculation_results', 'function_point_history',
+                                      'vaf_factors', 'ei_details', 'eif_details', 'eo_details', 'eq_details',
+                                      'ilf_details', 'users', 'roles', 'permissions'] LOOP
+        SELECT string_agg(quote_literal(a.attname), ', ' ORDER BY array_position(i.indkey::SMALLINT[], a.attnum))
+          INTO key_columns
+          FROM pg_index i
+          JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)
+         WHERE i.indrelid = to_regclass(target_table) AND i.indisprimary;
+        IF key_columns IS NOT NULL THEN
+            EXECUTE format('DROP TRIGGER IF EXISTS trigger_backup_deletion ON %I', target_table);
+            EXECUTE format('CREATE TRIGGER trigger_backup_deletion AFTER DELETE ON %I FOR EACH ROW ' ||
+                           'EXECUTE FUNCTION record_backup_deletion(%L, %s)', target_table, target_table, key_columns);
+        END IF;
+    END LOOP;
+END $$;
@@ -0,0 +1,116 @@
+package gov.changsha.finance.config;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import gov.changsha.finance.config.redis.BinaryCacheCodec;
+import gov.changsha.finance.config.redis.CompactCacheSerializer;
+import gov.changsha.finance.config.redis.LongCodec;
+import gov.changsha.finance.config.redis.UserPrincipalCodec;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑缓存序列化器测试
+ * 验证二进制编解码往返、JSON兼容读取以及格式切换
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class CompactCacheSerializerTest {
+
+    private CompactCacheSerializer jsonWriter;
+    private CompactCacheSerializer binaryWriter;
+
+    @BeforeEach
+    void setUp() {
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        json.configure(objectMapper -> objectMapper.registerModule(new JavaTimeModule()));
+        List<BinaryCacheCodec<?>> codecs = List.of(new UserPrincipalCodec(), new LongCodec());
+        jsonWriter = new CompactCacheSerializer(codecs, json, false);
+        binaryWriter = new CompactCacheSerializer(codecs, json, true);
+    }
+
+    @Test
+    @DisplayName("用户主体二进制往返后字段与权限保持一致")
+    void binaryRoundTrip() {
+        UserPrincipal principal = samplePrincipal();
+
+        byte[] bytes = binaryWriter.serialize(principal);
+        assertEquals(CompactCacheSerializer.MAGIC, bytes[0]);
+        assertEquals(UserPrincipalCodec.TYPE_ID, bytes[1]);
+
+        assertPrincipalEquals(principal, (UserPrincipal) binaryWriter.deserialize(bytes));
+    }
+
+    @Test
+    @DisplayName("二进制值小于JSON值")
+    void binaryIsSmallerThanJson() {
+        UserPrincipal principal = samplePrincipal();
+        assertTrue(binaryWriter.serialize(principal).length < jsonWriter.serialize(principal).length);
+    }
+
+    @Test
+    @DisplayName("旧版JSON条目可被读取（迁移路径）")
+    void readsLegacyJson() {
+        UserPrincipal principal = samplePrincipal();
+
+        byte[] legacy = jsonWriter.serialize(principal);
+        assertNotEquals(CompactCacheSerializer.MAGIC, legacy[0]);
+
+        assertPrincipalEquals(principal, (UserPrincipal) binaryWriter.deserialize(legacy));
+    }
+
+    @Test
+    @DisplayName("JSON模式可读取二进制条目，Long值两种格式均可往返")
+    void mixedFormatsAreReadable() {
+        UserPrincipal principal = samplePrincipal();
+        assertPrincipalEquals(principal, (UserPrincipal) jsonWriter.deserialize(binaryWriter.serialize(principal)));
+
+        assertEquals(42L, ((Number) jsonWriter.deserialize(binaryWriter.serialize(42L))).longValue());
+        assertEquals(42L, ((Number) binaryWriter.deserialize(jsonWriter.serialize(42L))).longValue());
+    }
+
+    private static UserPrincipal samplePrincipal() {
+        Set<GrantedAuthority> authorities = Set.of(
+                new SimpleGrantedAuthority("ROLE_ASSESSOR"),
+                new SimpleGrantedAuthority("NESMA_CALCULATE"),
+                new SimpleGrantedAuthority("REPORT_VIEW"));
+        return new UserPrincipal(7L, "lisi", "李四", null, "CS2025007", "评审二科", null,
+                null, authorities, true, false, true, true,
+                LocalDateTime.of(2025, 10, 19, 8, 0, 1, 500_000_000));
+    }
+
+    private static void assertPrincipalEquals(UserPrincipal expected, UserPrincipal actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getUsername(), actual.getUsername());
+        assertEquals(expected.getRealName(), actual.getRealName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getEmployeeId(), actual.getEmployeeId());
+        assertEquals(expected.getDepartment(), actual.getDepartment());
+        assertEquals(expected.getPosition(), actual.getPosition());
+        assertEquals(expected.isEnabled(), actual.isEnabled());
+        assertEquals(expected.isAccountNonLocked(), actual.isAccountNonLocked());
+        assertEquals(expected.getLastLoginAt(), actual.getLastLoginAt());
+        assertEquals(authorityCodes(expected), authorityCodes(actual));
+        assertNull(actual.getPassword());
+    }
+
+    private static Set<String> authorityCodes(UserPrincipal principal) {
+        return principal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+    }
+}
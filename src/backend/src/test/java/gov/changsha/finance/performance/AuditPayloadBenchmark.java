@@ -0,0 +1,86 @@
+package gov.changsha.finance.performance;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import gov.changsha.finance.entity.User;
+import gov.changsha.finance.service.audit.AuditPayloads;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 审计业务数据序列化基准测试：逐条构造HashMap + writeValueAsString 对比 载荷record + 预取ObjectWriter
+ * 以账户锁定事件（目标用户信息 + 动作 + 原因）为样本
+ * 运行方式：mvn test-compile 后在IDE中执行main方法，或
+ * java -cp target/test-classes:target/classes:<依赖> gov.changsha.finance.performance.AuditPayloadBenchmark
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditPayloadBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter accountActionWriter;
+    private AuditPayloads.UserInfo userInfo;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        accountActionWriter = objectMapper.writerFor(AuditPayloads.AccountAction.class);
+        userInfo = new AuditPayloads.UserInfo(1024L, "zhangsan", "张三", "z***@czj.changsha.gov.cn", "CS2025001",
+                "评审一科", "高级评审员", User.AccountStatus.ACTIVE);
+    }
+
+    /**
+     * 原实现：每条事件两层HashMap，序列化时逐值按运行时类型查找序列化器
+     */
+    @Benchmark
+    public String hashMapPayload() throws JsonProcessingException {
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", userInfo.id());
+        user.put("username", userInfo.username());
+        user.put("realName", userInfo.realName());
+        user.put("email", userInfo.email());
+        user.put("employeeId", userInfo.employeeId());
+        user.put("department", userInfo.department());
+        user.put("position", userInfo.position());
+        user.put("accountStatus", userInfo.accountStatus());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("targetUser", user);
+        data.put("action", "lock");
+        data.put("reason", "连续登录失败");
+        return objectMapper.writeValueAsString(data);
+    }
+
+    @Benchmark
+    public String recordPayload() throws JsonProcessingException {
+        return accountActionWriter.writeValueAsString(
+                new AuditPayloads.AccountAction(userInfo, "lock", "连续登录失败"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AuditPayloadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,111 @@
+package gov.changsha.finance.performance;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import gov.changsha.finance.config.redis.BinaryCacheCodec;
+import gov.changsha.finance.config.redis.CompactCacheSerializer;
+import gov.changsha.finance.config.redis.LongCodec;
+import gov.changsha.finance.config.redis.UserPrincipalCodec;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存值编解码基准测试：JSON（带类型元数据）对比紧凑二进制
+ * 运行方式：mvn test-compile 后在IDE中执行main方法，或
+ * java -cp target/test-classes:target/classes:<依赖> gov.changsha.finance.performance.CacheCodecBenchmark
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    private CompactCacheSerializer jsonSerializer;
+    private CompactCacheSerializer binarySerializer;
+    private UserPrincipal principal;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setUp() {
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        json.configure(objectMapper -> objectMapper.registerModule(new JavaTimeModule()));
+        List<BinaryCacheCodec<?>> codecs = List.of(new UserPrincipalCodec(), new LongCodec());
+        jsonSerializer = new CompactCacheSerializer(codecs, json, false);
+        binarySerializer = new CompactCacheSerializer(codecs, json, true);
+
+        principal = samplePrincipal();
+        jsonBytes = jsonSerializer.serialize(principal);
+        binaryBytes = binarySerializer.serialize(principal);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(principal);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binarySerializer.serialize(principal);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return jsonSerializer.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Object decodeBinary() {
+        return binarySerializer.deserialize(binaryBytes);
+    }
+
+    /**
+     * 典型评估人员主体：3个角色、约20个权限代码
+     */
+    static UserPrincipal samplePrincipal() {
+        Set<GrantedAuthority> authorities = new HashSet<>();
+        authorities.add(new SimpleGrantedAuthority("ROLE_ASSESSOR"));
+        authorities.add(new SimpleGrantedAuthority("ROLE_PROJECT_MANAGER"));
+        authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+        String[] permissions = {"PROJECT_MANAGE", "NESMA_CALCULATE", "REPORT_VIEW", "NESMA_MODULE",
+                "API_PROJECT_CREATE", "API_PROJECT_UPDATE", "API_NESMA_CALCULATE", "BTN_PROJECT_CREATE",
+                "BTN_NESMA_CALCULATE", "PROJECT_VIEW", "PROJECT_EDIT", "FUNCTION_POINT_VIEW",
+                "FUNCTION_POINT_EDIT", "VAF_VIEW", "VAF_EDIT", "CALCULATION_VIEW", "REPORT_EXPORT"};
+        for (String permission : permissions) {
+            authorities.add(new SimpleGrantedAuthority(permission));
+        }
+        return new UserPrincipal(1024L, "zhangsan", "张三", "zhangsan@czj.changsha.gov.cn", "CS2025001",
+                "评审一科", "高级评审员", null, authorities, true, true, true, true,
+                LocalDateTime.of(2025, 10, 19, 9, 30, 15, 123_000_000));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        CacheCodecBenchmark sizes = new CacheCodecBenchmark();
+        sizes.setUp();
+        System.out.printf("UserPrincipal 缓存值大小 - JSON: %d 字节, 二进制: %d 字节%n",
+                sizes.jsonBytes.length, sizes.binaryBytes.length);
+
+        Options options = new OptionsBuilder()
+                .include(CacheCodecBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,159 @@
+package gov.changsha.finance.security;
+
+import gov.changsha.finance.entity.Permission;
+import gov.changsha.finance.entity.Role;
+import gov.changsha.finance.repository.PermissionRepository;
+import gov.changsha.finance.repository.RoleRepository;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 权限位图注册表测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuthorityBitsetRegistryTest {
+
+    private AuthorityBitsetRegistry registry;
+    private StringRedisTemplate stringRedisTemplate;
+    private Role auditor;
+
+    @BeforeEach
+    void setUp() {
+        auditor = role(1L, "AUDITOR", "AUDIT_VIEW", "AUDIT_EXPORT");
+        Role admin = role(2L, "ADMIN", "USER_MANAGE");
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(admin, auditor));
+        PermissionRepository permissionRepository = mock(PermissionRepository.class);
+        List<Permission> permissions = new ArrayList<>(auditor.getPermissions());
+        permissions.addAll(admin.getPermissions());
+        when(permissionRepository.findAll()).thenReturn(permissions);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+
+        registry = new AuthorityBitsetRegistry();
+        ReflectionTestUtils.setField(registry, "roleRepository", roleRepository);
+        ReflectionTestUtils.setField(registry, "permissionRepository", permissionRepository);
+        ReflectionTestUtils.setField(registry, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(registry, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        registry.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("主体的权限位图按预编译的角色位图计算，而非主体自身携带的权限")
+    void compilesRoleBitsets() {
+        UserPrincipal principal = principal("ROLE_AUDITOR");
+        long[] bits = registry.bitsFor(principal);
+
+        assertTrue(granted(bits, "ROLE_AUDITOR"));
+        assertTrue(granted(bits, "AUDIT_VIEW"));
+        assertTrue(granted(bits, "AUDIT_EXPORT"));
+        assertFalse(granted(bits, "USER_MANAGE"));
+        assertFalse(AuthorityBitsetRegistry.intersects(bits, registry.roleMask("ADMIN")));
+        assertSame(bits, registry.bitsFor(principal));
+    }
+
+    @Test
+    @DisplayName("角色权限变更后增量重建位图并广播，版本号递增使主体缓存的位图失效")
+    void updateRoleInvalidatesPrincipalBits() {
+        UserPrincipal principal = principal("ROLE_AUDITOR");
+        long[] before = registry.bitsFor(principal);
+        long versionBefore = principal.getAuthorityBitsVersion();
+
+        auditor.setPermissions(new HashSet<>(Set.of(permission("AUDIT_VIEW"), permission("AUDIT_VERIFY"))));
+        registry.updateRole(auditor);
+        long[] after = registry.bitsFor(principal);
+
+        assertNotSame(before, after);
+        assertTrue(principal.getAuthorityBitsVersion() > versionBefore);
+        assertTrue(granted(after, "AUDIT_VERIFY"));
+        assertFalse(granted(after, "AUDIT_EXPORT"));
+        verify(stringRedisTemplate).convertAndSend(AuthorityBitsetRegistry.ROLE_CHANGED_CHANNEL, "AUDITOR");
+    }
+
+    @Test
+    @DisplayName("事务中的角色变更在提交后才生效")
+    void updateRoleAppliesAfterCommit() {
+        UserPrincipal principal = principal("ROLE_AUDITOR");
+        TransactionSynchronizationManager.initSynchronization();
+        auditor.setPermissions(new HashSet<>(Set.of(permission("AUDIT_VERIFY"))));
+        registry.updateRole(auditor);
+
+        assertFalse(granted(registry.bitsFor(principal), "AUDIT_VERIFY"));
+        verifyNoInteractions(stringRedisTemplate);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertTrue(granted(registry.bitsFor(principal), "AUDIT_VERIFY"));
+    }
+
+    @Test
+    @DisplayName("角色删除后主体改按自身携带的权限编码")
+    void removeRoleFallsBackToPrincipalAuthorities() {
+        UserPrincipal principal = principal("ROLE_AUDITOR", "AUDIT_VIEW");
+        assertTrue(granted(registry.bitsFor(principal), "AUDIT_EXPORT"));
+
+        registry.removeRole("AUDITOR");
+        long[] bits = registry.bitsFor(principal);
+
+        assertTrue(granted(bits, "AUDIT_VIEW"));
+        assertFalse(granted(bits, "AUDIT_EXPORT"));
+        verify(stringRedisTemplate).convertAndSend(AuthorityBitsetRegistry.ROLE_CHANGED_CHANNEL, "AUDITOR");
+    }
+
+    private boolean granted(long[] bits, String authority) {
+        return AuthorityBitsetRegistry.intersects(bits, registry.encode(List.of(authority)));
+    }
+
+    private static Role role(Long id, String code, String... permissionCodes) {
+        Role role = new Role(code, code, code);
+        role.setId(id);
+        Set<Permission> permissions = new HashSet<>();
+        for (String permissionCode : permissionCodes) {
+            permissions.add(permission(permissionCode));
+        }
+        role.setPermissions(permissions);
+        return role;
+    }
+
+    private static Permission permission(String code) {
+        Permission permission = new Permission(code, code, Permission.PermissionType.API, "AUDIT");
+        permission.setId((long) Math.abs(code.hashCode()));
+        return permission;
+    }
+
+    private static UserPrincipal principal(String... authorities) {
+        List<SimpleGrantedAuthority> granted = new ArrayList<>();
+        for (String authority : authorities) {
+            granted.add(new SimpleGrantedAuthority(authority));
+        }
+        return new UserPrincipal(1L, "auditor", "审计员", null, null, null, null, null, granted,
+                                 true, true, true, true, null);
+    }
+}
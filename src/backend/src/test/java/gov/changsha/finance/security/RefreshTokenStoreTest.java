@@ -0,0 +1,216 @@
+package gov.changsha.finance.security;
+
+import gov.changsha.finance.controller.AuthController;
+import gov.changsha.finance.dto.ApiResponse;
+import gov.changsha.finance.security.jwt.JwtAuthenticationToken;
+import gov.changsha.finance.security.jwt.JwtTokenProvider;
+import gov.changsha.finance.security.jwt.RefreshTokenStore;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import gov.changsha.finance.service.AuthService;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 刷新令牌族存储测试（Redis以内存中的哈希、集合和键模拟，轮换脚本按相同语义模拟）
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class RefreshTokenStoreTest {
+
+    private final Map<String, Map<Object, Object>> hashes = new HashMap<>();
+    private final Map<String, Set<String>> sets = new HashMap<>();
+    private final Set<String> keys = new HashSet<>();
+
+    private JwtTokenProvider jwtTokenProvider;
+    private RefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationInSeconds", 900);
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtRefreshExpirationInSeconds", 3600);
+
+        store = new RefreshTokenStore();
+        ReflectionTestUtils.setField(store, "expectedInsertions", 1000);
+        ReflectionTestUtils.setField(store, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(store, "jwtTokenProvider", jwtTokenProvider);
+        ReflectionTestUtils.setField(store, "stringRedisTemplate", redis());
+        store.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("刷新令牌轮换后签发新令牌，新令牌可继续轮换")
+    void rotatesWithinFamily() {
+        Authentication authentication = authentication(1L);
+        RefreshTokenStore.TokenPair issued = store.issue(authentication);
+
+        RefreshTokenStore.TokenPair first = store.rotate(claims(issued.getRefreshToken()), authentication);
+        assertNotNull(first);
+        assertEquals(issued.getFamilyId(), first.getFamilyId());
+        assertNotEquals(claims(issued.getRefreshToken()).getId(), claims(first.getRefreshToken()).getId());
+
+        assertNotNull(store.rotate(claims(first.getRefreshToken()), authentication));
+        assertFalse(store.isRevoked(claims(first.getAccessToken())));
+    }
+
+    @Test
+    @DisplayName("已轮换的刷新令牌再次使用时撤销整个令牌族")
+    void reuseRevokesWholeFamily() {
+        Authentication authentication = authentication(1L);
+        RefreshTokenStore.TokenPair issued = store.issue(authentication);
+        RefreshTokenStore.TokenPair rotated = store.rotate(claims(issued.getRefreshToken()), authentication);
+
+        assertNull(store.rotate(claims(issued.getRefreshToken()), authentication));
+
+        assertTrue(store.isRevoked(claims(issued.getAccessToken())));
+        assertTrue(store.isRevoked(claims(rotated.getAccessToken())));
+        assertNull(store.rotate(claims(rotated.getRefreshToken()), authentication));
+        assertFalse(sets.getOrDefault("auth:rt:user:1", Collections.emptySet()).contains(issued.getFamilyId()));
+    }
+
+    @Test
+    @DisplayName("登出全部会话撤销该用户的所有令牌族，不影响其他用户")
+    void logoutAllRevokesEveryFamilyOfUser() {
+        Authentication authentication = authentication(1L);
+        RefreshTokenStore.TokenPair laptop = store.issue(authentication);
+        RefreshTokenStore.TokenPair phone = store.issue(authentication);
+        RefreshTokenStore.TokenPair other = store.issue(authentication(2L));
+
+        AuthController controller = new AuthController();
+        ReflectionTestUtils.setField(controller, "jwtTokenProvider", jwtTokenProvider);
+        ReflectionTestUtils.setField(controller, "refreshTokenStore", store);
+        ReflectionTestUtils.setField(controller, "authService", mock(AuthService.class));
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(
+            authentication.getPrincipal(), laptop.getAccessToken(), authentication.getAuthorities()));
+
+        ResponseEntity<ApiResponse<Integer>> response = controller.logoutAll(new MockHttpServletRequest());
+
+        assertEquals(2, response.getBody().getData());
+        assertTrue(store.isRevoked(claims(laptop.getAccessToken())));
+        assertTrue(store.isRevoked(claims(phone.getAccessToken())));
+        assertNull(store.rotate(claims(phone.getRefreshToken()), authentication));
+        assertFalse(store.isRevoked(claims(other.getAccessToken())));
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private Claims claims(String token) {
+        return jwtTokenProvider.parseValidClaims(token);
+    }
+
+    private static Authentication authentication(Long userId) {
+        UserPrincipal principal = new UserPrincipal(userId, "user" + userId, "用户" + userId, null, null, null, null, null,
+                                                    Collections.emptyList(), true, true, true, true, null);
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    @SuppressWarnings("unchecked")
+    private StringRedisTemplate redis() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+
+        HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+        doAnswer(invocation -> {
+            hashes.computeIfAbsent(invocation.getArgument(0), key -> new HashMap<>())
+                  .putAll(invocation.<Map<Object, Object>>getArgument(1));
+            return null;
+        }).when(hashOps).putAll(anyString(), anyMap());
+
+        SetOperations<String, String> setOps = mock(SetOperations.class);
+        doAnswer(invocation -> {
+            Set<String> set = sets.computeIfAbsent(invocation.getArgument(0), key -> new HashSet<>());
+            for (int i = 1; i < invocation.getArguments().length; i++) {
+                set.add(invocation.getArgument(i));
+            }
+            return 1L;
+        }).when(setOps).add(anyString(), any(String[].class));
+        doAnswer(invocation -> sets.containsKey(invocation.<String>getArgument(0))
+            ? new HashSet<>(sets.get(invocation.<String>getArgument(0))) : Collections.emptySet())
+            .when(setOps).members(anyString());
+        doAnswer(invocation -> {
+            Set<String> set = sets.getOrDefault(invocation.<String>getArgument(0), new HashSet<>());
+            for (int i = 1; i < invocation.getArguments().length; i++) {
+                set.remove(invocation.<Object>getArgument(i));
+            }
+            return 1L;
+        }).when(setOps).remove(anyString(), any(Object[].class));
+
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        doAnswer(invocation -> keys.add(invocation.getArgument(0)))
+            .when(valueOps).set(anyString(), anyString(), any(Duration.class));
+
+        RedisOperations<String, String> pipeline = mock(RedisOperations.class);
+        doReturn(hashOps).when(pipeline).opsForHash();
+        doReturn(setOps).when(pipeline).opsForSet();
+        doAnswer(invocation -> invocation.<SessionCallback<Object>>getArgument(0).execute(pipeline))
+            .when(redis).executePipelined(any(SessionCallback.class));
+        doReturn(setOps).when(redis).opsForSet();
+        doReturn(valueOps).when(redis).opsForValue();
+
+        // 轮换脚本：当前令牌匹配则替换(1)；族存在但不匹配为重用(-1)；族不存在(0)
+        doAnswer(invocation -> {
+            Map<Object, Object> family = hashes.get(invocation.<List<String>>getArgument(1).get(0));
+            if (family == null) {
+                return 0L;
+            }
+            if (family.get("current").equals(invocation.getArgument(2))) {
+                family.put("current", invocation.getArgument(3));
+                return 1L;
+            }
+            return -1L;
+        }).when(redis).execute(any(RedisScript.class), anyList(), any(), any(), any());
+
+        doAnswer(invocation -> hashes.remove(invocation.<String>getArgument(0)) != null)
+            .when(redis).unlink(anyString());
+        doAnswer(invocation -> {
+            long removed = 0;
+            for (String key : invocation.<Collection<String>>getArgument(0)) {
+                if (hashes.remove(key) != null | sets.remove(key) != null) {
+                    removed++;
+                }
+            }
+            return removed;
+        }).when(redis).unlink(anyCollection());
+        doAnswer(invocation -> {
+            List<String> existing = new ArrayList<>(invocation.<Collection<String>>getArgument(0));
+            existing.retainAll(keys);
+            return (long) existing.size();
+        }).when(redis).countExistingKeys(anyCollection());
+        return redis;
+    }
+}
@@ -0,0 +1,55 @@
+package gov.changsha.finance.security;
+
+import gov.changsha.finance.security.jwt.RevokedTokenBloomFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 撤销令牌布隆过滤器测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class RevokedTokenBloomFilterTest {
+
+    @Test
+    @DisplayName("已加入的令牌ID全部命中（无漏判）")
+    void noFalseNegatives() {
+        RevokedTokenBloomFilter filter = new RevokedTokenBloomFilter(10_000, 0.001);
+        List<String> revoked = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String id = UUID.randomUUID().toString();
+            revoked.add(id);
+            filter.put(id);
+        }
+
+        for (String id : revoked) {
+            assertTrue(filter.mightContain(id));
+        }
+    }
+
+    @Test
+    @DisplayName("容量内误判率接近配置值")
+    void falsePositiveRateWithinBound() {
+        RevokedTokenBloomFilter filter = new RevokedTokenBloomFilter(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probes * 0.005, "误判次数: " + falsePositives);
+    }
+}
@@ -0,0 +1,301 @@
+package gov.changsha.finance.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gov.changsha.finance.service.backup.BackupJobLock;
+import gov.changsha.finance.service.backup.BackupProgress;
+import gov.changsha.finance.service.backup.BackupRecordStore;
+import gov.changsha.finance.service.backup.CopyDataDigest;
+import gov.changsha.finance.service.backup.IncrementalBackupExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 备份服务测试：恢复前预检，备份管道在pg_dump失败时的清理，以及按表恢复失败时保留原有数据
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class BackupServiceTest {
+
+    private static final String SQL_DUMP =
+        "--\n-- PostgreSQL database dump\n--\n\n" +
+        "COPY public.projects (id, name) FROM stdin;\n1\t预算一体化\n\\.\n\n";
+
+    @TempDir
+    Path backupDir;
+
+    /** 代替PostgreSQL客户端的桩脚本目录（system.backup.client-bin-dir） */
+    @TempDir
+    Path clientBinDir;
+
+    private BackupService service;
+    private AuditLogService auditLogService;
+    private IncrementalBackupExporter incrementalExporter;
+    private BackupRecordStore backupRecordStore;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:backup_preflight;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE", "sa", ""));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS projects");
+        jdbcTemplate.execute("CREATE TABLE projects (id BIGINT PRIMARY KEY, name VARCHAR(100), " +
+            "created_at TIMESTAMP, updated_at TIMESTAMP)");
+        jdbcTemplate.execute("INSERT INTO projects VALUES (1, '预算一体化', TIMESTAMP '2025-10-19 10:00:00', NULL), " +
+            "(2, '非税收入', TIMESTAMP '2025-10-19 10:00:00', NULL)");
+        incrementalExporter = new IncrementalBackupExporter();
+        ReflectionTestUtils.setField(incrementalExporter, "tables", List.of("projects"));
+        ReflectionTestUtils.setField(incrementalExporter, "fetchSize", 100);
+        ReflectionTestUtils.setField(incrementalExporter, "applyBatchSize", 100);
+        ReflectionTestUtils.setField(incrementalExporter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(incrementalExporter, "transactionManager",
+                                     new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        ReflectionTestUtils.setField(incrementalExporter, "objectMapper", new ObjectMapper());
+        incrementalExporter.init();
+
+        auditLogService = mock(AuditLogService.class);
+        backupRecordStore = mock(BackupRecordStore.class);
+        BackupJobLock backupJobLock = new BackupJobLock();
+        ReflectionTestUtils.setField(backupJobLock, "dataSource", jdbcTemplate.getDataSource());
+        service = new BackupService();
+        ReflectionTestUtils.setField(service, "backupLocation", backupDir.toString());
+        ReflectionTestUtils.setField(service, "encryptBackup", false);
+        ReflectionTestUtils.setField(service, "encryptionKey", "test-backup-encryption-key");
+        ReflectionTestUtils.setField(service, "workerThreads", 2);
+        ReflectionTestUtils.setField(service, "compressLevel", 6);
+        ReflectionTestUtils.setField(service, "compressBlockSize", 65536);
+        ReflectionTestUtils.setField(service, "cryptoChunkSize", 65536);
+        ReflectionTestUtils.setField(service, "dedupMinChunkSize", 4096);
+        ReflectionTestUtils.setField(service, "dedupAvgChunkSize", 16384);
+        ReflectionTestUtils.setField(service, "dedupMaxChunkSize", 65536);
+        ReflectionTestUtils.setField(service, "restorePreflight", true);
+        ReflectionTestUtils.setField(service, "backupFormat", "plain");
+        ReflectionTestUtils.setField(service, "clientBinDir", clientBinDir.toString());
+        ReflectionTestUtils.setField(service, "databaseUrl", "jdbc:postgresql://localhost:5432/manday_assess");
+        ReflectionTestUtils.setField(service, "databaseUsername", "manday");
+        ReflectionTestUtils.setField(service, "databasePassword", "");
+        ReflectionTestUtils.setField(service, "auditLogService", auditLogService);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "backupRecordStore", backupRecordStore);
+        ReflectionTestUtils.setField(service, "incrementalExporter", incrementalExporter);
+        ReflectionTestUtils.setField(service, "backupJobLock", backupJobLock);
+        ReflectionTestUtils.setField(service, "backupProgress", new BackupProgress());
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("SQL备份以pg_dump结束注释收尾时预检通过")
+    void completeSqlDumpPassesPreflight() throws IOException {
+        Path backup = write("backup_complete.sql.gz", gzip(SQL_DUMP + CopyDataDigest.DUMP_COMPLETE_MARKER + "\n--\n\n"));
+
+        BackupService.BackupVerification verification = service.verifyBackup(backup.toString());
+
+        assertTrue(verification.isValid(), verification.getMessage());
+        assertEquals(64, verification.getSha256().length());
+    }
+
+    @Test
+    @DisplayName("缺少pg_dump结束标记的截断SQL备份预检不通过，恢复不触碰数据库")
+    void truncatedSqlDumpFailsPreflight() throws IOException {
+        // gzip流本身完整，仅内容在结束注释之前被截断
+        Path backup = write("backup_truncated.sql.gz", gzip(SQL_DUMP));
+
+        BackupService.BackupVerification verification = service.verifyBackup(backup.toString());
+        assertFalse(verification.isValid());
+        assertTrue(verification.getMessage().startsWith("CorruptBackupException"), verification.getMessage());
+
+        assertFalse(service.restoreDatabase(backup.toString()));
+        verify(auditLogService).recordSystemOperation(eq("DATA_RESTORE"), startsWith("备份预检未通过"),
+                                                      eq("Database"), eq(backup.toString()));
+        verify(auditLogService, never()).recordSystemOperation(anyString(), eq("开始数据库恢复操作"), anyString(), anyString());
+
+        // 压缩文件本身被截断
+        byte[] complete = gzip(SQL_DUMP + CopyDataDigest.DUMP_COMPLETE_MARKER + "\n");
+        Path cut = write("backup_cut.sql.gz", Arrays.copyOf(complete, complete.length - 12));
+        assertFalse(service.verifyBackup(cut.toString()).isValid());
+    }
+
+    @Test
+    @DisplayName("损坏的增量备份预检不通过")
+    void corruptIncrementalBackupFailsPreflight() throws IOException {
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        incrementalExporter.export(LocalDateTime.of(2025, 10, 19, 9, 0), LocalDateTime.of(2025, 10, 19, 11, 0), 1L, exported);
+        String ndjson = exported.toString(StandardCharsets.UTF_8);
+        assertTrue(service.verifyBackup(write("incremental_ok.ndjson.gz", gzip(ndjson)).toString()).isValid());
+
+        // 丢失一行数据：结束标记中的行数与实际不符
+        String missingRow = ndjson.replaceFirst("\\{\"row\":[^\\n]*\\n", "");
+        assertNotEquals(ndjson, missingRow);
+        assertFalse(service.verifyBackup(write("incremental_missing.ndjson", missingRow.getBytes(StandardCharsets.UTF_8)).toString()).isValid());
+
+        // 缺少结束标记
+        String noTrailer = ndjson.substring(0, ndjson.stripTrailing().lastIndexOf('\n') + 1);
+        assertFalse(service.verifyBackup(write("incremental_truncated.ndjson", noTrailer.getBytes(StandardCharsets.UTF_8)).toString()).isValid());
+
+        // 压缩数据损坏，gzip校验失败
+        byte[] corrupted = gzip(ndjson);
+        corrupted[corrupted.length / 2] ^= 0x5A;
+        assertFalse(service.verifyBackup(write("incremental_corrupt.ndjson.gz", corrupted).toString()).isValid());
+    }
+
+    @Test
+    @DisplayName("pg_dump输出部分数据和大量stderr后失败：不死锁，删除.part文件，不留下备份文件")
+    void failedDumpLeavesNoBackupFile() throws IOException {
+        // stderr远超管道缓冲区（64KB），未被并发排空时pg_dump会阻塞在写stderr上、永不退出
+        stubClient("pg_dump",
+            "printf -- '--\\n-- PostgreSQL database dump\\n--\\n\\nCOPY public.projects (id, name) FROM stdin;\\n'",
+            "head -c 1048576 /dev/zero",
+            "i=0",
+            "while [ $i -lt 5000 ]; do echo \"pg_dump: error: query failed, line $i of a long server message\" >&2; i=$((i+1)); done",
+            "exit 1");
+        ReflectionTestUtils.setField(service, "encryptBackup", true);
+
+        boolean success = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> service.performBackup());
+
+        assertFalse(success);
+        try (Stream<Path> files = Files.list(backupDir)) {
+            List<String> names = files.map(p -> p.getFileName().toString()).toList();
+            assertTrue(names.stream().noneMatch(n -> n.startsWith("manday_assess_backup_")), names.toString());
+        }
+        ArgumentCaptor<String> error = ArgumentCaptor.forClass(String.class);
+        verify(backupRecordStore).fail(any(), error.capture());
+        // 错误信息带退出码和stderr的末尾，说明stderr被完整读到了进程退出
+        assertTrue(error.getValue().contains("退出码: 1"), error.getValue());
+        assertTrue(error.getValue().contains("line 4999 of"), error.getValue());
+        verify(backupRecordStore, never()).complete(any(), anyLong(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("pg_dump成功退出时备份文件原子落地并通过预检")
+    void successfulDumpProducesVerifiableBackup() throws IOException {
+        stubClient("pg_dump",
+            "printf -- '--\\n-- PostgreSQL database dump\\n--\\n\\nCOPY public.projects (id, name) FROM stdin;\\n1\\tx\\n\\\\.\\n\\n'",
+            "echo 'pg_dump: dumping contents of table \"public.projects\"' >&2",
+            "printf -- '" + CopyDataDigest.DUMP_COMPLETE_MARKER + "\\n--\\n\\n'",
+            "exit 0");
+
+        assertTrue(assertTimeoutPreemptively(Duration.ofSeconds(30), () -> service.performBackup()));
+
+        try (Stream<Path> files = Files.list(backupDir)) {
+            List<Path> backups = files.filter(p -> p.getFileName().toString().startsWith("manday_assess_backup_")).toList();
+            assertEquals(1, backups.size());
+            assertTrue(backups.get(0).toString().endsWith(".sql.gz"), backups.toString());
+            BackupService.BackupVerification verification = service.verifyBackup(backups.get(0).toString());
+            assertTrue(verification.isValid(), verification.getMessage());
+        }
+    }
+
+    @Test
+    @DisplayName("按表恢复时pg_restore失败：不清空表，原有数据保留")
+    void failedTableRestoreKeepsRows() throws IOException {
+        Path backup = directoryBackup();
+        stubClient("pg_restore",
+            "echo 'pg_restore: error: could not read from input file: end of file' >&2",
+            "exit 1");
+        stubClient("psql", "touch " + clientBinDir.resolve("psql.invoked"), "exit 0");
+
+        assertFalse(service.restoreTables(backup.toString(), List.of("projects")));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM projects", Integer.class));
+        assertFalse(Files.exists(clientBinDir.resolve("psql.invoked")));
+        assertNoRestoreTemporaries();
+    }
+
+    @Test
+    @DisplayName("按表恢复时TRUNCATE与数据加载在psql的同一事务中执行，加载失败时原有数据保留")
+    void tableRestoreTruncatesInsideLoadTransaction() throws IOException {
+        Path backup = directoryBackup();
+        // pg_restore只写出数据脚本，不连接数据库
+        stubClient("pg_restore",
+            "for arg in \"$@\"; do case \"$arg\" in -d|--dbname*|-h|--host*) exit 9;; --file=*) out=\"${arg#--file=}\";; esac; done",
+            "printf 'COPY public.projects (id, name) FROM stdin;\\n1\\tx\\n\\\\.\\n' > \"$out\"",
+            "exit 0");
+        // psql执行出错（ON_ERROR_STOP下退出码为3），事务回滚
+        stubClient("psql",
+            "printf '%s\\n' \"$@\" > " + clientBinDir.resolve("psql.args"),
+            "for arg in \"$@\"; do case \"$arg\" in --file=*) cp \"${arg#--file=}\" " + clientBinDir.resolve("psql.sql") + ";; esac; done",
+            "echo 'psql:restore.sql:1: ERROR:  duplicate key value violates unique constraint' >&2",
+            "exit 3");
+
+        assertFalse(service.restoreTables(backup.toString(), List.of("projects")));
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM projects", Integer.class));
+        List<String> args = Files.readAllLines(clientBinDir.resolve("psql.args"));
+        assertTrue(args.contains("--single-transaction"), args.toString());
+        assertTrue(args.contains("--set=ON_ERROR_STOP=1"), args.toString());
+        assertTrue(args.contains("--command=TRUNCATE TABLE projects"), args.toString());
+        assertTrue(args.stream().anyMatch(arg -> arg.startsWith("--file=")), args.toString());
+        assertTrue(Files.readString(clientBinDir.resolve("psql.sql")).startsWith("COPY public.projects"));
+        assertNoRestoreTemporaries();
+    }
+
+    /**
+     * 目录格式备份：toc.dat与表数据文件各自gzip压缩
+     */
+    private Path directoryBackup() throws IOException {
+        ReflectionTestUtils.setField(service, "restorePreflight", false);
+        Path backup = Files.createDirectory(backupDir.resolve("manday_assess_backup_20251019_020000.dir"));
+        Files.write(backup.resolve("toc.dat.gz"), gzip("PGDMP"));
+        Files.write(backup.resolve("3001.dat.gz"), gzip("1\tx\n\\.\n"));
+        return backup;
+    }
+
+    private void assertNoRestoreTemporaries() throws IOException {
+        try (Stream<Path> files = Files.list(backupDir)) {
+            List<String> names = files.map(p -> p.getFileName().toString()).toList();
+            assertTrue(names.stream().noneMatch(n -> n.startsWith(".pg_restore-")), names.toString());
+        }
+    }
+
+    /**
+     * 在客户端目录下写入同名桩脚本，忽略连接参数
+     */
+    private void stubClient(String tool, String... lines) throws IOException {
+        Path script = clientBinDir.resolve(tool);
+        Files.writeString(script, "#!/bin/sh\n" + String.join("\n", lines) + "\n");
+        assertTrue(script.toFile().setExecutable(true));
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(backupDir.resolve(name), content);
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
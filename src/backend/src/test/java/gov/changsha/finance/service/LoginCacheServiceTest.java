@@ -0,0 +1,126 @@
+package gov.changsha.finance.service;
+
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 登录缓存服务测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class LoginCacheServiceTest {
+
+    private LoginCacheService service;
+    private RedisTemplate<String, Object> redisTemplate;
+    private RedisTemplate<String, Object> compactRedisTemplate;
+    private HashOperations<String, Object, Object> hashOperations;
+    private ValueOperations<String, Object> valueOperations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        compactRedisTemplate = mock(RedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        valueOperations = mock(ValueOperations.class);
+        doReturn(hashOperations).when(compactRedisTemplate).opsForHash();
+        doReturn(valueOperations).when(compactRedisTemplate).opsForValue();
+
+        service = new LoginCacheService();
+        ReflectionTestUtils.setField(service, "binaryPrefixes", new String[]{"login:user:", "login:username:"});
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "compactRedisTemplate", compactRedisTemplate);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", mock(StringRedisTemplate.class));
+    }
+
+    @Test
+    @DisplayName("按用户ID读取为对用户哈希的一次HMGET")
+    void readsUserWithSingleHmget() {
+        UserPrincipal principal = principal(7L, "zhangsan");
+        when(hashOperations.multiGet("login:user:7", Arrays.asList("principal", "username")))
+            .thenReturn(Arrays.asList(principal, "zhangsan"));
+
+        assertSame(principal, service.getCachedUserInfo(7L));
+        verify(hashOperations).multiGet(anyString(), anyCollection());
+        verifyNoMoreInteractions(hashOperations);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("登录名索引指向用户ID；索引过期（登录名不一致）时不命中")
+    void resolvesLoginNameThroughIndex() {
+        when(valueOperations.get("login:username:E1001")).thenReturn(7);
+        when(valueOperations.get("login:username:lisi")).thenReturn(7);
+        when(hashOperations.multiGet(eq("login:user:7"), anyCollection()))
+            .thenReturn(Arrays.asList(principal(7L, "zhangsan"), "zhangsan"));
+
+        assertEquals("zhangsan", service.getCachedUserInfoByUsername("E1001").getUsername());
+        assertNull(service.getCachedUserInfoByUsername("lisi"));
+        when(hashOperations.multiGet(eq("login:user:7"), anyCollection())).thenReturn(Arrays.asList(null, null));
+        assertNull(service.getCachedUserInfo(7L));
+    }
+
+    @Test
+    @DisplayName("清除用户缓存为一次UNLINK用户哈希与用户名索引")
+    @SuppressWarnings("unchecked")
+    void clearsUserWithSingleUnlink() {
+        service.clearUserCache(7L, "zhangsan");
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate).unlink(keys.capture());
+        assertEquals(List.of("login:user:7", "login:username:zhangsan"), keys.getValue());
+        verifyNoMoreInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("缓存用户时哈希、过期时间与各登录名索引在一个管道中写入")
+    @SuppressWarnings("unchecked")
+    void cachesUserInOnePipeline() {
+        service.cacheUser(principal(7L, "zhangsan"), "zhangsan@example.gov.cn", "E1001", null);
+
+        ArgumentCaptor<SessionCallback<Object>> callback = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(compactRedisTemplate).executePipelined(callback.capture());
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        HashOperations<String, Object, Object> pipelinedHash = mock(HashOperations.class);
+        ValueOperations<String, Object> pipelinedValue = mock(ValueOperations.class);
+        doReturn(pipelinedHash).when(operations).opsForHash();
+        doReturn(pipelinedValue).when(operations).opsForValue();
+        callback.getValue().execute(operations);
+
+        ArgumentCaptor<Map<Object, Object>> fields = ArgumentCaptor.forClass(Map.class);
+        verify(pipelinedHash).putAll(eq("login:user:7"), fields.capture());
+        assertEquals("zhangsan", fields.getValue().get("username"));
+        verify(operations).expire(eq("login:user:7"), any(Duration.class));
+        for (String loginName : List.of("zhangsan", "zhangsan@example.gov.cn", "E1001")) {
+            verify(pipelinedValue).set(eq("login:username:" + loginName), eq(7L), any(Duration.class));
+        }
+        verifyNoMoreInteractions(pipelinedValue);
+    }
+
+    private static UserPrincipal principal(Long id, String username) {
+        return new UserPrincipal(id, username, "张三", username + "@example.gov.cn", "E1001", null, null, null,
+                                 Collections.emptyList(), true, true, true, true, null);
+    }
+}
@@ -0,0 +1,241 @@
+package gov.changsha.finance.service;
+
+import gov.changsha.finance.entity.User;
+import gov.changsha.finance.repository.UserRepository;
+import gov.changsha.finance.security.CustomUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 登录写后队列测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class LoginWriteBehindServiceTest {
+
+    private LoginWriteBehindService service;
+    private JdbcTemplate jdbcTemplate;
+    private AuditLogService auditLogService;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        auditLogService = mock(AuditLogService.class);
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findAllById(any())).thenAnswer(LoginWriteBehindServiceTest::users);
+
+        service = new LoginWriteBehindService();
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        // 异步刷新任务不执行，由测试显式调用flush
+        ReflectionTestUtils.setField(service, "loginAsyncExecutor", (Executor) task -> { });
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "auditLogService", auditLogService);
+        ReflectionTestUtils.setField(service, "userDetailsService", mock(CustomUserDetailsService.class));
+        ReflectionTestUtils.setField(service, "loginCacheService", mock(LoginCacheService.class));
+    }
+
+    @Test
+    @DisplayName("同一用户的多次登录合并为一次最后登录更新，审计逐次记录")
+    @SuppressWarnings("unchecked")
+    void coalescesLastLoginPerUser() {
+        service.enqueueLogin(1L, "10.0.0.1", "ua");
+        service.enqueueLogin(2L, "10.0.0.2", "ua");
+        service.enqueueLogin(1L, "10.0.0.3", "ua");
+        Map<Long, LoginWriteBehindService.PendingLogin> pending =
+            (Map<Long, LoginWriteBehindService.PendingLogin>) ReflectionTestUtils.getField(service, "pendingLogins");
+        LoginWriteBehindService.PendingLogin latest = pending.get(1L);
+        assertEquals("10.0.0.3", latest.getLoginIp());
+
+        service.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        for (Object[] args : batch.getValue()) {
+            if (Long.valueOf(1L).equals(args[2])) {
+                assertEquals(Timestamp.valueOf(latest.getLoginAt()), args[0]);
+            }
+        }
+        verify(auditLogService, times(3)).recordLogin(any(User.class), anyString(), anyString(), any());
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("写库失败的批次重新入队，下次刷新写出")
+    void requeuesFailedBatches() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenThrow(new DataAccessResourceFailureException("数据库不可用"))
+            .thenReturn(new int[]{1});
+        // 加载审计用户失败时尚未提交任何审计，整批重新入队
+        doThrow(new DataAccessResourceFailureException("数据库不可用"))
+            .doAnswer(LoginWriteBehindServiceTest::users)
+            .when(userRepository).findAllById(any());
+        service.enqueueLogin(1L, "10.0.0.1", "ua");
+
+        service.flush();
+        assertEquals(2, service.getPendingCount());
+        verifyNoInteractions(auditLogService);
+
+        service.flush();
+        assertEquals(0, service.getPendingCount());
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+        verify(auditLogService).recordLogin(any(User.class), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("已提交给审计写入器的登录审计不重新入队，单条提交失败不影响其余")
+    void doesNotResubmitSubmittedAudits() {
+        doThrow(new IllegalStateException("审计写入器已关闭")).doNothing()
+            .when(auditLogService).recordLogin(any(User.class), anyString(), anyString(), any());
+        service.enqueueLogin(1L, "10.0.0.1", "ua");
+        service.enqueueLogin(2L, "10.0.0.2", "ua");
+
+        service.flush();
+        service.flush();
+
+        assertEquals(0, service.getPendingCount());
+        verify(auditLogService, times(2)).recordLogin(any(User.class), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("登录失败在库内累加次数，达到阈值锁定，不改动最后登录时间")
+    void recordsFailedLoginInPlace() {
+        JdbcTemplate h2 = usersTable("failed_login_in_place");
+        ReflectionTestUtils.setField(service, "jdbcTemplate", h2);
+
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, service.recordFailedLogin(1L));
+        }
+        assertEquals("ACTIVE", h2.queryForObject("SELECT account_status FROM users WHERE id = 1", String.class));
+        assertEquals(5, service.recordFailedLogin(1L));
+
+        Map<String, Object> user = h2.queryForMap("SELECT * FROM users WHERE id = 1");
+        assertEquals("LOCKED", user.get("account_status"));
+        assertNotNull(user.get("locked_at"));
+        assertEquals(Timestamp.valueOf("2025-10-19 08:00:00"), user.get("last_login_at"));
+        assertNull(service.recordFailedLogin(99L));
+    }
+
+    @Test
+    @DisplayName("登录失败合并尚在队列中的登录成功，之后的刷新不再清零失败次数")
+    void failedLoginMergesQueuedSuccess() {
+        JdbcTemplate h2 = usersTable("failed_login_merge");
+        ReflectionTestUtils.setField(service, "jdbcTemplate", h2);
+        h2.update("UPDATE users SET failed_login_attempts = 3 WHERE id = 1");
+        service.enqueueLogin(1L, "10.0.0.1", "ua");
+
+        assertEquals(1, service.recordFailedLogin(1L));
+        service.flush();
+
+        Map<String, Object> user = h2.queryForMap("SELECT * FROM users WHERE id = 1");
+        assertEquals(1, user.get("failed_login_attempts"));
+        assertNotEquals(Timestamp.valueOf("2025-10-19 08:00:00"), user.get("last_login_at"));
+        verify(auditLogService).recordLogin(any(User.class), anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("登录失败等待进行中的批量更新结束后再累加，不被其清零")
+    void failedLoginWaitsForInFlightFlush() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new int[]{1};
+        });
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+        service.enqueueLogin(1L, "10.0.0.1", "ua");
+        Thread inFlight = new Thread(service::flush);
+        inFlight.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        Thread failure = new Thread(() -> service.recordFailedLogin(1L));
+        failure.start();
+        failure.join(200);
+        assertTrue(failure.isAlive(), "登录失败应等待进行中的刷新");
+
+        release.countDown();
+        failure.join(5000);
+        inFlight.join(5000);
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        order.verify(jdbcTemplate).update(startsWith("UPDATE users SET failed_login_attempts = failed_login_attempts + 1"),
+                                          any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("停机时等待进行中的刷新结束，再写出期间入队的事件")
+    void shutdownWaitsForInFlightFlush() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new int[]{1};
+        });
+        service.enqueueLogin(1L, "10.0.0.1", "ua");
+        Thread inFlight = new Thread(service::flush);
+        inFlight.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        service.enqueueLogin(2L, "10.0.0.2", "ua");
+        Thread shutdown = new Thread(service::shutdown);
+        shutdown.start();
+        shutdown.join(200);
+        assertTrue(shutdown.isAlive(), "停机应等待进行中的刷新");
+
+        release.countDown();
+        shutdown.join(5000);
+        inFlight.join(5000);
+        assertFalse(shutdown.isAlive());
+        assertEquals(0, service.getPendingCount());
+        verify(auditLogService, times(2)).recordLogin(any(User.class), anyString(), anyString(), any());
+    }
+
+    private static List<User> users(InvocationOnMock invocation) {
+        List<User> users = new ArrayList<>();
+        for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+            User user = new User();
+            user.setId(id);
+            user.setUsername("user" + id);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static JdbcTemplate usersTable(String name) {
+        JdbcTemplate h2 = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE", "sa", ""));
+        h2.execute("DROP TABLE IF EXISTS users");
+        h2.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, last_login_at TIMESTAMP, " +
+            "failed_login_attempts INTEGER DEFAULT 0 NOT NULL, account_status VARCHAR(20) NOT NULL, " +
+            "locked_at TIMESTAMP, updated_at TIMESTAMP)");
+        h2.update("INSERT INTO users (id, last_login_at, account_status) " +
+            "VALUES (1, TIMESTAMP '2025-10-19 08:00:00', 'ACTIVE')");
+        return h2;
+    }
+}
@@ -0,0 +1,143 @@
+package gov.changsha.finance.service;
+
+import gov.changsha.finance.dto.response.PermissionTreeNode;
+import gov.changsha.finance.entity.Permission;
+import gov.changsha.finance.repository.PermissionRepository;
+import gov.changsha.finance.security.AuthorityBitsetRegistry;
+import gov.changsha.finance.security.jwt.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 权限树快照缓存测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class PermissionTreeCacheTest {
+
+    private final List<Permission> permissions = new ArrayList<>();
+    private PermissionTreeCache cache;
+    private StringRedisTemplate stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        permissions.add(permission(1L, "SYSTEM_MENU", null));
+        permissions.add(permission(2L, "USER_MENU", 1L));
+        PermissionRepository permissionRepository = mock(PermissionRepository.class);
+        when(permissionRepository.findAll(any(Sort.class))).thenAnswer(invocation -> new ArrayList<>(permissions));
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+
+        cache = new PermissionTreeCache();
+        ReflectionTestUtils.setField(cache, "maxMenuViews", 16);
+        ReflectionTestUtils.setField(cache, "permissionRepository", permissionRepository);
+        ReflectionTestUtils.setField(cache, "authorityBitsetRegistry", new AuthorityBitsetRegistry());
+        ReflectionTestUtils.setField(cache, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", stringRedisTemplate);
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("权限变更事务提交后才重建快照并广播")
+    void rebuildsAfterCommit() {
+        PermissionTreeCache.Snapshot before = cache.getSnapshot();
+        TransactionSynchronizationManager.initSynchronization();
+        permissions.add(permission(3L, "ROLE_MENU", 1L));
+        cache.refreshAfterCommit();
+
+        assertSame(before, cache.getSnapshot());
+        verifyNoInteractions(stringRedisTemplate);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        PermissionTreeCache.Snapshot after = cache.getSnapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(List.of("USER_MENU", "ROLE_MENU"), codes(after.getActiveTree().get(0).getChildren()));
+        verify(stringRedisTemplate).convertAndSend(eq(PermissionTreeCache.PERMISSION_CHANGED_CHANNEL), anyString());
+    }
+
+    @Test
+    @DisplayName("用户菜单树按权限过滤，快照重建后不再使用旧的视图缓存")
+    void menuViewsFollowSnapshot() {
+        UserPrincipal principal = principal("SYSTEM_MENU", "USER_MENU");
+        List<PermissionTreeNode> view = cache.getUserMenuTree(principal);
+        assertEquals(List.of("USER_MENU"), codes(view.get(0).getChildren()));
+        assertSame(view, cache.getUserMenuTree(principal));
+
+        permissions.get(1).setStatus(Permission.PermissionStatus.INACTIVE);
+        cache.refreshAfterCommit();
+
+        List<PermissionTreeNode> rebuilt = cache.getUserMenuTree(principal);
+        assertNotSame(view, rebuilt);
+        assertTrue(rebuilt.get(0).getChildren().isEmpty());
+    }
+
+    @Test
+    @DisplayName("收到其他实例的变更广播时重建，忽略本实例发出的广播")
+    void rebuildsOnOtherInstancesBroadcast() {
+        long version = cache.getSnapshot().getVersion();
+        String instanceId = (String) ReflectionTestUtils.getField(cache, "instanceId");
+
+        cache.onMessage(message(instanceId), null);
+        assertEquals(version, cache.getSnapshot().getVersion());
+
+        cache.onMessage(message("other-instance"), null);
+        assertEquals(version + 1, cache.getSnapshot().getVersion());
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(PermissionTreeCache.PERMISSION_CHANGED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                                  body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> codes(List<PermissionTreeNode> nodes) {
+        return nodes.stream().map(PermissionTreeNode::getCode).collect(Collectors.toList());
+    }
+
+    private static Permission permission(Long id, String code, Long parentId) {
+        Permission permission = new Permission(code, code, Permission.PermissionType.MENU, "SYSTEM");
+        permission.setId(id);
+        permission.setParentId(parentId);
+        permission.setLevel(parentId == null ? 1 : 2);
+        permission.setSortOrder(id.intValue());
+        return permission;
+    }
+
+    private static UserPrincipal principal(String... authorities) {
+        List<SimpleGrantedAuthority> granted = new ArrayList<>();
+        for (String authority : authorities) {
+            granted.add(new SimpleGrantedAuthority(authority));
+        }
+        return new UserPrincipal(1L, "admin", "管理员", null, null, null, null, null, granted,
+                                 true, true, true, true, null);
+    }
+}
@@ -0,0 +1,240 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import gov.changsha.finance.dto.request.AuditLogQuery;
+import gov.changsha.finance.entity.AuditLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 审计日志导出测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuditExportServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 10, 19, 9, 0);
+    private static final String MULTILINE = "he said \"hi\", then left\nsecond line";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final AuditLogSigner signer = new AuditLogSigner("manday-assess-audit-signature-key-2025");
+    private JdbcTemplate jdbcTemplate;
+    private AuditExportService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:audit_export;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE", "sa", ""));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_logs");
+        jdbcTemplate.execute("CREATE TABLE audit_logs (id BIGINT PRIMARY KEY, user_id BIGINT, username VARCHAR(50), " +
+            "real_name VARCHAR(50), operation VARCHAR(50), module VARCHAR(50), operation_desc VARCHAR(500), " +
+            "business_type VARCHAR(50), business_id VARCHAR(100), business_data VARCHAR(2000), " +
+            "operation_status VARCHAR(20), result_message VARCHAR(500), timestamp TIMESTAMP(6) NOT NULL, " +
+            "ip_address VARCHAR(45), user_agent VARCHAR(500), request_uri VARCHAR(500), http_method VARCHAR(10), " +
+            "request_params VARCHAR(2000), duration BIGINT, exception_info VARCHAR(2000), risk_level VARCHAR(20), " +
+            "session_id VARCHAR(100), signature VARCHAR(200), chain_id VARCHAR(64), chain_seq BIGINT, " +
+            "prev_hash VARCHAR(64), row_hash VARCHAR(64))");
+
+        // 1: 公式字符开头的单元格；2: 引号、逗号与换行；3: 签名后被篡改；4: 未签名；5: 不在导出范围内
+        insert(1, "=HYPERLINK(\"http://evil\")", "+cmd", "-2+3", "@SUM(A1)", true);
+        insert(2, MULTILINE, "zhangsan", "#注释", null, true);
+        insert(3, "用户登录系统", "lisi", null, null, true);
+        jdbcTemplate.update("UPDATE audit_logs SET operation_desc = '用户登出系统' WHERE id = 3");
+        insert(4, "用户登录系统", "wangwu", null, null, false);
+        insert(5, "用户登录系统", "zhaoliu", null, null, true);
+        jdbcTemplate.update("UPDATE audit_logs SET timestamp = ? WHERE id = 5", Timestamp.valueOf(START.plusDays(1)));
+
+        AuditQueryService queryService = new AuditQueryService();
+        ReflectionTestUtils.setField(queryService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(queryService, "transactionManager", new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        ReflectionTestUtils.setField(queryService, "objectMapper", objectMapper);
+        queryService.init();
+
+        service = new AuditExportService();
+        // 小页大小使导出跨越多页
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        ReflectionTestUtils.setField(service, "maxReportedIds", 1000);
+        ReflectionTestUtils.setField(service, "auditQueryService", queryService);
+        ReflectionTestUtils.setField(service, "auditLogSigner", signer);
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        service.init();
+    }
+
+    @Test
+    @DisplayName("CSV导出：公式单元格被中和，引号与换行往返不变，清单与数据一致")
+    void exportsCsvWithVerifiableManifest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Map<String, Object> returned = service.export(range(), AuditExportService.ExportFormat.CSV, out, "auditor");
+
+        byte[] plain = gunzip(out.toByteArray());
+        String text = new String(plain, StandardCharsets.UTF_8);
+        int manifestStart = text.lastIndexOf("\n" + AuditExportService.CSV_MANIFEST_PREFIX) + 1;
+        byte[] data = text.substring(0, manifestStart).getBytes(StandardCharsets.UTF_8);
+        String manifestJson = text.substring(manifestStart + AuditExportService.CSV_MANIFEST_PREFIX.length()).trim();
+
+        List<List<String>> records = parseCsv(text.substring(0, manifestStart));
+        List<String> header = records.get(0);
+        assertEquals(5, records.size());
+        Map<String, String> first = row(header, records, "1");
+        assertEquals("'=HYPERLINK(\"http://evil\")", first.get("operation_desc"));
+        assertEquals("'+cmd", first.get("username"));
+        assertEquals("'-2+3", first.get("result_message"));
+        assertEquals("'@SUM(A1)", first.get("business_id"));
+        Map<String, String> second = row(header, records, "2");
+        assertEquals(MULTILINE, second.get("operation_desc"));
+        assertEquals("#注释", second.get("result_message"));
+        assertEquals("", second.get("business_id"));
+
+        Map<String, Object> manifest = verifyManifest(manifestJson, data);
+        assertEquals(returned.get("sha256"), manifest.get("sha256"));
+        assertEquals(4, manifest.get("rowCount"));
+        assertEquals("CSV", manifest.get("format"));
+    }
+
+    @Test
+    @DisplayName("NDJSON导出：篡改的行列为签名失败，未签名的行单独计数")
+    void exportsNdjsonAndReportsTamperedRows() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(range(), AuditExportService.ExportFormat.NDJSON, out, "auditor");
+
+        String text = new String(gunzip(out.toByteArray()), StandardCharsets.UTF_8);
+        String[] lines = text.split("\n");
+        assertEquals(5, lines.length);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(objectMapper.readTree(lines[i]).get("id").asLong());
+        }
+        assertEquals(List.of(4L, 3L, 2L, 1L), ids);
+        assertEquals(MULTILINE, objectMapper.readTree(lines[2]).get("operationDesc").asText());
+
+        byte[] data = text.substring(0, text.length() - lines[4].length() - 1).getBytes(StandardCharsets.UTF_8);
+        JsonNode last = objectMapper.readTree(lines[4]);
+        Map<String, Object> manifest = verifyManifest(objectMapper.writeValueAsString(last.get("manifest")), data);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> signatures = (Map<String, Object>) manifest.get("signatures");
+        assertEquals(2, signatures.get("valid"));
+        assertEquals(1, signatures.get("invalid"));
+        assertEquals(1, signatures.get("unsigned"));
+        assertEquals(List.of(3), signatures.get("invalidIds"));
+        assertEquals(false, signatures.get("invalidIdsTruncated"));
+    }
+
+    /**
+     * 校验清单：行数和SHA-256与数据部分一致，HMAC覆盖除自身外的全部字段
+     */
+    private Map<String, Object> verifyManifest(String json, byte[] data) throws Exception {
+        Map<String, Object> manifest = objectMapper.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() { });
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data)), manifest.get("sha256"));
+        String hmac = (String) manifest.remove("manifestHmac");
+        assertEquals(signer.hmacHex(objectMapper.writeValueAsString(manifest)), hmac);
+
+        manifest.put("rowCount", 3);
+        assertNotEquals(signer.hmacHex(objectMapper.writeValueAsString(manifest)), hmac);
+        manifest.put("rowCount", 4);
+        return manifest;
+    }
+
+    private void insert(long id, String operationDesc, String username, String resultMessage, String businessId,
+                        boolean signed) {
+        AuditLog auditLog = new AuditLog(AuditLog.OperationType.LOGIN, "AUTH", operationDesc);
+        auditLog.setUsername(username);
+        auditLog.setTimestamp(START.plusMinutes(id));
+        auditLog.setIpAddress("10.0.0." + id);
+        String signature = signed ? signer.sign(auditLog) : null;
+        jdbcTemplate.update("INSERT INTO audit_logs (id, username, operation, module, operation_desc, business_id, " +
+            "operation_status, result_message, timestamp, ip_address, risk_level, signature) " +
+            "VALUES (?, ?, 'LOGIN', 'AUTH', ?, ?, 'SUCCESS', ?, ?, ?, 'LOW', ?)",
+            id, username, operationDesc, businessId, resultMessage, Timestamp.valueOf(auditLog.getTimestamp()),
+            auditLog.getIpAddress(), signature);
+    }
+
+    private static AuditLogQuery range() {
+        AuditLogQuery query = new AuditLogQuery();
+        query.setStartTime(START);
+        query.setEndTime(START.plusHours(1));
+        return query;
+    }
+
+    private static Map<String, String> row(List<String> header, List<List<String>> records, String id) {
+        for (List<String> record : records) {
+            if (record.get(0).equals(id)) {
+                Map<String, String> row = new LinkedHashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    row.put(header.get(i), record.get(i));
+                }
+                return row;
+            }
+        }
+        throw new AssertionError("导出中没有ID为" + id + "的行");
+    }
+
+    /**
+     * 按RFC 4180解析CSV（引号内的逗号、换行与双写的引号）
+     */
+    private static List<List<String>> parseCsv(String text) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringWriter field = new StringWriter();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.write('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.write(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field = new StringWriter();
+            } else if (c == '\n') {
+                record.add(field.toString());
+                records.add(record);
+                record = new ArrayList<>();
+                field = new StringWriter();
+            } else {
+                field.write(c);
+            }
+        }
+        return records;
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.entity.AuditLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 审计日志签名器测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuditLogSignerTest {
+
+    private static final String KEY = "manday-assess-audit-signature-key-2025";
+
+    private final AuditLogSigner signer = new AuditLogSigner(KEY);
+
+    @Test
+    @DisplayName("签名与历史逐行签名算法结果一致（已有数据可继续校验）")
+    void matchesLegacySignature() throws Exception {
+        AuditLog auditLog = sample(1);
+        auditLog.setIpAddress(null);
+
+        String data = String.format("%s:%s:%s:%s:%s:%s", auditLog.getUsername(), auditLog.getOperation(),
+                auditLog.getModule(), auditLog.getOperationDesc(), auditLog.getTimestamp(), auditLog.getIpAddress());
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String legacy = Base64.getEncoder().encodeToString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(legacy, signer.sign(auditLog));
+    }
+
+    @Test
+    @DisplayName("修改任一签名字段后校验失败")
+    void detectsTampering() {
+        AuditLog auditLog = sample(2);
+        auditLog.setSignature(signer.sign(auditLog));
+        assertTrue(signer.verify(auditLog));
+
+        auditLog.setOperationDesc("用户登出系统");
+        assertFalse(signer.verify(auditLog));
+
+        auditLog.setSignature("not-base64!");
+        assertFalse(signer.verify(auditLog));
+        auditLog.setSignature(null);
+        assertFalse(signer.verify(auditLog));
+    }
+
+    @Test
+    @DisplayName("多线程并发签名结果与单线程一致")
+    void threadConfinedMacIsSafe() {
+        String[] expected = IntStream.range(0, 2000).mapToObj(i -> signer.sign(sample(i))).toArray(String[]::new);
+        String[] parallel = IntStream.range(0, 2000).parallel().mapToObj(i -> signer.sign(sample(i))).toArray(String[]::new);
+        assertArrayEquals(expected, parallel);
+    }
+
+    private static AuditLog sample(int i) {
+        AuditLog auditLog = new AuditLog(AuditLog.OperationType.LOGIN, "AUTH", "用户登录系统");
+        auditLog.setUsername("user" + i);
+        auditLog.setTimestamp(LocalDateTime.of(2025, 10, 19, 9, 0).plusSeconds(i).plusNanos(123_456_000L));
+        auditLog.setIpAddress("10.0.0." + (i % 255));
+        return auditLog;
+    }
+}
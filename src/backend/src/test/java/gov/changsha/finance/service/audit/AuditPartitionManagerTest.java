@@ -0,0 +1,131 @@
+package gov.changsha.finance.service.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 审计日志分区管理测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuditPartitionManagerTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2025, 10, 1, 0, 0);
+
+    @Test
+    @DisplayName("分区名与范围按月计算，范围含月初不含次月月初，跨年正确")
+    void partitionNameAndBounds() {
+        assertEquals("audit_logs_y2025m01", AuditPartitionManager.partitionName(YearMonth.of(2025, 1)));
+        assertEquals("FROM ('2025-12-01 00:00:00.0') TO ('2026-01-01 00:00:00.0')",
+                     AuditPartitionManager.partitionBounds(YearMonth.of(2025, 12)));
+        assertEquals("FROM ('2024-02-01 00:00:00.0') TO ('2024-03-01 00:00:00.0')",
+                     AuditPartitionManager.partitionBounds(YearMonth.of(2024, 2)));
+    }
+
+    @Test
+    @DisplayName("只有整月早于截止时间的月度分区可整块删除")
+    void expiresOnlyWholeMonthsBeforeCutoff() {
+        assertTrue(AuditPartitionManager.isExpired("audit_logs_y2025m09", CUTOFF));
+        assertFalse(AuditPartitionManager.isExpired("audit_logs_y2025m10", CUTOFF));
+        assertTrue(AuditPartitionManager.isExpired("audit_logs_y2025m09", CUTOFF.plusDays(14)));
+        assertFalse(AuditPartitionManager.isExpired("audit_logs_y2025m10", CUTOFF.plusDays(14)));
+        assertFalse(AuditPartitionManager.isExpired("audit_logs_y2025m09", CUTOFF.minusSeconds(1)));
+        assertFalse(AuditPartitionManager.isExpired("audit_logs_default", CUTOFF));
+        assertFalse(AuditPartitionManager.isExpired("audit_logs_y2025m9", CUTOFF));
+    }
+
+    @Test
+    @DisplayName("预建缺失的分区；兜底分区已有该月的行时在一个事务中迁出后挂载")
+    void createsMissingPartitionsAndMovesStrayRows() {
+        YearMonth current = YearMonth.now();
+        String next = AuditPartitionManager.partitionName(current.plusMonths(1));
+        String afterNext = AuditPartitionManager.partitionName(current.plusMonths(2));
+        Timestamp strayFrom = Timestamp.valueOf(current.plusMonths(2).atDay(1).atStartOfDay());
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("audit_logs")))
+            .thenReturn(List.of("audit_logs_default", AuditPartitionManager.partitionName(current)));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM audit_logs_default"), eq(Integer.class), any(), any()))
+            .thenAnswer(invocation -> strayFrom.equals(invocation.getArgument(2)) ? 2 : 0);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        AuditPartitionManager manager = manager(jdbcTemplate, transactionManager);
+
+        manager.ensureFuturePartitions();
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS " + next + " PARTITION OF audit_logs FOR VALUES " +
+                                     AuditPartitionManager.partitionBounds(current.plusMonths(1)));
+        InOrder order = inOrder(transactionManager, jdbcTemplate);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(jdbcTemplate).execute(startsWith("CREATE TABLE " + afterNext + " (LIKE audit_logs"));
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO " + afterNext + " SELECT * FROM audit_logs_default"), any(Timestamp.class), any(Timestamp.class));
+        order.verify(jdbcTemplate).update(startsWith("DELETE FROM audit_logs_default"), any(Timestamp.class), any(Timestamp.class));
+        order.verify(jdbcTemplate).execute("ALTER TABLE audit_logs ATTACH PARTITION " + afterNext + " FOR VALUES " +
+                                           AuditPartitionManager.partitionBounds(current.plusMonths(2)));
+        order.verify(transactionManager).commit(any());
+        verify(jdbcTemplate, never()).execute(contains(AuditPartitionManager.partitionName(current) + " "));
+    }
+
+    @Test
+    @DisplayName("保留期清理：删除过期分区与早于截止时间的行，所封的行仍存在的封段保留")
+    void keepsSegmentsWhoseRowsSurviveCutoff() {
+        JdbcTemplate jdbcTemplate = spy(new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:audit_partition;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE", "sa", "")));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_logs");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_segments");
+        jdbcTemplate.execute("CREATE TABLE audit_logs (id BIGINT PRIMARY KEY, timestamp TIMESTAMP NOT NULL, " +
+            "chain_id VARCHAR(64), chain_seq BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE audit_segments (id BIGINT PRIMARY KEY, chain_id VARCHAR(64) NOT NULL, " +
+            "period_start TIMESTAMP NOT NULL, period_end TIMESTAMP NOT NULL, first_seq BIGINT NOT NULL, last_seq BIGINT NOT NULL)");
+        // 段1的行都早于截止时间；段2时间段止于截止时间，但第4行的时间戳晚于截止时间；段3跨越截止时间
+        jdbcTemplate.execute("INSERT INTO audit_logs VALUES " +
+            "(1, TIMESTAMP '2025-09-30 22:00:00', 'c1', 1), (2, TIMESTAMP '2025-09-30 22:30:00', 'c1', 2), " +
+            "(3, TIMESTAMP '2025-09-30 23:55:00', 'c1', 3), (4, TIMESTAMP '2025-10-01 00:00:05', 'c1', 4), " +
+            "(5, TIMESTAMP '2025-09-30 23:59:00', 'c2', 1), (6, TIMESTAMP '2025-10-01 00:03:00', 'c2', 2)");
+        jdbcTemplate.execute("INSERT INTO audit_segments VALUES " +
+            "(1, 'c1', TIMESTAMP '2025-09-30 22:00:00', TIMESTAMP '2025-09-30 23:00:00', 1, 2), " +
+            "(2, 'c1', TIMESTAMP '2025-09-30 23:50:00', TIMESTAMP '2025-10-01 00:00:00', 3, 4), " +
+            "(3, 'c2', TIMESTAMP '2025-09-30 23:55:00', TIMESTAMP '2025-10-01 00:05:00', 1, 2)");
+        doReturn(List.of("audit_logs_default", "audit_logs_y2025m08", "audit_logs_y2025m09", "audit_logs_y2025m10"))
+            .when(jdbcTemplate).queryForList(anyString(), eq(String.class), eq("audit_logs"));
+        doNothing().when(jdbcTemplate).execute(startsWith("ALTER TABLE audit_logs DETACH PARTITION"));
+        doNothing().when(jdbcTemplate).execute(startsWith("DROP TABLE audit_logs_y"));
+        AuditPartitionManager manager = manager(jdbcTemplate, mock(PlatformTransactionManager.class));
+
+        assertEquals(2, manager.dropPartitionsBefore(CUTOFF));
+
+        verify(jdbcTemplate).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_y2025m08");
+        verify(jdbcTemplate).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_y2025m09");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_y2025m10");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_default");
+        assertEquals(List.of(4L, 6L), jdbcTemplate.queryForList("SELECT id FROM audit_logs ORDER BY id", Long.class));
+        assertEquals(List.of(2L, 3L), jdbcTemplate.queryForList("SELECT id FROM audit_segments ORDER BY id", Long.class));
+
+        // 所封的行全部过期后封段随之清理
+        manager.dropPartitionsBefore(CUTOFF.plusDays(1));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_segments", Integer.class));
+    }
+
+    private static AuditPartitionManager manager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        AuditPartitionManager manager = new AuditPartitionManager();
+        ReflectionTestUtils.setField(manager, "monthsAhead", 2);
+        ReflectionTestUtils.setField(manager, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(manager, "transactionTemplate", new TransactionTemplate(transactionManager));
+        return manager;
+    }
+}
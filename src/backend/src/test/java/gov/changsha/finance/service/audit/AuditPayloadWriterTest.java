@@ -0,0 +1,209 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import gov.changsha.finance.entity.Permission;
+import gov.changsha.finance.entity.Role;
+import gov.changsha.finance.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 审计业务数据载荷序列化测试
+ * 载荷JSON的字段名与类型决定V24转换后的jsonb内容和按字段路径的包含查询，此处逐类型固定其形状
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuditPayloadWriterTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 10, 19, 9, 30, 15);
+
+    /** 与Spring Boot自动配置及application.yml一致：日期按ISO文本输出，空值字段不输出 */
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+    private AuditPayloadWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new AuditPayloadWriter();
+        ReflectionTestUtils.setField(writer, "objectMapper", objectMapper);
+    }
+
+    @Test
+    @DisplayName("登录、注册载荷：时间为ISO文本，用户信息脱敏且不含密码")
+    void userPayloads() throws Exception {
+        User user = user();
+        JsonNode login = json(new AuditPayloads.Login(TIME, AuditPayloads.UserInfo.of(user)));
+        assertEquals(List.of("loginTime", "userInfo"), fields(login));
+        assertEquals("2025-10-19T09:30:15", login.get("loginTime").asText());
+
+        JsonNode userInfo = login.get("userInfo");
+        assertEquals(List.of("id", "username", "realName", "email", "employeeId", "department", "position", "accountStatus"),
+                     fields(userInfo));
+        assertTrue(userInfo.get("id").isIntegralNumber());
+        assertEquals("z***@example.gov.cn", userInfo.get("email").asText());
+        assertEquals("007", userInfo.get("employeeId").asText());
+        assertEquals("ACTIVE", userInfo.get("accountStatus").asText());
+        assertFalse(login.toString().contains("secret-hash"));
+
+        JsonNode registration = json(new AuditPayloads.Registration(TIME, AuditPayloads.UserInfo.of(user)));
+        assertEquals(List.of("registrationTime", "userInfo"), fields(registration));
+        assertEquals(userInfo, registration.get("userInfo"));
+        assertNull(writer.write(null));
+    }
+
+    @Test
+    @DisplayName("账户锁定载荷：原因为空时不输出；按字段路径的包含查询与载荷类型一致")
+    void accountActionMatchesContainmentQueries() throws Exception {
+        JsonNode locked = json(new AuditPayloads.AccountAction(AuditPayloads.UserInfo.of(user()), "LOCK", "多次输入错误密码"));
+        assertEquals(List.of("targetUser", "action", "reason"), fields(locked));
+        JsonNode unlocked = json(new AuditPayloads.AccountAction(AuditPayloads.UserInfo.of(user()), "UNLOCK", null));
+        assertEquals(List.of("targetUser", "action"), fields(unlocked));
+
+        AuditQueryService queryService = new AuditQueryService();
+        ReflectionTestUtils.setField(queryService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(queryService, "postgres", true);
+        assertTrue(contains(locked, containment(queryService, "targetUser.id", "7")));
+        assertTrue(contains(locked, containment(queryService, "targetUser.employeeId", "007")));
+        assertTrue(contains(locked, containment(queryService, "action", "LOCK")));
+        assertFalse(contains(locked, containment(queryService, "targetUser.id", "8")));
+        // 数值字段不按字符串匹配
+        assertFalse(contains(locked, objectMapper.readTree("{\"targetUser\":{\"id\":\"7\"}}")));
+    }
+
+    @Test
+    @DisplayName("角色载荷：枚举按名称输出，权限集合为数组")
+    void rolePayloads() throws Exception {
+        AuditPayloads.RoleInfo role = AuditPayloads.RoleInfo.of(role());
+        JsonNode created = json(new AuditPayloads.RoleCreated(role));
+        assertEquals(List.of("roleInfo"), fields(created));
+        assertEquals(List.of("id", "name", "code", "description", "roleType", "status"), fields(created.get("roleInfo")));
+        assertEquals("CUSTOM", created.get("roleInfo").get("roleType").asText());
+        assertEquals("ACTIVE", created.get("roleInfo").get("status").asText());
+
+        assertEquals(List.of("originalRole", "updatedRole"), fields(json(new AuditPayloads.RoleUpdated(role, role))));
+        assertEquals(List.of("deletedRole"), fields(json(new AuditPayloads.RoleDeleted(role))));
+
+        Set<String> original = new LinkedHashSet<>(List.of("AUDIT_VIEW", "AUDIT_EXPORT"));
+        Set<String> updated = new LinkedHashSet<>(List.of("AUDIT_VIEW", "AUDIT_VERIFY"));
+        JsonNode changed = json(new AuditPayloads.RolePermissionsChanged(role, original, updated,
+                                                                         Set.of("AUDIT_VERIFY"), Set.of("AUDIT_EXPORT")));
+        assertEquals(List.of("roleInfo", "originalPermissions", "newPermissions", "addedPermissions", "removedPermissions"),
+                     fields(changed));
+        assertTrue(changed.get("newPermissions").isArray());
+        assertEquals("AUDIT_VERIFY", changed.get("addedPermissions").get(0).asText());
+    }
+
+    @Test
+    @DisplayName("权限与数据导出载荷")
+    void permissionAndExportPayloads() throws Exception {
+        AuditPayloads.PermissionInfo permission = AuditPayloads.PermissionInfo.of(permission());
+        JsonNode created = json(new AuditPayloads.PermissionCreated(permission));
+        assertEquals(List.of("permissionInfo"), fields(created));
+        assertEquals(List.of("id", "code", "name", "description", "permissionType", "module", "resourcePath",
+                             "httpMethod", "status"), fields(created.get("permissionInfo")));
+        assertEquals("API", created.get("permissionInfo").get("permissionType").asText());
+        Permission undescribed = permission();
+        undescribed.setDescription(null);
+        assertFalse(json(AuditPayloads.PermissionInfo.of(undescribed)).has("description"));
+        assertEquals(List.of("originalPermission", "updatedPermission"),
+                     fields(json(new AuditPayloads.PermissionUpdated(permission, permission))));
+        assertEquals(List.of("deletedPermission"), fields(json(new AuditPayloads.PermissionDeleted(permission))));
+
+        JsonNode export = json(new AuditPayloads.DataExport("AUDIT_LOG", "CSV", 1200, TIME));
+        assertEquals(List.of("dataType", "exportFormat", "recordCount", "exportTime"), fields(export));
+        assertTrue(export.get("recordCount").isInt());
+        assertEquals("2025-10-19T09:30:15", export.get("exportTime").asText());
+    }
+
+    @Test
+    @DisplayName("邮箱脱敏")
+    void masksEmail() {
+        assertEquals("z***@example.gov.cn", AuditPayloads.maskEmail("zhangsan@example.gov.cn"));
+        assertEquals("***", AuditPayloads.maskEmail(null));
+        assertEquals("***", AuditPayloads.maskEmail("a@b"));
+        assertEquals("***", AuditPayloads.maskEmail("@example.gov.cn"));
+    }
+
+    private JsonNode json(Object payload) throws Exception {
+        return objectMapper.readTree(writer.write(payload));
+    }
+
+    private JsonNode containment(AuditQueryService queryService, String field, String value) throws Exception {
+        return objectMapper.readTree(queryService.payloadContainment(field, value));
+    }
+
+    private static List<String> fields(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    /**
+     * 按jsonb的 @> 语义判断对象包含（仅对象与标量，足以覆盖字段路径查询）
+     */
+    private static boolean contains(JsonNode document, JsonNode pattern) {
+        if (!pattern.isObject()) {
+            return document.equals(pattern);
+        }
+        if (!document.isObject()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, JsonNode>> entries = pattern.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            JsonNode value = document.get(entry.getKey());
+            if (value == null || !contains(value, entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("zhangsan");
+        user.setRealName("张三");
+        user.setEmail("zhangsan@example.gov.cn");
+        user.setEmployeeId("007");
+        user.setDepartment("预算处");
+        user.setPosition("科员");
+        user.setPasswordHash("secret-hash");
+        return user;
+    }
+
+    private static Role role() {
+        Role role = new Role("审计员", "AUDITOR", "审计日志查看与导出", Role.RoleType.CUSTOM);
+        role.setId(3L);
+        return role;
+    }
+
+    private static Permission permission() {
+        Permission permission = new Permission("AUDIT_EXPORT", "导出审计日志", Permission.PermissionType.API, "AUDIT");
+        permission.setId(11L);
+        permission.setResourcePath("/api/audit/logs/export");
+        permission.setHttpMethod("GET");
+        permission.setDescription("按条件导出审计日志");
+        return permission;
+    }
+}
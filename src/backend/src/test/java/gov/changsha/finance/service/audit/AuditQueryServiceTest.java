@@ -0,0 +1,191 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import gov.changsha.finance.config.GlobalExceptionHandler;
+import gov.changsha.finance.controller.AuditController;
+import gov.changsha.finance.dto.request.AuditLogQuery;
+import gov.changsha.finance.dto.response.AuditLogPage;
+import gov.changsha.finance.entity.AuditLog;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 审计日志键集分页测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuditQueryServiceTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 10, 19, 9, 30, 15, 123456000);
+
+    private JdbcTemplate jdbcTemplate;
+    private AuditQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:audit_query;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE", "sa", ""));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_logs");
+        jdbcTemplate.execute("CREATE TABLE audit_logs (id BIGINT PRIMARY KEY, user_id BIGINT, username VARCHAR(50), " +
+            "real_name VARCHAR(50), operation VARCHAR(50), module VARCHAR(50), operation_desc VARCHAR(500), " +
+            "business_type VARCHAR(50), business_id VARCHAR(100), business_data VARCHAR(2000), " +
+            "operation_status VARCHAR(20), result_message VARCHAR(500), timestamp TIMESTAMP(6) NOT NULL, " +
+            "ip_address VARCHAR(45), user_agent VARCHAR(500), request_uri VARCHAR(500), http_method VARCHAR(10), " +
+            "request_params VARCHAR(2000), duration BIGINT, exception_info VARCHAR(2000), risk_level VARCHAR(20), " +
+            "session_id VARCHAR(100), signature VARCHAR(200), chain_id VARCHAR(64), chain_seq BIGINT, " +
+            "prev_hash VARCHAR(64), row_hash VARCHAR(64))");
+
+        service = new AuditQueryService();
+        ReflectionTestUtils.setField(service, "fetchSize", 100);
+        ReflectionTestUtils.setField(service, "streamFlushRows", 500);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionManager", new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        service.init();
+    }
+
+    @Test
+    @DisplayName("游标编码后解码得到原时间戳（含微秒）与ID")
+    void cursorRoundTrip() {
+        AuditLog last = new AuditLog();
+        last.setId(42L);
+        last.setTimestamp(TIME);
+
+        Object[] cursor = AuditQueryService.decodeCursor(AuditQueryService.encodeCursor(last));
+
+        assertEquals(Timestamp.valueOf(TIME), cursor[0]);
+        assertEquals(42L, cursor[1]);
+    }
+
+    @Test
+    @DisplayName("时间戳相同的行按ID区分，翻页既不重复也不遗漏")
+    void pagesThroughTimestampTiesById() {
+        // 5行共用同一时间戳，分页边界必然落在相同时间戳的行之间
+        for (long id = 1; id <= 5; id++) {
+            insert(id, TIME);
+        }
+        insert(6L, TIME.plusSeconds(1));
+        insert(7L, TIME.minusSeconds(1));
+
+        AuditLogQuery query = new AuditLogQuery();
+        query.setSize(2);
+        List<Long> ids = new ArrayList<>();
+        AuditLogPage page;
+        do {
+            page = service.query(query);
+            ids.addAll(page.getRecords().stream().map(AuditLog::getId).collect(Collectors.toList()));
+            query.setCursor(page.getNextCursor());
+        } while (page.isHasMore());
+
+        assertEquals(List.of(6L, 5L, 4L, 3L, 2L, 1L, 7L), ids);
+    }
+
+    @Test
+    @DisplayName("游标条件按(timestamp, id)行值比较，参数为解码后的时间戳与ID")
+    void cursorConditionComparesRowValue() {
+        AuditLog last = new AuditLog();
+        last.setId(3L);
+        last.setTimestamp(TIME);
+        AuditLogQuery query = new AuditLogQuery();
+        query.setCursor(AuditQueryService.encodeCursor(last));
+        List<Object> params = new ArrayList<>();
+
+        assertTrue(service.where(query, params).endsWith("(timestamp, id) < (?, ?)"));
+        assertEquals(List.of(Timestamp.valueOf(TIME), 3L), params);
+    }
+
+    @Test
+    @DisplayName("格式错误的游标被拒绝并返回400")
+    void rejectsMalformedCursor() {
+        String[] malformed = {"not-base64!", "bm9zZXBhcmF0b3I", "MjAyNS0xMC0xOVQwOTozMHxhYmM"};
+        for (String cursor : malformed) {
+            assertThrows(IllegalArgumentException.class, () -> AuditQueryService.decodeCursor(cursor), cursor);
+        }
+
+        AuditLogQuery query = new AuditLogQuery();
+        query.setCursor(malformed[0]);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> service.query(query));
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+        ReflectionTestUtils.setField(handler, "activeProfile", "test");
+        assertEquals(HttpStatus.BAD_REQUEST,
+            handler.handleIllegalArgumentException(ex, new MockHttpServletRequest()).getStatusCode());
+
+        // 流式接口在响应开始前校验游标
+        AuditController controller = new AuditController();
+        ReflectionTestUtils.setField(controller, "auditQueryService", service);
+        assertEquals(HttpStatus.BAD_REQUEST, controller.streamLogs(query).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("载荷字段查询构造嵌套包含文档：整数、布尔值按JSON类型，其余（含前导零、超长数字）按字符串")
+    void buildsTypedContainmentDocument() {
+        ReflectionTestUtils.setField(service, "postgres", true);
+
+        assertEquals("{\"targetUser\":{\"id\":7}}", service.payloadContainment("targetUser.id", "7"));
+        assertEquals("{\"delta\":-12}", service.payloadContainment("delta", "-12"));
+        assertEquals("{\"enabled\":true}", service.payloadContainment("enabled", "true"));
+        assertEquals("{\"enabled\":\"TRUE\"}", service.payloadContainment("enabled", "TRUE"));
+        assertEquals("{\"userInfo\":{\"employeeId\":\"007\"}}", service.payloadContainment("userInfo.employeeId", "007"));
+        assertEquals("{\"n\":\"1234567890123456789\"}", service.payloadContainment("n", "1234567890123456789"));
+        assertEquals("{\"n\":123456789012345678}", service.payloadContainment("n", "123456789012345678"));
+        assertEquals("{\"reason\":\"多次输入\\\"错误\\\"密码\"}", service.payloadContainment("reason", "多次输入\"错误\"密码"));
+        assertEquals("{\"a\":{\"b\":{\"c\":{\"d\":{\"e\":{\"f\":{\"g\":{\"h\":\"x\"}}}}}}}}",
+                     service.payloadContainment("a.b.c.d.e.f.g.h", "x"));
+
+        AuditLogQuery query = new AuditLogQuery();
+        query.setPayloadField("targetUser.id");
+        query.setPayloadValue("7");
+        List<Object> params = new ArrayList<>();
+        assertEquals(" WHERE business_data @> CAST(? AS jsonb)", service.where(query, params));
+        assertEquals(List.of("{\"targetUser\":{\"id\":7}}"), params);
+    }
+
+    @Test
+    @DisplayName("载荷字段路径最多8级；非PostgreSQL数据库拒绝载荷字段查询")
+    void validatesPayloadFieldAndRejectsNonPostgres() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = factory.getValidator();
+            AuditLogQuery query = new AuditLogQuery();
+            query.setPayloadField("a.b.c.d.e.f.g.h");
+            assertTrue(validator.validateProperty(query, "payloadField").isEmpty());
+            query.setPayloadField("a.b.c.d.e.f.g.h.i");
+            assertFalse(validator.validateProperty(query, "payloadField").isEmpty());
+            query.setPayloadField("targetUser..id");
+            assertFalse(validator.validateProperty(query, "payloadField").isEmpty());
+            query.setPayloadField("targetUser.id'");
+            assertFalse(validator.validateProperty(query, "payloadField").isEmpty());
+        }
+
+        // 本测试使用H2
+        AuditLogQuery query = new AuditLogQuery();
+        query.setPayloadField("targetUser.id");
+        query.setPayloadValue("7");
+        assertThrows(IllegalArgumentException.class, () -> service.query(query));
+    }
+
+    private void insert(long id, LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO audit_logs (id, username, operation, module, operation_status, timestamp, risk_level) " +
+            "VALUES (?, 'auditor', 'LOGIN', 'AUDIT', 'SUCCESS', ?, 'LOW')", id, Timestamp.valueOf(timestamp));
+    }
+}
@@ -0,0 +1,96 @@
+package gov.changsha.finance.service.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import gov.changsha.finance.entity.AuditLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 审计日志溢出文件测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuditSpillFileTest {
+
+    @TempDir
+    Path spillDir;
+
+    private AuditSpillFile spillFile;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        spillFile = new AuditSpillFile(spillDir, objectMapper);
+    }
+
+    @Test
+    @DisplayName("溢出的审计日志按批回放且字段完整，回放后文件清除")
+    void appendAndReplay() throws Exception {
+        spillFile.append(List.of(sample(1), sample(2), sample(3)));
+        assertTrue(spillFile.hasPending());
+
+        List<List<AuditLog>> batches = new ArrayList<>();
+        int replayed = spillFile.replay(2, batches::add);
+
+        assertEquals(3, replayed);
+        assertEquals(2, batches.size());
+        AuditLog first = batches.get(0).get(0);
+        assertEquals("user1", first.getUsername());
+        assertEquals(AuditLog.OperationType.LOGIN, first.getOperation());
+        assertEquals(LocalDateTime.of(2025, 10, 19, 9, 0, 1), first.getTimestamp());
+        assertEquals("sig-1", first.getSignature());
+        assertFalse(spillFile.hasPending());
+    }
+
+    @Test
+    @DisplayName("回放失败时保留文件，下次回放仍可读取")
+    void failedReplayKeepsFile() throws Exception {
+        spillFile.append(List.of(sample(1)));
+
+        assertThrows(IllegalStateException.class, () -> spillFile.replay(10, batch -> {
+            throw new IllegalStateException("数据库不可用");
+        }));
+        assertTrue(spillFile.hasPending());
+
+        spillFile.append(List.of(sample(2)));
+        List<AuditLog> replayed = new ArrayList<>();
+        assertEquals(2, spillFile.replay(10, replayed::addAll));
+        assertFalse(spillFile.hasPending());
+    }
+
+    @Test
+    @DisplayName("宕机写一半的尾行被跳过")
+    void skipsTornTail() throws Exception {
+        spillFile.append(List.of(sample(1)));
+        Files.writeString(spillDir.resolve("audit-spill.ndjson"), "{\"username\":\"tor",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        List<AuditLog> replayed = new ArrayList<>();
+        assertEquals(1, spillFile.replay(10, replayed::addAll));
+        assertEquals("user1", replayed.get(0).getUsername());
+    }
+
+    private static AuditLog sample(int i) {
+        AuditLog auditLog = new AuditLog(AuditLog.OperationType.LOGIN, "AUTH", "用户登录系统");
+        auditLog.setUsername("user" + i);
+        auditLog.setTimestamp(LocalDateTime.of(2025, 10, 19, 9, 0, i));
+        auditLog.setIpAddress("10.0.0." + i);
+        auditLog.setSignature("sig-" + i);
+        return auditLog;
+    }
+}
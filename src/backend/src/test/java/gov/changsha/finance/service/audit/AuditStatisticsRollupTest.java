@@ -0,0 +1,164 @@
+package gov.changsha.finance.service.audit;
+
+import gov.changsha.finance.entity.AuditLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 审计统计小时汇总测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class AuditStatisticsRollupTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 10, 19, 0, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private AuditStatisticsRollup rollup;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:audit_stats;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE", "sa", ""));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_logs");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_stats_hourly");
+        jdbcTemplate.execute("CREATE TABLE audit_logs (id BIGINT PRIMARY KEY, user_id BIGINT, username VARCHAR(50), " +
+            "operation VARCHAR(50), ip_address VARCHAR(45), operation_status VARCHAR(20), risk_level VARCHAR(20), " +
+            "timestamp TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE audit_stats_hourly (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "bucket_hour TIMESTAMP NOT NULL, dimension VARCHAR(20) NOT NULL, dim_key VARCHAR(100) NOT NULL, " +
+            "user_id BIGINT, event_count BIGINT NOT NULL DEFAULT 0, updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "CONSTRAINT uk_audit_stats_hourly UNIQUE (dimension, bucket_hour, dim_key))");
+
+        rollup = new AuditStatisticsRollup();
+        ReflectionTestUtils.setField(rollup, "reconcileHours", 48);
+        ReflectionTestUtils.setField(rollup, "reconcileLagMinutes", 10);
+        ReflectionTestUtils.setField(rollup, "backfillPauseMs", 0L);
+        ReflectionTestUtils.setField(rollup, "running", true);
+        ReflectionTestUtils.setField(rollup, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(rollup, "transactionTemplate",
+            new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+    }
+
+    @Test
+    @DisplayName("写入器逐批累加的结果与按原始表重算一致，空用户名和空IP归为''")
+    void incrementMatchesRebuild() {
+        List<AuditLog> first = List.of(
+            log(7L, "zhangsan", "10.0.0.1", DAY.plusHours(9).plusMinutes(5)),
+            log(null, null, null, DAY.plusHours(9).plusMinutes(20)),
+            log(7L, "zhangsan", null, DAY.plusHours(10)));
+        List<AuditLog> second = List.of(
+            log(7L, "zhangsan", "10.0.0.1", DAY.plusHours(9).plusMinutes(59)),
+            log(null, null, "10.0.0.2", DAY.plusHours(10).plusMinutes(30)),
+            log(8L, "lisi", "", DAY.plusHours(10).plusMinutes(45)));
+        insert(first);
+        insert(second);
+
+        // 两批累加，第二批命中已存在的键走MERGE的更新分支
+        rollup.increment(first);
+        rollup.increment(second);
+        List<Map<String, Object>> incremented = stats();
+
+        rollup.rebuildRange(DAY, DAY.plusDays(1));
+        assertEquals(stats(), incremented);
+
+        assertEquals(3L, count("TOTAL", DAY.plusHours(9), "*"));
+        assertEquals(2L, count("USER", DAY.plusHours(9), "zhangsan"));
+        assertEquals(1L, count("USER", DAY.plusHours(10), ""));
+        // 空IP与空字符串IP归为同一个''
+        assertEquals(2L, count("IP", DAY.plusHours(10), ""));
+        assertEquals(7L, jdbcTemplate.queryForObject("SELECT user_id FROM audit_stats_hourly " +
+            "WHERE dimension = 'USER' AND dim_key = 'zhangsan' AND bucket_hour = ?", Long.class, Timestamp.valueOf(DAY.plusHours(9))));
+    }
+
+    @Test
+    @DisplayName("重算以删除加插入修正范围内的偏差，范围外的汇总不变")
+    void rebuildCorrectsDriftWithinRange() {
+        List<AuditLog> logs = List.of(
+            log(7L, "zhangsan", "10.0.0.1", DAY.plusHours(9)),
+            log(7L, "zhangsan", "10.0.0.1", DAY.plusHours(11)));
+        insert(logs);
+        rollup.increment(logs);
+        // 模拟累加后写库回滚或重复累加造成的偏差
+        jdbcTemplate.update("UPDATE audit_stats_hourly SET event_count = event_count + 5");
+        jdbcTemplate.update("INSERT INTO audit_stats_hourly (bucket_hour, dimension, dim_key, event_count) " +
+            "VALUES (?, 'OPERATION', 'LOGOUT', 3)", Timestamp.valueOf(DAY.plusHours(9)));
+
+        rollup.rebuildRange(DAY.plusHours(9), DAY.plusHours(10));
+
+        assertEquals(1L, count("TOTAL", DAY.plusHours(9), "*"));
+        assertNull(count("OPERATION", DAY.plusHours(9), "LOGOUT"));
+        assertEquals(6L, count("TOTAL", DAY.plusHours(11), "*"));
+    }
+
+    @Test
+    @DisplayName("回填从汇总表最早的小时向前补齐到原始表最早的日志")
+    void backfillsHistoryBeforeEarliestBucket() {
+        List<AuditLog> history = new ArrayList<>();
+        for (int hour = 0; hour < 60; hour += 7) {
+            history.add(log(7L, "zhangsan", hour % 2 == 0 ? "10.0.0.1" : null, DAY.minusDays(3).plusHours(hour)));
+        }
+        List<AuditLog> recent = List.of(log(8L, "lisi", "10.0.0.2", DAY.plusHours(9)));
+        insert(history);
+        insert(recent);
+        // 汇总表上线后只累加了之后的日志
+        rollup.increment(recent);
+
+        rollup.maintain();
+        List<Map<String, Object>> backfilled = stats();
+        rollup.rebuildRange(DAY.minusDays(3), DAY.plusDays(1));
+
+        assertEquals(stats(), backfilled);
+        assertEquals(history.size() + 1L, jdbcTemplate.queryForObject(
+            "SELECT SUM(event_count) FROM audit_stats_hourly WHERE dimension = 'TOTAL'", Long.class));
+    }
+
+    private AuditLog log(Long userId, String username, String ipAddress, LocalDateTime timestamp) {
+        AuditLog auditLog = new AuditLog(AuditLog.OperationType.LOGIN, "AUTH", "用户登录系统");
+        auditLog.setId(nextId++);
+        auditLog.setUserId(userId);
+        auditLog.setUsername(username);
+        auditLog.setIpAddress(ipAddress);
+        auditLog.setOperationStatus(AuditLog.OperationStatus.SUCCESS);
+        auditLog.setRiskLevel(AuditLog.RiskLevel.LOW);
+        auditLog.setTimestamp(timestamp);
+        return auditLog;
+    }
+
+    private void insert(List<AuditLog> logs) {
+        for (AuditLog auditLog : logs) {
+            jdbcTemplate.update("INSERT INTO audit_logs VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                auditLog.getId(), auditLog.getUserId(), auditLog.getUsername(), auditLog.getOperation().name(),
+                auditLog.getIpAddress(), auditLog.getOperationStatus().name(), auditLog.getRiskLevel().name(),
+                Timestamp.valueOf(auditLog.getTimestamp()));
+        }
+    }
+
+    private List<Map<String, Object>> stats() {
+        return jdbcTemplate.queryForList("SELECT bucket_hour, dimension, dim_key, user_id, event_count " +
+            "FROM audit_stats_hourly ORDER BY dimension, bucket_hour, dim_key");
+    }
+
+    private Long count(String dimension, LocalDateTime hour, String key) {
+        List<Long> counts = jdbcTemplate.queryForList("SELECT event_count FROM audit_stats_hourly " +
+            "WHERE dimension = ? AND bucket_hour = ? AND dim_key = ?", Long.class, dimension, Timestamp.valueOf(hour), key);
+        return counts.isEmpty() ? null : counts.get(0);
+    }
+}
@@ -0,0 +1,94 @@
+package gov.changsha.finance.service.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式Merkle根累加器测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class MerkleAccumulatorTest {
+
+    @Test
+    @DisplayName("流式累加结果与按层构建的Merkle树一致")
+    void matchesLevelByLevelTree() throws Exception {
+        for (int n = 1; n <= 70; n++) {
+            List<byte[]> leaves = leaves(n);
+            MerkleAccumulator accumulator = new MerkleAccumulator();
+            leaves.forEach(accumulator::add);
+
+            assertEquals(n, accumulator.getLeafCount());
+            assertArrayEquals(referenceRoot(leaves), accumulator.root(), "叶子数: " + n);
+        }
+    }
+
+    @Test
+    @DisplayName("修改、删除或交换任一叶子后根发生变化")
+    void detectsChanges() throws Exception {
+        List<byte[]> leaves = leaves(33);
+        byte[] root = rootOf(leaves);
+
+        List<byte[]> modified = new ArrayList<>(leaves);
+        modified.set(17, sha256("tampered"));
+        assertFalse(MessageDigest.isEqual(root, rootOf(modified)));
+
+        List<byte[]> deleted = new ArrayList<>(leaves);
+        deleted.remove(32);
+        assertFalse(MessageDigest.isEqual(root, rootOf(deleted)));
+
+        List<byte[]> swapped = new ArrayList<>(leaves);
+        swapped.set(3, leaves.get(4));
+        swapped.set(4, leaves.get(3));
+        assertFalse(MessageDigest.isEqual(root, rootOf(swapped)));
+    }
+
+    @Test
+    @DisplayName("无叶子时根为空")
+    void emptyRootIsNull() {
+        assertNull(new MerkleAccumulator().root());
+    }
+
+    private static byte[] rootOf(List<byte[]> leaves) {
+        MerkleAccumulator accumulator = new MerkleAccumulator();
+        leaves.forEach(accumulator::add);
+        return accumulator.root();
+    }
+
+    /**
+     * 参考实现：按2的幂拆分左子树（与流式累加定义一致的RFC 6962风格树）
+     */
+    private static byte[] referenceRoot(List<byte[]> leaves) throws Exception {
+        if (leaves.size() == 1) {
+            return leaves.get(0);
+        }
+        int split = Integer.highestOneBit(leaves.size() - 1);
+        byte[] left = referenceRoot(leaves.subList(0, split));
+        byte[] right = referenceRoot(leaves.subList(split, leaves.size()));
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update((byte) 0x01);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static List<byte[]> leaves(int n) throws Exception {
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            leaves.add(sha256("row-" + i));
+        }
+        return leaves;
+    }
+
+    private static byte[] sha256(String value) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(value.getBytes());
+    }
+}
@@ -0,0 +1,81 @@
+package gov.changsha.finance.service.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 滑动窗口计数器与高频近似统计测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class SlidingWindowCounterTest {
+
+    private static final long WINDOW = 60_000L;
+
+    @Test
+    @DisplayName("窗口内累加，移出窗口的桶不再计入")
+    void slidesOutExpiredBuckets() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 6, 100, 1);
+        long t0 = 1_000_000L;
+
+        assertEquals(1, counter.increment("10.0.0.1", t0));
+        assertEquals(2, counter.increment("10.0.0.1", t0 + 5_000));
+        assertEquals(3, counter.increment("10.0.0.1", t0 + 30_000));
+        assertEquals(3, counter.count("10.0.0.1", t0 + 55_000));
+
+        // 前两次所在的桶移出窗口
+        assertEquals(1, counter.count("10.0.0.1", t0 + 70_000));
+        assertEquals(0, counter.count("10.0.0.1", t0 + 100_000));
+        assertEquals(1, counter.increment("10.0.0.1", t0 + 200_000));
+        assertEquals(0, counter.count("10.0.0.2", t0));
+    }
+
+    @Test
+    @DisplayName("容量满时先清理过期键，活跃键占满后拒绝新键")
+    void boundedCapacity() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(WINDOW, 6, 8, 1);
+        long t0 = 1_000_000L;
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (counter.increment("user" + i, t0) > 0) {
+                accepted++;
+            }
+        }
+        assertTrue(accepted >= 8 && accepted < 100, "接受的键数: " + accepted);
+        assertTrue(counter.getRejectedCount() > 0);
+        assertEquals(accepted, counter.size());
+
+        // 窗口过后旧键被清理，新键可以进入
+        assertEquals(1, counter.increment("late-user", t0 + 2 * WINDOW));
+        assertEquals(0, counter.count("user0", t0 + 2 * WINDOW));
+    }
+
+    @Test
+    @DisplayName("高频键在大量长尾键中被保留且估计值不低于真实值")
+    void heavyHittersSurviveLongTail() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(16, WINDOW);
+        long t0 = 1_000_000L;
+        for (int i = 0; i < 5_000; i++) {
+            sketch.offer("scanner-" + i, t0);
+            if (i % 10 == 0) {
+                sketch.offer("10.9.9.9", t0);
+            }
+        }
+
+        List<HeavyHitterSketch.Entry> top = sketch.top(1, t0);
+        assertEquals("10.9.9.9", top.get(0).getKey());
+        assertTrue(top.get(0).getCount() >= 500);
+        assertTrue(sketch.guaranteed("10.9.9.9", t0) <= 500);
+        assertEquals(5_500, sketch.total(t0));
+
+        // 进入下一窗口后当前计数清零，上一窗口结果仍可查询
+        assertEquals(0, sketch.guaranteed("10.9.9.9", t0 + WINDOW));
+        assertEquals("10.9.9.9", sketch.previousWindow(t0 + WINDOW).get(0).getKey());
+    }
+}
@@ -0,0 +1,149 @@
+package gov.changsha.finance.service.backup;
+
+import gov.changsha.finance.service.backup.BackupManifest.Entry;
+import gov.changsha.finance.service.backup.BackupRecordStore.BackupType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 备份清单索引测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class BackupManifestTest {
+
+    private static final String FULL = "manday_assess_backup_20251005_020000.sql.gz.enc";
+    private static final String INCR_1 = "manday_assess_backup_20251006_020000_incr.ndjson.gz.enc";
+    private static final String INCR_2 = "manday_assess_backup_20251007_020000_incr.ndjson.gz.enc";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("追加写入后重新载入，条目与恢复链一致")
+    void reloadsFromAppendOnlyFile() throws IOException {
+        BackupManifest manifest = newManifest();
+        manifest.add(entry(FULL, BackupType.FULL, null, LocalDateTime.of(2025, 10, 5, 2, 0)));
+        manifest.add(entry(INCR_1, BackupType.INCREMENTAL, FULL, LocalDateTime.of(2025, 10, 6, 2, 0)));
+        manifest.add(entry(INCR_2, BackupType.INCREMENTAL, INCR_1, LocalDateTime.of(2025, 10, 7, 2, 0)));
+        manifest.add(entry("manday_assess_backup_20251008_020000.sql.gz.enc", BackupType.FULL, null,
+                           LocalDateTime.of(2025, 10, 8, 2, 0)));
+        manifest.remove("manday_assess_backup_20251008_020000.sql.gz.enc");
+
+        BackupManifest reloaded = newManifest();
+        assertEquals(List.of(INCR_2, INCR_1, FULL), names(reloaded.list()));
+        assertEquals(List.of(FULL, INCR_1, INCR_2), names(reloaded.resolveChain(INCR_2)));
+        assertEquals(INCR_1, reloaded.findRestorePoint(LocalDateTime.of(2025, 10, 6, 12, 0)).getName());
+        assertNull(reloaded.findRestorePoint(LocalDateTime.of(2025, 10, 1, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("末行写入中断时丢弃该行，中间行损坏时扫描目录重建")
+    void dropsTornTailAndRebuildsWhenCorrupt() throws IOException {
+        writeBackup(FULL, "full");
+        writeBackup(INCR_1, "incr");
+        BackupManifest manifest = newManifest();
+        manifest.add(entry(FULL, BackupType.FULL, null, LocalDateTime.of(2025, 10, 5, 2, 0)));
+        manifest.add(entry(INCR_1, BackupType.INCREMENTAL, FULL, LocalDateTime.of(2025, 10, 6, 2, 0)));
+        Path file = dir.resolve(BackupManifest.FILE_NAME);
+        Files.writeString(file, "0badc0de\tA\tmanday_assess_backup_2025", StandardOpenOption.APPEND);
+
+        BackupManifest reloaded = newManifest();
+        assertEquals(List.of(INCR_1, FULL), names(reloaded.list()));
+        assertEquals("00", reloaded.find(FULL).getSha256());
+
+        List<String> lines = Files.readAllLines(file);
+        lines.set(1, lines.get(1).replace("FULL", "FULX"));
+        Files.write(file, lines);
+
+        List<Entry> rebuilt = newManifest().list();
+        assertEquals(List.of(INCR_1, FULL), names(rebuilt));
+        assertEquals(BackupManifest.sha256Of(dir.resolve(FULL)), rebuilt.get(1).getSha256());
+    }
+
+    @Test
+    @DisplayName("清单缺失时扫描目录重建，增量备份的父备份按时间推断")
+    void rebuildsWhenMissing() throws IOException {
+        writeBackup(FULL, "full");
+        writeBackup(INCR_1, "incr-1");
+        writeBackup(INCR_2, "incr-2");
+        writeBackup(INCR_2.replace(".enc", ".enc.part"), "partial");
+
+        BackupManifest manifest = newManifest();
+        assertEquals(List.of(FULL, INCR_1, INCR_2), names(manifest.resolveChain(INCR_2)));
+        Entry full = manifest.find(FULL);
+        assertEquals(LocalDateTime.of(2025, 10, 5, 2, 0), full.getCreatedAt());
+        assertEquals(4, full.getSizeBytes());
+        assertTrue(full.isEncrypted());
+        assertTrue(Files.exists(dir.resolve(BackupManifest.FILE_NAME)));
+    }
+
+    @Test
+    @DisplayName("分级保留：近期全部保留，按周、按月保留全量，被保留增量的恢复链不被删除")
+    void gfsRetentionKeepsChains() throws IOException {
+        BackupManifest manifest = newManifest();
+        LocalDate today = LocalDate.of(2025, 10, 15);
+        String parent = null;
+        for (LocalDate day = today.minusDays(120); !day.isAfter(today); day = day.plusDays(1)) {
+            boolean full = day.getDayOfWeek() == DayOfWeek.SUNDAY || parent == null;
+            String name = "manday_assess_backup_" + day.toString().replace("-", "") + "_020000" +
+                          (full ? ".sql.gz.enc" : "_incr.ndjson.gz.enc");
+            manifest.add(entry(name, full ? BackupType.FULL : BackupType.INCREMENTAL, full ? null : parent,
+                               day.atTime(2, 0)));
+            parent = name;
+        }
+
+        List<Entry> expired = manifest.selectExpired(today, 7, 4, 3);
+        Set<String> expiredNames = expired.stream().map(Entry::getName).collect(Collectors.toSet());
+        List<Entry> kept = manifest.list().stream()
+            .filter(entry -> !expiredNames.contains(entry.getName()))
+            .collect(Collectors.toList());
+
+        for (Entry entry : kept) {
+            // 每个保留的备份都能解析出完整的恢复链
+            for (Entry link : manifest.resolveChain(entry.getName())) {
+                assertFalse(expiredNames.contains(link.getName()), entry.getName() + " 依赖已删除的 " + link.getName());
+            }
+        }
+        assertTrue(kept.stream().anyMatch(entry -> entry.getCreatedAt().toLocalDate().equals(today.minusDays(6))));
+        assertTrue(kept.stream().noneMatch(entry -> entry.getCreatedAt().toLocalDate().isBefore(LocalDate.of(2025, 8, 1))));
+        assertTrue(kept.stream()
+            .filter(entry -> entry.getCreatedAt().toLocalDate().isBefore(today.minusDays(13)))
+            .allMatch(entry -> entry.getType() == BackupType.FULL));
+        assertTrue(expired.size() > 90);
+    }
+
+    private BackupManifest newManifest() {
+        return new BackupManifest(dir, Collections::emptyList);
+    }
+
+    private void writeBackup(String name, String content) throws IOException {
+        Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static Entry entry(String name, BackupType type, String parent, LocalDateTime createdAt) {
+        return new Entry(name, type, 100, "00", createdAt, null, createdAt.minusMinutes(1), parent, null, true);
+    }
+
+    private static List<String> names(List<Entry> entries) {
+        return entries.stream().map(Entry::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,174 @@
+package gov.changsha.finance.service.backup;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 去重数据块存储测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class ChunkStoreTest {
+
+    private static final int MIN = 1024;
+    private static final int AVG = 4096;
+    private static final int MAX = 16384;
+
+    private static ExecutorService pool;
+    private static SecretKey key;
+
+    @TempDir
+    Path backupDir;
+
+    @BeforeAll
+    static void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        key = GcmChunkFormat.deriveKey("test-backup-key");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("分段写入后按配方读回原文，加密与不加密均可")
+    void roundTrip() throws IOException {
+        for (SecretKey chunkKey : new SecretKey[]{key, null}) {
+            ChunkStore store = store(chunkKey);
+            for (int size : new int[]{0, 1, MIN, MAX, MAX + 1, 200_000}) {
+                byte[] data = random(size, size);
+                byte[] recipe = write(store, data, 777);
+                assertArrayEquals(data, read(store, recipe));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("开头插入数据后只有少数块是新的")
+    void insertedBytesOnlyAffectNearbyChunks() throws IOException {
+        ChunkStore store = store(key);
+        byte[] original = random(500_000, 1);
+        ChunkStore.Writer first = writer(store, original);
+        byte[] shifted = new byte[original.length + 100];
+        System.arraycopy(random(100, 2), 0, shifted, 0, 100);
+        System.arraycopy(original, 0, shifted, 100, original.length);
+        ChunkStore.Writer second = writer(store, shifted);
+
+        assertTrue(first.getChunkCount() > 50);
+        assertTrue(second.getNewChunks() <= 3, "新块数: " + second.getNewChunks());
+        assertTrue(second.getStoredBytes() < first.getStoredBytes() / 10);
+    }
+
+    @Test
+    @DisplayName("回收只删除不再被配方引用的块")
+    void collectsUnreferencedChunks() throws IOException {
+        ChunkStore store = store(key);
+        byte[] shared = random(100_000, 3);
+        byte[] expiring = random(100_000, 4);
+        Path kept = backupDir.resolve("manday_assess_backup_20251019_020000.sql.cas");
+        Path expired = backupDir.resolve("manday_assess_backup_20251018_020000.sql.cas");
+        Files.write(kept, write(store, shared, 4096));
+        byte[] both = Arrays.copyOf(shared, shared.length + expiring.length);
+        System.arraycopy(expiring, 0, both, shared.length, expiring.length);
+        Files.write(expired, write(store, both, 4096));
+
+        Files.delete(expired);
+        ChunkStore.GcResult notYet = store.collectGarbage(backupDir, Instant.now().minusSeconds(3600));
+        assertEquals(0, notYet.getDeletedChunks());
+
+        ChunkStore.GcResult result = store.collectGarbage(backupDir, Instant.now().plusSeconds(1));
+        assertEquals(1, result.getRecipes());
+        assertTrue(result.getDeletedChunks() > 0);
+        assertEquals(result.getLiveChunks(), chunkFiles().size());
+        assertArrayEquals(shared, read(store, Files.readAllBytes(kept)));
+    }
+
+    @Test
+    @DisplayName("块被篡改、缺失或配方被截断时读取失败")
+    void detectsCorruption() throws IOException {
+        ChunkStore store = store(key);
+        byte[] recipe = write(store, random(50_000, 5), 4096);
+
+        byte[] truncated = Arrays.copyOf(recipe, recipe.length - 20);
+        assertThrows(CorruptBackupException.class, () -> read(store, truncated));
+
+        Path chunk = chunkFiles().get(0);
+        byte[] content = Files.readAllBytes(chunk);
+        content[content.length - 1] ^= 1;
+        Files.write(chunk, content);
+        assertThrows(CorruptBackupException.class, () -> read(store, recipe));
+
+        Files.delete(chunk);
+        assertThrows(CorruptBackupException.class, () -> read(store, recipe));
+    }
+
+    private ChunkStore store(SecretKey chunkKey) {
+        return new ChunkStore(backupDir.resolve(ChunkStore.DIRECTORY_NAME), chunkKey, 6, pool, 8, MIN, AVG, MAX);
+    }
+
+    private static byte[] write(ChunkStore store, byte[] data, int step) throws IOException {
+        ByteArrayOutputStream recipe = new ByteArrayOutputStream();
+        try (OutputStream out = store.openWriter(recipe)) {
+            for (int i = 0; i < data.length; i += step) {
+                out.write(data, i, Math.min(step, data.length - i));
+            }
+        }
+        return recipe.toByteArray();
+    }
+
+    private static ChunkStore.Writer writer(ChunkStore store, byte[] data) throws IOException {
+        ChunkStore.Writer writer = store.openWriter(new ByteArrayOutputStream());
+        writer.write(data);
+        writer.close();
+        return writer;
+    }
+
+    private static byte[] read(ChunkStore store, byte[] recipe) throws IOException {
+        try (InputStream in = store.open(new ByteArrayInputStream(recipe))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private List<Path> chunkFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(backupDir.resolve(ChunkStore.DIRECTORY_NAME))) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 低熵随机数据：可压缩，同时有足够的变化产生块边界
+     */
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        Random random = new Random(seed);
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(16));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,130 @@
+package gov.changsha.finance.service.backup;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分块AES-GCM备份加解密流测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class GcmChunkedStreamTest {
+
+    private static final int CHUNK = 1000;
+    private static final int FRAME = 8 + CHUNK + 16;
+    private static final int HEADER = 20;
+
+    private static ExecutorService pool;
+    private static SecretKey key;
+
+    @BeforeAll
+    static void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        key = GcmChunkFormat.deriveKey("test-backup-key");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("不同长度（含空、整块、跨块）加解密还原")
+    void roundTrip() throws IOException {
+        for (int size : new int[]{0, 1, CHUNK - 1, CHUNK, CHUNK + 1, 10 * CHUNK + 7}) {
+            byte[] data = random(size);
+            byte[] encrypted = encrypt(data);
+            assertTrue(GcmChunkFormat.isChunked(new BufferedInputStream(new ByteArrayInputStream(encrypted))));
+            assertArrayEquals(data, decrypt(encrypted), "长度: " + size);
+        }
+    }
+
+    @Test
+    @DisplayName("篡改、调换、截断均被识别")
+    void detectsCorruption() throws IOException {
+        byte[] encrypted = encrypt(random(5 * CHUNK));
+
+        byte[] tampered = encrypted.clone();
+        tampered[HEADER + FRAME * 2 + 20] ^= 1;
+        assertThrows(CorruptBackupException.class, () -> decrypt(tampered));
+
+        byte[] swapped = encrypted.clone();
+        System.arraycopy(encrypted, HEADER, swapped, HEADER + FRAME, FRAME);
+        System.arraycopy(encrypted, HEADER + FRAME, swapped, HEADER, FRAME);
+        assertThrows(CorruptBackupException.class, () -> decrypt(swapped));
+
+        byte[] truncatedAtFrame = Arrays.copyOf(encrypted, HEADER + FRAME * 4);
+        assertThrows(CorruptBackupException.class, () -> decrypt(truncatedAtFrame));
+
+        byte[] truncatedMidFrame = Arrays.copyOf(encrypted, encrypted.length - 3);
+        assertThrows(CorruptBackupException.class, () -> decrypt(truncatedMidFrame));
+    }
+
+    @Test
+    @DisplayName("密钥不匹配时认证失败")
+    void wrongKeyFails() throws IOException {
+        byte[] encrypted = encrypt(random(CHUNK * 2));
+        SecretKey other = GcmChunkFormat.deriveKey("another-key");
+        assertThrows(CorruptBackupException.class, () -> {
+            try (GcmChunkedInputStream in = new GcmChunkedInputStream(new ByteArrayInputStream(encrypted), other, pool, 2)) {
+                in.readAllBytes();
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("多成员gzip经分块解密后完整解压（成员边界落在块边界附近）")
+    void multiMemberGzipOverChunks() throws IOException {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sql.append("INSERT INTO t VALUES (").append(i).append(");\n");
+        }
+        byte[] data = sql.toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, pool, 4096, 6, 3)) {
+            out.write(data);
+        }
+        byte[] encrypted = encrypt(compressed.toByteArray());
+        try (GZIPInputStream in = new GZIPInputStream(new GcmChunkedInputStream(new ByteArrayInputStream(encrypted), key, pool, 3))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    private static byte[] encrypt(byte[] data) throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (GcmChunkedOutputStream out = new GcmChunkedOutputStream(sink, key, pool, CHUNK, 3)) {
+            out.write(data);
+        }
+        return sink.toByteArray();
+    }
+
+    private static byte[] decrypt(byte[] encrypted) throws IOException {
+        try (GcmChunkedInputStream in = new GcmChunkedInputStream(new ByteArrayInputStream(encrypted), key, pool, 3)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
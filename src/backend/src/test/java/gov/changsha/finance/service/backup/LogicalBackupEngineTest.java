@@ -0,0 +1,184 @@
+package gov.changsha.finance.service.backup;
+
+import gov.changsha.finance.service.backup.LogicalBackupFormat.ColumnType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 逻辑备份导出、导入与COPY编码测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class LogicalBackupEngineTest {
+
+    private static final String SCHEMA =
+        "CREATE TABLE departments (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL, budget NUMERIC(12, 2), active BOOLEAN);" +
+        "CREATE TABLE staff (id BIGINT PRIMARY KEY, department_id BIGINT REFERENCES departments(id), " +
+        "code UUID, avatar VARBINARY(64), profile JSON, hired_at TIMESTAMP, updated_at TIMESTAMP WITH TIME ZONE);";
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    @DisplayName("H2上导出后导入到另一库，数据与外键依赖一致")
+    void roundTripsBetweenDatabases() throws Exception {
+        DataSource source = h2("logical_source");
+        execute(source, SCHEMA +
+            "INSERT INTO departments VALUES (1, '长沙市财政局', 12345.67, TRUE), (2, 'tab\there', NULL, FALSE);" +
+            "INSERT INTO staff VALUES (10, 1, '3f2504e0-4f89-11d3-9a0c-0305e82c3301', X'00ff10', '{\"level\":3}' FORMAT JSON, " +
+            "TIMESTAMP '2025-10-19 08:30:00.123456', TIMESTAMP WITH TIME ZONE '2025-10-19 08:30:00+08:00')," +
+            "(11, 2, NULL, NULL, NULL, NULL, NULL);");
+
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        LogicalBackupEngine.Result exported = engine(source).export(backup);
+        assertEquals(4, exported.getRows());
+        assertEquals(4, LogicalBackupEngine.verify(new ByteArrayInputStream(backup.toByteArray())).getRows());
+
+        DataSource target = h2("logical_target");
+        execute(target, SCHEMA + "INSERT INTO departments VALUES (9, '待覆盖', 1, TRUE);");
+        LogicalBackupEngine.Result restored = engine(target)
+            .restore(new ByteArrayInputStream(backup.toByteArray()), Collections.emptyList(), workDir);
+
+        assertEquals(exported.getTableRows(), restored.getTableRows());
+        assertEquals(rows(source, "SELECT * FROM departments ORDER BY id"), rows(target, "SELECT * FROM departments ORDER BY id"));
+        assertEquals(rows(source, "SELECT * FROM staff ORDER BY id"), rows(target, "SELECT * FROM staff ORDER BY id"));
+    }
+
+    @Test
+    @DisplayName("截断或缺少结束帧的逻辑备份校验失败，且恢复不修改目标库")
+    void rejectsTruncatedBackup() throws Exception {
+        DataSource source = h2("logical_truncated");
+        execute(source, SCHEMA + "INSERT INTO departments VALUES (1, '长沙市财政局', 1, TRUE);");
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        engine(source).export(backup);
+        byte[] truncated = Arrays.copyOf(backup.toByteArray(), backup.size() - 3);
+
+        assertThrows(IOException.class, () -> LogicalBackupEngine.verify(new ByteArrayInputStream(truncated)));
+        execute(source, "UPDATE departments SET name = '已修改'");
+        assertThrows(IOException.class, () -> engine(source)
+            .restore(new ByteArrayInputStream(truncated), Collections.emptyList(), workDir));
+        assertEquals("已修改", rows(source, "SELECT name FROM departments").get(0).get(0));
+    }
+
+    @Test
+    @DisplayName("numeric按10000进制编码为COPY BINARY格式")
+    void encodesNumericForBinaryCopy() throws IOException {
+        ByteBuffer value = binaryValue(ColumnType.NUMERIC, new BigDecimal("-12345.678"));
+        assertEquals(14, value.getInt());
+        assertEquals(3, value.getShort());
+        assertEquals(1, value.getShort());
+        assertEquals(0x4000, value.getShort());
+        assertEquals(3, value.getShort());
+        assertEquals(1, value.getShort());
+        assertEquals(2345, value.getShort());
+        assertEquals(6780, value.getShort());
+
+        value = binaryValue(ColumnType.NUMERIC, new BigDecimal("0.0001234"));
+        assertEquals(12, value.getInt());
+        assertEquals(2, value.getShort());
+        assertEquals(-1, value.getShort());
+        assertEquals(0, value.getShort());
+        assertEquals(7, value.getShort());
+        assertEquals(1, value.getShort());
+        assertEquals(2340, value.getShort());
+
+        value = binaryValue(ColumnType.NUMERIC, new BigDecimal("0.00"));
+        assertEquals(8, value.getInt());
+        assertEquals(0, value.getShort());
+        assertEquals(0, value.getShort());
+        assertEquals(0, value.getShort());
+        assertEquals(2, value.getShort());
+    }
+
+    @Test
+    @DisplayName("时间戳以2000-01-01为纪元编码，文本格式按COPY转义")
+    void encodesTimestampsAndTextRows() throws IOException {
+        ByteBuffer value = binaryValue(ColumnType.TIMESTAMP, LocalDateTime.of(2000, 1, 1, 0, 0, 1));
+        assertEquals(8, value.getInt());
+        assertEquals(1_000_000L, value.getLong());
+
+        String row = new String(PgCopyEncoder.textRow(
+            List.of(ColumnType.TEXT, ColumnType.BYTES, ColumnType.TIMESTAMPTZ, ColumnType.OTHER),
+            new Object[]{"a\tb", new byte[]{0x0f, (byte) 0xa0}, OffsetDateTime.of(2025, 10, 19, 8, 0, 0, 0, ZoneOffset.ofHours(8)), null}),
+            StandardCharsets.UTF_8);
+        assertEquals("a\\tb\t\\\\x0fa0\t2025-10-19 00:00:00.000000+00\t\\N\n", row);
+    }
+
+    private static ByteBuffer binaryValue(ColumnType type, Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PgCopyEncoder.writeBinaryRow(new DataOutputStream(buffer), List.of(type), new Object[]{value});
+        ByteBuffer row = ByteBuffer.wrap(buffer.toByteArray());
+        assertEquals(1, row.getShort());
+        return row;
+    }
+
+    private static LogicalBackupEngine engine(DataSource dataSource) {
+        LogicalBackupEngine engine = new LogicalBackupEngine();
+        ReflectionTestUtils.setField(engine, "dataSource", dataSource);
+        ReflectionTestUtils.setField(engine, "parallelism", 2);
+        ReflectionTestUtils.setField(engine, "fetchSize", 100);
+        ReflectionTestUtils.setField(engine, "blockSize", 16);
+        ReflectionTestUtils.setField(engine, "applyBatchSize", 2);
+        ReflectionTestUtils.setField(engine, "excludeTables", List.of("flyway_schema_history"));
+        return engine;
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement statement = con.createStatement()) {
+            for (String part : sql.split(";")) {
+                if (!part.isBlank()) {
+                    statement.execute(part);
+                }
+            }
+        }
+    }
+
+    private static List<List<String>> rows(DataSource dataSource, String sql) throws SQLException {
+        List<List<String>> rows = new ArrayList<>();
+        try (Connection con = dataSource.getConnection(); Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                List<String> row = new ArrayList<>();
+                for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                    // 带时区时间戳按UTC保存，按时刻比较
+                    Object value = rs.getObject(i);
+                    row.add(value instanceof OffsetDateTime ? ((OffsetDateTime) value).toInstant().toString() : rs.getString(i));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,95 @@
+package gov.changsha.finance.service.backup;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行分块gzip输出流测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class ParallelGzipOutputStreamTest {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static ExecutorService pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("多块数据按原顺序解压还原")
+    void roundTripPreservesOrder() throws IOException {
+        byte[] data = sample(3 * BLOCK_SIZE + 12345);
+        Random random = new Random(7);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(sink, pool, BLOCK_SIZE, 6, 2)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int n = Math.min(data.length - offset, 1 + random.nextInt(100_000));
+                out.write(data, offset, n);
+                offset += n;
+            }
+        }
+        assertArrayEquals(data, gunzip(sink.toByteArray()));
+    }
+
+    @Test
+    @DisplayName("块边界与单字节写入")
+    void exactBlockBoundary() throws IOException {
+        byte[] data = sample(BLOCK_SIZE);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(sink, pool, BLOCK_SIZE, 1, 4)) {
+            out.write(data);
+            out.write('x');
+        }
+        byte[] expected = new byte[BLOCK_SIZE + 1];
+        System.arraycopy(data, 0, expected, 0, BLOCK_SIZE);
+        expected[BLOCK_SIZE] = 'x';
+        assertArrayEquals(expected, gunzip(sink.toByteArray()));
+    }
+
+    @Test
+    @DisplayName("空输入仍输出合法gzip")
+    void emptyInputIsValidGzip() throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(sink, pool, BLOCK_SIZE, 6, 4).close();
+        assertEquals(0, gunzip(sink.toByteArray()).length);
+    }
+
+    private static byte[] sample(int size) {
+        Random random = new Random(size);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(20));
+        }
+        return data;
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+}
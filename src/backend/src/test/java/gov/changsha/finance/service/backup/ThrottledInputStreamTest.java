@@ -0,0 +1,52 @@
+package gov.changsha.finance.service.backup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 备份限速输入流测试
+ *
+ * @author 开发团队
+ * @version 1.0.0
+ * @since 2025-10-19
+ */
+class ThrottledInputStreamTest {
+
+    @Test
+    @DisplayName("按设定速率读取，读取字节数全部上报")
+    void limitsReadRate() throws IOException {
+        AtomicLong reported = new AtomicLong();
+        byte[] data = new byte[600_000];
+        long started = System.nanoTime();
+        try (InputStream in = new ThrottledInputStream(new ByteArrayInputStream(data), 1_000_000, reported::addAndGet)) {
+            assertEquals(data.length, in.transferTo(OutputStream.nullOutputStream()));
+        }
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(data.length, reported.get());
+        // 令牌桶初始为空，60万字节在每秒100万字节的限速下至少需要约0.6秒
+        assertTrue(elapsedMs >= 500, "耗时过短: " + elapsedMs + "ms");
+    }
+
+    @Test
+    @DisplayName("速率为0时不限速")
+    void unlimitedWhenRateIsZero() throws IOException {
+        AtomicLong reported = new AtomicLong();
+        byte[] data = new byte[8 * 1024 * 1024];
+        long started = System.nanoTime();
+        try (InputStream in = new ThrottledInputStream(new ByteArrayInputStream(data), 0, reported::addAndGet)) {
+            assertEquals(data.length, in.transferTo(OutputStream.nullOutputStream()));
+        }
+
+        assertEquals(data.length, reported.get());
+        assertTrue((System.nanoTime() - started) / 1_000_000 < 2_000);
+    }
+}
@@ -0,0 +1,127 @@
+-- 审计日志分区基准测试：未分区（V13布局）对比按月分区（V21布局）
+--
+-- 用法（独立测试库，勿在生产库执行；50M行约需30GB磁盘、生成数据约20-40分钟）：
+--   psql -d manday_assess_bench -v rows=50000000 -f tests/performance/audit-partition-benchmark.sql 2>&1 | tee audit-partition-benchmark.log
+-- 快速冒烟：-v rows=1000000
+--
+-- 对比项：
+--   1. 时间范围查询（1天计数、1天最新100条、跨月7天按IP统计）——分区表应只扫描命中的分区（EXPLAIN中可见）
+--   2. 不带时间条件的按用户查询——两种布局都走user_id索引，分区表需逐分区探测，预期相近或略慢
+--   3. 保留期清理（删除最早12个月）——未分区为DELETE + VACUUM，分区为DETACH + DROP
+-- 结果以 \timing 输出为准，记录在日志文件中
+
+\set ON_ERROR_STOP on
+\timing on
+
+DROP SCHEMA IF EXISTS audit_bench CASCADE;
+CREATE SCHEMA audit_bench;
+SET search_path TO audit_bench;
+
+-- 未分区布局（与V13一致的列和索引）
+CREATE TABLE audit_flat (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT,
+    username VARCHAR(100),
+    operation VARCHAR(50) NOT NULL,
+    module VARCHAR(50) NOT NULL,
+    operation_desc VARCHAR(500) NOT NULL,
+    operation_status VARCHAR(20) NOT NULL DEFAULT 'SUCCESS',
+    timestamp TIMESTAMP NOT NULL,
+    ip_address VARCHAR(45),
+    risk_level VARCHAR(20) DEFAULT 'LOW',
+    signature VARCHAR(500)
+);
+
+-- 分区布局（与V21一致）
+CREATE TABLE audit_part (LIKE audit_flat INCLUDING DEFAULTS) PARTITION BY RANGE (timestamp);
+ALTER TABLE audit_part ADD PRIMARY KEY (id, timestamp);
+
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', CURRENT_DATE - INTERVAL '23 months')::DATE;
+BEGIN
+    WHILE month_start <= date_trunc('month', CURRENT_DATE)::DATE LOOP
+        EXECUTE format('CREATE TABLE audit_part_y%sm%s PARTITION OF audit_part FOR VALUES FROM (%L) TO (%L)',
+                       to_char(month_start, 'YYYY'), to_char(month_start, 'MM'),
+                       month_start, (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+-- 生成数据：均匀分布在最近24个月
+\echo '== 生成数据 =='
+INSERT INTO audit_flat (user_id, username, operation, module, operation_desc, operation_status, timestamp, ip_address, risk_level, signature)
+SELECT g % 5000,
+       'user' || (g % 5000),
+       (ARRAY['LOGIN','LOGOUT','LOGIN_FAILED','PROJECT_UPDATE','NESMA_CALCULATE','DATA_EXPORT'])[1 + g % 6],
+       (ARRAY['AUTH','PROJECT','NESMA','SYSTEM'])[1 + g % 4],
+       '基准测试操作描述',
+       CASE WHEN g % 20 = 0 THEN 'FAILED' ELSE 'SUCCESS' END,
+       date_trunc('month', CURRENT_DATE - INTERVAL '23 months')
+           + (g::DOUBLE PRECISION / :rows) * (CURRENT_TIMESTAMP - date_trunc('month', CURRENT_DATE - INTERVAL '23 months')),
+       '10.' || (g % 250) || '.' || (g % 200) || '.' || (g % 100),
+       (ARRAY['LOW','LOW','LOW','MEDIUM','HIGH'])[1 + g % 5],
+       md5(g::TEXT) || md5((g + 1)::TEXT)
+  FROM generate_series(1, :rows) AS g;
+
+INSERT INTO audit_part SELECT * FROM audit_flat;
+
+CREATE INDEX ON audit_flat(user_id);
+CREATE INDEX ON audit_flat(timestamp);
+CREATE INDEX ON audit_flat(ip_address);
+CREATE INDEX ON audit_part(user_id);
+CREATE INDEX ON audit_part(timestamp);
+CREATE INDEX ON audit_part(ip_address);
+VACUUM ANALYZE audit_flat;
+VACUUM ANALYZE audit_part;
+
+\echo '== 1a. 1天计数（findByTimestampBetween / countByTimestampBetween） =='
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT COUNT(*) FROM audit_flat
+ WHERE timestamp BETWEEN CURRENT_DATE - INTERVAL '40 days' AND CURRENT_DATE - INTERVAL '39 days';
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT COUNT(*) FROM audit_part
+ WHERE timestamp BETWEEN CURRENT_DATE - INTERVAL '40 days' AND CURRENT_DATE - INTERVAL '39 days';
+
+\echo '== 1b. 1天内最新100条 =='
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM audit_flat
+ WHERE timestamp BETWEEN CURRENT_DATE - INTERVAL '40 days' AND CURRENT_DATE - INTERVAL '39 days'
+ ORDER BY timestamp DESC LIMIT 100;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM audit_part
+ WHERE timestamp BETWEEN CURRENT_DATE - INTERVAL '40 days' AND CURRENT_DATE - INTERVAL '39 days'
+ ORDER BY timestamp DESC LIMIT 100;
+
+\echo '== 1c. 跨月7天按IP统计（findIpAccessStatistics） =='
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT ip_address, COUNT(*) FROM audit_flat
+ WHERE timestamp BETWEEN date_trunc('month', CURRENT_DATE) - INTERVAL '3 days' AND date_trunc('month', CURRENT_DATE) + INTERVAL '4 days'
+ GROUP BY ip_address ORDER BY 2 DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT ip_address, COUNT(*) FROM audit_part
+ WHERE timestamp BETWEEN date_trunc('month', CURRENT_DATE) - INTERVAL '3 days' AND date_trunc('month', CURRENT_DATE) + INTERVAL '4 days'
+ GROUP BY ip_address ORDER BY 2 DESC LIMIT 20;
+
+\echo '== 2. 按用户查询（findByUserIdOrderByTimestampDesc，无时间条件） =='
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM audit_flat WHERE user_id = 42 ORDER BY timestamp DESC;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM audit_part WHERE user_id = 42 ORDER BY timestamp DESC;
+
+\echo '== 3a. 保留期清理：未分区 DELETE + VACUUM（最早12个月） =='
+DELETE FROM audit_flat WHERE timestamp < date_trunc('month', CURRENT_DATE - INTERVAL '11 months');
+VACUUM audit_flat;
+SELECT pg_size_pretty(pg_total_relation_size('audit_flat')) AS flat_size_after_delete;
+
+\echo '== 3b. 保留期清理：分区 DETACH + DROP（最早12个月） =='
+DO $$
+DECLARE
+    part RECORD;
+BEGIN
+    FOR part IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+         WHERE i.inhparent = 'audit_bench.audit_part'::regclass
+           AND c.relname < 'audit_part_y' || to_char(CURRENT_DATE - INTERVAL '11 months', 'YYYY') || 'm' || to_char(CURRENT_DATE - INTERVAL '11 months', 'MM')
+    LOOP
+        EXECUTE format('ALTER TABLE audit_bench.audit_part DETACH PARTITION audit_bench.%I', part.relname);
+        EXECUTE format('DROP TABLE audit_bench.%I', part.relname);
+    END LOOP;
+END $$;
+SELECT pg_size_pretty(SUM(pg_total_relation_size(inhrelid))) AS part_size_after_drop
+  FROM pg_inherits WHERE inhparent = 'audit_bench.audit_part'::regclass;
+
+RESET search_path;
+\echo '== 完成；确认后可执行 DROP SCHEMA audit_bench CASCADE 清理 =='